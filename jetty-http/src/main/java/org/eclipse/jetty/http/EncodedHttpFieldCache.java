@@ -0,0 +1,219 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>A cache of the encoded representations of {@link HttpField}s,
+ * shared by all the connections of a server.</p>
+ * <p>HTTP/2 and HTTP/3 encoders encode the fields that are not in their
+ * dynamic table as literals, so the same fields (for example {@code Server},
+ * {@code Content-Type} or security headers) are encoded again and again on
+ * every connection.
+ * When a field can be encoded as a literal without referencing the
+ * connection's dynamic table, an encoder may instead copy its representation
+ * from this cache.</p>
+ * <p>{@link PreEncodedHttpField}s are cached immediately, while other fields
+ * are cached the second time they are seen, so that fields with unique values
+ * do not fill the cache.
+ * Fields whose value changes over time, such as {@code Date} or {@code Expires},
+ * and large fields are never cached, see {@link #isCacheable(HttpField)}.</p>
+ * <p>The cache is bounded by {@link #getMaxFields()}: when it is full, the
+ * fields that have not been used recently are evicted with a CLOCK
+ * (second chance) algorithm, so that the cache follows the fields in use.</p>
+ * <p>Subclasses compute the representations of a field, for example one for
+ * each literal representation of the encoding, in {@link #encode(HttpField)}.</p>
+ */
+@ManagedObject("A cache of encoded HTTP fields")
+public abstract class EncodedHttpFieldCache
+{
+    private static final int MAX_FIELD_LENGTH = 4096;
+    private static final Set<HttpHeader> TIME_VARYING = EnumSet.of(
+        HttpHeader.DATE,
+        HttpHeader.EXPIRES,
+        HttpHeader.AGE,
+        HttpHeader.RETRY_AFTER,
+        HttpHeader.SET_COOKIE,
+        HttpHeader.SET_COOKIE2);
+
+    private final AutoLock _lock = new AutoLock();
+    private final Map<HttpField, Entry> _fields = new ConcurrentHashMap<>();
+    private final Set<HttpField> _candidates = ConcurrentHashMap.newKeySet();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final int _maxFields;
+    private Iterator<Entry> _clock;
+
+    protected EncodedHttpFieldCache(int maxFields)
+    {
+        _maxFields = maxFields;
+    }
+
+    @ManagedAttribute("The max number of cached fields")
+    public int getMaxFields()
+    {
+        return _maxFields;
+    }
+
+    @ManagedAttribute("The number of cached fields")
+    public int getSize()
+    {
+        return _fields.size();
+    }
+
+    @ManagedAttribute("The number of fields found in the cache")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of fields not found in the cache")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of fields evicted from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    @ManagedOperation(value = "Clears the cache", impact = "ACTION")
+    public void clear()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            _fields.clear();
+            _candidates.clear();
+            _clock = null;
+        }
+    }
+
+    /**
+     * @param field the field to encode
+     * @return the representations of the field, or null if the field is not cached
+     */
+    protected byte[][] get(HttpField field)
+    {
+        Entry entry = _fields.get(field);
+        if (entry != null)
+        {
+            // Avoid writing the shared entry on every hit.
+            if (!entry._referenced)
+                entry._referenced = true;
+            _hits.increment();
+            return entry._encoded;
+        }
+
+        _misses.increment();
+        if (!isCacheable(field))
+            return null;
+
+        if (!(field instanceof PreEncodedHttpField) && !_candidates.remove(field))
+        {
+            // Remember the field, and cache it if it is seen again.
+            if (_candidates.size() >= _maxFields)
+                _candidates.clear();
+            _candidates.add(field);
+            return null;
+        }
+
+        entry = new Entry(field, encode(field));
+        if (_fields.putIfAbsent(field, entry) == null && _fields.size() > _maxFields)
+            evict();
+        return entry._encoded;
+    }
+
+    /**
+     * <p>Returns whether the given field may be cached.</p>
+     * <p>Fields whose value changes over time, such as {@code Date},
+     * {@code Expires} or {@code Set-Cookie}, would only pollute the cache
+     * and are not cached, nor are fields larger than 4 KiB.</p>
+     *
+     * @param field the field to test
+     * @return whether the field may be cached
+     */
+    protected boolean isCacheable(HttpField field)
+    {
+        HttpHeader header = field.getHeader();
+        if (header != null && TIME_VARYING.contains(header))
+            return false;
+        return field.getName().length() + field.getValue().length() <= MAX_FIELD_LENGTH;
+    }
+
+    private void evict()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            // The clock hand sweeps the fields, giving a second
+            // chance to those that have been used since the last sweep.
+            while (_fields.size() > _maxFields)
+            {
+                if (_clock == null || !_clock.hasNext())
+                {
+                    _clock = _fields.values().iterator();
+                    if (!_clock.hasNext())
+                        return;
+                }
+                Entry entry = _clock.next();
+                if (entry._referenced)
+                {
+                    entry._referenced = false;
+                }
+                else if (_fields.remove(entry._field, entry))
+                {
+                    _evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param field the field to encode
+     * @return the representations of the field
+     */
+    protected abstract byte[][] encode(HttpField field);
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[size=%d/%d]", getClass().getSimpleName(), hashCode(), getSize(), getMaxFields());
+    }
+
+    private static class Entry
+    {
+        private final HttpField _field;
+        private final byte[][] _encoded;
+        private volatile boolean _referenced;
+
+        private Entry(HttpField field, byte[][] encoded)
+        {
+            _field = field;
+            _encoded = encoded;
+        }
+    }
+}
@@ -31,6 +31,7 @@ public class HttpField
     private final String _value;
     // cached hashcode for case insensitive name
     private int hash = 0;
+    private String _lowerCaseName;
 
     public HttpField(HttpHeader header, String name, String value)
     {
@@ -335,7 +336,16 @@ public class HttpField
 
     public String getLowerCaseName()
     {
-        return _header != null ? _header.lowerCaseName() : StringUtil.asciiToLowerCase(_name);
+        if (_header != null)
+            return _header.lowerCaseName();
+        // Racy, but Strings are immutable and safely published.
+        String lowerCaseName = _lowerCaseName;
+        if (lowerCaseName == null)
+        {
+            lowerCaseName = StringUtil.asciiToLowerCase(_name);
+            _lowerCaseName = lowerCaseName;
+        }
+        return lowerCaseName;
     }
 
     public String getName()
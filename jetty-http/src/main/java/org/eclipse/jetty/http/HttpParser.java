@@ -16,11 +16,16 @@ package org.eclipse.jetty.http;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jetty.http.HttpTokens.EndOfContent;
 import org.eclipse.jetty.util.BufferUtil;
@@ -71,6 +76,10 @@ import static org.eclipse.jetty.http.HttpCompliance.Violation.WHITESPACE_AFTER_F
  * For headers who's value is not known statically (eg. Host, COOKIE) then a
  * per parser dynamic Trie of {@link HttpFields} from previous parsed messages
  * is used to help the parsing of subsequent messages.
+ * Other fields, including those with header names that are not known (eg.
+ * X-Request-Source), are learnt by the dynamic Trie when their name and value
+ * repeat in the messages parsed, so that the {@link HttpField} instances
+ * already built are reused for the subsequent messages.
  * </p>
  * <p>
  * The parser can work in varying compliance modes:
@@ -243,6 +252,10 @@ public class HttpParser
     private int _chunkPosition;
     private boolean _headResponse;
     private boolean _cr;
+    private boolean _lazyFields;
+    private boolean _lazyFieldsParsed;
+    private int[] _lazyOffsets;
+    private HttpHeader[] _lazyHeaders;
     private ByteBuffer _contentChunk;
     private int _length;
     private final StringBuilder _string = new StringBuilder();
@@ -317,11 +330,53 @@ public class HttpParser
         return _fieldCache.isCaseSensitive();
     }
 
+    /**
+     * @return the number of header lookups that were resolved by the header field cache
+     */
+    public long getHeaderCacheHits()
+    {
+        return _fieldCache.getHits();
+    }
+
+    /**
+     * @return the number of header lookups that were not resolved by the header field cache
+     */
+    public long getHeaderCacheMisses()
+    {
+        return _fieldCache.getMisses();
+    }
+
     public void setHeaderCacheCaseSensitive(boolean headerCacheCaseSensitive)
     {
         _fieldCache.setCaseSensitive(headerCacheCaseSensitive);
     }
 
+    /**
+     * @return whether the fields of the requests are parsed in place
+     * @see #setLazyFields(boolean)
+     */
+    public boolean isLazyFields()
+    {
+        return _lazyFields;
+    }
+
+    /**
+     * <p>Sets whether the fields of the requests are parsed in place.</p>
+     * <p>When the whole header block of a request is in the buffer being parsed, the fields
+     * are indexed in a single pass and are passed to {@link HttpHandler#parsedHeaders(LazyHttpFields)}
+     * as a {@link LazyHttpFields} view of the buffer, that only decodes the fields that are accessed.
+     * The handler must not let the buffer be modified until the fields are released.
+     * Otherwise, for example when the header block spans several buffers or is not strictly formatted,
+     * the fields are parsed one by one and passed to {@link HttpHandler#parsedHeader(HttpField)}.</p>
+     * <p>The header cache is not used for the fields parsed in place.</p>
+     *
+     * @param lazyFields whether the fields of the requests are parsed in place
+     */
+    public void setLazyFields(boolean lazyFields)
+    {
+        _lazyFields = lazyFields;
+    }
+
     protected void checkViolation(Violation violation) throws BadMessageException
     {
         if (violation.isAllowedBy(_complianceMode))
@@ -594,6 +649,10 @@ public class HttpParser
         // Process headers
         while (_state.ordinal() < State.HEADER.ordinal() && buffer.hasRemaining() && !handle)
         {
+            // Fast path for the visible characters of the URI.
+            if (_state == State.URI && !_cr && parseURIFast(buffer))
+                continue;
+
             // process each character
             HttpTokens.Token t = next(buffer);
             if (t == null)
@@ -945,6 +1004,19 @@ public class HttpParser
         return handle;
     }
 
+    private static boolean isValueAt(ByteBuffer buffer, int index, String value)
+    {
+        int length = value.length();
+        if (index + length > buffer.limit())
+            return false;
+        for (int i = 0; i < length; ++i)
+        {
+            if ((buffer.get(index + i) & 0xFF) != value.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
     private void checkVersion()
     {
         if (_version == null)
@@ -966,65 +1038,11 @@ public class HttpParser
                 switch (_header)
                 {
                     case CONTENT_LENGTH:
-                        if (_hasTransferEncoding)
-                            checkViolation(TRANSFER_ENCODING_WITH_CONTENT_LENGTH);
-
-                        if (_hasContentLength)
-                        {
-                            checkViolation(MULTIPLE_CONTENT_LENGTHS);
-                            if (convertContentLength(_valueString) != _contentLength)
-                                throw new BadMessageException(HttpStatus.BAD_REQUEST_400, MULTIPLE_CONTENT_LENGTHS.getDescription());
-                        }
-                        _hasContentLength = true;
-
-                        if (_endOfContent != EndOfContent.CHUNKED_CONTENT)
-                        {
-                            _contentLength = convertContentLength(_valueString);
-                            if (_contentLength <= 0)
-                                _endOfContent = EndOfContent.NO_CONTENT;
-                            else
-                                _endOfContent = EndOfContent.CONTENT_LENGTH;
-                        }
+                        parsedContentLength(_valueString);
                         break;
 
                     case TRANSFER_ENCODING:
-                        _hasTransferEncoding = true;
-
-                        if (_hasContentLength)
-                            checkViolation(TRANSFER_ENCODING_WITH_CONTENT_LENGTH);
-
-                        // we encountered another Transfer-Encoding header, but chunked was already set
-                        if (_endOfContent == EndOfContent.CHUNKED_CONTENT)
-                            throw new BadMessageException(HttpStatus.BAD_REQUEST_400, "Bad Transfer-Encoding, chunked not last");
-
-                        if (HttpHeaderValue.CHUNKED.is(_valueString))
-                        {
-                            _endOfContent = EndOfContent.CHUNKED_CONTENT;
-                            _contentLength = -1;
-                        }
-                        else
-                        {
-                            List<String> values = new QuotedCSV(_valueString).getValues();
-                            int chunked = -1;
-                            int len = values.size();
-                            for (int i = 0; i < len; i++)
-                            {
-                                if (HttpHeaderValue.CHUNKED.is(values.get(i)))
-                                {
-                                    if (chunked != -1)
-                                        throw new BadMessageException(HttpStatus.BAD_REQUEST_400, "Bad Transfer-Encoding, multiple chunked tokens");
-                                    chunked = i;
-                                    // declared chunked
-                                    _endOfContent = EndOfContent.CHUNKED_CONTENT;
-                                    _contentLength = -1;
-                                }
-                                // we have a non-chunked token after a declared chunked token
-                                else if (_endOfContent == EndOfContent.CHUNKED_CONTENT)
-                                {
-                                    throw new BadMessageException(HttpStatus.BAD_REQUEST_400, "Bad Transfer-Encoding, chunked not last");
-                                }
-                            }
-                        }
+                        parsedTransferEncoding(_valueString);
                         break;
 
                     case HOST:
@@ -1058,6 +1076,12 @@ public class HttpParser
                         break;
 
                     default:
+                        // Learn the other fields if they repeat.
+                        if (_field == null && _fieldCache.cacheable(_header, _valueString))
+                        {
+                            _field = new HttpField(_header, caseInsensitiveHeader(_headerString, _header.asString()), _valueString);
+                            addToFieldCache = _fieldCache.learn(_field);
+                        }
                         break;
                 }
 
@@ -1070,6 +1094,13 @@ public class HttpParser
                     _fieldCache.add(_field);
                 }
             }
+            // Learn the fields with unknown header names if they repeat.
+            else if (_field == null && _fieldCache.cacheable(_headerString, _valueString))
+            {
+                _field = new HttpField(null, _headerString, _valueString);
+                if (_fieldCache.learn(_field))
+                    _fieldCache.add(_field);
+            }
             _handler.parsedHeader(_field != null ? _field : new HttpField(_header, _headerString, _valueString));
         }
 
@@ -1078,6 +1109,70 @@ public class HttpParser
         _field = null;
     }
 
+    private void parsedContentLength(String value)
+    {
+        if (_hasTransferEncoding)
+            checkViolation(TRANSFER_ENCODING_WITH_CONTENT_LENGTH);
+
+        if (_hasContentLength)
+        {
+            checkViolation(MULTIPLE_CONTENT_LENGTHS);
+            if (convertContentLength(value) != _contentLength)
+                throw new BadMessageException(HttpStatus.BAD_REQUEST_400, MULTIPLE_CONTENT_LENGTHS.getDescription());
+        }
+        _hasContentLength = true;
+
+        if (_endOfContent != EndOfContent.CHUNKED_CONTENT)
+        {
+            _contentLength = convertContentLength(value);
+            if (_contentLength <= 0)
+                _endOfContent = EndOfContent.NO_CONTENT;
+            else
+                _endOfContent = EndOfContent.CONTENT_LENGTH;
+        }
+    }
+
+    private void parsedTransferEncoding(String value)
+    {
+        _hasTransferEncoding = true;
+
+        if (_hasContentLength)
+            checkViolation(TRANSFER_ENCODING_WITH_CONTENT_LENGTH);
+
+        // we encountered another Transfer-Encoding header, but chunked was already set
+        if (_endOfContent == EndOfContent.CHUNKED_CONTENT)
+            throw new BadMessageException(HttpStatus.BAD_REQUEST_400, "Bad Transfer-Encoding, chunked not last");
+
+        if (HttpHeaderValue.CHUNKED.is(value))
+        {
+            _endOfContent = EndOfContent.CHUNKED_CONTENT;
+            _contentLength = -1;
+        }
+        else
+        {
+            List<String> values = new QuotedCSV(value).getValues();
+            int chunked = -1;
+            int len = values.size();
+            for (int i = 0; i < len; i++)
+            {
+                if (HttpHeaderValue.CHUNKED.is(values.get(i)))
+                {
+                    if (chunked != -1)
+                        throw new BadMessageException(HttpStatus.BAD_REQUEST_400, "Bad Transfer-Encoding, multiple chunked tokens");
+                    chunked = i;
+                    // declared chunked
+                    _endOfContent = EndOfContent.CHUNKED_CONTENT;
+                    _contentLength = -1;
+                }
+                // we have a non-chunked token after a declared chunked token
+                else if (_endOfContent == EndOfContent.CHUNKED_CONTENT)
+                {
+                    throw new BadMessageException(HttpStatus.BAD_REQUEST_400, "Bad Transfer-Encoding, chunked not last");
+                }
+            }
+        }
+    }
+
     private void parsedTrailer()
     {
         // handler last header if any.  Delayed to here just in case there was a continuation line (above)
@@ -1105,11 +1200,252 @@ public class HttpParser
     /*
      * Parse the message headers and return true if the handler has signalled for a return
      */
+    /**
+     * <p>Appends to the URI the visible ASCII characters at the position of the buffer,
+     * without looking them up one by one, as they need no other processing.</p>
+     *
+     * @param buffer the buffer to parse
+     * @return whether any character has been parsed
+     */
+    private boolean parseURIFast(ByteBuffer buffer)
+    {
+        int count = HttpTokens.countVisibleAscii(buffer, false);
+        count = limitHeaderBytes(count);
+        if (count == 0)
+            return false;
+        int position = buffer.position();
+        for (int i = 0; i < count; ++i)
+        {
+            _uri.append(buffer.get(position + i));
+        }
+        buffer.position(position + count);
+        return true;
+    }
+
+    /**
+     * <p>Appends to the field value the visible ASCII characters and spaces at the position
+     * of the buffer, without looking them up one by one, as they need no other processing.</p>
+     *
+     * @param buffer the buffer to parse
+     * @return whether any character has been parsed
+     */
+    private boolean parseValueFast(ByteBuffer buffer)
+    {
+        int count = HttpTokens.countVisibleAscii(buffer, true);
+        count = limitHeaderBytes(count);
+        if (count == 0)
+            return false;
+        int position = buffer.position();
+        for (int i = 0; i < count; ++i)
+        {
+            char c = (char)buffer.get(position + i);
+            _string.append(c);
+            // Trailing spaces are not part of the value.
+            if (c != HttpTokens.SPACE)
+                _length = _string.length();
+        }
+        buffer.position(position + count);
+        return true;
+    }
+
+    private int limitHeaderBytes(int count)
+    {
+        if (_maxHeaderBytes > 0)
+        {
+            // Leave the bytes in excess, if any, to the byte by byte
+            // parsing, that reports that the header is too large.
+            count = Math.max(0, Math.min(count, _maxHeaderBytes - _headerBytes));
+            _headerBytes += count;
+        }
+        return count;
+    }
+
+    /**
+     * <p>Indexes the fields of a header block that is entirely in the given buffer.</p>
+     * <p>Only the fields that are strictly formatted are indexed: any other byte sequence,
+     * as well as a header block that is too large or not complete, is left to the byte by
+     * byte parsing, that reports the errors and the compliance violations.
+     * If the header block is indexed, the buffer is positioned at the empty line that ends it.</p>
+     *
+     * @param buffer the buffer positioned at the start of the header block
+     * @return whether the header block was indexed
+     */
+    private boolean parseLazyFields(ByteBuffer buffer)
+    {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        if (_maxHeaderBytes > 0)
+            limit = Math.min(limit, position + Math.max(0, _maxHeaderBytes - _headerBytes));
+        if (_lazyOffsets == null)
+        {
+            _lazyOffsets = new int[64];
+            _lazyHeaders = new HttpHeader[16];
+        }
+
+        int count = 0;
+        int index = position;
+        while (true)
+        {
+            // The empty line that ends the header block.
+            if (limit - index < 2)
+                return false;
+            byte b = buffer.get(index);
+            if (b == HttpTokens.CARRIAGE_RETURN)
+            {
+                if (buffer.get(index + 1) != HttpTokens.LINE_FEED)
+                    return false;
+                break;
+            }
+
+            // The field name, that must be immediately followed by a colon.
+            int nameStart = index;
+            while (index < limit && isFieldNameChar(buffer.get(index)))
+            {
+                ++index;
+            }
+            int nameEnd = index;
+            if (nameEnd == nameStart || index == limit || buffer.get(index) != HttpTokens.COLON)
+                return false;
+            ++index;
+
+            // The field value, without the leading and trailing whitespaces.
+            while (index < limit && isWhiteSpace(buffer.get(index)))
+            {
+                ++index;
+            }
+            int valueStart = index;
+            int valueEnd = index;
+            while (index < limit)
+            {
+                b = buffer.get(index);
+                if (b == HttpTokens.CARRIAGE_RETURN)
+                    break;
+                if (!isWhiteSpace(b))
+                {
+                    if (!isFieldValueChar(b))
+                        return false;
+                    valueEnd = index + 1;
+                }
+                ++index;
+            }
+
+            // The CRLF that ends the field, that must not be followed by a continuation line.
+            if (limit - index < 3 || buffer.get(index + 1) != HttpTokens.LINE_FEED || isWhiteSpace(buffer.get(index + 2)))
+                return false;
+            index += 2;
+
+            int nameLength = nameEnd - nameStart;
+            HttpHeader header = HttpHeader.CACHE.getBest(buffer, nameStart - position, nameLength);
+            if (header != null && header.asString().length() != nameLength)
+                header = null;
+
+            if (count == _lazyHeaders.length)
+            {
+                _lazyHeaders = Arrays.copyOf(_lazyHeaders, count * 2);
+                _lazyOffsets = Arrays.copyOf(_lazyOffsets, count * 8);
+            }
+            _lazyHeaders[count] = header;
+            int offset = count * 4;
+            _lazyOffsets[offset] = nameStart;
+            _lazyOffsets[offset + 1] = nameEnd;
+            _lazyOffsets[offset + 2] = valueStart;
+            _lazyOffsets[offset + 3] = valueEnd;
+            ++count;
+        }
+
+        LazyHttpFields fields = new LazyHttpFields(buffer, Arrays.copyOf(_lazyOffsets, count * 4), Arrays.copyOf(_lazyHeaders, count));
+        Arrays.fill(_lazyHeaders, 0, count, null);
+
+        // Only the fields that the parser interprets are decoded.
+        for (int i = 0; i < count; ++i)
+        {
+            HttpHeader header = fields.getHeader(i);
+            if (header == null)
+                continue;
+            switch (header)
+            {
+                case CONTENT_LENGTH:
+                    parsedContentLength(fields.getField(i).getValue());
+                    break;
+
+                case TRANSFER_ENCODING:
+                    parsedTransferEncoding(fields.getField(i).getValue());
+                    break;
+
+                case HOST:
+                    _host = true;
+                    // Decode the host eagerly, as an invalid host is a bad message.
+                    fields.getField(i);
+                    break;
+
+                case CONNECTION:
+                    // Don't cache headers if not persistent
+                    if (getHeaderCacheSize() > 0 && fields.getField(i).contains(HttpHeaderValue.CLOSE.asString()))
+                        _fieldCache.setCapacity(-1);
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        _headerBytes += index - position;
+        buffer.position(index);
+        _handler.parsedHeaders(fields);
+        return true;
+    }
+
+    private static boolean isFieldNameChar(byte b)
+    {
+        switch (HttpTokens.TOKENS[0xff & b].getType())
+        {
+            case ALPHA:
+            case DIGIT:
+            case TCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isFieldValueChar(byte b)
+    {
+        switch (HttpTokens.TOKENS[0xff & b].getType())
+        {
+            case ALPHA:
+            case DIGIT:
+            case TCHAR:
+            case VCHAR:
+            case COLON:
+            case OTEXT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isWhiteSpace(byte b)
+    {
+        return b == HttpTokens.SPACE || b == HttpTokens.TAB;
+    }
+
     protected boolean parseFields(ByteBuffer buffer)
     {
+        // Try to parse the whole header block of the request in place.
+        if (_lazyFields && !_lazyFieldsParsed && _state == State.HEADER && buffer.hasRemaining())
+        {
+            _lazyFieldsParsed = true;
+            if (_requestHandler != null && !CASE_SENSITIVE_FIELD_NAME.isAllowedBy(_complianceMode))
+                parseLazyFields(buffer);
+        }
+
         // Process headers
         while ((_state == State.HEADER || _state == State.TRAILER) && buffer.hasRemaining())
         {
+            // Fast path for the visible characters and spaces of a field value.
+            if (_fieldState == FieldState.IN_VALUE && !_cr && parseValueFast(buffer))
+                continue;
+
             // process each character
             HttpTokens.Token t = next(buffer);
             if (t == null)
@@ -1267,12 +1603,13 @@ public class HttpParser
                                         }
                                     }
 
-                                    if (v != null && isHeaderCacheCaseSensitive())
+                                    // The values of learnt fields are always matched exactly, as their case may matter.
+                                    if (v != null && (isHeaderCacheCaseSensitive() || _fieldCache.isLearnt(cachedField)))
                                     {
-                                        String ev = BufferUtil.toString(buffer, buffer.position() + n.length() + 1, v.length(), StandardCharsets.ISO_8859_1);
-                                        if (!v.equals(ev))
+                                        int vi = buffer.position() + n.length() + 1;
+                                        if (!isValueAt(buffer, vi, v))
                                         {
-                                            v = ev;
+                                            v = BufferUtil.toString(buffer, vi, v.length(), StandardCharsets.ISO_8859_1);
                                             cachedField = new HttpField(cachedField.getHeader(), n, v);
                                         }
                                     }
@@ -1888,6 +2225,7 @@ public class HttpParser
         _headerBytes = 0;
         _host = false;
         _headerComplete = false;
+        _lazyFieldsParsed = false;
     }
 
     public void servletUpgrade()
@@ -1951,6 +2289,24 @@ public class HttpParser
          */
         void parsedHeader(HttpField field);
 
+        /**
+         * <p>Called by the parser instead of {@link #parsedHeader(HttpField)} when the fields
+         * of a request have been {@link HttpParser#setLazyFields(boolean) parsed in place}.</p>
+         * <p>The default implementation decodes all the fields and passes them to
+         * {@link #parsedHeader(HttpField)}; implementations that keep the given fields
+         * must not let the parsed buffer be modified until the fields are released.</p>
+         *
+         * @param fields The fields parsed, that reference the parsed buffer
+         */
+        default void parsedHeaders(LazyHttpFields fields)
+        {
+            for (HttpField field : fields)
+            {
+                parsedHeader(field);
+            }
+            fields.release();
+        }
+
         /**
          * This is the method called by parser when an HTTP Trailer name and value is found
          *
@@ -2013,10 +2369,16 @@ public class HttpParser
 
     private static class FieldCache
     {
+        private static final int MAX_CANDIDATES = 64;
+
         private int _size = 1024;
         private Index.Mutable<HttpField> _cache;
         private List<HttpField> _cacheableFields;
+        private Set<HttpField> _candidates;
+        private Set<HttpField> _learnt;
         private boolean _caseSensitive;
+        private long _hits;
+        private long _misses;
 
         public int getCapacity()
         {
@@ -2052,10 +2414,27 @@ public class HttpParser
             return _cache;
         }
 
+        public long getHits()
+        {
+            return _hits;
+        }
+
+        public long getMisses()
+        {
+            return _misses;
+        }
+
         public HttpField getBest(ByteBuffer buffer, int i, int remaining)
         {
             Index.Mutable<HttpField> cache = _cache;
-            return cache == null ? null : _cache.getBest(buffer, i, remaining);
+            if (cache == NO_CACHE)
+                return null;
+            HttpField field = cache == null ? null : cache.getBest(buffer, i, remaining);
+            if (field == null)
+                _misses++;
+            else
+                _hits++;
+            return field;
         }
 
         public void add(HttpField field)
@@ -2069,6 +2448,8 @@ public class HttpParser
             else if (!_cache.put(field))
             {
                 _cache.clear();
+                if (_learnt != null)
+                    _learnt.retainAll(Collections.singleton(field));
                 _cache.put(field);
             }
         }
@@ -2078,6 +2459,46 @@ public class HttpParser
             return isEnabled() && header != null && valueString.length() <= _size;
         }
 
+        public boolean cacheable(String headerString, String valueString)
+        {
+            return isEnabled() && headerString != null && valueString != null && headerString.length() + valueString.length() <= _size;
+        }
+
+        /**
+         * @param field the cached field
+         * @return whether the field has been cached because it repeated
+         */
+        public boolean isLearnt(HttpField field)
+        {
+            return _learnt != null && _learnt.contains(field);
+        }
+
+        /**
+         * <p>Records a field that is not cached, so that it is cached if it repeats.</p>
+         * <p>Fields are only cached when they have been seen before, so that fields
+         * with values that are unique to each message do not evict from the cache
+         * the fields that repeat.</p>
+         *
+         * @param field the field to learn
+         * @return whether the field has been seen before and should be cached
+         */
+        public boolean learn(HttpField field)
+        {
+            if (_candidates == null)
+                _candidates = new HashSet<>();
+            if (_candidates.remove(field))
+            {
+                if (_learnt == null)
+                    _learnt = Collections.newSetFromMap(new IdentityHashMap<>());
+                _learnt.add(field);
+                return true;
+            }
+            if (_candidates.size() >= MAX_CANDIDATES)
+                _candidates.clear();
+            _candidates.add(field);
+            return false;
+        }
+
         private void prepare()
         {
             if (_cache == null && _cacheableFields != null)
@@ -13,6 +13,9 @@
 
 package org.eclipse.jetty.http;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.eclipse.jetty.util.TypeUtil;
 
 /**
@@ -113,6 +116,9 @@ public class HttpTokens
         }
     }
 
+    private static final long BYTES_0X01 = 0x0101010101010101L;
+    private static final long BYTES_0X80 = 0x8080808080808080L;
+
     public static final Token[] TOKENS = new Token[256];
 
     static
@@ -183,5 +189,53 @@ public class HttpTokens
             }
         }
     }
+
+    /**
+     * <p>Counts the visible ASCII characters (0x21-0x7E), and optionally the spaces,
+     * from the position of the given buffer, up to the first other byte.</p>
+     * <p>The bytes are scanned 8 at a time, as the bytes of a {@code long}, so that
+     * the common characters of the request line and of the header values do not
+     * need to be looked up one by one in {@link #TOKENS}.</p>
+     *
+     * @param buffer the buffer to scan, whose position is not changed
+     * @param spaces whether spaces are counted
+     * @return the number of visible ASCII characters from the position of the buffer
+     */
+    static int countVisibleAscii(ByteBuffer buffer, boolean spaces)
+    {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int index = position;
+        if (limit - index >= 8)
+        {
+            // The first byte of the buffer must be the least significant one,
+            // as only the least significant flagged byte is reliable below.
+            boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+            long lowest = (spaces ? SPACE : SPACE + 1) * BYTES_0X01;
+            while (limit - index >= 8)
+            {
+                long word = buffer.getLong(index);
+                if (bigEndian)
+                    word = Long.reverseBytes(word);
+                // Flag the bytes lower than the lowest visible character,
+                // and the bytes higher than 0x7E, including the non ASCII bytes.
+                long lower = (word - lowest) & ~word & BYTES_0X80;
+                long higher = ((word + BYTES_0X01) | word) & BYTES_0X80;
+                long flags = lower | higher;
+                if (flags != 0)
+                    return index + (Long.numberOfTrailingZeros(flags) >>> 3) - position;
+                index += 8;
+            }
+        }
+        int lowest = spaces ? SPACE : SPACE + 1;
+        while (index < limit)
+        {
+            byte b = buffer.get(index);
+            if (b < lowest || b > 0x7E)
+                break;
+            ++index;
+        }
+        return index - position;
+    }
 }
 
@@ -0,0 +1,285 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.StringUtil;
+
+/**
+ * <p>An immutable view of the HTTP fields of a header block that has been parsed in place.</p>
+ * <p>The fields only hold the offsets of their names and values in the buffer that contains
+ * the header block: each {@link HttpField} is decoded the first time it is accessed, while
+ * the lookups by {@link HttpHeader} or by name only decode the fields they return.
+ * The well known field names are resolved to their {@link HttpHeader} when the header block
+ * is parsed, so the known fields always have their canonical name.</p>
+ * <p>The bytes of the header block must not be modified until {@link #release()} is called,
+ * after which only the fields that have already been decoded can be accessed.</p>
+ * <p>The fields may be accessed concurrently: a field decoded at the same time by several
+ * threads is decoded more than once into equal, immutable, {@link HttpField}s.
+ * Since the fields are not all decoded, this is not an {@link HttpFields.Immutable};
+ * {@link #asImmutable()} decodes all the fields.</p>
+ *
+ * @see HttpParser#setLazyFields(boolean)
+ */
+public class LazyHttpFields implements HttpFields
+{
+    private final HttpField[] _fields;
+    private final int[] _offsets;
+    private final HttpHeader[] _headers;
+    private volatile ByteBuffer _buffer;
+
+    /**
+     * @param buffer the buffer containing the header block
+     * @param offsets the absolute indexes in the buffer of the start and end of the name
+     * and of the start and end of the value of each field, 4 per field
+     * @param headers the known header of each field, or null for the unknown fields
+     */
+    LazyHttpFields(ByteBuffer buffer, int[] offsets, HttpHeader[] headers)
+    {
+        _fields = new HttpField[headers.length];
+        _buffer = buffer;
+        _offsets = offsets;
+        _headers = headers;
+    }
+
+    /**
+     * @param index the index of the field
+     * @return the known header of the field at the given index, or null if the field name is
+     * not a known header, without decoding the field
+     */
+    public HttpHeader getHeader(int index)
+    {
+        if (index >= _headers.length)
+            throw new NoSuchElementException();
+        return _headers[index];
+    }
+
+    /**
+     * @return whether the fields have been released
+     */
+    public boolean isReleased()
+    {
+        return _buffer == null;
+    }
+
+    /**
+     * <p>Releases the reference to the buffer containing the header block.</p>
+     * <p>The buffer can be reused once the fields have been released,
+     * but the fields that have not been decoded yet cannot be accessed anymore.</p>
+     */
+    public void release()
+    {
+        _buffer = null;
+    }
+
+    @Override
+    public HttpField getField(int index)
+    {
+        if (index >= _fields.length)
+            throw new NoSuchElementException();
+        HttpField field = _fields[index];
+        if (field == null)
+        {
+            // Racy, but HttpField instances are immutable and safely published.
+            field = decode(index);
+            _fields[index] = field;
+        }
+        return field;
+    }
+
+    @Override
+    public Immutable asImmutable()
+    {
+        HttpField[] fields = new HttpField[_fields.length];
+        for (int i = 0; i < fields.length; ++i)
+        {
+            fields[i] = getField(i);
+        }
+        return new Immutable(fields);
+    }
+
+    @Override
+    public int size()
+    {
+        return _fields.length;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof LazyHttpFields))
+            return false;
+        return isEqualTo((HttpFields)o);
+    }
+
+    private HttpField decode(int index)
+    {
+        ByteBuffer buffer = _buffer;
+        if (buffer == null)
+            throw new IllegalStateException("Released " + getClass().getSimpleName());
+
+        int offset = index * 4;
+        int valueStart = _offsets[offset + 2];
+        String value = BufferUtil.toString(buffer, valueStart, _offsets[offset + 3] - valueStart, StandardCharsets.ISO_8859_1);
+        HttpHeader header = _headers[index];
+        if (header == null)
+        {
+            int nameStart = _offsets[offset];
+            String name = BufferUtil.toString(buffer, nameStart, _offsets[offset + 1] - nameStart, StandardCharsets.US_ASCII);
+            return new HttpField(null, name, value);
+        }
+        if (header == HttpHeader.HOST && !value.isEmpty())
+            return new HostPortHttpField(header, header.asString(), value);
+        return new HttpField(header, header.asString(), value);
+    }
+
+    private boolean is(int index, String name)
+    {
+        HttpHeader header = _headers[index];
+        if (header != null)
+            return header.is(name);
+
+        // Compare the name in place, case insensitively as HttpField.is(String).
+        ByteBuffer buffer = _buffer;
+        if (buffer == null)
+            return getField(index).is(name);
+        int offset = index * 4;
+        int start = _offsets[offset];
+        int length = _offsets[offset + 1] - start;
+        if (length != name.length())
+            return false;
+        for (int i = 0; i < length; ++i)
+        {
+            char c = name.charAt(i);
+            if (c > 0x7F || StringUtil.asciiToLowerCase((byte)c) != StringUtil.asciiToLowerCase(buffer.get(start + i)))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String get(String header)
+    {
+        HttpField field = getField(header);
+        return field == null ? null : field.getValue();
+    }
+
+    @Override
+    public String get(HttpHeader header)
+    {
+        HttpField field = getField(header);
+        return field == null ? null : field.getValue();
+    }
+
+    @Override
+    public boolean contains(HttpHeader header)
+    {
+        for (HttpHeader h : _headers)
+        {
+            if (h == header)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(HttpHeader header, String value)
+    {
+        for (int i = 0; i < _headers.length; ++i)
+        {
+            if (_headers[i] == header && getField(i).contains(value))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(String name)
+    {
+        return getField(name) != null;
+    }
+
+    @Override
+    public HttpField getField(HttpHeader header)
+    {
+        for (int i = 0; i < _headers.length; ++i)
+        {
+            if (_headers[i] == header)
+                return getField(i);
+        }
+        return null;
+    }
+
+    @Override
+    public HttpField getField(String name)
+    {
+        for (int i = 0; i < _headers.length; ++i)
+        {
+            if (is(i, name))
+                return getField(i);
+        }
+        return null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = 0;
+        for (int i = _fields.length; i-- > 0; )
+            hash ^= getField(i).hashCode();
+        return hash;
+    }
+
+    @Override
+    public Iterator<HttpField> iterator()
+    {
+        return new Iterator<>()
+        {
+            int _index = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return _index < _fields.length;
+            }
+
+            @Override
+            public HttpField next()
+            {
+                return getField(_index++);
+            }
+        };
+    }
+
+    @Override
+    public Stream<HttpField> stream()
+    {
+        return IntStream.range(0, _fields.length).mapToObj(this::getField);
+    }
+
+    @Override
+    public String toString()
+    {
+        return asString();
+    }
+}
@@ -11,16 +11,25 @@
 // ========================================================================
 //
 
-package org.eclipse.jetty.http3.qpack.internal.util;
-
-import java.nio.ByteBuffer;
-
-public class HuffmanEncoder
+package org.eclipse.jetty.http.compression;
+
+/**
+ * <p>The static Huffman code used by HPACK and QPACK to encode
+ * header names and values, see RFC 7541, Appendix B.</p>
+ *
+ * @see HuffmanDecoder
+ * @see HuffmanEncoder
+ */
+public class Huffman
 {
-
     // Appendix C: Huffman Codes
     // http://tools.ietf.org/html/draft-ietf-httpbis-header-compression-12#appendix-C
-    static final int[][] CODES =
+
+    /**
+     * <p>The code of each symbol, as a {@code {code, length}} pair,
+     * with the code right aligned.</p>
+     */
+    public static final int[][] CODES =
         {
             /*    (  0)  |11111111|11000                      */       {0x1ff8, 13},
             /*    (  1)  |11111111|11111111|1011000           */     {0x7fffd8, 23},
@@ -281,16 +290,17 @@ public class HuffmanEncoder
             /*EOS (256)  |11111111|11111111|11111111|111111   */   {0x3fffffff, 30}
         };
 
-    static final int[][] LCCODES = new int[CODES.length][];
-    static final char EOS = 256;
+    /**
+     * <p>The same as {@link #CODES}, but where the upper case
+     * letters are encoded as their lower case counterpart.</p>
+     */
+    public static final int[][] LCCODES = new int[CODES.length][];
 
-    // Huffman decode tree stored in a flattened char array for good 
-    // locality of reference.
-    static final char[] tree;
-    static final char[] rowsym;
-    static final byte[] rowbits;
+    /**
+     * <p>The end of string symbol.</p>
+     */
+    public static final char EOS = 256;
 
-    // Build the Huffman lookup tree and LC TABLE
     static
     {
         System.arraycopy(CODES, 0, LCCODES, 0, CODES.length);
@@ -298,176 +308,9 @@ public class HuffmanEncoder
         {
             LCCODES[i] = LCCODES['a' + i - 'A'];
         }
-
-        int r = 0;
-        for (int i = 0; i < CODES.length; i++)
-        {
-            r += (CODES[i][1] + 7) / 8;
-        }
-        tree = new char[r * 256];
-        rowsym = new char[r];
-        rowbits = new byte[r];
-
-        r = 0;
-        for (int sym = 0; sym < CODES.length; sym++)
-        {
-            int code = CODES[sym][0];
-            int len = CODES[sym][1];
-
-            int current = 0;
-
-            while (len > 8)
-            {
-                len -= 8;
-                int i = ((code >>> len) & 0xFF);
-
-                int t = current * 256 + i;
-                current = tree[t];
-                if (current == 0)
-                {
-                    tree[t] = (char)++r;
-                    current = r;
-                }
-            }
-
-            int terminal = ++r;
-            rowsym[r] = (char)sym;
-            int b = len & 0x07;
-            int terminalBits = b == 0 ? 8 : b;
-
-            rowbits[r] = (byte)terminalBits;
-            int shift = 8 - len;
-            int start = current * 256 + ((code << shift) & 0xFF);
-            int end = start + (1 << shift);
-            for (int i = start; i < end; i++)
-            {
-                tree[i] = (char)terminal;
-            }
-        }
-    }
-
-    public static int octetsNeeded(String s)
-    {
-        return octetsNeeded(CODES, s);
-    }
-
-    public static int octetsNeeded(byte[] b)
-    {
-        return octetsNeeded(CODES, b);
-    }
-
-    public static void encode(ByteBuffer buffer, String s)
-    {
-        encode(CODES, buffer, s);
-    }
-
-    public static void encode(ByteBuffer buffer, byte[] b)
-    {
-        encode(CODES, buffer, b);
-    }
-
-    public static int octetsNeededLC(String s)
-    {
-        return octetsNeeded(LCCODES, s);
-    }
-
-    public static void encodeLC(ByteBuffer buffer, String s)
-    {
-        encode(LCCODES, buffer, s);
-    }
-
-    private static int octetsNeeded(final int[][] table, String s)
-    {
-        int needed = 0;
-        int len = s.length();
-        for (int i = 0; i < len; i++)
-        {
-            char c = s.charAt(i);
-            if (c >= 128 || c < ' ')
-                return -1;
-            needed += table[c][1];
-        }
-
-        return (needed + 7) / 8;
     }
 
-    private static int octetsNeeded(final int[][] table, byte[] b)
+    private Huffman()
     {
-        int needed = 0;
-        int len = b.length;
-        for (int i = 0; i < len; i++)
-        {
-            int c = 0xFF & b[i];
-            needed += table[c][1];
-        }
-        return (needed + 7) / 8;
-    }
-
-    /**
-     * @param table The table to encode by
-     * @param buffer The buffer to encode to
-     * @param s The string to encode
-     */
-    private static void encode(final int[][] table, ByteBuffer buffer, String s)
-    {
-        long current = 0;
-        int n = 0;
-        int len = s.length();
-        for (int i = 0; i < len; i++)
-        {
-            char c = s.charAt(i);
-            if (c >= 128 || c < ' ')
-                throw new IllegalArgumentException();
-            int code = table[c][0];
-            int bits = table[c][1];
-
-            current <<= bits;
-            current |= code;
-            n += bits;
-
-            while (n >= 8)
-            {
-                n -= 8;
-                buffer.put((byte)(current >> n));
-            }
-        }
-
-        if (n > 0)
-        {
-            current <<= (8 - n);
-            current |= (0xFF >>> n);
-            buffer.put((byte)(current));
-        }
-    }
-
-    private static void encode(final int[][] table, ByteBuffer buffer, byte[] b)
-    {
-        long current = 0;
-        int n = 0;
-
-        int len = b.length;
-        for (int i = 0; i < len; i++)
-        {
-            int c = 0xFF & b[i];
-            int code = table[c][0];
-            int bits = table[c][1];
-
-            current <<= bits;
-            current |= code;
-            n += bits;
-
-            while (n >= 8)
-            {
-                n -= 8;
-                buffer.put((byte)(current >> n));
-            }
-        }
-
-        if (n > 0)
-        {
-            current <<= (8 - n);
-            current |= (0xFF >>> n);
-            buffer.put((byte)(current));
-        }
     }
 }
@@ -0,0 +1,206 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.compression;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.util.Utf8Appendable;
+import org.eclipse.jetty.util.Utf8StringBuilder;
+
+/**
+ * <p>A decoder for Huffman encoded strings, see RFC 7541, section 5.2.</p>
+ * <p>The decoder is a finite state machine driven by whole octets: the
+ * states are the internal nodes of the Huffman tree, and for each state
+ * and octet a lookup table holds the next state and the (at most two)
+ * symbols completed by the octet, so that no bit is walked at runtime.</p>
+ * <p>The decoded octets are appended to a reusable {@link Utf8StringBuilder},
+ * and the string may be decoded incrementally, one {@link ByteBuffer}
+ * at a time.
+ * Instances are not thread-safe, and are meant to be reused by a
+ * single HPACK or QPACK decoder.</p>
+ */
+public class HuffmanDecoder
+{
+    // The layout of the transition table entries.
+    private static final int STATE_MASK = 0xFF;
+    private static final int SYMBOL1_SHIFT = 8;
+    private static final int SYMBOL2_SHIFT = 16;
+    private static final int COUNT_SHIFT = 24;
+    private static final int FAILED = 1 << 26;
+
+    // The termination of the string in each state.
+    private static final byte ACCEPT = 0;
+    private static final byte INCORRECT_PADDING = 1;
+    private static final byte BAD_TERMINATION = 2;
+
+    private static final int[] TRANSITIONS = new int[256 * 256];
+    private static final byte[] TERMINATIONS = new byte[256];
+
+    static
+    {
+        // Build the Huffman tree, where the children
+        // of the leaves are stored as -(symbol + 1).
+        int[][] children = new int[256][2];
+        int[] depths = new int[256];
+        int[] paths = new int[256];
+        int nodes = 1;
+        for (int symbol = 0; symbol < Huffman.CODES.length; symbol++)
+        {
+            int code = Huffman.CODES[symbol][0];
+            int length = Huffman.CODES[symbol][1];
+            int node = 0;
+            for (int i = length - 1; i > 0; --i)
+            {
+                int bit = (code >>> i) & 1;
+                int child = children[node][bit];
+                if (child == 0)
+                {
+                    child = nodes++;
+                    children[node][bit] = child;
+                    depths[child] = depths[node] + 1;
+                    paths[child] = (paths[node] << 1) | bit;
+                }
+                node = child;
+            }
+            children[node][code & 1] = -(symbol + 1);
+        }
+
+        // Build the transitions for each state and octet.
+        for (int state = 0; state < nodes; state++)
+        {
+            for (int octet = 0; octet < 256; octet++)
+            {
+                int node = state;
+                int count = 0;
+                int entry = 0;
+                for (int i = 7; i >= 0; --i)
+                {
+                    int child = children[node][(octet >>> i) & 1];
+                    if (child >= 0)
+                    {
+                        node = child;
+                        continue;
+                    }
+                    int symbol = -child - 1;
+                    if (symbol == Huffman.EOS)
+                    {
+                        entry |= FAILED;
+                        break;
+                    }
+                    entry |= symbol << (count == 0 ? SYMBOL1_SHIFT : SYMBOL2_SHIFT);
+                    ++count;
+                    node = 0;
+                }
+                TRANSITIONS[(state << 8) | octet] = entry | (count << COUNT_SHIFT) | node;
+            }
+
+            // The padding must be the most significant bits
+            // of the EOS code, and must be shorter than 8 bits.
+            int padding = depths[state] % 8;
+            int mask = (1 << padding) - 1;
+            if ((paths[state] & mask) != mask)
+                TERMINATIONS[state] = INCORRECT_PADDING;
+            else if (depths[state] >= 8)
+                TERMINATIONS[state] = BAD_TERMINATION;
+        }
+    }
+
+    private final Utf8StringBuilder _utf8 = new Utf8StringBuilder();
+    private int _length;
+    private int _count;
+    private int _state;
+
+    /**
+     * @param length the number of octets of the encoded string
+     */
+    public void setLength(int length)
+    {
+        if (_count != 0)
+            throw new IllegalStateException();
+        _length = length;
+    }
+
+    /**
+     * <p>Decodes the octets of the encoded string from the given buffer.</p>
+     *
+     * @param buffer the buffer containing the encoded octets
+     * @return the decoded string, or null if more octets are needed
+     * @throws EncodingException if the encoded string is invalid
+     */
+    public String decode(ByteBuffer buffer) throws EncodingException
+    {
+        try
+        {
+            return decodeOctets(buffer);
+        }
+        catch (Utf8Appendable.NotUtf8Exception x)
+        {
+            reset();
+            throw x;
+        }
+    }
+
+    private String decodeOctets(ByteBuffer buffer) throws EncodingException
+    {
+        int state = _state;
+        for (; _count < _length; _count++)
+        {
+            if (!buffer.hasRemaining())
+            {
+                _state = state;
+                return null;
+            }
+
+            int entry = TRANSITIONS[(state << 8) | (buffer.get() & 0xFF)];
+            if ((entry & FAILED) != 0)
+            {
+                reset();
+                throw new EncodingException("EOS in content");
+            }
+
+            switch (entry >>> COUNT_SHIFT)
+            {
+                case 2:
+                    _utf8.append((byte)(entry >>> SYMBOL1_SHIFT));
+                    _utf8.append((byte)(entry >>> SYMBOL2_SHIFT));
+                    break;
+                case 1:
+                    _utf8.append((byte)(entry >>> SYMBOL1_SHIFT));
+                    break;
+                default:
+                    break;
+            }
+            state = entry & STATE_MASK;
+        }
+
+        byte termination = TERMINATIONS[state];
+        if (termination != ACCEPT)
+        {
+            reset();
+            throw new EncodingException(termination == BAD_TERMINATION ? "Bad termination" : "Incorrect padding");
+        }
+
+        String value = _utf8.toString();
+        reset();
+        return value;
+    }
+
+    public void reset()
+    {
+        _utf8.reset();
+        _length = 0;
+        _count = 0;
+        _state = 0;
+    }
+}
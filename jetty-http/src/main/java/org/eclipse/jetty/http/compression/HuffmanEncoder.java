@@ -0,0 +1,167 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.compression;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>An encoder for Huffman encoded strings, see RFC 7541, section 5.2.</p>
+ * <p>The codes and their lengths are precomputed in flat tables indexed
+ * by octet, so that {@link #octetsNeeded(String)} and
+ * {@link #encode(ByteBuffer, String)} only perform array lookups.</p>
+ */
+public class HuffmanEncoder
+{
+    private static final int[] CODES = new int[256];
+    private static final byte[] LENGTHS = new byte[256];
+    private static final int[] LC_CODES = new int[256];
+    private static final byte[] LC_LENGTHS = new byte[256];
+
+    static
+    {
+        for (int i = 0; i < 256; i++)
+        {
+            CODES[i] = Huffman.CODES[i][0];
+            LENGTHS[i] = (byte)Huffman.CODES[i][1];
+            LC_CODES[i] = Huffman.LCCODES[i][0];
+            LC_LENGTHS[i] = (byte)Huffman.LCCODES[i][1];
+        }
+    }
+
+    private HuffmanEncoder()
+    {
+    }
+
+    /**
+     * @param s the string to encode
+     * @return the number of octets needed to encode the string,
+     * or -1 if the string contains characters that cannot be encoded
+     */
+    public static int octetsNeeded(String s)
+    {
+        return octetsNeeded(LENGTHS, s);
+    }
+
+    /**
+     * @param b the octets to encode
+     * @return the number of octets needed to encode the octets
+     */
+    public static int octetsNeeded(byte[] b)
+    {
+        int needed = 0;
+        for (byte value : b)
+        {
+            needed += LENGTHS[0xFF & value];
+        }
+        return (needed + 7) / 8;
+    }
+
+    /**
+     * @param buffer the buffer to encode to
+     * @param s the string to encode
+     */
+    public static void encode(ByteBuffer buffer, String s)
+    {
+        encode(CODES, LENGTHS, buffer, s);
+    }
+
+    /**
+     * @param buffer the buffer to encode to
+     * @param b the octets to encode
+     */
+    public static void encode(ByteBuffer buffer, byte[] b)
+    {
+        long current = 0;
+        int n = 0;
+        for (byte value : b)
+        {
+            int c = 0xFF & value;
+            int bits = LENGTHS[c];
+            current = (current << bits) | CODES[c];
+            n += bits;
+            while (n >= 8)
+            {
+                n -= 8;
+                buffer.put((byte)(current >> n));
+            }
+        }
+        pad(buffer, current, n);
+    }
+
+    /**
+     * @param s the string to encode in lower case
+     * @return the number of octets needed to encode the string in lower case,
+     * or -1 if the string contains characters that cannot be encoded
+     */
+    public static int octetsNeededLC(String s)
+    {
+        return octetsNeeded(LC_LENGTHS, s);
+    }
+
+    /**
+     * @param buffer the buffer to encode to
+     * @param s the string to encode in lower case
+     */
+    public static void encodeLC(ByteBuffer buffer, String s)
+    {
+        encode(LC_CODES, LC_LENGTHS, buffer, s);
+    }
+
+    private static int octetsNeeded(byte[] lengths, String s)
+    {
+        int needed = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            if (c >= 128 || c < ' ')
+                return -1;
+            needed += lengths[c];
+        }
+        return (needed + 7) / 8;
+    }
+
+    private static void encode(int[] codes, byte[] lengths, ByteBuffer buffer, String s)
+    {
+        long current = 0;
+        int n = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            if (c >= 128 || c < ' ')
+                throw new IllegalArgumentException();
+            int bits = lengths[c];
+            current = (current << bits) | codes[c];
+            n += bits;
+            while (n >= 8)
+            {
+                n -= 8;
+                buffer.put((byte)(current >> n));
+            }
+        }
+        pad(buffer, current, n);
+    }
+
+    private static void pad(ByteBuffer buffer, long current, int n)
+    {
+        // Pad with the most significant bits of the EOS code.
+        if (n > 0)
+        {
+            current <<= (8 - n);
+            current |= (0xFF >>> n);
+            buffer.put((byte)current);
+        }
+    }
+}
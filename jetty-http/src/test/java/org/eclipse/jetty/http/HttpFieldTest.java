@@ -23,6 +23,7 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -44,6 +45,17 @@ public class HttpFieldTest
         assertFalse(field.contains(null));
     }
 
+    @Test
+    public void testLowerCaseName()
+    {
+        assertEquals("content-type", new HttpField("Content-Type", "text/plain").getLowerCaseName());
+
+        // The lower case name of unknown fields is computed once.
+        HttpField field = new HttpField("X-Custom", "value");
+        assertEquals("x-custom", field.getLowerCaseName());
+        assertSame(field.getLowerCaseName(), field.getLowerCaseName());
+    }
+
     @Test
     public void testCaseInsensitiveHashcodeKnownField()
     {
@@ -38,6 +38,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -2139,6 +2140,44 @@ public class HttpParserTest
         assertEquals("431", _bad);
     }
 
+    @Test
+    public void testLongURIAndValues()
+    {
+        ByteBuffer buffer = BufferUtil.toBuffer(
+            "GET /a/long/path/to/parse?with=a&query=string HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Name0: a value with spaces and trailing spaces   \r\n" +
+                "Name1: a value\twith a tab and some more characters\r\n" +
+                "Name2: 0123456789abcdef0123456789abcdef\r\n" +
+                "\r\n");
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parseAll(parser, buffer);
+
+        assertEquals("/a/long/path/to/parse?with=a&query=string", _uriOrStatus);
+        assertEquals("a value with spaces and trailing spaces", _val[1]);
+        assertEquals("a value\twith a tab and some more characters", _val[2]);
+        assertEquals("0123456789abcdef0123456789abcdef", _val[3]);
+        assertEquals(3, _headers);
+    }
+
+    @Test
+    public void testRequestMaxHeaderBytesLongValue()
+    {
+        ByteBuffer buffer = BufferUtil.toBuffer(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Large-Header: lorem ipsum dolor sit amet consectetur adipiscing elit\r\n" +
+                "\r\n");
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler, 64);
+
+        parseAll(parser, buffer);
+        assertEquals("431", _bad);
+    }
+
     @Test
     @SuppressWarnings("ReferenceEquality")
     public void testCachedField()
@@ -2159,6 +2198,118 @@ public class HttpParserTest
         assertSame(field, _fields.get(0));
     }
 
+    @Test
+    @SuppressWarnings("ReferenceEquality")
+    public void testLearntField()
+    {
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+
+        // Fields are learnt when they repeat.
+        for (int i = 0; i < 2; ++i)
+        {
+            parseAll(parser, BufferUtil.toBuffer(
+                "GET / HTTP/1.1\r\n" +
+                    "X-Request-Source: Checkout\r\n" +
+                    "X-Request-Id: " + i + "\r\n" +
+                    "Host: localhost\r\n" +
+                    "\r\n"));
+        }
+        assertEquals("Checkout", parser.getFieldCache().get("X-Request-Source: Checkout").getValue());
+        assertNull(parser.getFieldCache().get("X-Request-Id: 1"));
+        HttpField field = _fields.get(0);
+
+        long hits = parser.getHeaderCacheHits();
+        parseAll(parser, BufferUtil.toBuffer(
+            "GET / HTTP/1.1\r\n" +
+                "X-Request-Source: Checkout\r\n" +
+                "Host: localhost\r\n" +
+                "\r\n"));
+        assertSame(field, _fields.get(0));
+        assertThat(parser.getHeaderCacheHits(), greaterThan(hits));
+
+        // The case of the values of learnt fields is preserved.
+        parseAll(parser, BufferUtil.toBuffer(
+            "GET / HTTP/1.1\r\n" +
+                "X-Request-Source: CHECKOUT\r\n" +
+                "Host: localhost\r\n" +
+                "\r\n"));
+        assertEquals("CHECKOUT", _fields.get(0).getValue());
+    }
+
+    @Test
+    public void testLazyFields()
+    {
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parser.setLazyFields(true);
+
+        ByteBuffer buffer = BufferUtil.toBuffer(
+            "POST /foo HTTP/1.1\r\n" +
+                "Host: localhost:8080\r\n" +
+                "X-Custom:  value with spaces \t\r\n" +
+                "Empty:\r\n" +
+                "Content-Length: 5\r\n" +
+                "\r\n" +
+                "12345");
+        parseAll(parser, buffer);
+
+        assertTrue(_headerCompleted);
+        assertTrue(_messageCompleted);
+        assertEquals(3, _headers);
+        assertEquals("Host", _hdr[0]);
+        assertEquals("localhost:8080", _val[0]);
+        assertEquals("localhost", _host);
+        assertEquals(8080, _port);
+        assertEquals("X-Custom", _hdr[1]);
+        assertEquals("value with spaces", _val[1]);
+        assertEquals("Empty", _hdr[2]);
+        assertEquals("", _val[2]);
+        assertEquals("Content-Length", _hdr[3]);
+        assertEquals("5", _val[3]);
+        assertEquals("12345", _content);
+    }
+
+    @Test
+    public void testLazyFieldsSplitHeaderBlock()
+    {
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parser.setLazyFields(true);
+
+        // The header block is not entirely in the first buffer, so the fields are parsed one by one.
+        parser.parseNext(BufferUtil.toBuffer(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Custom: val"));
+        parser.parseNext(BufferUtil.toBuffer(
+            "ue\r\n" +
+                "\r\n"));
+
+        assertTrue(_messageCompleted);
+        assertEquals(1, _headers);
+        assertEquals("X-Custom", _hdr[1]);
+        assertEquals("value", _val[1]);
+    }
+
+    @Test
+    public void testLazyFieldsBadContentLength()
+    {
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parser.setLazyFields(true);
+
+        parser.parseNext(BufferUtil.toBuffer(
+            "POST / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Length: 5\r\n" +
+                "Content-Length: 6\r\n" +
+                "\r\n"));
+
+        assertFalse(_headerCompleted);
+        assertThat(_bad, containsString("Multiple Content-Lengths"));
+    }
+
     @Test
     public void testParseRequest()
     {
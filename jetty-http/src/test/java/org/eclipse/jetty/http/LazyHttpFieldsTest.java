@@ -0,0 +1,167 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LazyHttpFieldsTest
+{
+    private LazyHttpFields parse(String request)
+    {
+        LazyHttpFields[] result = new LazyHttpFields[1];
+        HttpParser parser = new HttpParser(new HttpParser.RequestHandler()
+        {
+            @Override
+            public void startRequest(String method, String uri, HttpVersion version)
+            {
+            }
+
+            @Override
+            public void parsedHeader(HttpField field)
+            {
+            }
+
+            @Override
+            public void parsedHeaders(LazyHttpFields fields)
+            {
+                result[0] = fields;
+            }
+
+            @Override
+            public boolean headerComplete()
+            {
+                return false;
+            }
+
+            @Override
+            public boolean content(ByteBuffer item)
+            {
+                return false;
+            }
+
+            @Override
+            public boolean contentComplete()
+            {
+                return false;
+            }
+
+            @Override
+            public boolean messageComplete()
+            {
+                return true;
+            }
+
+            @Override
+            public void earlyEOF()
+            {
+            }
+        });
+        parser.setLazyFields(true);
+        parser.parseNext(BufferUtil.toBuffer(request));
+        assertNotNull(result[0]);
+        return result[0];
+    }
+
+    @Test
+    public void testLookups()
+    {
+        LazyHttpFields fields = parse(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost:8080\r\n" +
+                "X-Custom: one\r\n" +
+                "accept: text/html\r\n" +
+                "x-custom: two\r\n" +
+                "\r\n");
+
+        assertEquals(4, fields.size());
+        assertEquals(HttpHeader.HOST, fields.getHeader(0));
+        assertNull(fields.getHeader(1));
+        assertEquals(HttpHeader.ACCEPT, fields.getHeader(2));
+
+        // Known fields have their canonical name.
+        assertEquals("Accept", fields.getField(HttpHeader.ACCEPT).getName());
+        assertEquals("text/html", fields.get("ACCEPT"));
+        assertEquals("one", fields.get("x-CUSTOM"));
+        assertThat(fields.getValuesList("X-Custom"), contains("one", "two"));
+        assertThat(fields.getField(HttpHeader.HOST), instanceOf(HostPortHttpField.class));
+        assertTrue(fields.contains(HttpHeader.HOST));
+        assertFalse(fields.contains(HttpHeader.COOKIE));
+        assertFalse(fields.contains("X-Other"));
+
+        // The fields are decoded once.
+        assertSame(fields.getField(1), fields.getField("X-Custom"));
+
+        // An immutable copy decodes all the fields.
+        assertEquals(HttpFields.build()
+            .add("Host", "localhost:8080")
+            .add("X-Custom", "one")
+            .add("Accept", "text/html")
+            .add("x-custom", "two")
+            .asImmutable(), fields.asImmutable());
+    }
+
+    @Test
+    public void testCopyDecodesFields()
+    {
+        LazyHttpFields fields = parse(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Decoded: one\r\n" +
+                "X-Undecoded: two\r\n" +
+                "\r\n");
+
+        assertEquals("one", fields.get("X-Decoded"));
+
+        // Copies must not see the fields that have not been decoded yet as missing.
+        HttpFields.Mutable copy = HttpFields.build().add(fields);
+        fields.release();
+        assertEquals(3, copy.size());
+        assertEquals("two", copy.get("X-Undecoded"));
+        assertEquals("localhost", HttpFields.build(copy).get(HttpHeader.HOST));
+    }
+
+    @Test
+    public void testRelease()
+    {
+        LazyHttpFields fields = parse(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Decoded: one\r\n" +
+                "X-Undecoded: two\r\n" +
+                "\r\n");
+
+        assertEquals("one", fields.get("X-Decoded"));
+        fields.release();
+        assertTrue(fields.isReleased());
+
+        // Only the decoded fields can be accessed once released.
+        assertEquals("one", fields.get("X-Decoded"));
+        assertTrue(fields.contains(HttpHeader.HOST));
+        assertThrows(IllegalStateException.class, () -> fields.get("X-Undecoded"));
+    }
+}
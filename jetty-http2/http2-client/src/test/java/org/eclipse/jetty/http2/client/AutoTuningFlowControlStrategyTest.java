@@ -0,0 +1,155 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http2.AutoTuningFlowControlStrategy;
+import org.eclipse.jetty.http2.FlowControlStrategy;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.http2.frames.PrefaceFrame;
+import org.eclipse.jetty.http2.frames.SettingsFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.http2.generator.Generator;
+import org.eclipse.jetty.http2.hpack.HpackException;
+import org.eclipse.jetty.http2.parser.Parser;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class AutoTuningFlowControlStrategyTest extends FlowControlStrategyTest
+{
+    private final List<AutoTuningFlowControlStrategy> strategies = new CopyOnWriteArrayList<>();
+
+    @Override
+    protected FlowControlStrategy newFlowControlStrategy()
+    {
+        AutoTuningFlowControlStrategy strategy = new AutoTuningFlowControlStrategy();
+        strategies.add(strategy);
+        return strategy;
+    }
+
+    @Test
+    public void testRecvWindowGrowsWhenSenderIsWindowBound() throws Exception
+    {
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                return new Stream.Listener.Adapter()
+                {
+                    @Override
+                    public void onData(Stream stream, DataFrame frame, Callback callback)
+                    {
+                        callback.succeeded();
+                    }
+                };
+            }
+        });
+
+        ByteBufferPool byteBufferPool = client.getByteBufferPool();
+        try (SocketChannel socket = SocketChannel.open())
+        {
+            socket.connect(new InetSocketAddress("localhost", connector.getLocalPort()));
+
+            // Send a whole window of data at once, so that the server
+            // receives most of it while measuring the round trip time.
+            Generator generator = new Generator(byteBufferPool);
+            ByteBufferPool.Lease lease = new ByteBufferPool.Lease(byteBufferPool);
+            generator.control(lease, new PrefaceFrame());
+            generator.control(lease, new SettingsFrame(new HashMap<>(), false));
+            generator.control(lease, new HeadersFrame(1, newRequest("POST", HttpFields.EMPTY), null, false));
+            int remaining = FlowControlStrategy.DEFAULT_WINDOW_SIZE;
+            while (remaining > 0)
+            {
+                int length = Math.min(remaining, 16 * 1024);
+                remaining -= length;
+                generator.data(lease, new DataFrame(1, ByteBuffer.allocate(length), remaining == 0), length);
+            }
+            List<ByteBuffer> buffers = lease.getByteBuffers();
+            socket.write(buffers.toArray(new ByteBuffer[0]));
+
+            AtomicInteger sessionCredit = new AtomicInteger();
+            Parser parser = new Parser(byteBufferPool, new Parser.Listener.Adapter()
+            {
+                @Override
+                public void onPing(PingFrame frame)
+                {
+                    if (frame.isReply())
+                        return;
+                    try
+                    {
+                        ByteBufferPool.Lease lease = new ByteBufferPool.Lease(byteBufferPool);
+                        generator.control(lease, new PingFrame(frame.getPayload(), true));
+                        List<ByteBuffer> buffers = lease.getByteBuffers();
+                        socket.write(buffers.toArray(new ByteBuffer[0]));
+                    }
+                    catch (IOException x)
+                    {
+                        throw new UncheckedIOException(x);
+                    }
+                    catch (HpackException x)
+                    {
+                        throw new IllegalStateException(x);
+                    }
+                }
+
+                @Override
+                public void onWindowUpdate(WindowUpdateFrame frame)
+                {
+                    if (frame.getStreamId() == 0)
+                        sessionCredit.addAndGet(frame.getWindowDelta());
+                }
+            }, 4096, 8192);
+            parser.init(UnaryOperator.identity());
+
+            // A fixed window strategy would give back at most the data sent.
+            ByteBuffer buffer = byteBufferPool.acquire(1024, true);
+            while (sessionCredit.get() <= FlowControlStrategy.DEFAULT_WINDOW_SIZE)
+            {
+                BufferUtil.clearToFill(buffer);
+                int read = socket.read(buffer);
+                BufferUtil.flipToFlush(buffer, 0);
+                if (read < 0)
+                    break;
+                parser.parse(buffer);
+            }
+            byteBufferPool.release(buffer);
+
+            assertThat(sessionCredit.get(), greaterThan(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+            AutoTuningFlowControlStrategy serverStrategy = strategies.get(0);
+            assertThat(serverStrategy.getSessionRecvWindow(), greaterThan(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+            assertThat(serverStrategy.getStreamRecvWindow(), greaterThan(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+        }
+    }
+}
@@ -0,0 +1,401 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>A flow control strategy that sizes the receive windows after the
+ * bandwidth-delay product of the connection.</p>
+ * <p>While DATA frames are received, a PING frame is sent at most once every
+ * {@link #getPingInterval() ping interval}; the bytes received until the PING
+ * reply arrives are a sample of the bandwidth-delay product, that is the number
+ * of bytes that the sender could send during a round trip.</p>
+ * <p>When the sample is at least half the session receive window, the sender
+ * is likely limited by the window rather than by the network, so the session
+ * and stream receive windows are grown to twice the sample, up to the configured
+ * maximums.</p>
+ * <p>When the data buffered in the receiver grows because the application
+ * consumes less than half the window during a round trip, the windows are
+ * halved, down to their initial sizes, so that the memory used by a slow
+ * consumer is bounded.
+ * Since HTTP/2 windows cannot be reduced, a window is shrunk by withholding the
+ * WINDOW_UPDATE frames for the consumed data until it has its new size.</p>
+ * <p>Like {@link BufferingFlowControlStrategy}, a WINDOW_UPDATE frame is sent
+ * when the credit to give back to the sender exceeds {@link #getBufferRatio()}
+ * times the receive window.</p>
+ */
+@ManagedObject
+public class AutoTuningFlowControlStrategy extends AbstractFlowControlStrategy
+{
+    public static final int DEFAULT_MAX_SESSION_RECV_WINDOW = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_STREAM_RECV_WINDOW = 8 * 1024 * 1024;
+
+    private final AutoLock lock = new AutoLock();
+    private final Map<IStream, StreamWindow> streamWindows = new HashMap<>();
+    private final int maxSessionRecvWindow;
+    private final int maxStreamRecvWindow;
+    private float bufferRatio = 0.5F;
+    private long pingInterval = TimeUnit.MILLISECONDS.toNanos(200);
+    private boolean receiving;
+    private int initialSessionRecvWindow = DEFAULT_WINDOW_SIZE;
+    private int sessionRecvWindow = DEFAULT_WINDOW_SIZE;
+    private int streamRecvWindow;
+    private long sessionBuffered;
+    private long pingPayload;
+    private long pingNanoTime;
+    private boolean pinging;
+    private long received;
+    private long consumed;
+    private long roundTripTime;
+
+    public AutoTuningFlowControlStrategy()
+    {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_MAX_SESSION_RECV_WINDOW, DEFAULT_MAX_STREAM_RECV_WINDOW);
+    }
+
+    /**
+     * @param initialStreamSendWindow the initial stream send window
+     * @param maxSessionRecvWindow the max size the session receive window may grow to
+     * @param maxStreamRecvWindow the max size the stream receive windows may grow to
+     */
+    public AutoTuningFlowControlStrategy(int initialStreamSendWindow, int maxSessionRecvWindow, int maxStreamRecvWindow)
+    {
+        super(initialStreamSendWindow);
+        if (maxSessionRecvWindow < DEFAULT_WINDOW_SIZE)
+            throw new IllegalArgumentException("Invalid max session recv window: " + maxSessionRecvWindow);
+        if (maxStreamRecvWindow < DEFAULT_WINDOW_SIZE)
+            throw new IllegalArgumentException("Invalid max stream recv window: " + maxStreamRecvWindow);
+        this.maxSessionRecvWindow = maxSessionRecvWindow;
+        this.maxStreamRecvWindow = maxStreamRecvWindow;
+    }
+
+    @ManagedAttribute(value = "The max size of the session receive window", readonly = true)
+    public int getMaxSessionRecvWindow()
+    {
+        return maxSessionRecvWindow;
+    }
+
+    @ManagedAttribute(value = "The max size of the streams receive window", readonly = true)
+    public int getMaxStreamRecvWindow()
+    {
+        return maxStreamRecvWindow;
+    }
+
+    @ManagedAttribute("The ratio between the receive window and the credit that triggers a window update")
+    public float getBufferRatio()
+    {
+        return bufferRatio;
+    }
+
+    public void setBufferRatio(float bufferRatio)
+    {
+        this.bufferRatio = bufferRatio;
+    }
+
+    /**
+     * @return the min interval, in milliseconds, between the PING frames
+     * sent to measure the bandwidth-delay product
+     */
+    @ManagedAttribute("The min interval in ms between PING frames that measure the bandwidth-delay product")
+    public long getPingInterval()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(pingInterval);
+    }
+
+    public void setPingInterval(long pingInterval)
+    {
+        this.pingInterval = TimeUnit.MILLISECONDS.toNanos(pingInterval);
+    }
+
+    @ManagedAttribute(value = "The current size of the session receive window", readonly = true)
+    public int getSessionRecvWindow()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return sessionRecvWindow;
+        }
+    }
+
+    @ManagedAttribute(value = "The current size of the streams receive window", readonly = true)
+    public int getStreamRecvWindow()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return streamRecvWindow();
+        }
+    }
+
+    @ManagedAttribute(value = "The smoothed round trip time in ms measured with PING frames", readonly = true)
+    public long getRoundTripTime()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return TimeUnit.NANOSECONDS.toMillis(roundTripTime);
+        }
+    }
+
+    @Override
+    public void onStreamCreated(IStream stream)
+    {
+        super.onStreamCreated(stream);
+        try (AutoLock l = lock.lock())
+        {
+            streamWindows.put(stream, new StreamWindow());
+        }
+    }
+
+    @Override
+    public void onStreamDestroyed(IStream stream)
+    {
+        try (AutoLock l = lock.lock())
+        {
+            streamWindows.remove(stream);
+        }
+        super.onStreamDestroyed(stream);
+    }
+
+    @Override
+    public void onDataReceived(ISession session, IStream stream, int length)
+    {
+        super.onDataReceived(session, stream, length);
+        if (length <= 0)
+            return;
+
+        PingFrame ping = null;
+        try (AutoLock l = lock.lock())
+        {
+            receiving = true;
+            sessionBuffered += length;
+            StreamWindow streamWindow = stream == null ? null : streamWindows.get(stream);
+            if (streamWindow != null)
+                streamWindow.buffered += length;
+
+            long now = System.nanoTime();
+            if (pinging)
+            {
+                received += length;
+            }
+            else if (pingNanoTime == 0 || now - pingNanoTime >= pingInterval)
+            {
+                // Measure the bytes received during a round trip,
+                // including this frame, sent along with the next ones.
+                pinging = true;
+                pingNanoTime = now;
+                pingPayload = ThreadLocalRandom.current().nextLong();
+                received = length;
+                consumed = 0;
+                ping = new PingFrame(pingPayload, false);
+            }
+        }
+
+        if (ping != null)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Measuring bandwidth-delay product with {} for {}", ping, session);
+            session.ping(ping, Callback.NOOP);
+        }
+    }
+
+    @Override
+    public boolean onPingReply(ISession session, PingFrame frame)
+    {
+        List<WindowUpdateFrame> frames;
+        try (AutoLock l = lock.lock())
+        {
+            if (!pinging || frame.getPayloadAsLong() != pingPayload)
+                return false;
+            pinging = false;
+
+            long sample = System.nanoTime() - pingNanoTime;
+            roundTripTime = roundTripTime == 0 ? sample : (7 * roundTripTime + sample) / 8;
+
+            // The bytes received during the round trip are the bandwidth-delay product.
+            long bdp = received;
+            int oldSessionRecvWindow = sessionRecvWindow;
+            int oldStreamRecvWindow = streamRecvWindow();
+            if (sessionBuffered > sessionRecvWindow / 2 && consumed < sessionRecvWindow / 2)
+            {
+                // The data piles up because the consumer is slow: half
+                // the window is enough to keep it busy for a round trip.
+                sessionRecvWindow = Math.max(initialSessionRecvWindow, sessionRecvWindow / 2);
+                streamRecvWindow = Math.max(getInitialStreamRecvWindow(), oldStreamRecvWindow / 2);
+            }
+            else if (bdp >= sessionRecvWindow / 2)
+            {
+                // The sender is limited by the window, not by the network;
+                // the windows converge to twice the bandwidth-delay product.
+                sessionRecvWindow = (int)Math.min(maxSessionRecvWindow, Math.max(sessionRecvWindow, 2 * bdp));
+                streamRecvWindow = (int)Math.min(maxStreamRecvWindow, Math.max(oldStreamRecvWindow, 2 * bdp));
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Measured bandwidth-delay product {} bytes, rtt {} ms, session recv window {} -> {}, stream recv window {} -> {} for {}",
+                    bdp, TimeUnit.NANOSECONDS.toMillis(sample), oldSessionRecvWindow, sessionRecvWindow, oldStreamRecvWindow, streamRecvWindow(), session);
+
+            // Give the sender the extra credit now, the
+            // streams will get theirs when they consume data.
+            frames = new ArrayList<>(1);
+            int delta = sessionWindowUpdate(session);
+            if (delta > 0)
+                frames.add(new WindowUpdateFrame(0, delta));
+        }
+        sendWindowUpdates(session, frames);
+        return true;
+    }
+
+    @Override
+    public void onDataConsumed(ISession session, IStream stream, int length)
+    {
+        if (length <= 0)
+            return;
+
+        List<WindowUpdateFrame> frames = new ArrayList<>(2);
+        try (AutoLock l = lock.lock())
+        {
+            consumed += length;
+            sessionBuffered -= length;
+            int delta = sessionWindowUpdate(session);
+            if (delta > 0)
+                frames.add(new WindowUpdateFrame(0, delta));
+
+            StreamWindow streamWindow = stream == null ? null : streamWindows.get(stream);
+            if (streamWindow != null)
+            {
+                streamWindow.buffered -= length;
+                if (stream.isRemotelyClosed())
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Data consumed, {} bytes, ignoring update stream recv window for remotely closed {}", length, stream);
+                }
+                else
+                {
+                    delta = streamWindowUpdate(stream, streamWindow);
+                    if (delta > 0)
+                        frames.add(new WindowUpdateFrame(stream.getId(), delta));
+                }
+            }
+        }
+        sendWindowUpdates(session, frames);
+    }
+
+    private int sessionWindowUpdate(ISession session)
+    {
+        // The credit brings the window back to its current size, which
+        // may be larger or smaller than the window granted to the sender.
+        int recvWindow = session.updateRecvWindow(0);
+        long delta = sessionRecvWindow - recvWindow - sessionBuffered;
+        if (delta <= sessionRecvWindow * bufferRatio)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Session recv window {}/{}, buffered {} for {}", recvWindow, sessionRecvWindow, sessionBuffered, session);
+            return 0;
+        }
+        session.updateRecvWindow((int)delta);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Updated session recv window by {}/{}, buffered {} for {}", delta, sessionRecvWindow, sessionBuffered, session);
+        return (int)delta;
+    }
+
+    private int streamWindowUpdate(IStream stream, StreamWindow streamWindow)
+    {
+        int window = streamRecvWindow();
+        int recvWindow = stream.updateRecvWindow(0);
+        long delta = window - recvWindow - streamWindow.buffered;
+        if (delta <= window * bufferRatio)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Stream recv window {}/{}, buffered {} for {}", recvWindow, window, streamWindow.buffered, stream);
+            return 0;
+        }
+        stream.updateRecvWindow((int)delta);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Updated stream recv window by {}/{}, buffered {} for {}", delta, window, streamWindow.buffered, stream);
+        return (int)delta;
+    }
+
+    private int streamRecvWindow()
+    {
+        return Math.max(streamRecvWindow, getInitialStreamRecvWindow());
+    }
+
+    private void sendWindowUpdates(ISession session, List<WindowUpdateFrame> frames)
+    {
+        for (WindowUpdateFrame frame : frames)
+        {
+            IStream stream = frame.getStreamId() == 0 ? null : session.getStream(frame.getStreamId());
+            sendWindowUpdate(stream, session, frame);
+        }
+    }
+
+    protected void sendWindowUpdate(IStream stream, ISession session, WindowUpdateFrame frame)
+    {
+        session.frames(stream, List.of(frame), Callback.NOOP);
+    }
+
+    @Override
+    public void windowUpdate(ISession session, IStream stream, WindowUpdateFrame frame)
+    {
+        super.windowUpdate(session, stream, frame);
+
+        // Before receiving data, the session recv window may be
+        // enlarged with a unilateral window update, for example
+        // to configure a larger initial session recv window:
+        // track it as the initial and current window size.
+        if (frame.getStreamId() == 0)
+        {
+            try (AutoLock l = lock.lock())
+            {
+                if (!receiving)
+                {
+                    initialSessionRecvWindow = Math.max(initialSessionRecvWindow, session.updateRecvWindow(0));
+                    sessionRecvWindow = Math.max(sessionRecvWindow, initialSessionRecvWindow);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        try (AutoLock l = lock.lock())
+        {
+            return String.format("%s@%x[sessionWindow=%d,streamWindow=%d,rtt=%dms,sessionStallTime=%dms,streamsStallTime=%dms]",
+                getClass().getSimpleName(),
+                hashCode(),
+                sessionRecvWindow,
+                streamRecvWindow(),
+                TimeUnit.NANOSECONDS.toMillis(roundTripTime),
+                getSessionStallTime(),
+                getStreamsStallTime());
+        }
+    }
+
+    private static class StreamWindow
+    {
+        private long buffered;
+    }
+}
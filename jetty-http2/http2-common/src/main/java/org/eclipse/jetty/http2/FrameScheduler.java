@@ -0,0 +1,87 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.List;
+
+/**
+ * <p>Decides the order in which {@link HTTP2Flusher} generates the queued frames of a session.</p>
+ * <p>Every time the flusher processes the queued frames, it first {@link #resume() resumes}
+ * the scheduler and {@link #offer(HTTP2Flusher.Entry) offers} it the newly queued entries;
+ * then it asks for the {@link #next() next} entry to generate, until the write threshold
+ * is reached or there are no more entries that can be generated.</p>
+ * <p>After each attempt to generate an entry, the flusher notifies the scheduler whether
+ * the entry has been {@link #generated(HTTP2Flusher.Entry, int) generated}, has been
+ * {@link #stall(HTTP2Flusher.Entry) stalled} by flow control or has been
+ * {@link #remove(HTTP2Flusher.Entry) removed} because it was dropped or failed.</p>
+ * <p>The entries of the same stream must be generated in the order they have been offered.</p>
+ * <p>Schedulers are only invoked by the flusher, one method at a time.</p>
+ *
+ * @see RoundRobinFrameScheduler
+ * @see PriorityFrameScheduler
+ */
+public interface FrameScheduler
+{
+    /**
+     * <p>Makes the entries that have been stalled eligible again to be generated.</p>
+     */
+    public void resume();
+
+    /**
+     * @param entry the entry to schedule
+     */
+    public void offer(HTTP2Flusher.Entry entry);
+
+    /**
+     * @return the next entry to generate, or null if no entry can be generated
+     */
+    public HTTP2Flusher.Entry next();
+
+    /**
+     * <p>Notifies that the given entry, returned by {@link #next()}, has generated a frame.</p>
+     * <p>The entry must be removed from this scheduler when it has no more data to generate.</p>
+     *
+     * @param entry the entry that generated a frame
+     * @param bytes the number of frame bytes generated
+     */
+    public void generated(HTTP2Flusher.Entry entry, int bytes);
+
+    /**
+     * <p>Notifies that the given entry, returned by {@link #next()}, cannot be generated
+     * because of flow control, so that it is not returned again until {@link #resume()}.</p>
+     *
+     * @param entry the entry that cannot be generated
+     */
+    public void stall(HTTP2Flusher.Entry entry);
+
+    /**
+     * @param entry the entry, returned by {@link #next()}, to remove from this scheduler
+     */
+    public void remove(HTTP2Flusher.Entry entry);
+
+    /**
+     * @return the entries that have been removed from this scheduler
+     */
+    public List<HTTP2Flusher.Entry> removeAll();
+
+    /**
+     * @return the number of entries in this scheduler
+     */
+    public int size();
+
+    public interface Factory
+    {
+        public FrameScheduler newFrameScheduler();
+    }
+}
@@ -20,17 +20,20 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.FrameType;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 import org.eclipse.jetty.http2.hpack.HpackException;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EofException;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingCallback;
 import org.eclipse.jetty.util.component.Dumpable;
@@ -43,17 +46,32 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
 {
     private static final Logger LOG = LoggerFactory.getLogger(HTTP2Flusher.class);
     private static final ByteBuffer[] EMPTY_BYTE_BUFFERS = new ByteBuffer[0];
+    // Coalesced data up to this length is copied, rather than gathered.
+    private static final int MAX_COPY_LENGTH = 1024;
+    private static final int COPY_BUFFER_SIZE = 8 * 1024;
 
     private final AutoLock lock = new AutoLock();
     private final Queue<WindowEntry> windows = new ArrayDeque<>();
     private final Deque<Entry> entries = new ArrayDeque<>();
-    private final Queue<Entry> pendingEntries = new ArrayDeque<>();
     private final Collection<Entry> processedEntries = new ArrayList<>();
     private final HTTP2Session session;
     private final ByteBufferPool.Lease lease;
+    private FrameScheduler scheduler = new RoundRobinFrameScheduler();
     private InvocationType invocationType = InvocationType.NON_BLOCKING;
     private Throwable terminated;
-    private Entry stalledEntry;
+    private boolean dataCoalescing;
+    private int maxWriteBuffers;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong writeFrames = new AtomicLong();
+    private final AtomicLong writeBuffers = new AtomicLong();
+    private final AtomicLong writeBytes = new AtomicLong();
+    private final AtomicLong coalescedFrames = new AtomicLong();
+    // The state of the DATA frame that can be coalesced in the current write.
+    private ByteBuffer dataHeader;
+    private int dataStreamId;
+    private int dataLeaseSize;
+    private ByteBuffer dataCopy;
+    private int frames;
 
     public HTTP2Flusher(HTTP2Session session)
     {
@@ -67,6 +85,102 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
         return invocationType;
     }
 
+    public FrameScheduler getFrameScheduler()
+    {
+        return scheduler;
+    }
+
+    /**
+     * <p>Sets the scheduler that decides the order in which the queued frames are generated.</p>
+     * <p>The scheduler can only be set before frames are queued.</p>
+     *
+     * @param scheduler the frame scheduler
+     */
+    public void setFrameScheduler(FrameScheduler scheduler)
+    {
+        try (AutoLock l = lock.lock())
+        {
+            if (!entries.isEmpty() || this.scheduler.size() > 0)
+                throw new IllegalStateException("Frames already queued");
+            this.scheduler = Objects.requireNonNull(scheduler);
+        }
+    }
+
+    public boolean isDataCoalescing()
+    {
+        return dataCoalescing;
+    }
+
+    /**
+     * <p>Sets whether consecutive DATA frames of the same stream that are
+     * written together are coalesced into a single DATA frame.</p>
+     * <p>Streams that write small chunks of content then use fewer frames
+     * and fewer buffers per write, at the cost of copying the small chunks.</p>
+     *
+     * @param dataCoalescing whether DATA frames are coalesced
+     */
+    public void setDataCoalescing(boolean dataCoalescing)
+    {
+        this.dataCoalescing = dataCoalescing;
+    }
+
+    public int getMaxWriteBuffers()
+    {
+        return maxWriteBuffers;
+    }
+
+    /**
+     * <p>Sets the number of buffers that, once generated, trigger a write,
+     * even if the {@link HTTP2Session#getWriteThreshold() write threshold}
+     * has not been reached.</p>
+     *
+     * @param maxWriteBuffers the max number of buffers gathered in a write, or a non-positive value for no limit
+     */
+    public void setMaxWriteBuffers(int maxWriteBuffers)
+    {
+        this.maxWriteBuffers = maxWriteBuffers;
+    }
+
+    /**
+     * @return the total number of writes
+     */
+    public long getWrites()
+    {
+        return writes.get();
+    }
+
+    /**
+     * @return the total number of frames written, not counting coalesced frames
+     */
+    public long getWriteFrames()
+    {
+        return writeFrames.get();
+    }
+
+    /**
+     * @return the total number of buffers written
+     */
+    public long getWriteBuffers()
+    {
+        return writeBuffers.get();
+    }
+
+    /**
+     * @return the total number of bytes written
+     */
+    public long getWriteBytes()
+    {
+        return writeBytes.get();
+    }
+
+    /**
+     * @return the total number of DATA frames coalesced into a previous DATA frame
+     */
+    public long getCoalescedFrames()
+    {
+        return coalescedFrames.get();
+    }
+
     public void window(IStream stream, WindowUpdateFrame frame)
     {
         Throwable closed;
@@ -154,6 +268,15 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
         }
     }
 
+    /**
+     * @return the number of frames that have been taken from the queue, but not yet
+     * completely generated, for example because they are stalled by flow control
+     */
+    public int getPendingFrameQueueSize()
+    {
+        return scheduler.size();
+    }
+
     @Override
     protected Action process() throws Throwable
     {
@@ -171,98 +294,81 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
                 windowEntry.perform();
             }
 
+            scheduler.resume();
             Entry entry;
             while ((entry = entries.poll()) != null)
             {
-                pendingEntries.offer(entry);
+                scheduler.offer(entry);
             }
         }
 
-        if (pendingEntries.isEmpty())
+        if (scheduler.size() == 0)
         {
             if (LOG.isDebugEnabled())
                 LOG.debug("Flushed {}", session);
             return Action.IDLE;
         }
 
-        while (true)
+        Entry entry;
+        while ((entry = scheduler.next()) != null)
         {
-            boolean progress = false;
-
-            if (pendingEntries.isEmpty())
-                break;
+            if (LOG.isDebugEnabled())
+                LOG.debug("Processing {}", entry);
 
-            Iterator<Entry> pending = pendingEntries.iterator();
-            while (pending.hasNext())
+            // If the stream has been reset or removed,
+            // don't send the frame and fail it here.
+            if (entry.shouldBeDropped())
             {
-                Entry entry = pending.next();
                 if (LOG.isDebugEnabled())
-                    LOG.debug("Processing {}", entry);
+                    LOG.debug("Dropped {}", entry);
+                scheduler.remove(entry);
+                entry.failed(new EofException("dropped"));
+                continue;
+            }
 
-                // If the stream has been reset or removed,
-                // don't send the frame and fail it here.
-                if (entry.shouldBeDropped())
+            try
+            {
+                int frameBytes = entry.getFrameBytesGenerated();
+                if (entry.generate(lease))
                 {
+                    frameBytes = entry.getFrameBytesGenerated() - frameBytes;
                     if (LOG.isDebugEnabled())
-                        LOG.debug("Dropped {}", entry);
-                    entry.failed(new EofException("dropped"));
-                    pending.remove();
-                    continue;
-                }
-
-                try
-                {
-                    if (entry.generate(lease))
-                    {
-                        if (LOG.isDebugEnabled())
-                            LOG.debug("Generated {} frame bytes for {}", entry.getFrameBytesGenerated(), entry);
-
-                        progress = true;
+                        LOG.debug("Generated {} frame bytes for {}", frameBytes, entry);
 
-                        // We use ArrayList contains() + add() instead of HashSet add()
-                        // because that is faster for collections of size up to 250 entries.
-                        if (!processedEntries.contains(entry))
-                        {
-                            processedEntries.add(entry);
-                            invocationType = Invocable.combine(invocationType, Invocable.getInvocationType(entry.getCallback()));
-                        }
-
-                        if (entry.getDataBytesRemaining() == 0)
-                            pending.remove();
-                    }
-                    else
+                    // We use ArrayList contains() + add() instead of HashSet add()
+                    // because that is faster for collections of size up to 250 entries.
+                    if (!processedEntries.contains(entry))
                     {
-                        if (session.getSendWindow() <= 0 && stalledEntry == null)
-                        {
-                            stalledEntry = entry;
-                            if (LOG.isDebugEnabled())
-                                LOG.debug("Flow control stalled at {}", entry);
-                            // Continue to process control frames.
-                        }
+                        processedEntries.add(entry);
+                        invocationType = Invocable.combine(invocationType, Invocable.getInvocationType(entry.getCallback()));
                     }
+
+                    ++frames;
+                    scheduler.generated(entry, frameBytes);
                 }
-                catch (HpackException.StreamException failure)
-                {
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Failure generating {}", entry, failure);
-                    entry.failed(failure);
-                    pending.remove();
-                }
-                catch (Throwable failure)
+                else
                 {
-                    // Failure to generate the entry is catastrophic.
                     if (LOG.isDebugEnabled())
-                        LOG.debug("Failure generating {}", entry, failure);
-                    failed(failure);
-                    return Action.SUCCEEDED;
+                        LOG.debug("Flow control stalled at {}", entry);
+                    // Continue to process the other frames.
+                    scheduler.stall(entry);
                 }
             }
-
-            if (!progress)
-                break;
-
-            if (stalledEntry != null)
-                break;
+            catch (HpackException.StreamException failure)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Failure generating {}", entry, failure);
+                scheduler.remove(entry);
+                entry.failed(failure);
+            }
+            catch (Throwable failure)
+            {
+                // Failure to generate the entry is catastrophic.
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Failure generating {}", entry, failure);
+                failed(failure);
+                return Action.SUCCEEDED;
+            }
 
             int writeThreshold = session.getWriteThreshold();
             if (lease.getTotalLength() >= writeThreshold)
@@ -271,6 +377,14 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
                     LOG.debug("Write threshold {} exceeded", writeThreshold);
                 break;
             }
+
+            int maxWriteBuffers = getMaxWriteBuffers();
+            if (maxWriteBuffers > 0 && lease.getSize() >= maxWriteBuffers)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Max write buffers {} exceeded", maxWriteBuffers);
+                break;
+            }
         }
 
         List<ByteBuffer> byteBuffers = lease.getByteBuffers();
@@ -285,14 +399,125 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
                 byteBuffers.size(),
                 lease.getTotalLength(),
                 processedEntries.size(),
-                pendingEntries.size(),
+                scheduler.size(),
                 processedEntries,
-                pendingEntries);
+                scheduler);
+
+        writes.incrementAndGet();
+        writeFrames.addAndGet(frames);
+        writeBuffers.addAndGet(byteBuffers.size());
+        writeBytes.addAndGet(lease.getTotalLength());
+        frames = 0;
+        dataHeader = null;
+        dataCopy = null;
 
         session.getEndPoint().write(this, byteBuffers.toArray(EMPTY_BYTE_BUFFERS));
         return Action.SCHEDULED;
     }
 
+    /**
+     * <p>Generates a DATA frame, that subsequent DATA frames of the same
+     * stream may be {@link #coalesceData(ByteBufferPool.Lease, DataFrame, int) coalesced} into.</p>
+     *
+     * @param lease the lease to generate the frame into
+     * @param frame the DATA frame
+     * @param maxLength the max number of data bytes to generate
+     * @return the number of frame bytes generated
+     */
+    int generateData(ByteBufferPool.Lease lease, DataFrame frame, int maxLength)
+    {
+        int leaseSize = lease.getSize();
+        int frameBytes = session.getGenerator().data(lease, frame, maxLength);
+        dataHeader = null;
+        if (dataCoalescing)
+        {
+            ByteBuffer header = lease.getByteBuffers().get(leaseSize);
+            if ((header.get(header.position() + 4) & Flags.END_STREAM) == 0)
+            {
+                dataHeader = header;
+                dataStreamId = frame.getStreamId();
+                dataLeaseSize = lease.getSize();
+                dataCopy = null;
+            }
+        }
+        return frameBytes;
+    }
+
+    /**
+     * <p>Appends the data of the given frame to the DATA frame of the same stream
+     * that was the last frame generated, updating its header, rather than
+     * generating a new DATA frame.</p>
+     *
+     * @param lease the lease the previous DATA frame was generated into
+     * @param frame the DATA frame to coalesce
+     * @param maxLength the max number of data bytes to coalesce
+     * @return the number of data bytes coalesced, or -1 if the frame cannot be coalesced
+     */
+    int coalesceData(ByteBufferPool.Lease lease, DataFrame frame, int maxLength)
+    {
+        if (dataHeader == null || dataStreamId != frame.getStreamId() || dataLeaseSize != lease.getSize())
+            return -1;
+
+        ByteBuffer data = frame.getData();
+        int dataLength = data.remaining();
+        int length = Math.min(dataLength, maxLength);
+        int position = dataHeader.position();
+        int frameLength = ((dataHeader.get(position) & 0xFF) << 16) +
+            ((dataHeader.get(position + 1) & 0xFF) << 8) +
+            (dataHeader.get(position + 2) & 0xFF);
+        if (frameLength + length > session.getGenerator().getMaxFrameSize())
+            return -1;
+
+        ByteBuffer slice = data;
+        if (length < dataLength)
+        {
+            // Consume the data as DataGenerator does for partial frames.
+            slice = data.slice();
+            slice.limit(length);
+            data.position(data.position() + length);
+        }
+
+        if (length > 0)
+        {
+            if (length <= MAX_COPY_LENGTH)
+            {
+                // Copy small data, so that it is not gathered in a buffer of its own.
+                if (dataCopy == null || BufferUtil.space(dataCopy) < length)
+                {
+                    dataCopy = lease.acquire(COPY_BUFFER_SIZE, slice.isDirect());
+                    BufferUtil.flipToFlush(dataCopy, 0);
+                    lease.append(dataCopy, true);
+                }
+                BufferUtil.append(dataCopy, slice.slice());
+            }
+            else
+            {
+                dataCopy = null;
+                lease.append(slice, false);
+            }
+        }
+
+        frameLength += length;
+        dataHeader.put(position, (byte)((frameLength & 0x00_FF_00_00) >>> 16));
+        dataHeader.put(position + 1, (byte)((frameLength & 0x00_00_FF_00) >>> 8));
+        dataHeader.put(position + 2, (byte)(frameLength & 0x00_00_00_FF));
+        if (frame.isEndStream() && length == dataLength)
+        {
+            dataHeader.put(position + 4, (byte)(dataHeader.get(position + 4) | Flags.END_STREAM));
+            dataHeader = null;
+        }
+        else
+        {
+            dataLeaseSize = lease.getSize();
+        }
+
+        coalescedFrames.incrementAndGet();
+        --frames;
+        if (LOG.isDebugEnabled())
+            LOG.debug("Coalesced {} data bytes of {}", length, frame);
+        return length;
+    }
+
     void onFlushed(long bytes) throws IOException
     {
         // A single EndPoint write may be flushed multiple times (for example with SSL).
@@ -309,9 +534,9 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             LOG.debug("Written {} buffers - entries processed/pending {}/{}: {}/{}",
                 lease.getByteBuffers().size(),
                 processedEntries.size(),
-                pendingEntries.size(),
+                scheduler.size(),
                 processedEntries,
-                pendingEntries);
+                scheduler);
         finish();
         super.succeeded();
     }
@@ -319,24 +544,13 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     private void finish()
     {
         lease.recycle();
+        frames = 0;
+        dataHeader = null;
+        dataCopy = null;
 
         processedEntries.forEach(Entry::succeeded);
         processedEntries.clear();
         invocationType = InvocationType.NON_BLOCKING;
-
-        if (stalledEntry != null)
-        {
-            int size = pendingEntries.size();
-            for (int i = 0; i < size; ++i)
-            {
-                Entry entry = pendingEntries.peek();
-                if (entry == stalledEntry)
-                    break;
-                pendingEntries.poll();
-                pendingEntries.offer(entry);
-            }
-            stalledEntry = null;
-        }
     }
 
     @Override
@@ -349,6 +563,8 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     protected void onCompleteFailure(Throwable x)
     {
         lease.recycle();
+        dataHeader = null;
+        dataCopy = null;
 
         Throwable closed;
         Set<Entry> allEntries;
@@ -360,7 +576,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
                 LOG.debug(String.format("%s, entries processed/pending/queued=%d/%d/%d",
                     closed != null ? "Closing" : "Failing",
                     processedEntries.size(),
-                    pendingEntries.size(),
+                    scheduler.size(),
                     entries.size()), x);
             allEntries = new HashSet<>(entries);
             entries.clear();
@@ -368,8 +584,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
 
         allEntries.addAll(processedEntries);
         processedEntries.clear();
-        allEntries.addAll(pendingEntries);
-        pendingEntries.clear();
+        allEntries.addAll(scheduler.removeAll());
         allEntries.forEach(entry -> entry.failed(x));
 
         // If the failure came from within the
@@ -417,7 +632,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             getWindowQueueSize(),
             getFrameQueueSize(),
             processedEntries.size(),
-            pendingEntries.size());
+            scheduler.size());
     }
 
     public abstract static class Entry extends Callback.Nested
@@ -432,6 +647,16 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             this.stream = stream;
         }
 
+        public Frame getFrame()
+        {
+            return frame;
+        }
+
+        public IStream getStream()
+        {
+            return stream;
+        }
+
         public abstract int getFrameBytesGenerated();
 
         public int getDataBytesRemaining()
@@ -468,6 +693,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             {
                 // Frames of this type should not be dropped.
                 case PRIORITY:
+                case PRIORITY_UPDATE:
                 case SETTINGS:
                 case PING:
                 case GO_AWAY:
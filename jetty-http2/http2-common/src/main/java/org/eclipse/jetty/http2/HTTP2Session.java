@@ -37,6 +37,7 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.Stream;
@@ -49,6 +50,7 @@ import org.eclipse.jetty.http2.frames.HeadersFrame;
 import org.eclipse.jetty.http2.frames.PingFrame;
 import org.eclipse.jetty.http2.frames.PrefaceFrame;
 import org.eclipse.jetty.http2.frames.PriorityFrame;
+import org.eclipse.jetty.http2.frames.PriorityUpdateFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
@@ -125,6 +127,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         this.pushEnabled = true; // SPEC: by default, push is enabled.
         addBean(flowControl);
         addBean(flusher);
+        addBean(flusher.getFrameScheduler());
     }
 
     @Override
@@ -140,6 +143,31 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         return flowControl;
     }
 
+    @ManagedAttribute(value = "The frame scheduler", readonly = true)
+    public FrameScheduler getFrameScheduler()
+    {
+        return flusher.getFrameScheduler();
+    }
+
+    /**
+     * <p>Sets the scheduler that decides the order in which the frames are written.</p>
+     * <p>The scheduler can only be set before frames are sent.</p>
+     *
+     * @param scheduler the frame scheduler
+     */
+    public void setFrameScheduler(FrameScheduler scheduler)
+    {
+        FrameScheduler oldScheduler = flusher.getFrameScheduler();
+        flusher.setFrameScheduler(scheduler);
+        updateBean(oldScheduler, scheduler);
+    }
+
+    @ManagedAttribute(value = "The number of frames queued for writing", readonly = true)
+    public int getFrameQueueSize()
+    {
+        return flusher.getFrameQueueSize() + flusher.getPendingFrameQueueSize();
+    }
+
     @ManagedAttribute(value = "The total number of streams opened", readonly = true)
     public long getStreamsOpened()
     {
@@ -207,6 +235,63 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         this.writeThreshold = writeThreshold;
     }
 
+    @ManagedAttribute("Whether consecutive DATA frames of the same stream are coalesced")
+    public boolean isDataCoalescing()
+    {
+        return flusher.isDataCoalescing();
+    }
+
+    public void setDataCoalescing(boolean dataCoalescing)
+    {
+        flusher.setDataCoalescing(dataCoalescing);
+    }
+
+    @ManagedAttribute("The number of buffers that trigger a TCP write")
+    public int getMaxWriteBuffers()
+    {
+        return flusher.getMaxWriteBuffers();
+    }
+
+    public void setMaxWriteBuffers(int maxWriteBuffers)
+    {
+        flusher.setMaxWriteBuffers(maxWriteBuffers);
+    }
+
+    @ManagedAttribute(value = "The total number of TCP writes", readonly = true)
+    public long getWrites()
+    {
+        return flusher.getWrites();
+    }
+
+    @ManagedAttribute(value = "The average number of frames per TCP write", readonly = true)
+    public double getAverageFramesPerWrite()
+    {
+        return average(flusher.getWriteFrames(), flusher.getWrites());
+    }
+
+    @ManagedAttribute(value = "The average number of buffers per TCP write", readonly = true)
+    public double getAverageBuffersPerWrite()
+    {
+        return average(flusher.getWriteBuffers(), flusher.getWrites());
+    }
+
+    @ManagedAttribute(value = "The average number of bytes per TCP write", readonly = true)
+    public double getAverageBytesPerWrite()
+    {
+        return average(flusher.getWriteBytes(), flusher.getWrites());
+    }
+
+    @ManagedAttribute(value = "The total number of DATA frames coalesced", readonly = true)
+    public long getCoalescedDataFrames()
+    {
+        return flusher.getCoalescedFrames();
+    }
+
+    private static double average(long total, long count)
+    {
+        return count == 0 ? 0 : (double)total / count;
+    }
+
     public EndPoint getEndPoint()
     {
         return endPoint;
@@ -307,6 +392,13 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
             LOG.debug("Received {} on {}", frame, this);
     }
 
+    @Override
+    public void onPriorityUpdate(PriorityUpdateFrame frame)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Received {} on {}", frame, this);
+    }
+
     @Override
     public void onReset(ResetFrame frame)
     {
@@ -431,7 +523,8 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
         if (frame.isReply())
         {
-            notifyPing(this, frame);
+            if (!flowControl.onPingReply(this, frame))
+                notifyPing(this, frame);
         }
         else
         {
@@ -1043,6 +1136,16 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         streamsClosed.incrementAndGet();
     }
 
+    private void updatePriority(IStream stream, MetaData metaData)
+    {
+        // The application may signal the priority in the response; it
+        // is applied to the frames that follow the response HEADERS.
+        HttpFields fields = metaData.getFields();
+        String priority = fields == null ? null : fields.get(StreamPriority.HEADER_NAME);
+        if (priority != null)
+            stream.setPriority(StreamPriority.from(priority));
+    }
+
     private void onStreamDestroyed(int streamId)
     {
         if (LOG.isDebugEnabled())
@@ -1314,8 +1417,11 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
                 case HEADERS:
                 {
                     HeadersFrame headersFrame = (HeadersFrame)frame;
-                    if (headersFrame.getMetaData().isRequest())
+                    MetaData metaData = headersFrame.getMetaData();
+                    if (metaData.isRequest())
                         onStreamOpened(stream);
+                    else if (metaData.isResponse())
+                        updatePriority(stream, metaData);
                     if (stream.updateClose(headersFrame.isEndStream(), CloseState.Event.AFTER_SEND))
                         removeStream(stream);
                     break;
@@ -1378,13 +1484,23 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
             int length = Math.min(dataRemaining, window);
 
-            // Only one DATA frame is generated.
+            // Only one DATA frame is generated, or the data is
+            // coalesced into the previous DATA frame of the stream.
             DataFrame dataFrame = (DataFrame)frame;
-            int frameBytes = generator.data(lease, dataFrame, length);
+            int frameBytes;
+            int dataBytes = flusher.coalesceData(lease, dataFrame, length);
+            if (dataBytes < 0)
+            {
+                frameBytes = flusher.generateData(lease, dataFrame, length);
+                dataBytes = frameBytes - Frame.HEADER_LENGTH;
+            }
+            else
+            {
+                frameBytes = dataBytes;
+            }
             this.frameBytes += frameBytes;
             this.frameRemaining += frameBytes;
 
-            int dataBytes = frameBytes - Frame.HEADER_LENGTH;
             this.dataBytes += dataBytes;
             this.dataRemaining -= dataBytes;
             if (LOG.isDebugEnabled())
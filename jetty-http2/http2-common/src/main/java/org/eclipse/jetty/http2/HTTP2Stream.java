@@ -76,6 +76,7 @@ public class HTTP2Stream implements IStream, Callback, Dumpable, CyclicTimeouts.
     private boolean committed;
     private long idleTimeout;
     private long expireNanoTime = Long.MAX_VALUE;
+    private volatile StreamPriority priority;
 
     public HTTP2Stream(ISession session, int streamId, MetaData.Request request, boolean local)
     {
@@ -85,6 +86,8 @@ public class HTTP2Stream implements IStream, Callback, Dumpable, CyclicTimeouts.
         this.local = local;
         this.dataLength = Long.MIN_VALUE;
         this.dataInitial = true;
+        HttpFields fields = request == null ? null : request.getFields();
+        this.priority = fields == null ? null : StreamPriority.from(fields.get(StreamPriority.HEADER_NAME));
     }
 
     @Deprecated
@@ -284,6 +287,18 @@ public class HTTP2Stream implements IStream, Callback, Dumpable, CyclicTimeouts.
         return committed;
     }
 
+    @Override
+    public StreamPriority getPriority()
+    {
+        return priority;
+    }
+
+    @Override
+    public void setPriority(StreamPriority priority)
+    {
+        this.priority = priority;
+    }
+
     public boolean isOpen()
     {
         return !isClosed();
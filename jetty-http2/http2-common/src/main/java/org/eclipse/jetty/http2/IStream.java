@@ -142,6 +142,21 @@ public interface IStream extends Stream, Attachable, Closeable
      */
     boolean isCommitted();
 
+    /**
+     * @return the RFC 9218 priority of this stream, or null if no priority has been signalled
+     * @see #setPriority(StreamPriority)
+     */
+    StreamPriority getPriority();
+
+    /**
+     * <p>Sets the RFC 9218 priority of this stream, typically when a PRIORITY_UPDATE
+     * frame is received or when the response carries a {@code priority} header.</p>
+     *
+     * @param priority the priority of this stream
+     * @see #getPriority()
+     */
+    void setPriority(StreamPriority priority);
+
     /**
      * <p>An ordered list of frames belonging to the same stream.</p>
      */
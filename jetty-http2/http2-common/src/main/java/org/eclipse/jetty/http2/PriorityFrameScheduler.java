@@ -0,0 +1,403 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.http2.frames.FrameType;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A {@link FrameScheduler} that schedules the frames of the streams according to their
+ * {@link StreamPriority RFC 9218 priority}, signalled by the {@code priority} header of the
+ * request or of the response, or by PRIORITY_UPDATE frames.</p>
+ * <p>The HEADERS and DATA frames of the streams are queued by urgency, and the urgencies are
+ * served with a deficit round-robin scheduler, where each urgency is granted a quantum of bytes
+ * that doubles for each urgency step, so that the more urgent streams get a larger share of the
+ * connection while the less urgent streams are not starved.
+ * Within an urgency, the non incremental streams are served one at a time in stream id order,
+ * and then the incremental streams are served one frame each in turn.</p>
+ * <p>The streams that did not signal a priority have the default urgency, but are incremental
+ * so that they fairly share the connection, as they would with {@link RoundRobinFrameScheduler}.</p>
+ * <p>The other frames, such as SETTINGS, WINDOW_UPDATE or RST_STREAM frames, and the HEADERS
+ * frames that open local streams, are not subject to priorities and are generated first.</p>
+ */
+@ManagedObject("A frame scheduler for RFC 9218 priorities")
+public class PriorityFrameScheduler implements FrameScheduler
+{
+    public static final int DEFAULT_QUANTUM = 1024;
+    private static final int URGENCIES = StreamPriority.LOWEST_URGENCY + 1;
+    private static final StreamPriority UNSIGNALLED = StreamPriority.of(StreamPriority.DEFAULT_URGENCY, true);
+
+    private final Deque<HTTP2Flusher.Entry> control = new ArrayDeque<>();
+    private final Map<IStream, StreamQueue> streams = new HashMap<>();
+    private final List<StreamQueue> stalled = new ArrayList<>();
+    private final Level[] levels = new Level[URGENCIES];
+    private final LongAdder[] bytes = new LongAdder[URGENCIES];
+    private volatile int size;
+    private boolean controlStalled;
+    private int current;
+
+    public PriorityFrameScheduler()
+    {
+        this(DEFAULT_QUANTUM);
+    }
+
+    /**
+     * @param quantum the number of bytes granted to the least urgent streams
+     * at each round of the scheduler
+     */
+    public PriorityFrameScheduler(int quantum)
+    {
+        if (quantum <= 0)
+            throw new IllegalArgumentException("Invalid quantum: " + quantum);
+        for (int urgency = 0; urgency < URGENCIES; ++urgency)
+        {
+            levels[urgency] = new Level((long)quantum << (StreamPriority.LOWEST_URGENCY - urgency));
+            bytes[urgency] = new LongAdder();
+        }
+    }
+
+    @ManagedAttribute("The number of frames queued in the scheduler")
+    public int getQueueSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return the number of HEADERS and DATA frame bytes generated for each urgency
+     */
+    @ManagedAttribute("The number of frame bytes sent for each urgency")
+    public long[] getBytesByUrgency()
+    {
+        long[] result = new long[URGENCIES];
+        for (int urgency = 0; urgency < URGENCIES; ++urgency)
+        {
+            result[urgency] = bytes[urgency].sum();
+        }
+        return result;
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        for (LongAdder adder : bytes)
+        {
+            adder.reset();
+        }
+    }
+
+    @Override
+    public void resume()
+    {
+        controlStalled = false;
+        stalled.forEach(queue -> queue.stalled = false);
+        stalled.clear();
+
+        // Apply the priorities that have changed since the last time.
+        for (StreamQueue queue : streams.values())
+        {
+            StreamPriority priority = priorityOf(queue.stream);
+            if (priority != queue.priority)
+            {
+                levels[queue.priority.getUrgency()].remove(queue);
+                queue.priority = priority;
+                levels[priority.getUrgency()].add(queue);
+            }
+        }
+    }
+
+    @Override
+    public void offer(HTTP2Flusher.Entry entry)
+    {
+        ++size;
+        if (!isPrioritized(entry))
+        {
+            if (entry.hasHighPriority())
+                control.offerFirst(entry);
+            else
+                control.offer(entry);
+            return;
+        }
+
+        IStream stream = entry.getStream();
+        StreamQueue queue = streams.get(stream);
+        if (queue == null)
+        {
+            queue = new StreamQueue(stream, priorityOf(stream));
+            streams.put(stream, queue);
+            levels[queue.priority.getUrgency()].add(queue);
+        }
+        queue.entries.offer(entry);
+    }
+
+    private boolean isPrioritized(HTTP2Flusher.Entry entry)
+    {
+        IStream stream = entry.getStream();
+        if (stream == null)
+            return false;
+        switch (entry.getFrame().getType())
+        {
+            case DATA:
+                return true;
+            case HEADERS:
+                // The HEADERS frames that open local streams must be sent in stream id order.
+                return !stream.isLocal() || stream.isCommitted();
+            default:
+                return false;
+        }
+    }
+
+    private StreamPriority priorityOf(IStream stream)
+    {
+        StreamPriority priority = stream.getPriority();
+        return priority == null ? UNSIGNALLED : priority;
+    }
+
+    @Override
+    public HTTP2Flusher.Entry next()
+    {
+        if (!controlStalled)
+        {
+            HTTP2Flusher.Entry entry = control.peek();
+            if (entry != null)
+                return entry;
+        }
+
+        // Deficit round-robin across the urgencies: when its turn comes, an urgency
+        // earns its quantum and is served until it has used it, then the next one.
+        boolean eligible = false;
+        int visits = 0;
+        while (true)
+        {
+            Level level = levels[current];
+            StreamQueue queue = level.peek();
+            if (queue == null)
+            {
+                level.deficit = 0;
+            }
+            else
+            {
+                if (!level.serving)
+                {
+                    level.serving = true;
+                    level.deficit += level.quantum;
+                }
+                if (level.deficit > 0)
+                    return queue.entries.peek();
+                eligible = true;
+            }
+            level.serving = false;
+            current = (current + 1) % URGENCIES;
+            if (++visits == URGENCIES)
+            {
+                // Keep going while there are streams that need more quanta.
+                if (!eligible)
+                {
+                    // Nothing can be served, the next round starts from the most urgent streams.
+                    current = 0;
+                    return null;
+                }
+                visits = 0;
+                eligible = false;
+            }
+        }
+    }
+
+    @Override
+    public void generated(HTTP2Flusher.Entry entry, int bytes)
+    {
+        if (control.peek() == entry)
+        {
+            if (entry.getDataBytesRemaining() == 0)
+            {
+                control.poll();
+                --size;
+            }
+            return;
+        }
+
+        StreamQueue queue = streams.get(entry.getStream());
+        int urgency = queue.priority.getUrgency();
+        this.bytes[urgency].add(bytes);
+        Level level = levels[urgency];
+        level.deficit -= bytes;
+        if (entry.getDataBytesRemaining() == 0)
+        {
+            queue.entries.poll();
+            --size;
+            if (queue.entries.isEmpty())
+            {
+                level.remove(queue);
+                streams.remove(queue.stream);
+                return;
+            }
+        }
+        level.rotate(queue);
+    }
+
+    @Override
+    public void stall(HTTP2Flusher.Entry entry)
+    {
+        if (control.peek() == entry)
+        {
+            controlStalled = true;
+            return;
+        }
+
+        StreamQueue queue = streams.get(entry.getStream());
+        queue.stalled = true;
+        stalled.add(queue);
+    }
+
+    @Override
+    public void remove(HTTP2Flusher.Entry entry)
+    {
+        --size;
+        if (control.peek() == entry)
+        {
+            control.poll();
+            return;
+        }
+
+        StreamQueue queue = streams.get(entry.getStream());
+        queue.entries.remove(entry);
+        if (queue.entries.isEmpty())
+        {
+            levels[queue.priority.getUrgency()].remove(queue);
+            streams.remove(queue.stream);
+        }
+    }
+
+    @Override
+    public List<HTTP2Flusher.Entry> removeAll()
+    {
+        List<HTTP2Flusher.Entry> result = new ArrayList<>(control);
+        control.clear();
+        streams.values().forEach(queue -> result.addAll(queue.entries));
+        streams.clear();
+        stalled.clear();
+        for (Level level : levels)
+        {
+            level.clear();
+        }
+        size = 0;
+        return result;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[queued=%d,streams=%d]", getClass().getSimpleName(), hashCode(), size, streams.size());
+    }
+
+    private static class StreamQueue
+    {
+        private final Deque<HTTP2Flusher.Entry> entries = new ArrayDeque<>();
+        private final IStream stream;
+        private StreamPriority priority;
+        private boolean stalled;
+
+        private StreamQueue(IStream stream, StreamPriority priority)
+        {
+            this.stream = stream;
+            this.priority = priority;
+        }
+    }
+
+    private static class Level
+    {
+        private final List<StreamQueue> sequential = new ArrayList<>();
+        private final Deque<StreamQueue> incremental = new ArrayDeque<>();
+        private final long quantum;
+        private long deficit;
+        private boolean serving;
+
+        private Level(long quantum)
+        {
+            this.quantum = quantum;
+        }
+
+        private StreamQueue peek()
+        {
+            for (StreamQueue queue : sequential)
+            {
+                if (!queue.stalled)
+                    return queue;
+            }
+            for (StreamQueue queue : incremental)
+            {
+                if (!queue.stalled)
+                    return queue;
+            }
+            return null;
+        }
+
+        private void add(StreamQueue queue)
+        {
+            if (queue.priority.isIncremental())
+            {
+                incremental.offer(queue);
+            }
+            else
+            {
+                // Keep the non incremental streams in stream id order.
+                int index = sequential.size();
+                int streamId = queue.stream.getId();
+                while (index > 0 && sequential.get(index - 1).stream.getId() > streamId)
+                {
+                    --index;
+                }
+                sequential.add(index, queue);
+            }
+        }
+
+        private void remove(StreamQueue queue)
+        {
+            if (queue.priority.isIncremental())
+                incremental.remove(queue);
+            else
+                sequential.remove(queue);
+        }
+
+        private void rotate(StreamQueue queue)
+        {
+            // The incremental streams take turns.
+            if (queue.priority.isIncremental() && incremental.remove(queue))
+                incremental.offer(queue);
+        }
+
+        private void clear()
+        {
+            sequential.clear();
+            incremental.clear();
+            deficit = 0;
+            serving = false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>A {@link FrameScheduler} that generates a frame for each queued entry in turn,
+ * in the order the entries have been queued, regardless of the stream priorities.</p>
+ * <p>The entries with high priority, such as those of PING frames, are generated first.</p>
+ */
+public class RoundRobinFrameScheduler implements FrameScheduler
+{
+    private final List<HTTP2Flusher.Entry> entries = new ArrayList<>();
+    private final Set<HTTP2Flusher.Entry> stalled = new HashSet<>();
+    private int cursor;
+
+    @Override
+    public void resume()
+    {
+        stalled.clear();
+    }
+
+    @Override
+    public void offer(HTTP2Flusher.Entry entry)
+    {
+        if (cursor >= entries.size())
+            cursor = 0;
+        if (entry.hasHighPriority())
+            entries.add(cursor, entry);
+        else
+            entries.add(entry);
+    }
+
+    @Override
+    public HTTP2Flusher.Entry next()
+    {
+        int size = entries.size();
+        for (int i = 0; i < size; ++i)
+        {
+            if (cursor >= size)
+                cursor = 0;
+            HTTP2Flusher.Entry entry = entries.get(cursor);
+            if (!stalled.contains(entry))
+                return entry;
+            ++cursor;
+        }
+        return null;
+    }
+
+    @Override
+    public void generated(HTTP2Flusher.Entry entry, int bytes)
+    {
+        if (entry.getDataBytesRemaining() == 0)
+            entries.remove(cursor);
+        else
+            ++cursor;
+    }
+
+    @Override
+    public void stall(HTTP2Flusher.Entry entry)
+    {
+        stalled.add(entry);
+        ++cursor;
+    }
+
+    @Override
+    public void remove(HTTP2Flusher.Entry entry)
+    {
+        entries.remove(cursor);
+    }
+
+    @Override
+    public List<HTTP2Flusher.Entry> removeAll()
+    {
+        List<HTTP2Flusher.Entry> result = new ArrayList<>(entries);
+        entries.clear();
+        stalled.clear();
+        cursor = 0;
+        return result;
+    }
+
+    @Override
+    public int size()
+    {
+        return entries.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[queued=%d]", getClass().getSimpleName(), hashCode(), size());
+    }
+}
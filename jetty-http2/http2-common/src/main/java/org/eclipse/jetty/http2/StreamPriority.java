@@ -0,0 +1,148 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import org.eclipse.jetty.util.StringUtil;
+
+/**
+ * <p>The priority of a stream, as defined by the extensible prioritization scheme of
+ * <a href="https://www.rfc-editor.org/rfc/rfc9218">RFC 9218</a>.</p>
+ * <p>The priority is made of an urgency, from {@code 0} (the highest priority) to
+ * {@code 7} (the lowest priority), and of a flag that tells whether the response
+ * can be processed incrementally, so that it can be interleaved with the
+ * responses of the same urgency.</p>
+ * <p>The priority is signalled by the {@code priority} header of requests and
+ * responses, or by PRIORITY_UPDATE frames, whose value is a dictionary such as
+ * {@code u=1, i}.</p>
+ *
+ * @see PriorityFrameScheduler
+ */
+public class StreamPriority
+{
+    public static final String HEADER_NAME = "priority";
+    public static final int HIGHEST_URGENCY = 0;
+    public static final int DEFAULT_URGENCY = 3;
+    public static final int LOWEST_URGENCY = 7;
+    private static final StreamPriority[] PRIORITIES = new StreamPriority[2 * (LOWEST_URGENCY + 1)];
+
+    static
+    {
+        for (int urgency = HIGHEST_URGENCY; urgency <= LOWEST_URGENCY; ++urgency)
+        {
+            PRIORITIES[2 * urgency] = new StreamPriority(urgency, false);
+            PRIORITIES[2 * urgency + 1] = new StreamPriority(urgency, true);
+        }
+    }
+
+    public static final StreamPriority DEFAULT = of(DEFAULT_URGENCY, false);
+
+    /**
+     * @param urgency the urgency, from 0 to 7
+     * @param incremental whether the response can be processed incrementally
+     * @return the priority with the given urgency and incremental flag
+     */
+    public static StreamPriority of(int urgency, boolean incremental)
+    {
+        if (urgency < HIGHEST_URGENCY || urgency > LOWEST_URGENCY)
+            throw new IllegalArgumentException("Invalid urgency: " + urgency);
+        return PRIORITIES[2 * urgency + (incremental ? 1 : 0)];
+    }
+
+    /**
+     * <p>Parses the given {@code priority} field value.</p>
+     * <p>As required by RFC 9218, the parameters that are missing or that have
+     * an invalid value take their default value, and unknown parameters are ignored.</p>
+     *
+     * @param value the priority field value, such as {@code u=1, i}
+     * @return the priority, or null if the value is null
+     */
+    public static StreamPriority from(String value)
+    {
+        if (value == null)
+            return null;
+
+        int urgency = DEFAULT_URGENCY;
+        boolean incremental = false;
+        for (String member : StringUtil.csvSplit(value))
+        {
+            // Parameters of the dictionary members are ignored.
+            int semicolon = member.indexOf(';');
+            if (semicolon >= 0)
+                member = member.substring(0, semicolon).trim();
+            int equals = member.indexOf('=');
+            String key = equals < 0 ? member : member.substring(0, equals).trim();
+            String item = equals < 0 ? null : member.substring(equals + 1).trim();
+            switch (key)
+            {
+                case "u":
+                {
+                    if (item != null && item.length() == 1)
+                    {
+                        int u = item.charAt(0) - '0';
+                        if (u >= HIGHEST_URGENCY && u <= LOWEST_URGENCY)
+                            urgency = u;
+                    }
+                    break;
+                }
+                case "i":
+                {
+                    if (item == null || "?1".equals(item))
+                        incremental = true;
+                    else if ("?0".equals(item))
+                        incremental = false;
+                    break;
+                }
+                default:
+                {
+                    break;
+                }
+            }
+        }
+        return of(urgency, incremental);
+    }
+
+    private final int urgency;
+    private final boolean incremental;
+
+    private StreamPriority(int urgency, boolean incremental)
+    {
+        this.urgency = urgency;
+        this.incremental = incremental;
+    }
+
+    /**
+     * @return the urgency, from 0 (the highest priority) to 7 (the lowest priority)
+     */
+    public int getUrgency()
+    {
+        return urgency;
+    }
+
+    /**
+     * @return whether the response can be processed incrementally
+     */
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
+    /**
+     * @return the priority field value
+     */
+    @Override
+    public String toString()
+    {
+        return incremental ? "u=" + urgency + ", i" : "u=" + urgency;
+    }
+}
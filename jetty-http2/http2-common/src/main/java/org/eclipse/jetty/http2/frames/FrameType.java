@@ -31,7 +31,9 @@ public enum FrameType
     // Synthetic frames only needed by the implementation.
     PREFACE(10),
     DISCONNECT(11),
-    FAILURE(12);
+    FAILURE(12),
+    // Extension frames.
+    PRIORITY_UPDATE(16);
 
     public static FrameType from(int type)
     {
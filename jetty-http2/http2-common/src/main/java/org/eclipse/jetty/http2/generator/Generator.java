@@ -18,6 +18,8 @@ import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.FrameType;
 import org.eclipse.jetty.http2.hpack.HpackEncoder;
 import org.eclipse.jetty.http2.hpack.HpackException;
+import org.eclipse.jetty.http2.hpack.HpackFieldCache;
+import org.eclipse.jetty.http2.hpack.HpackIndexingPolicy;
 import org.eclipse.jetty.io.ByteBufferPool;
 
 public class Generator
@@ -45,7 +47,8 @@ public class Generator
         headerGenerator = new HeaderGenerator(useDirectByteBuffers);
         hpackEncoder = new HpackEncoder(maxDynamicTableSize);
 
-        this.generators = new FrameGenerator[FrameType.values().length];
+        // PRIORITY_UPDATE has the highest frame type.
+        this.generators = new FrameGenerator[FrameType.PRIORITY_UPDATE.getType() + 1];
         this.generators[FrameType.HEADERS.getType()] = new HeadersGenerator(headerGenerator, hpackEncoder, maxHeaderBlockFragment);
         this.generators[FrameType.PRIORITY.getType()] = new PriorityGenerator(headerGenerator);
         this.generators[FrameType.RST_STREAM.getType()] = new ResetGenerator(headerGenerator);
@@ -57,6 +60,7 @@ public class Generator
         this.generators[FrameType.CONTINUATION.getType()] = null; // Never generated explicitly.
         this.generators[FrameType.PREFACE.getType()] = new PrefaceGenerator();
         this.generators[FrameType.DISCONNECT.getType()] = new NoOpGenerator();
+        this.generators[FrameType.PRIORITY_UPDATE.getType()] = new PriorityUpdateGenerator(headerGenerator);
 
         this.dataGenerator = new DataGenerator(headerGenerator);
     }
@@ -71,11 +75,26 @@ public class Generator
         hpackEncoder.setValidateEncoding(validateEncoding);
     }
 
+    public void setHpackFieldCache(HpackFieldCache fieldCache)
+    {
+        hpackEncoder.setFieldCache(fieldCache);
+    }
+
+    public void setHpackIndexingPolicy(HpackIndexingPolicy indexingPolicy)
+    {
+        hpackEncoder.setIndexingPolicy(indexingPolicy);
+    }
+
     public void setHeaderTableSize(int headerTableSize)
     {
         hpackEncoder.setRemoteMaxDynamicTableSize(headerTableSize);
     }
 
+    public int getMaxFrameSize()
+    {
+        return headerGenerator.getMaxFrameSize();
+    }
+
     public void setMaxFrameSize(int maxFrameSize)
     {
         headerGenerator.setMaxFrameSize(maxFrameSize);
@@ -25,6 +25,7 @@ import org.eclipse.jetty.http2.frames.GoAwayFrame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
 import org.eclipse.jetty.http2.frames.PingFrame;
 import org.eclipse.jetty.http2.frames.PriorityFrame;
+import org.eclipse.jetty.http2.frames.PriorityUpdateFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
@@ -65,7 +66,8 @@ public class Parser
         this.listener = listener;
         this.headerParser = new HeaderParser(rateControl == null ? RateControl.NO_RATE_CONTROL : rateControl);
         this.hpackDecoder = new HpackDecoder(maxDynamicTableSize, maxHeaderSize);
-        this.bodyParsers = new BodyParser[FrameType.values().length];
+        // PRIORITY_UPDATE has the highest frame type.
+        this.bodyParsers = new BodyParser[FrameType.PRIORITY_UPDATE.getType() + 1];
     }
 
     public void init(UnaryOperator<Listener> wrapper)
@@ -84,6 +86,7 @@ public class Parser
         bodyParsers[FrameType.GO_AWAY.getType()] = new GoAwayBodyParser(headerParser, listener);
         bodyParsers[FrameType.WINDOW_UPDATE.getType()] = new WindowUpdateBodyParser(headerParser, listener);
         bodyParsers[FrameType.CONTINUATION.getType()] = new ContinuationBodyParser(headerParser, listener, headerBlockParser, headerBlockFragments);
+        bodyParsers[FrameType.PRIORITY_UPDATE.getType()] = new PriorityUpdateBodyParser(headerParser, listener);
     }
 
     private void reset()
@@ -172,7 +175,7 @@ public class Parser
     protected boolean parseBody(ByteBuffer buffer)
     {
         int type = getFrameType();
-        if (type < 0 || type >= bodyParsers.length)
+        if (type < 0 || type >= bodyParsers.length || bodyParsers[type] == null)
         {
             // Unknown frame types must be ignored.
             if (LOG.isDebugEnabled())
@@ -254,6 +257,10 @@ public class Parser
 
         public void onPriority(PriorityFrame frame);
 
+        public default void onPriorityUpdate(PriorityUpdateFrame frame)
+        {
+        }
+
         public void onReset(ResetFrame frame);
 
         public void onSettings(SettingsFrame frame);
@@ -361,6 +368,12 @@ public class Parser
                 listener.onPriority(frame);
             }
 
+            @Override
+            public void onPriorityUpdate(PriorityUpdateFrame frame)
+            {
+                listener.onPriorityUpdate(frame);
+            }
+
             @Override
             public void onReset(ResetFrame frame)
             {
@@ -0,0 +1,181 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PushPromiseFrame;
+import org.eclipse.jetty.http2.generator.Generator;
+import org.eclipse.jetty.http2.parser.Parser;
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FuturePromise;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HTTP2FlusherTest
+{
+    private final ByteBufferPool byteBufferPool = new MappedByteBufferPool();
+    private Scheduler scheduler;
+    private ByteArrayEndPoint endPoint;
+    private HTTP2Session session;
+
+    @BeforeEach
+    public void prepare() throws Exception
+    {
+        scheduler = new ScheduledExecutorScheduler();
+        scheduler.start();
+        endPoint = new ByteArrayEndPoint();
+        endPoint.setGrowOutput(true);
+        Generator generator = new Generator(byteBufferPool);
+        session = new HTTP2Session(scheduler, endPoint, generator, new Session.Listener.Adapter(), new SimpleFlowControlStrategy(), 1)
+        {
+            @Override
+            public void onHeaders(HeadersFrame frame)
+            {
+            }
+
+            @Override
+            public void onPushPromise(PushPromiseFrame frame)
+            {
+            }
+        };
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        scheduler.stop();
+    }
+
+    @Test
+    public void testDataFramesNotCoalescedByDefault() throws Exception
+    {
+        List<DataFrame> frames = writeChunks(List.of(100, 200, 300));
+
+        assertEquals(3, frames.size());
+        assertEquals(0, session.getCoalescedDataFrames());
+    }
+
+    @Test
+    public void testSmallDataFramesCoalesced() throws Exception
+    {
+        session.setDataCoalescing(true);
+        List<Integer> lengths = List.of(100, 200, 2000, 300, 0);
+        List<DataFrame> frames = writeChunks(lengths);
+
+        assertEquals(1, frames.size());
+        assertTrue(frames.get(0).isEndStream());
+        assertEquals(lengths.size() - 1, session.getCoalescedDataFrames());
+        // The HEADERS frame, then the DATA frame.
+        assertEquals(2, session.getWrites());
+        assertEquals(1.0, session.getAverageFramesPerWrite());
+        // The HEADERS frame header and its HPACK block, then the DATA frame header, the first
+        // chunk, the copy of the next small chunk, the large chunk and the copy of the last chunks.
+        assertEquals((2 + 5) / 2.0, session.getAverageBuffersPerWrite());
+    }
+
+    @Test
+    public void testDataFramesCoalescedUpToMaxFrameSize() throws Exception
+    {
+        session.setDataCoalescing(true);
+        int chunk = 6 * 1024;
+        List<DataFrame> frames = writeChunks(List.of(chunk, chunk, chunk, chunk));
+
+        // The max frame size is 16 KiB, so 2 chunks fit in a frame.
+        assertEquals(2, frames.size());
+        assertEquals(2 * chunk, frames.get(0).remaining());
+        assertEquals(2 * chunk, frames.get(1).remaining());
+        assertTrue(frames.get(1).isEndStream());
+    }
+
+    @Test
+    public void testMaxWriteBuffers() throws Exception
+    {
+        session.setMaxWriteBuffers(4);
+        List<DataFrame> frames = writeChunks(List.of(100, 100, 100, 100));
+
+        assertEquals(4, frames.size());
+        assertTrue(session.getWrites() > 1);
+        assertTrue(session.getAverageBuffersPerWrite() <= 4);
+    }
+
+    private List<DataFrame> writeChunks(List<Integer> lengths) throws Exception
+    {
+        FuturePromise<Stream> promise = new FuturePromise<>();
+        MetaData.Request request = new MetaData.Request("GET", HttpURI.from("http://localhost/"), HttpVersion.HTTP_2, HttpFields.EMPTY);
+        session.newStream(new HeadersFrame(request, null, false), promise, new Stream.Listener.Adapter());
+        IStream stream = (IStream)promise.get(5, TimeUnit.SECONDS);
+        // Discard the HEADERS frame written by newStream().
+        endPoint.takeOutput();
+
+        List<DataFrame> dataFrames = new ArrayList<>();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (int i = 0; i < lengths.size(); ++i)
+        {
+            byte[] bytes = new byte[lengths.get(i)];
+            for (int j = 0; j < bytes.length; ++j)
+            {
+                bytes[j] = (byte)(i + j);
+            }
+            content.write(bytes);
+            dataFrames.add(new DataFrame(stream.getId(), ByteBuffer.wrap(bytes), i == lengths.size() - 1));
+        }
+        // Send all the frames at once, so they are written together.
+        Callback.Completable callback = new Callback.Completable();
+        session.frames(stream, dataFrames, callback);
+        callback.get(5, TimeUnit.SECONDS);
+
+        List<DataFrame> parsed = new ArrayList<>();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        Parser parser = new Parser(byteBufferPool, new Parser.Listener.Adapter()
+        {
+            @Override
+            public void onData(DataFrame frame)
+            {
+                byte[] bytes = BufferUtil.toArray(frame.getData());
+                received.write(bytes, 0, bytes.length);
+                parsed.add(new DataFrame(frame.getStreamId(), ByteBuffer.wrap(bytes), frame.isEndStream()));
+            }
+        }, 4096, 8192);
+        parser.init(UnaryOperator.identity());
+        parser.parse(endPoint.takeOutput());
+
+        assertArrayEquals(content.toByteArray(), received.toByteArray());
+        return parsed;
+    }
+}
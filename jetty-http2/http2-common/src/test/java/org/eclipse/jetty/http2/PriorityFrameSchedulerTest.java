@@ -0,0 +1,317 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.FrameType;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.Callback;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PriorityFrameSchedulerTest
+{
+    private static final int FRAME_LENGTH = Frame.DEFAULT_MAX_LENGTH;
+
+    private final PriorityFrameScheduler scheduler = new PriorityFrameScheduler();
+
+    @Test
+    public void testParsePriority()
+    {
+        assertNull(StreamPriority.from(null));
+        assertSame(StreamPriority.DEFAULT, StreamPriority.from(""));
+        assertSame(StreamPriority.of(1, true), StreamPriority.from("u=1, i"));
+        assertSame(StreamPriority.of(5, true), StreamPriority.from("i=?1,u=5"));
+        assertSame(StreamPriority.of(0, false), StreamPriority.from("u=0, i=?0"));
+        // Invalid parameters take the default value, unknown parameters are ignored.
+        assertSame(StreamPriority.DEFAULT, StreamPriority.from("u=9, i=1"));
+        assertSame(StreamPriority.of(6, false), StreamPriority.from("u=6;p=1, x=y"));
+        assertEquals("u=2, i", StreamPriority.of(2, true).toString());
+    }
+
+    @Test
+    public void testUnsignalledStreamsTakeTurns()
+    {
+        IStream stream1 = newStream(1, null);
+        IStream stream3 = newStream(3, null);
+        scheduler.offer(new TestEntry(data(stream1), stream1, 3 * FRAME_LENGTH));
+        scheduler.offer(new TestEntry(data(stream3), stream3, 3 * FRAME_LENGTH));
+
+        assertEquals(List.of(1, 3, 1, 3, 1, 3), generate(100));
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void testControlFramesFirst()
+    {
+        IStream stream1 = newStream(1, null);
+        scheduler.offer(new TestEntry(data(stream1), stream1, FRAME_LENGTH));
+        scheduler.offer(new TestEntry(new PingFrame(false), null, 0));
+
+        TestEntry entry = (TestEntry)scheduler.next();
+        assertEquals(FrameType.PING, entry.getFrame().getType());
+    }
+
+    @Test
+    public void testUrgentStreamServedFirst()
+    {
+        IStream stream1 = newStream(1, "u=7");
+        IStream stream3 = newStream(3, "u=0");
+        scheduler.offer(new TestEntry(data(stream1), stream1, 64 * FRAME_LENGTH));
+        scheduler.offer(new TestEntry(data(stream3), stream3, 4 * FRAME_LENGTH));
+
+        List<Integer> streamIds = generate(8);
+        // The more urgent stream is completely sent first.
+        assertEquals(List.of(3, 3, 3, 3), streamIds.subList(0, 4));
+    }
+
+    @Test
+    public void testUrgenciesShareByWeight()
+    {
+        IStream stream1 = newStream(1, "u=3, i");
+        IStream stream3 = newStream(3, "u=4, i");
+        scheduler.offer(new TestEntry(data(stream1), stream1, 1024 * FRAME_LENGTH));
+        scheduler.offer(new TestEntry(data(stream3), stream3, 1024 * FRAME_LENGTH));
+
+        generate(300);
+
+        // Each urgency step doubles the share of the connection.
+        long[] bytes = scheduler.getBytesByUrgency();
+        double ratio = (double)bytes[3] / bytes[4];
+        assertTrue(ratio > 1.8 && ratio < 2.2, "ratio " + ratio);
+    }
+
+    @Test
+    public void testNonIncrementalStreamsInStreamIdOrder()
+    {
+        IStream stream3 = newStream(3, "u=2");
+        IStream stream5 = newStream(5, "u=2");
+        IStream stream1 = newStream(1, "u=2");
+        scheduler.offer(new TestEntry(data(stream5), stream5, 2 * FRAME_LENGTH));
+        scheduler.offer(new TestEntry(data(stream3), stream3, 2 * FRAME_LENGTH));
+        scheduler.offer(new TestEntry(data(stream1), stream1, 2 * FRAME_LENGTH));
+
+        assertEquals(List.of(1, 1, 3, 3, 5, 5), generate(100));
+    }
+
+    @Test
+    public void testStreamFramesInOrder()
+    {
+        IStream stream1 = newStream(1, null);
+        IStream stream3 = newStream(3, null);
+        List<TestEntry> entries = new ArrayList<>();
+        entries.add(new TestEntry(response(stream1), stream1, 0));
+        entries.add(new TestEntry(data(stream1), stream1, 2 * FRAME_LENGTH));
+        entries.add(new TestEntry(new HeadersFrame(1, new MetaData(HttpVersion.HTTP_2, HttpFields.EMPTY), null, true), stream1, 0));
+        entries.add(new TestEntry(data(stream3), stream3, 4 * FRAME_LENGTH));
+        entries.forEach(scheduler::offer);
+
+        List<FrameType> types = new ArrayList<>();
+        HTTP2Flusher.Entry entry;
+        while ((entry = scheduler.next()) != null)
+        {
+            ((TestEntry)entry).generate();
+            if (entry.getStream() == stream1)
+                types.add(entry.getFrame().getType());
+            scheduler.generated(entry, entry.getFrameBytesGenerated());
+        }
+
+        assertEquals(List.of(FrameType.HEADERS, FrameType.DATA, FrameType.DATA, FrameType.HEADERS), types);
+    }
+
+    @Test
+    public void testStalledStreamResumed()
+    {
+        IStream stream1 = newStream(1, "u=0");
+        IStream stream3 = newStream(3, "u=7");
+        scheduler.offer(new TestEntry(data(stream1), stream1, FRAME_LENGTH));
+        scheduler.offer(new TestEntry(data(stream3), stream3, FRAME_LENGTH));
+
+        // The urgent stream is stalled by flow control.
+        HTTP2Flusher.Entry entry = scheduler.next();
+        assertSame(stream1, entry.getStream());
+        scheduler.stall(entry);
+
+        entry = scheduler.next();
+        assertSame(stream3, entry.getStream());
+        ((TestEntry)entry).generate();
+        scheduler.generated(entry, entry.getFrameBytesGenerated());
+        assertNull(scheduler.next());
+
+        scheduler.resume();
+        entry = scheduler.next();
+        assertSame(stream1, entry.getStream());
+    }
+
+    @Test
+    public void testPriorityUpdate()
+    {
+        IStream stream1 = newStream(1, "u=5");
+        IStream stream3 = newStream(3, "u=5");
+        scheduler.offer(new TestEntry(data(stream1), stream1, 4 * FRAME_LENGTH));
+        scheduler.offer(new TestEntry(data(stream3), stream3, 4 * FRAME_LENGTH));
+
+        // The priority update is applied when the scheduler is resumed.
+        stream3.setPriority(StreamPriority.from("u=1"));
+        scheduler.resume();
+
+        assertEquals(List.of(3, 3, 3, 3, 1, 1, 1, 1), generate(100));
+    }
+
+    @Test
+    public void testResponsePriority()
+    {
+        IStream stream1 = newStream(1, "u=1");
+        AtomicInteger metaDataReads = new AtomicInteger();
+        HeadersFrame response = new HeadersFrame(stream1.getId(), response(stream1).getMetaData(), null, false)
+        {
+            @Override
+            public MetaData getMetaData()
+            {
+                metaDataReads.incrementAndGet();
+                return super.getMetaData();
+            }
+        };
+        scheduler.offer(new TestEntry(response, stream1, 0));
+        scheduler.offer(new TestEntry(data(stream1), stream1, FRAME_LENGTH));
+
+        // The scheduler does not read the metadata, which may be expensive
+        // to produce; the session applies the priority of the response.
+        assertEquals(0, metaDataReads.get());
+        HTTP2Flusher.Entry entry = scheduler.next();
+        ((TestEntry)entry).generate();
+        scheduler.generated(entry, entry.getFrameBytesGenerated());
+        stream1.setPriority(StreamPriority.from("u=6, i"));
+        scheduler.resume();
+
+        entry = scheduler.next();
+        ((TestEntry)entry).generate();
+        scheduler.generated(entry, entry.getFrameBytesGenerated());
+        assertEquals(entry.getFrameBytesGenerated(), scheduler.getBytesByUrgency()[6]);
+    }
+
+    @Test
+    public void testRemoveAll()
+    {
+        IStream stream1 = newStream(1, null);
+        scheduler.offer(new TestEntry(data(stream1), stream1, FRAME_LENGTH));
+        scheduler.offer(new TestEntry(new PingFrame(false), null, 0));
+        assertEquals(2, scheduler.size());
+
+        assertEquals(2, scheduler.removeAll().size());
+        assertEquals(0, scheduler.size());
+        assertNull(scheduler.next());
+        assertFalse(scheduler.removeAll().iterator().hasNext());
+    }
+
+    private List<Integer> generate(int maxFrames)
+    {
+        List<Integer> streamIds = new ArrayList<>();
+        HTTP2Flusher.Entry entry;
+        while (streamIds.size() < maxFrames && (entry = scheduler.next()) != null)
+        {
+            ((TestEntry)entry).generate();
+            streamIds.add(entry.getStream().getId());
+            scheduler.generated(entry, entry.getFrameBytesGenerated());
+        }
+        return streamIds;
+    }
+
+    private IStream newStream(int streamId, String priority)
+    {
+        HttpFields.Mutable fields = HttpFields.build();
+        if (priority != null)
+            fields.put(StreamPriority.HEADER_NAME, priority);
+        MetaData.Request request = new MetaData.Request("GET", HttpURI.from("http://localhost/"), HttpVersion.HTTP_2, fields);
+        return new HTTP2Stream(null, streamId, request, false);
+    }
+
+    private DataFrame data(IStream stream)
+    {
+        return new DataFrame(stream.getId(), ByteBuffer.allocate(0), true);
+    }
+
+    private HeadersFrame response(IStream stream)
+    {
+        return new HeadersFrame(stream.getId(), new MetaData.Response(HttpVersion.HTTP_2, 200, HttpFields.EMPTY), null, false);
+    }
+
+    private static class TestEntry extends HTTP2Flusher.Entry
+    {
+        private int dataRemaining;
+        private int frameBytes;
+
+        private TestEntry(Frame frame, IStream stream, int dataLength)
+        {
+            super(frame, stream, Callback.NOOP);
+            this.dataRemaining = dataLength;
+        }
+
+        @Override
+        public int getFrameBytesGenerated()
+        {
+            return frameBytes;
+        }
+
+        @Override
+        public int getDataBytesRemaining()
+        {
+            return dataRemaining;
+        }
+
+        @Override
+        protected boolean generate(ByteBufferPool.Lease lease)
+        {
+            return generate();
+        }
+
+        private boolean generate()
+        {
+            // One frame is generated at a time.
+            int length = Math.min(dataRemaining, FRAME_LENGTH);
+            dataRemaining -= length;
+            frameBytes = Frame.HEADER_LENGTH + length;
+            return true;
+        }
+
+        @Override
+        public long onFlushed(long bytes)
+        {
+            return bytes;
+        }
+
+        @Override
+        boolean hasHighPriority()
+        {
+            return frame.getType() == FrameType.PING;
+        }
+    }
+}
@@ -89,6 +89,13 @@ public class FrameFloodTest
         testFrameFlood(null, frameFrom(payload.length, FrameType.PRIORITY.getType(), 0, 13, payload));
     }
 
+    @Test
+    public void testPriorityUpdateFrameFlood()
+    {
+        byte[] payload = new byte[]{0, 0, 0, 13, 'u', '=', '1'};
+        testFrameFlood(null, frameFrom(payload.length, FrameType.PRIORITY_UPDATE.getType(), 0, 0, payload));
+    }
+
     @Test
     public void testSettingsFrameFlood()
     {
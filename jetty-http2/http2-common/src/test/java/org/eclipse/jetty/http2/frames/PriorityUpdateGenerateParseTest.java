@@ -0,0 +1,115 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.frames;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.jetty.http2.ErrorCode;
+import org.eclipse.jetty.http2.generator.HeaderGenerator;
+import org.eclipse.jetty.http2.generator.PriorityUpdateGenerator;
+import org.eclipse.jetty.http2.parser.Parser;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PriorityUpdateGenerateParseTest
+{
+    private final ByteBufferPool byteBufferPool = new MappedByteBufferPool();
+
+    @Test
+    public void testGenerateParse() throws Exception
+    {
+        testGenerateParse("u=1, i", false);
+    }
+
+    @Test
+    public void testGenerateParseOneByteAtATime() throws Exception
+    {
+        testGenerateParse("u=5", true);
+    }
+
+    @Test
+    public void testGenerateParseEmptyPriority() throws Exception
+    {
+        testGenerateParse("", true);
+    }
+
+    private void testGenerateParse(String priority, boolean oneByteAtATime) throws Exception
+    {
+        PriorityUpdateGenerator generator = new PriorityUpdateGenerator(new HeaderGenerator());
+
+        final List<PriorityUpdateFrame> frames = new ArrayList<>();
+        Parser parser = new Parser(byteBufferPool, new Parser.Listener.Adapter()
+        {
+            @Override
+            public void onPriorityUpdate(PriorityUpdateFrame frame)
+            {
+                frames.add(frame);
+            }
+        }, 4096, 8192);
+        parser.init(UnaryOperator.identity());
+
+        int prioritizedStreamId = 13;
+
+        // Iterate a few times to be sure generator and parser are properly reset.
+        for (int i = 0; i < 2; ++i)
+        {
+            ByteBufferPool.Lease lease = new ByteBufferPool.Lease(byteBufferPool);
+            generator.generatePriorityUpdate(lease, prioritizedStreamId, priority);
+
+            frames.clear();
+            for (ByteBuffer buffer : lease.getByteBuffers())
+            {
+                while (buffer.hasRemaining())
+                {
+                    if (oneByteAtATime)
+                        parser.parse(ByteBuffer.wrap(new byte[]{buffer.get()}));
+                    else
+                        parser.parse(buffer);
+                }
+            }
+
+            assertEquals(1, frames.size());
+            PriorityUpdateFrame frame = frames.get(0);
+            assertEquals(prioritizedStreamId, frame.getPrioritizedStreamId());
+            assertEquals(priority, frame.getPriority());
+        }
+    }
+
+    @Test
+    public void testParseNonZeroStreamId()
+    {
+        List<Integer> failures = new ArrayList<>();
+        Parser parser = new Parser(byteBufferPool, new Parser.Listener.Adapter()
+        {
+            @Override
+            public void onConnectionFailure(int error, String reason)
+            {
+                failures.add(error);
+            }
+        }, 4096, 8192);
+        parser.init(UnaryOperator.identity());
+
+        // A PRIORITY_UPDATE frame must be sent on stream 0.
+        byte[] bytes = new byte[]{0, 0, 4, (byte)FrameType.PRIORITY_UPDATE.getType(), 0, 0, 0, 0, 1, 0, 0, 0, 1};
+        parser.parse(ByteBuffer.wrap(bytes));
+
+        assertEquals(List.of(ErrorCode.PROTOCOL_ERROR.code), failures);
+    }
+}
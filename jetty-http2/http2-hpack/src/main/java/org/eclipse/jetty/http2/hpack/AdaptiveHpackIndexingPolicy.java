@@ -0,0 +1,185 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.http.HttpField;
+
+/**
+ * <p>An {@link HpackIndexingPolicy} that learns which field names have
+ * values that repeat on the connection.</p>
+ * <p>The fields are indexed as per {@link FixedHpackIndexingPolicy}, while
+ * the number of times that the fields with a given name are added to the
+ * dynamic table, and the number of times that they are then found in the
+ * table, are counted.
+ * When the fields with a given name have been indexed
+ * {@link #getMinIndexedFields() enough times} with
+ * {@link #getMinHitRatio() too few hits}, their values are assumed to never
+ * repeat (for example request ids or timestamps), and they are encoded as
+ * literals without indexing, so that they do not evict useful entries.
+ * After {@link #getRetryFields() a number of literals}, the fields are
+ * indexed again, in case their values started to repeat.</p>
+ */
+public class AdaptiveHpackIndexingPolicy extends FixedHpackIndexingPolicy
+{
+    private final Map<String, NameStats> stats = new HashMap<>();
+    private int minIndexedFields = 16;
+    private float minHitRatio = 0.25F;
+    private int retryFields = 1024;
+    private int maxNames = 256;
+
+    /**
+     * @return the number of times the fields with a given name are
+     * indexed before deciding whether they are worth indexing
+     */
+    public int getMinIndexedFields()
+    {
+        return minIndexedFields;
+    }
+
+    public void setMinIndexedFields(int minIndexedFields)
+    {
+        this.minIndexedFields = minIndexedFields;
+    }
+
+    /**
+     * @return the min ratio between the hits and the insertions in the
+     * dynamic table of the fields with a given name to keep indexing them
+     */
+    public float getMinHitRatio()
+    {
+        return minHitRatio;
+    }
+
+    public void setMinHitRatio(float minHitRatio)
+    {
+        this.minHitRatio = minHitRatio;
+    }
+
+    /**
+     * @return the number of fields encoded without indexing
+     * before trying to index the fields with a given name again
+     */
+    public int getRetryFields()
+    {
+        return retryFields;
+    }
+
+    public void setRetryFields(int retryFields)
+    {
+        this.retryFields = retryFields;
+    }
+
+    /**
+     * @return the max number of field names tracked
+     */
+    public int getMaxNames()
+    {
+        return maxNames;
+    }
+
+    public void setMaxNames(int maxNames)
+    {
+        this.maxNames = maxNames;
+    }
+
+    /**
+     * @param name the field name
+     * @return whether the fields with the given name are currently not indexed
+     */
+    public boolean isNotIndexed(String name)
+    {
+        NameStats nameStats = stats.get(name);
+        return nameStats != null && nameStats.literals >= 0;
+    }
+
+    @Override
+    public Indexing getIndexing(HpackContext context, HttpField field)
+    {
+        Indexing indexing = super.getIndexing(context, field);
+        if (indexing != Indexing.INDEXED)
+            return indexing;
+
+        NameStats nameStats = stats.get(field.getLowerCaseName());
+        if (nameStats == null || nameStats.literals < 0)
+            return Indexing.INDEXED;
+
+        if (++nameStats.literals < retryFields)
+            return Indexing.NOT_INDEXED;
+
+        // Try again, the values may have started to repeat.
+        nameStats.reset();
+        return Indexing.INDEXED;
+    }
+
+    @Override
+    public void onIndexed(HttpField field)
+    {
+        String name = field.getLowerCaseName();
+        NameStats nameStats = stats.get(name);
+        if (nameStats == null)
+        {
+            if (stats.size() >= maxNames)
+                return;
+            nameStats = new NameStats();
+            stats.put(name, nameStats);
+        }
+
+        if (++nameStats.indexed < minIndexedFields)
+            return;
+
+        if (nameStats.hits < nameStats.indexed * minHitRatio)
+        {
+            // The values do not repeat, stop indexing them.
+            nameStats.literals = 0;
+        }
+        else
+        {
+            // Halve the counts, so that recent fields weigh more.
+            nameStats.indexed /= 2;
+            nameStats.hits /= 2;
+        }
+    }
+
+    @Override
+    public void onHit(HttpField field)
+    {
+        NameStats nameStats = stats.get(field.getLowerCaseName());
+        if (nameStats != null)
+            ++nameStats.hits;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[names=%d]", getClass().getSimpleName(), hashCode(), stats.size());
+    }
+
+    private static class NameStats
+    {
+        private int indexed;
+        private int hits;
+        // The number of fields encoded without indexing, or -1 if the fields are indexed.
+        private int literals = -1;
+
+        private void reset()
+        {
+            indexed = 0;
+            hits = 0;
+            literals = -1;
+        }
+    }
+}
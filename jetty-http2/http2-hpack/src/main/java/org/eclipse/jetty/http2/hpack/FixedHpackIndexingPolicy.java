@@ -0,0 +1,107 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.util.StringUtil;
+
+/**
+ * <p>An {@link HpackIndexingPolicy} with fixed rules.</p>
+ * <p>The sensitive fields, by default the credentials and the short cookies
+ * that could be guessed (see RFC 7541, section 7.1.3), are never indexed.
+ * Known fields are indexed, unless they are likely to change on every message,
+ * such as {@code ETag} or {@code Last-Modified}, or they are too large.
+ * Unknown fields are indexed only if their name is not yet in the table,
+ * assuming that the fields with the same name have different values.</p>
+ */
+public class FixedHpackIndexingPolicy implements HpackIndexingPolicy
+{
+    /**
+     * Cookies shorter than this may be guessed by brute force, see RFC 7541, section 7.1.3.
+     */
+    private static final int MIN_INDEXED_COOKIE_LENGTH = 20;
+
+    private final Set<String> sensitiveFields = new HashSet<>();
+
+    public FixedHpackIndexingPolicy()
+    {
+        for (HttpHeader header : HpackEncoder.NEVER_INDEX)
+        {
+            sensitiveFields.add(header.lowerCaseName());
+        }
+        sensitiveFields.add(HttpHeader.PROXY_AUTHORIZATION.lowerCaseName());
+    }
+
+    /**
+     * @return the names of the fields that are never indexed
+     */
+    public Set<String> getSensitiveFields()
+    {
+        return Set.copyOf(sensitiveFields);
+    }
+
+    /**
+     * @param names the names of the fields that are never indexed
+     */
+    public void setSensitiveFields(Collection<String> names)
+    {
+        sensitiveFields.clear();
+        names.forEach(this::addSensitiveField);
+    }
+
+    /**
+     * @param name the name of a field that is never indexed
+     */
+    public void addSensitiveField(String name)
+    {
+        sensitiveFields.add(StringUtil.asciiToLowerCase(name));
+    }
+
+    @Override
+    public Indexing getIndexing(HpackContext context, HttpField field)
+    {
+        if (isSensitive(field))
+            return Indexing.NEVER_INDEXED;
+
+        int fieldSize = field.getName().length() + field.getValue().length();
+        if (fieldSize >= context.getMaxDynamicTableSize())
+            return Indexing.NOT_INDEXED;
+
+        HttpHeader header = field.getHeader();
+        if (header == null)
+        {
+            // Index a custom field the first time its name is seen; if the
+            // name is already known, the value is probably changing.
+            return context.get(field.getName()) == null ? Indexing.INDEXED : Indexing.NOT_INDEXED;
+        }
+
+        if (HpackEncoder.DO_NOT_INDEX.contains(header))
+            return Indexing.NOT_INDEXED;
+        if (header == HttpHeader.CONTENT_LENGTH && !"0".equals(field.getValue()))
+            return Indexing.NOT_INDEXED;
+        return Indexing.INDEXED;
+    }
+
+    protected boolean isSensitive(HttpField field)
+    {
+        if (sensitiveFields.contains(field.getLowerCaseName()))
+            return true;
+        return field.getHeader() == HttpHeader.COOKIE && field.getValue().length() < MIN_INDEXED_COOKIE_LENGTH;
+    }
+}
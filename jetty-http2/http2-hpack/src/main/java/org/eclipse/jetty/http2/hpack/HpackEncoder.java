@@ -18,6 +18,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 
 import org.eclipse.jetty.http.HttpField;
@@ -97,6 +98,8 @@ public class HpackEncoder
     private int _maxHeaderListSize;
     private int _headerListSize;
     private boolean _validateEncoding = true;
+    private HpackIndexingPolicy _indexingPolicy = new FixedHpackIndexingPolicy();
+    private HpackFieldCache _fieldCache;
 
     public HpackEncoder()
     {
@@ -147,6 +150,35 @@ public class HpackEncoder
         _localMaxDynamicTableSize = localMaxDynamicTableSize;
     }
 
+    public HpackIndexingPolicy getIndexingPolicy()
+    {
+        return _indexingPolicy;
+    }
+
+    /**
+     * @param indexingPolicy the policy that decides whether the fields
+     * encoded as literals are added to the dynamic table, by default a
+     * {@link FixedHpackIndexingPolicy}
+     */
+    public void setIndexingPolicy(HpackIndexingPolicy indexingPolicy)
+    {
+        _indexingPolicy = Objects.requireNonNull(indexingPolicy);
+    }
+
+    public HpackFieldCache getFieldCache()
+    {
+        return _fieldCache;
+    }
+
+    /**
+     * @param fieldCache the cache, usually shared by all the connections of a server,
+     * of the literal representations of the fields, or null to always encode the fields
+     */
+    public void setFieldCache(HpackFieldCache fieldCache)
+    {
+        _fieldCache = fieldCache;
+    }
+
     public boolean isValidateEncoding()
     {
         return _validateEncoding;
@@ -314,6 +346,7 @@ public class HpackEncoder
             else
             {
                 int index = _context.index(entry);
+                _indexingPolicy.onHit(field);
                 buffer.put((byte)0x80);
                 NBitInteger.encode(buffer, 7, index);
                 if (_debug)
@@ -325,103 +358,51 @@ public class HpackEncoder
             // Unknown field entry, so we will have to send literally, but perhaps add an index.
             final boolean indexed;
 
-            // Do we know its name?
-            HttpHeader header = field.getHeader();
-
-            // Select encoding strategy
-            if (header == null)
+            if (field instanceof PreEncodedHttpField && _fieldCache == null)
             {
-                // Select encoding strategy for unknown header names
-                Entry name = _context.get(field.getName());
-
-                if (field instanceof PreEncodedHttpField)
-                {
-                    int i = buffer.position();
-                    ((PreEncodedHttpField)field).putTo(buffer, HttpVersion.HTTP_2);
-                    byte b = buffer.get(i);
-                    indexed = b < 0 || b >= 0x40;
-                    if (_debug)
-                        encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
-                }
-                else if (name == null && fieldSize < _context.getMaxDynamicTableSize())
-                {
-                    // unknown name and value that will fit in dynamic table, so let's index
-                    // this just in case it is the first time we have seen a custom name or a
-                    // custom field.  Unless the name is once only, this is worthwhile
-                    indexed = true;
-                    encodeName(buffer, (byte)0x40, 6, field.getName(), null);
-                    encodeValue(buffer, true, field.getValue());
-                    if (_debug)
-                        encoding = "LitHuffNHuffVIdx";
-                }
-                else
-                {
-                    // Known name, but different value.
-                    // This is probably a custom field with changing value, so don't index.
-                    indexed = false;
-                    encodeName(buffer, (byte)0x00, 4, field.getName(), null);
-                    encodeValue(buffer, true, field.getValue());
-                    if (_debug)
-                        encoding = "LitHuffNHuffV!Idx";
-                }
+                int i = buffer.position();
+                ((PreEncodedHttpField)field).putTo(buffer, HttpVersion.HTTP_2);
+                byte b = buffer.get(i);
+                indexed = b < 0 || b >= 0x40;
+                if (_debug)
+                    encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
             }
             else
             {
-                // Select encoding strategy for known header names
-                Entry name = _context.get(header);
-
-                if (field instanceof PreEncodedHttpField)
+                // Do we know its name?
+                HttpHeader header = field.getHeader();
+                Entry name = header == null ? _context.get(field.getName()) : _context.get(header);
+                HpackIndexingPolicy.Indexing indexing = _indexingPolicy.getIndexing(_context, field);
+                indexed = indexing == HpackIndexingPolicy.Indexing.INDEXED;
+
+                // The cached representations only reference the static table.
+                byte[] cached = _fieldCache == null || (name != null && !name.isStatic()) ? null : _fieldCache.getEncodedField(field, indexing);
+                if (cached != null)
                 {
-                    // Preencoded field
-                    int i = buffer.position();
-                    ((PreEncodedHttpField)field).putTo(buffer, HttpVersion.HTTP_2);
-                    byte b = buffer.get(i);
-                    indexed = b < 0 || b >= 0x40;
+                    buffer.put(cached);
                     if (_debug)
-                        encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
+                        encoding = "Cached" + (indexed ? "Idx" : indexing == HpackIndexingPolicy.Indexing.NEVER_INDEXED ? "!!Idx" : "!Idx");
                 }
-                else if (DO_NOT_INDEX.contains(header))
+                else
                 {
-                    // Non indexed field
-                    indexed = false;
-                    boolean neverIndex = NEVER_INDEX.contains(header);
-                    boolean huffman = !DO_NOT_HUFFMAN.contains(header);
-                    encodeName(buffer, neverIndex ? (byte)0x10 : (byte)0x00, 4, header.asString(), name);
+                    boolean huffman = header == null || !DO_NOT_HUFFMAN.contains(header);
+                    if (indexed)
+                        encodeName(buffer, (byte)0x40, 6, header == null ? field.getName() : header.asString(), name);
+                    else
+                        encodeName(buffer, indexing == HpackIndexingPolicy.Indexing.NEVER_INDEXED ? (byte)0x10 : (byte)0x00, 4, header == null ? field.getName() : header.asString(), name);
                     encodeValue(buffer, huffman, field.getValue());
 
                     if (_debug)
                         encoding = "Lit" +
-                            ((name == null) ? "HuffN" : ("IdxN" + (name.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(4, _context.index(name))))) +
+                            ((name == null) ? "HuffN" : ("IdxN" + (name.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(indexed ? 6 : 4, _context.index(name))))) +
                             (huffman ? "HuffV" : "LitV") +
-                            (neverIndex ? "!!Idx" : "!Idx");
-                }
-                else if (fieldSize >= _context.getMaxDynamicTableSize() || header == HttpHeader.CONTENT_LENGTH && !"0".equals(field.getValue()))
-                {
-                    // The field is too large or a non zero content length, so do not index.
-                    indexed = false;
-                    encodeName(buffer, (byte)0x00, 4, header.asString(), name);
-                    encodeValue(buffer, true, field.getValue());
-                    if (_debug)
-                        encoding = "Lit" +
-                            ((name == null) ? "HuffN" : "IdxNS" + (1 + NBitInteger.octectsNeeded(4, _context.index(name)))) +
-                            "HuffV!Idx";
-                }
-                else
-                {
-                    // indexed
-                    indexed = true;
-                    boolean huffman = !DO_NOT_HUFFMAN.contains(header);
-                    encodeName(buffer, (byte)0x40, 6, header.asString(), name);
-                    encodeValue(buffer, huffman, field.getValue());
-                    if (_debug)
-                        encoding = ((name == null) ? "LitHuffN" : ("LitIdxN" + (name.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(6, _context.index(name))))) +
-                            (huffman ? "HuffVIdx" : "LitVIdx");
+                            (indexed ? "Idx" : indexing == HpackIndexingPolicy.Indexing.NEVER_INDEXED ? "!!Idx" : "!Idx");
                 }
             }
 
             // If we want the field referenced, then we add it to our table and reference set.
-            if (indexed)
-                _context.add(field);
+            if (indexed && _context.add(field) != null)
+                _indexingPolicy.onIndexed(field);
         }
 
         if (_debug)
@@ -0,0 +1,69 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack;
+
+import org.eclipse.jetty.http.EncodedHttpFieldCache;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http2.hpack.HpackIndexingPolicy.Indexing;
+
+/**
+ * <p>A cache of the HPACK literal representations of {@link HttpField}s,
+ * shared by the {@link HpackEncoder}s of all the connections of a server.</p>
+ * <p>For each field, the literal representations with incremental indexing,
+ * without indexing and never indexed are cached, so that the encoder can
+ * still decide per connection, via its {@link HpackIndexingPolicy}, how
+ * to encode the field.
+ * The representations only reference the static table, so the encoder
+ * uses the cache only if the field name is not in its dynamic table.</p>
+ *
+ * @see HpackEncoder#setFieldCache(HpackFieldCache)
+ */
+public class HpackFieldCache extends EncodedHttpFieldCache
+{
+    public HpackFieldCache()
+    {
+        this(1024);
+    }
+
+    public HpackFieldCache(int maxFields)
+    {
+        super(maxFields);
+    }
+
+    /**
+     * @param field the field to encode
+     * @param indexing the literal representation
+     * @return the encoded field, or null if the field is not cached
+     */
+    public byte[] getEncodedField(HttpField field, Indexing indexing)
+    {
+        byte[][] encoded = get(field);
+        return encoded == null ? null : encoded[indexing.ordinal()];
+    }
+
+    @Override
+    protected byte[][] encode(HttpField field)
+    {
+        HttpHeader header = field.getHeader();
+        String name = field.getName();
+        String value = field.getValue();
+        boolean huffman = header == null || !HpackEncoder.DO_NOT_HUFFMAN.contains(header);
+        byte[][] encoded = new byte[Indexing.values().length][];
+        encoded[Indexing.INDEXED.ordinal()] = HpackFieldPreEncoder.encodeLiteral(header, name, value, (byte)0x40, 6, huffman);
+        encoded[Indexing.NOT_INDEXED.ordinal()] = HpackFieldPreEncoder.encodeLiteral(header, name, value, (byte)0x00, 4, huffman);
+        encoded[Indexing.NEVER_INDEXED.ordinal()] = HpackFieldPreEncoder.encodeLiteral(header, name, value, (byte)0x10, 4, huffman);
+        return encoded;
+    }
+}
@@ -37,9 +37,8 @@ public class HpackFieldPreEncoder implements HttpFieldPreEncoder
     {
         boolean notIndexed = HpackEncoder.DO_NOT_INDEX.contains(header);
 
-        ByteBuffer buffer = BufferUtil.allocate(name.length() + value.length() + 10);
-        BufferUtil.clearToFill(buffer);
         boolean huffman;
+        byte mask;
         int bits;
 
         if (notIndexed)
@@ -47,24 +46,39 @@ public class HpackFieldPreEncoder implements HttpFieldPreEncoder
             // Non indexed field
             boolean neverIndex = HpackEncoder.NEVER_INDEX.contains(header);
             huffman = !HpackEncoder.DO_NOT_HUFFMAN.contains(header);
-            buffer.put(neverIndex ? (byte)0x10 : (byte)0x00);
+            mask = neverIndex ? (byte)0x10 : (byte)0x00;
             bits = 4;
         }
         else if (header == HttpHeader.CONTENT_LENGTH && value.length() > 1)
         {
             // Non indexed content length for 2 digits or more
-            buffer.put((byte)0x00);
+            mask = (byte)0x00;
             huffman = true;
             bits = 4;
         }
         else
         {
             // indexed
-            buffer.put((byte)0x40);
+            mask = (byte)0x40;
             huffman = !HpackEncoder.DO_NOT_HUFFMAN.contains(header);
             bits = 6;
         }
 
+        return encodeLiteral(header, name, value, mask, bits, huffman);
+    }
+
+    /**
+     * <p>Encodes a field as a literal that references, if any, only the
+     * static table, so that the result does not depend on the connection.</p>
+     */
+    static byte[] encodeLiteral(HttpHeader header, String name, String value, byte mask, int bits, boolean huffman)
+    {
+        // Huffman codes are up to 30 bits long, and a non
+        // ISO-8859-1 character is encoded as up to 3 UTF-8 octets.
+        ByteBuffer buffer = BufferUtil.allocate(16 + 4 * name.length() + 12 * value.length());
+        BufferUtil.clearToFill(buffer);
+        buffer.put(mask);
+
         int nameIdx = HpackContext.staticIndex(header);
         if (nameIdx > 0)
             NBitInteger.encode(buffer, bits, nameIdx);
@@ -0,0 +1,83 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack;
+
+import org.eclipse.jetty.http.HttpField;
+
+/**
+ * <p>The policy used by {@link HpackEncoder} to decide whether the fields that
+ * it encodes as literals are added to the dynamic table.</p>
+ * <p>A policy instance is used by a single encoder, and therefore by a single
+ * connection, so it may learn from the fields of that connection without
+ * synchronization.</p>
+ */
+public interface HpackIndexingPolicy
+{
+    /**
+     * <p>The HPACK literal field representations.</p>
+     */
+    public enum Indexing
+    {
+        /**
+         * The field is added to the dynamic table.
+         */
+        INDEXED,
+        /**
+         * The field is not added to the dynamic table.
+         */
+        NOT_INDEXED,
+        /**
+         * The field is not added to the dynamic table, and
+         * intermediaries must not add it to theirs either.
+         */
+        NEVER_INDEXED
+    }
+
+    /**
+     * @param context the encoder context
+     * @param field the field to encode as a literal
+     * @return how the field must be encoded
+     */
+    public Indexing getIndexing(HpackContext context, HttpField field);
+
+    /**
+     * <p>Invoked when a field has been added to the dynamic table.</p>
+     *
+     * @param field the field added to the dynamic table
+     */
+    public default void onIndexed(HttpField field)
+    {
+    }
+
+    /**
+     * <p>Invoked when a field has been encoded as a reference
+     * to an entry of the dynamic table.</p>
+     *
+     * @param field the field found in the dynamic table
+     */
+    public default void onHit(HttpField field)
+    {
+    }
+
+    /**
+     * <p>A factory for indexing policies.</p>
+     */
+    public interface Factory
+    {
+        /**
+         * @return a new indexing policy for an encoder
+         */
+        public HpackIndexingPolicy newHpackIndexingPolicy();
+    }
+}
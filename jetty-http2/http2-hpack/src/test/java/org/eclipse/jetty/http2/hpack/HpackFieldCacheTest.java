@@ -0,0 +1,147 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HpackFieldCacheTest
+{
+    @Test
+    public void testCachedFieldsAreEncodedAsUncached() throws Exception
+    {
+        HttpFields fields = HttpFields.build()
+            .add(HttpHeader.CONTENT_TYPE, "text/html;charset=utf-8")
+            .add(HttpHeader.CONTENT_LENGTH, "1234")
+            .add("Strict-Transport-Security", "max-age=31536000; includeSubDomains")
+            .add(new PreEncodedHttpField(HttpHeader.SERVER, "Jetty"))
+            .add(HttpHeader.AUTHORIZATION, "Bearer 0123456789");
+        MetaData metaData = new MetaData.Response(HttpVersion.HTTP_2, 200, fields);
+
+        HpackFieldCache cache = new HpackFieldCache();
+        for (int i = 0; i < 3; ++i)
+        {
+            // Each encoder is a new connection sharing the cache.
+            HpackEncoder cached = new HpackEncoder();
+            cached.setFieldCache(cache);
+            ByteBuffer expected = encode(new HpackEncoder(), metaData);
+            ByteBuffer actual = encode(cached, metaData);
+            assertEquals(BufferUtil.toHexString(expected), BufferUtil.toHexString(actual));
+
+            MetaData decoded = new HpackDecoder(4096, 8192).decode(actual);
+            for (HttpField field : fields)
+            {
+                assertEquals(field.getValue(), decoded.getFields().get(field.getHeader()));
+            }
+        }
+
+        // Only the status is in the static table, all the other fields are cached.
+        assertEquals(fields.size(), cache.getSize());
+        // Pre-encoded fields are cached when first seen, the others when seen twice.
+        assertEquals(1 + 2 * (fields.size() - 1), cache.getMisses());
+        assertEquals(1 + fields.size(), cache.getHits());
+    }
+
+    @Test
+    public void testIndexedFieldsAreNotCached() throws Exception
+    {
+        HpackFieldCache cache = new HpackFieldCache();
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.setFieldCache(cache);
+        MetaData metaData = new MetaData(HttpVersion.HTTP_2, HttpFields.build().add("X-Custom", "value"));
+
+        // The first time the field is added to the dynamic table, then it is referenced.
+        for (int i = 0; i < 4; ++i)
+        {
+            encode(encoder, metaData);
+        }
+
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testMaxFields() throws Exception
+    {
+        HpackFieldCache cache = new HpackFieldCache(2);
+        for (int i = 0; i < 4; ++i)
+        {
+            HpackEncoder encoder = new HpackEncoder();
+            encoder.setFieldCache(cache);
+            encode(encoder, new MetaData(HttpVersion.HTTP_2, HttpFields.build()
+                .add(new PreEncodedHttpField("X-Field-" + i, "value"))));
+        }
+
+        assertEquals(2, cache.getSize());
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testTimeVaryingFieldsAreNotCached() throws Exception
+    {
+        HpackFieldCache cache = new HpackFieldCache();
+        for (int i = 0; i < 4; ++i)
+        {
+            HpackEncoder encoder = new HpackEncoder();
+            encoder.setFieldCache(cache);
+            encode(encoder, new MetaData(HttpVersion.HTTP_2, HttpFields.build()
+                .add(new PreEncodedHttpField(HttpHeader.DATE, "Thu, 01 Jan 1970 00:00:0" + i + " GMT"))
+                .add(HttpHeader.EXPIRES, "Thu, 01 Jan 1970 00:00:00 GMT")));
+        }
+
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFieldsAreEvicted() throws Exception
+    {
+        HpackFieldCache cache = new HpackFieldCache(2);
+        PreEncodedHttpField used = new PreEncodedHttpField("X-Used", "value");
+        for (int i = 0; i < 4; ++i)
+        {
+            HpackEncoder encoder = new HpackEncoder();
+            encoder.setFieldCache(cache);
+            encode(encoder, new MetaData(HttpVersion.HTTP_2, HttpFields.build()
+                .add(used)
+                .add(new PreEncodedHttpField("X-Field-" + i, "value"))));
+        }
+
+        // The field used by every connection stays cached.
+        assertEquals(2, cache.getSize());
+        assertEquals(3, cache.getEvictions());
+        assertEquals(3, cache.getHits());
+    }
+
+    private ByteBuffer encode(HpackEncoder encoder, MetaData metaData) throws Exception
+    {
+        ByteBuffer buffer = BufferUtil.allocate(4096);
+        BufferUtil.clearToFill(buffer);
+        encoder.encode(buffer, metaData);
+        BufferUtil.flipToFlush(buffer, 0);
+        return buffer;
+    }
+}
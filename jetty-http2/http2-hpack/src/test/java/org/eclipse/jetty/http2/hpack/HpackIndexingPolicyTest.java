@@ -0,0 +1,128 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.hpack.HpackIndexingPolicy.Indexing;
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HpackIndexingPolicyTest
+{
+    @Test
+    public void testSensitiveFieldsNeverIndexed() throws Exception
+    {
+        FixedHpackIndexingPolicy policy = new FixedHpackIndexingPolicy();
+        policy.addSensitiveField("X-Api-Key");
+        HpackContext context = new HpackContext(4096);
+
+        assertEquals(Indexing.NEVER_INDEXED, policy.getIndexing(context, new HttpField(HttpHeader.AUTHORIZATION, "Basic dXNlcjpwYXNz")));
+        assertEquals(Indexing.NEVER_INDEXED, policy.getIndexing(context, new HttpField(HttpHeader.PROXY_AUTHORIZATION, "Basic dXNlcjpwYXNz")));
+        assertEquals(Indexing.NEVER_INDEXED, policy.getIndexing(context, new HttpField("x-api-key", "secret")));
+        // Short cookies could be guessed, long ones are indexed.
+        assertEquals(Indexing.NEVER_INDEXED, policy.getIndexing(context, new HttpField(HttpHeader.COOKIE, "id=1234")));
+        assertEquals(Indexing.INDEXED, policy.getIndexing(context, new HttpField(HttpHeader.COOKIE, "session=6f1e0c2a9b7d4e55")));
+
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.setIndexingPolicy(policy);
+        ByteBuffer buffer = BufferUtil.allocate(1024);
+        BufferUtil.clearToFill(buffer);
+        encoder.encode(buffer, new HttpField("X-Api-Key", "secret"));
+        BufferUtil.flipToFlush(buffer, 0);
+
+        // Literal header field never indexed, see RFC 7541, section 6.2.3.
+        assertEquals(0x10, buffer.get(0) & 0xF0);
+        assertEquals(0, encoder.getHpackContext().size());
+        assertEquals("secret", decode(encoder, "X-Api-Key", "secret"));
+    }
+
+    @Test
+    public void testAdaptiveStopsIndexingUniqueValues() throws Exception
+    {
+        AdaptiveHpackIndexingPolicy policy = new AdaptiveHpackIndexingPolicy();
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.setIndexingPolicy(policy);
+        HpackDecoder decoder = new HpackDecoder(4096, 8192);
+
+        ByteBuffer buffer = BufferUtil.allocate(4096);
+        for (int i = 0; i < 2 * policy.getMinIndexedFields(); ++i)
+        {
+            HttpFields fields = HttpFields.build()
+                .add(HttpHeader.CONTENT_TYPE, "application/json")
+                .add(HttpHeader.DATE, "Mon, 17 Oct 2022 10:00:0" + i % 2 + " GMT")
+                .add(HttpHeader.CONTENT_LOCATION, "/orders/" + i);
+            BufferUtil.clearToFill(buffer);
+            encoder.encode(buffer, new MetaData(HttpVersion.HTTP_2, fields));
+            BufferUtil.flipToFlush(buffer, 0);
+            HttpFields decoded = decoder.decode(buffer).getFields();
+            for (HttpField field : fields)
+            {
+                assertEquals(field.getValue(), decoded.get(field.getHeader()));
+            }
+        }
+
+        // The unique values are not indexed anymore, the repeated values are.
+        assertTrue(policy.isNotIndexed("content-location"));
+        assertFalse(policy.isNotIndexed("date"));
+        assertFalse(policy.isNotIndexed("content-type"));
+        HpackContext context = encoder.getHpackContext();
+        assertNotNull(context.get(new HttpField(HttpHeader.CONTENT_TYPE, "application/json")));
+        assertNull(context.get(new HttpField(HttpHeader.CONTENT_LOCATION, "/orders/" + (2 * policy.getMinIndexedFields() - 1))));
+    }
+
+    @Test
+    public void testAdaptiveRetriesIndexing()
+    {
+        AdaptiveHpackIndexingPolicy policy = new AdaptiveHpackIndexingPolicy();
+        policy.setRetryFields(4);
+        HpackContext context = new HpackContext(4096);
+
+        for (int i = 0; i < policy.getMinIndexedFields(); ++i)
+        {
+            HttpField field = new HttpField(HttpHeader.CONTENT_LOCATION, "/" + i);
+            assertEquals(Indexing.INDEXED, policy.getIndexing(context, field));
+            policy.onIndexed(field);
+        }
+        assertTrue(policy.isNotIndexed("content-location"));
+
+        HttpField field = new HttpField(HttpHeader.CONTENT_LOCATION, "/");
+        for (int i = 1; i < policy.getRetryFields(); ++i)
+        {
+            assertEquals(Indexing.NOT_INDEXED, policy.getIndexing(context, field));
+        }
+        assertEquals(Indexing.INDEXED, policy.getIndexing(context, field));
+        assertFalse(policy.isNotIndexed("content-location"));
+    }
+
+    private String decode(HpackEncoder encoder, String name, String value) throws Exception
+    {
+        ByteBuffer buffer = BufferUtil.allocate(1024);
+        BufferUtil.clearToFill(buffer);
+        encoder.encode(buffer, new MetaData(HttpVersion.HTTP_2, HttpFields.build().add(name, value)));
+        BufferUtil.flipToFlush(buffer, 0);
+        return new HpackDecoder(4096, 8192).decode(buffer).getFields().get(name);
+    }
+}
@@ -31,6 +31,15 @@ etc/jetty-http2.xml
 ## Specifies the maximum number of keys in all SETTINGS frames received by a session.
 # jetty.http2.maxSettingsKeys=64
 
+## Specifies whether consecutive DATA frames of the same stream are coalesced.
+# jetty.http2.dataCoalescing=false
+
+## Specifies whether the HPACK encoder stops indexing the response fields whose values do not repeat.
+# jetty.http2.adaptiveHpackIndexing=false
+
+## Specifies the maximum number of buffers gathered in a TCP write (0 for no limit).
+# jetty.http2.maxWriteBuffers=0
+
 ## Specifies the maximum number of bad frames and pings per second,
 ## after which a session is closed to avoid denial of service attacks.
 # jetty.http2.rateControl.maxEventsPerSecond=50
@@ -29,6 +29,15 @@ etc/jetty-http2c.xml
 ## Specifies the maximum number of keys in all SETTINGS frames received by a session.
 # jetty.http2c.maxSettingsKeys=64
 
+## Specifies whether consecutive DATA frames of the same stream are coalesced.
+# jetty.http2c.dataCoalescing=false
+
+## Specifies whether the HPACK encoder stops indexing the response fields whose values do not repeat.
+# jetty.http2c.adaptiveHpackIndexing=false
+
+## Specifies the maximum number of buffers gathered in a TCP write (0 for no limit).
+# jetty.http2c.maxWriteBuffers=0
+
 ## Specifies the maximum number of bad frames and pings per second,
 ## after which a session is closed to avoid denial of service attacks.
 # jetty.http2c.rateControl.maxEventsPerSecond=50
@@ -25,13 +25,17 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.http2.BufferingFlowControlStrategy;
 import org.eclipse.jetty.http2.FlowControlStrategy;
+import org.eclipse.jetty.http2.FrameScheduler;
 import org.eclipse.jetty.http2.HTTP2Connection;
 import org.eclipse.jetty.http2.ISession;
+import org.eclipse.jetty.http2.PriorityFrameScheduler;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
 import org.eclipse.jetty.http2.generator.Generator;
+import org.eclipse.jetty.http2.hpack.AdaptiveHpackIndexingPolicy;
+import org.eclipse.jetty.http2.hpack.HpackFieldCache;
 import org.eclipse.jetty.http2.parser.RateControl;
 import org.eclipse.jetty.http2.parser.ServerParser;
 import org.eclipse.jetty.http2.parser.WindowRateControl;
@@ -61,8 +65,13 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
     private int maxFrameLength = Frame.DEFAULT_MAX_LENGTH;
     private int maxSettingsKeys = SettingsFrame.DEFAULT_MAX_KEYS;
     private boolean connectProtocolEnabled = true;
+    private boolean dataCoalescing;
+    private int maxWriteBuffers;
     private RateControl.Factory rateControlFactory = new WindowRateControl.Factory(50);
     private FlowControlStrategy.Factory flowControlStrategyFactory = () -> new BufferingFlowControlStrategy(0.5F);
+    private FrameScheduler.Factory frameSchedulerFactory = PriorityFrameScheduler::new;
+    private HpackFieldCache hpackFieldCache = new HpackFieldCache();
+    private boolean adaptiveHpackIndexing;
     private long streamIdleTimeout;
     private boolean useInputDirectByteBuffers;
     private boolean useOutputDirectByteBuffers;
@@ -81,6 +90,7 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
                 throw new IllegalArgumentException("Unsupported HTTP2 Protocol variant: " + p);
         }
         addBean(sessionContainer);
+        addBean(hpackFieldCache);
         this.httpConfiguration = Objects.requireNonNull(httpConfiguration);
         addBean(httpConfiguration);
         setInputBufferSize(Frame.DEFAULT_MAX_LENGTH + Frame.HEADER_LENGTH);
@@ -153,6 +163,66 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         this.flowControlStrategyFactory = flowControlStrategyFactory;
     }
 
+    /**
+     * @return the factory that creates the per-connection frame scheduler
+     */
+    public FrameScheduler.Factory getFrameSchedulerFactory()
+    {
+        return frameSchedulerFactory;
+    }
+
+    /**
+     * <p>Sets the factory that creates the per-connection {@link FrameScheduler}
+     * that decides the order in which the frames of the streams are written.</p>
+     * <p>By default, the frames are scheduled according to the RFC 9218 priorities
+     * of the streams by {@link PriorityFrameScheduler}.</p>
+     *
+     * @param frameSchedulerFactory the factory that creates the frame scheduler
+     */
+    public void setFrameSchedulerFactory(FrameScheduler.Factory frameSchedulerFactory)
+    {
+        this.frameSchedulerFactory = Objects.requireNonNull(frameSchedulerFactory);
+    }
+
+    /**
+     * @return the cache of HPACK encoded fields shared by all connections, or null
+     */
+    public HpackFieldCache getHpackFieldCache()
+    {
+        return hpackFieldCache;
+    }
+
+    /**
+     * <p>Sets the cache of the HPACK literal representations of the response
+     * fields, shared by all connections, so that the fields that are repeated
+     * across responses are not encoded again on every connection.</p>
+     *
+     * @param hpackFieldCache the cache of HPACK encoded fields, or null to disable caching
+     */
+    public void setHpackFieldCache(HpackFieldCache hpackFieldCache)
+    {
+        updateBean(this.hpackFieldCache, hpackFieldCache);
+        this.hpackFieldCache = hpackFieldCache;
+    }
+
+    @ManagedAttribute("Whether the HPACK indexing adapts to the fields that do not repeat")
+    public boolean isAdaptiveHpackIndexing()
+    {
+        return adaptiveHpackIndexing;
+    }
+
+    /**
+     * <p>Sets whether the HPACK encoder of each connection uses an {@link AdaptiveHpackIndexingPolicy},
+     * that stops indexing the fields whose values do not repeat, rather than the default
+     * {@link org.eclipse.jetty.http2.hpack.FixedHpackIndexingPolicy}.</p>
+     *
+     * @param adaptiveHpackIndexing whether the HPACK indexing adapts to the fields that do not repeat
+     */
+    public void setAdaptiveHpackIndexing(boolean adaptiveHpackIndexing)
+    {
+        this.adaptiveHpackIndexing = adaptiveHpackIndexing;
+    }
+
     @ManagedAttribute("The stream idle timeout in milliseconds")
     public long getStreamIdleTimeout()
     {
@@ -197,6 +267,38 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         this.connectProtocolEnabled = connectProtocolEnabled;
     }
 
+    @ManagedAttribute("Whether consecutive DATA frames of the same stream are coalesced")
+    public boolean isDataCoalescing()
+    {
+        return dataCoalescing;
+    }
+
+    /**
+     * <p>Sets whether consecutive DATA frames of the same stream that are written
+     * together are coalesced into a single DATA frame, which reduces the frames
+     * and the buffers written for streams that write many small chunks.</p>
+     *
+     * @param dataCoalescing whether DATA frames are coalesced
+     */
+    public void setDataCoalescing(boolean dataCoalescing)
+    {
+        this.dataCoalescing = dataCoalescing;
+    }
+
+    @ManagedAttribute("The number of buffers that trigger a TCP write")
+    public int getMaxWriteBuffers()
+    {
+        return maxWriteBuffers;
+    }
+
+    /**
+     * @param maxWriteBuffers the max number of buffers gathered in a TCP write, or a non-positive value for no limit
+     */
+    public void setMaxWriteBuffers(int maxWriteBuffers)
+    {
+        this.maxWriteBuffers = maxWriteBuffers;
+    }
+
     /**
      * @return the factory that creates RateControl objects
      */
@@ -261,8 +363,12 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         ServerSessionListener listener = newSessionListener(connector, endPoint);
 
         Generator generator = new Generator(connector.getByteBufferPool(), isUseOutputDirectByteBuffers(), getMaxDynamicTableSize(), getMaxHeaderBlockFragment());
+        generator.setHpackFieldCache(getHpackFieldCache());
+        if (isAdaptiveHpackIndexing())
+            generator.setHpackIndexingPolicy(new AdaptiveHpackIndexingPolicy());
         FlowControlStrategy flowControl = getFlowControlStrategyFactory().newFlowControlStrategy();
         HTTP2ServerSession session = new HTTP2ServerSession(connector.getScheduler(), endPoint, generator, listener, flowControl);
+        session.setFrameScheduler(getFrameSchedulerFactory().newFrameScheduler());
         session.setMaxLocalStreams(getMaxConcurrentStreams());
         session.setMaxRemoteStreams(getMaxConcurrentStreams());
         // For a single stream in a connection, there will be a race between
@@ -274,6 +380,8 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
             session.setStreamIdleTimeout(streamIdleTimeout);
         session.setInitialSessionRecvWindow(getInitialSessionRecvWindow());
         session.setWriteThreshold(getHttpConfiguration().getOutputBufferSize());
+        session.setDataCoalescing(isDataCoalescing());
+        session.setMaxWriteBuffers(getMaxWriteBuffers());
         session.setConnectProtocolEnabled(isConnectProtocolEnabled());
 
         ServerParser parser = newServerParser(connector, session, getRateControlFactory().newRateControl(endPoint));
@@ -23,11 +23,13 @@ import org.eclipse.jetty.http2.ErrorCode;
 import org.eclipse.jetty.http2.FlowControlStrategy;
 import org.eclipse.jetty.http2.HTTP2Session;
 import org.eclipse.jetty.http2.IStream;
+import org.eclipse.jetty.http2.StreamPriority;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PriorityUpdateFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
@@ -145,6 +147,26 @@ public class HTTP2ServerSession extends HTTP2Session implements ServerParser.Lis
         }
     }
 
+    @Override
+    public void onPriorityUpdate(PriorityUpdateFrame frame)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Received {}", frame);
+
+        int streamId = frame.getPrioritizedStreamId();
+        // SPEC: clients cannot reprioritize the streams opened by the server.
+        if (!isClientStream(streamId))
+        {
+            onConnectionFailure(ErrorCode.PROTOCOL_ERROR.code, "invalid_priority_update_frame");
+            return;
+        }
+
+        // Updates for streams that are not open are ignored.
+        IStream stream = getStream(streamId);
+        if (stream != null)
+            stream.setPriority(StreamPriority.from(frame.getPriority()));
+    }
+
     @Override
     public void onPushPromise(PushPromiseFrame frame)
     {
@@ -97,6 +97,7 @@ public class QpackEncoder implements Dumpable
     private final InstructionHandler _instructionHandler = new InstructionHandler();
     private int _knownInsertCount = 0;
     private int _blockedStreams = 0;
+    private QpackFieldCache _fieldCache;
 
     public QpackEncoder(Instruction.Handler handler, int maxBlockedStreams)
     {
@@ -116,6 +117,20 @@ public class QpackEncoder implements Dumpable
         _maxBlockedStreams = maxBlockedStreams;
     }
 
+    public QpackFieldCache getFieldCache()
+    {
+        return _fieldCache;
+    }
+
+    /**
+     * @param fieldCache the cache, usually shared by all the connections of a server,
+     * of the literal representations of the fields, or null to always encode the fields
+     */
+    public void setFieldCache(QpackFieldCache fieldCache)
+    {
+        _fieldCache = fieldCache;
+    }
+
     public int getCapacity()
     {
         return _context.getDynamicTable().getCapacity();
@@ -378,6 +393,12 @@ public class QpackEncoder implements Dumpable
                     return EncodableEntry.getReferencedEntry(newEntry);
             }
 
+            if (nameEntry.isStatic())
+            {
+                EncodableEntry cached = getCachedEntry(field, huffman);
+                if (cached != null)
+                    return cached;
+            }
             return EncodableEntry.getNameReferencedEntry(nameEntry, field, huffman);
         }
         else
@@ -393,10 +414,21 @@ public class QpackEncoder implements Dumpable
                     return EncodableEntry.getReferencedEntry(newEntry);
             }
 
+            EncodableEntry cached = getCachedEntry(field, huffman);
+            if (cached != null)
+                return cached;
             return EncodableEntry.getLiteralEntry(field, huffman);
         }
     }
 
+    private EncodableEntry getCachedEntry(HttpField field, boolean huffman)
+    {
+        if (_fieldCache == null)
+            return null;
+        byte[] encoded = _fieldCache.getEncodedField(field, huffman);
+        return encoded == null ? null : EncodableEntry.getEncodedEntry(encoded);
+    }
+
     private boolean referenceEntry(Entry entry, StreamInfo streamInfo)
     {
         if (entry == null)
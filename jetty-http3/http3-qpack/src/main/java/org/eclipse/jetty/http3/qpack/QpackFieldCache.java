@@ -0,0 +1,74 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http3.qpack;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.EncodedHttpFieldCache;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http3.qpack.internal.EncodableEntry;
+import org.eclipse.jetty.http3.qpack.internal.QpackContext;
+import org.eclipse.jetty.http3.qpack.internal.table.Entry;
+
+/**
+ * <p>A cache of the QPACK literal representations of {@link HttpField}s,
+ * shared by the {@link QpackEncoder}s of all the connections of a server.</p>
+ * <p>The representations only reference the static table, so the encoder
+ * uses the cache only for the fields that it encodes as literals without
+ * referencing its dynamic table.</p>
+ *
+ * @see QpackEncoder#setFieldCache(QpackFieldCache)
+ */
+public class QpackFieldCache extends EncodedHttpFieldCache
+{
+    public QpackFieldCache()
+    {
+        this(1024);
+    }
+
+    public QpackFieldCache(int maxFields)
+    {
+        super(maxFields);
+    }
+
+    /**
+     * @param field the field to encode
+     * @param huffman whether the name and value are Huffman encoded
+     * @return the encoded field, or null if the field is not cached
+     */
+    public byte[] getEncodedField(HttpField field, boolean huffman)
+    {
+        byte[][] encoded = get(field);
+        return encoded == null ? null : encoded[huffman ? 0 : 1];
+    }
+
+    @Override
+    protected byte[][] encode(HttpField field)
+    {
+        return new byte[][]{encode(field, true), encode(field, false)};
+    }
+
+    private static byte[] encode(HttpField field, boolean huffman)
+    {
+        Entry nameEntry = QpackContext.getStaticTable().get(field.getName());
+        EncodableEntry encodableEntry = nameEntry == null
+            ? EncodableEntry.getLiteralEntry(field, huffman)
+            : EncodableEntry.getNameReferencedEntry(nameEntry, field, huffman);
+        // Use a base of zero as we only reference the static table.
+        int base = 0;
+        byte[] encoded = new byte[encodableEntry.getRequiredSize(base)];
+        encodableEntry.encode(ByteBuffer.wrap(encoded), base);
+        return encoded;
+    }
+}
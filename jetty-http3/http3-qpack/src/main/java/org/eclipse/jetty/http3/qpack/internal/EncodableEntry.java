@@ -19,8 +19,8 @@ import java.util.Objects;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.compression.HuffmanEncoder;
 import org.eclipse.jetty.http3.qpack.internal.table.Entry;
-import org.eclipse.jetty.http3.qpack.internal.util.HuffmanEncoder;
 import org.eclipse.jetty.http3.qpack.internal.util.NBitIntegerEncoder;
 
 public abstract class EncodableEntry
@@ -45,6 +45,11 @@ public abstract class EncodableEntry
         return new PreEncodedEntry(httpField);
     }
 
+    public static EncodableEntry getEncodedEntry(byte[] encoded)
+    {
+        return new EncodedEntry(encoded);
+    }
+
     public abstract void encode(ByteBuffer buffer, int base);
 
     public abstract int getRequiredSize(int base);
@@ -296,4 +301,32 @@ public abstract class EncodableEntry
             return 0;
         }
     }
+
+    private static class EncodedEntry extends EncodableEntry
+    {
+        private final byte[] _encoded;
+
+        public EncodedEntry(byte[] encoded)
+        {
+            _encoded = encoded;
+        }
+
+        @Override
+        public void encode(ByteBuffer buffer, int base)
+        {
+            buffer.put(_encoded);
+        }
+
+        @Override
+        public int getRequiredSize(int base)
+        {
+            return _encoded.length;
+        }
+
+        @Override
+        public int getRequiredInsertCount()
+        {
+            return 0;
+        }
+    }
 }
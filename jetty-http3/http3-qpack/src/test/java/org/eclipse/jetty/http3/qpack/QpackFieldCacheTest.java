@@ -0,0 +1,77 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http3.qpack;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QpackFieldCacheTest
+{
+    @Test
+    public void testCachedFieldsAreEncodedAsUncached() throws Exception
+    {
+        HttpFields fields = HttpFields.build()
+            .add(HttpHeader.CONTENT_TYPE, "text/html;charset=utf-8")
+            .add("X-Content-Type-Options", "nosniff")
+            .add("X-Custom", "value")
+            .add(new PreEncodedHttpField(HttpHeader.SERVER, "Jetty"));
+        MetaData metaData = new MetaData.Response(HttpVersion.HTTP_3, 200, fields);
+
+        QpackFieldCache cache = new QpackFieldCache();
+        for (int i = 0; i < 3; ++i)
+        {
+            // Each encoder is a new connection sharing the cache.
+            QpackEncoder cached = new QpackEncoder(new TestEncoderHandler(), 5);
+            cached.setFieldCache(cache);
+            ByteBuffer expected = encode(new QpackEncoder(new TestEncoderHandler(), 5), metaData);
+            ByteBuffer actual = encode(cached, metaData);
+            assertEquals(BufferUtil.toHexString(expected), BufferUtil.toHexString(actual));
+
+            TestDecoderHandler decoderHandler = new TestDecoderHandler();
+            QpackDecoder decoder = new QpackDecoder(decoderHandler, 1024);
+            assertTrue(decoder.decode(0, actual, decoderHandler));
+            HttpFields decoded = decoderHandler.getMetaData().getFields();
+            for (HttpField field : fields)
+            {
+                assertEquals(field.getValue(), decoded.get(field.getName()));
+            }
+        }
+
+        // The status and X-Content-Type-Options are in the static
+        // table, and the pre-encoded field is already encoded.
+        assertEquals(2, cache.getSize());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    private ByteBuffer encode(QpackEncoder encoder, MetaData metaData) throws Exception
+    {
+        ByteBuffer buffer = BufferUtil.allocate(4096);
+        BufferUtil.clearToFill(buffer);
+        encoder.encode(buffer, 0, metaData);
+        BufferUtil.flipToFlush(buffer, 0);
+        return buffer;
+    }
+}
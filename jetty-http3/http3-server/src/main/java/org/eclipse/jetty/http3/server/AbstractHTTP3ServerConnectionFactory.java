@@ -19,6 +19,7 @@ import java.util.Objects;
 import org.eclipse.jetty.http3.HTTP3Configuration;
 import org.eclipse.jetty.http3.api.Session;
 import org.eclipse.jetty.http3.internal.parser.MessageParser;
+import org.eclipse.jetty.http3.qpack.QpackFieldCache;
 import org.eclipse.jetty.http3.server.internal.ServerHTTP3Session;
 import org.eclipse.jetty.http3.server.internal.ServerHTTP3StreamConnection;
 import org.eclipse.jetty.io.Connection;
@@ -36,6 +37,7 @@ public abstract class AbstractHTTP3ServerConnectionFactory extends AbstractConne
     private final HTTP3Configuration configuration = new HTTP3Configuration();
     private final HttpConfiguration httpConfiguration;
     private final Session.Server.Listener listener;
+    private QpackFieldCache qpackFieldCache = new QpackFieldCache();
 
     public AbstractHTTP3ServerConnectionFactory(HttpConfiguration httpConfiguration, Session.Server.Listener listener)
     {
@@ -44,6 +46,7 @@ public abstract class AbstractHTTP3ServerConnectionFactory extends AbstractConne
         this.httpConfiguration = Objects.requireNonNull(httpConfiguration);
         addBean(httpConfiguration);
         this.listener = listener;
+        addBean(qpackFieldCache);
         configuration.setUseInputDirectByteBuffers(httpConfiguration.isUseInputDirectByteBuffers());
         configuration.setUseOutputDirectByteBuffers(httpConfiguration.isUseOutputDirectByteBuffers());
         configuration.setMaxRequestHeadersSize(httpConfiguration.getRequestHeaderSize());
@@ -60,10 +63,27 @@ public abstract class AbstractHTTP3ServerConnectionFactory extends AbstractConne
         return configuration;
     }
 
+    /**
+     * @return the cache of the encoded fields shared by the QPACK encoders of all the sessions,
+     * or null if the fields are encoded by each session
+     */
+    public QpackFieldCache getQpackFieldCache()
+    {
+        return qpackFieldCache;
+    }
+
+    public void setQpackFieldCache(QpackFieldCache qpackFieldCache)
+    {
+        updateBean(this.qpackFieldCache, qpackFieldCache);
+        this.qpackFieldCache = qpackFieldCache;
+    }
+
     @Override
     public ProtocolSession newProtocolSession(QuicSession quicSession, Map<String, Object> context)
     {
-        return new ServerHTTP3Session(getHTTP3Configuration(), (ServerQuicSession)quicSession, listener);
+        ServerHTTP3Session session = new ServerHTTP3Session(getHTTP3Configuration(), (ServerQuicSession)quicSession, listener);
+        session.getQpackEncoder().setFieldCache(getQpackFieldCache());
+        return session;
     }
 
     @Override
@@ -21,9 +21,10 @@ import java.util.function.IntConsumer;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
 
 @ManagedObject
-abstract class AbstractByteBufferPool implements ByteBufferPool
+abstract class AbstractByteBufferPool extends AbstractLifeCycle implements ByteBufferPool
 {
     private final int _factor;
     private final int _maxQueueLength;
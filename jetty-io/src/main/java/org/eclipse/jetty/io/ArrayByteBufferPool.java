@@ -19,6 +19,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import org.eclipse.jetty.util.BufferUtil;
@@ -26,6 +28,9 @@ import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.Sweeper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,9 +39,13 @@ import org.slf4j.LoggerFactory;
  * <p>Given a capacity {@code factor} of 1024, the first array element holds a queue of ByteBuffers
  * each of capacity 1024, the second array element holds a queue of ByteBuffers each of capacity
  * 2048, and so on.</p>
+ * <p>When an {@link #setIdleTimeout(long) idle timeout} is configured, the pool is swept
+ * periodically while it is started: buffers are reclaimed by each sweep when their bucket
+ * has not been used for longer than the idle timeout, or when the bucket retains more
+ * buffers than its smoothed demand.</p>
  */
 @ManagedObject
-public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpable
+public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpable, Sweeper.Sweepable
 {
     private static final Logger LOG = LoggerFactory.getLogger(ArrayByteBufferPool.class);
 
@@ -50,7 +59,15 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpa
      * 存储非直接内存的 ByteBuffer
      */
     private final ByteBufferPool.Bucket[] _indirect;
+    private final BufferDemand[] _directDemand;
+    private final BufferDemand[] _indirectDemand;
+    private final LongAdder _reclaimedDirectMemory = new LongAdder();
+    private final LongAdder _reclaimedHeapMemory = new LongAdder();
     private boolean _detailedDump = false;
+    private volatile long _idleTimeout;
+    private Scheduler _scheduler;
+    private Scheduler _ownScheduler;
+    private Sweeper _sweeper;
 
     /**
      * Creates a new ArrayByteBufferPool with a default configuration.
@@ -114,12 +131,16 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpa
         int length = bucketFor(maxCapacity) + 1;
         _direct = new ByteBufferPool.Bucket[length];
         _indirect = new ByteBufferPool.Bucket[length];
+        _directDemand = new BufferDemand[length];
+        _indirectDemand = new BufferDemand[length];
 
         // 相同大小的 ByteBuffer 将会有一个 Bucket 管理，不同大小的 ByteBuffer 必然存放在不同的 ByteBuffer 中
         for (int i = 0; i < length; i++)
         {
             _direct[i] = newBucket(i, true);
             _indirect[i] = newBucket(i, false);
+            _directDemand[i] = new BufferDemand();
+            _indirectDemand[i] = new BufferDemand();
         }
     }
 
@@ -133,6 +154,7 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpa
         ByteBufferPool.Bucket bucket = bucketFor(size, direct);
         if (bucket == null)
             return newByteBuffer(capacity, direct);
+        demandFor(size, direct).acquired();
         ByteBuffer buffer = bucket.acquire();
         if (buffer == null)
             return newByteBuffer(capacity, direct);
@@ -165,6 +187,7 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpa
         // 如果找到Bucket则重置buffer，并且加入Bucket中。
         if (bucket != null)
         {
+            demandFor(capacity, direct).released();
             bucket.release(buffer);
             releaseExcessMemory(direct, this::releaseMemory);
         }
@@ -185,9 +208,156 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpa
         {
             _direct[i].clear();
             _indirect[i].clear();
+            _directDemand[i].clear();
+            _indirectDemand[i].clear();
         }
     }
 
+    /**
+     * @return the time in milliseconds after which the buffers of an unused bucket are reclaimed by a sweep
+     */
+    @ManagedAttribute("The time in milliseconds after which the buffers of an unused bucket are reclaimed")
+    public long getIdleTimeout()
+    {
+        return _idleTimeout;
+    }
+
+    /**
+     * <p>Sets the time after which the buffers of an unused bucket are reclaimed by a sweep.</p>
+     * <p>The pool is swept with a period equal to the idle timeout, from when it is started.
+     * A non positive value disables reclamation of idle memory.</p>
+     *
+     * @param idleTimeout the idle timeout in milliseconds
+     */
+    public void setIdleTimeout(long idleTimeout)
+    {
+        _idleTimeout = idleTimeout;
+    }
+
+    /**
+     * @return the scheduler of the sweeps, or null if the pool creates its own
+     */
+    public Scheduler getScheduler()
+    {
+        return _scheduler;
+    }
+
+    /**
+     * @param scheduler the scheduler of the sweeps, or null for the pool to create its own
+     * when it is started with an {@link #setIdleTimeout(long) idle timeout}
+     */
+    public void setScheduler(Scheduler scheduler)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _scheduler = scheduler;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        super.doStart();
+        long idleTimeout = getIdleTimeout();
+        if (idleTimeout > 0)
+        {
+            Scheduler scheduler = getScheduler();
+            if (scheduler == null)
+            {
+                scheduler = _ownScheduler = new ScheduledExecutorScheduler(String.format("%s-Sweeper@%x", getClass().getSimpleName(), hashCode()), true);
+                scheduler.start();
+            }
+            _sweeper = new Sweeper(scheduler, idleTimeout);
+            _sweeper.start();
+            _sweeper.offer(this);
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        if (_sweeper != null)
+        {
+            _sweeper.stop();
+            _sweeper = null;
+        }
+        if (_ownScheduler != null)
+        {
+            _ownScheduler.stop();
+            _ownScheduler = null;
+        }
+        super.doStop();
+    }
+
+    @ManagedAttribute("The bytes reclaimed from idle direct ByteBuffers")
+    public long getReclaimedDirectMemory()
+    {
+        return _reclaimedDirectMemory.sum();
+    }
+
+    @ManagedAttribute("The bytes reclaimed from idle heap ByteBuffers")
+    public long getReclaimedHeapMemory()
+    {
+        return _reclaimedHeapMemory.sum();
+    }
+
+    @ManagedAttribute("The high-water marks of in use direct ByteBuffers, per bucket")
+    public int[] getDirectHighWaterMarks()
+    {
+        return Arrays.stream(_directDemand).mapToInt(BufferDemand::getHighWater).toArray();
+    }
+
+    @ManagedAttribute("The high-water marks of in use heap ByteBuffers, per bucket")
+    public int[] getHeapHighWaterMarks()
+    {
+        return Arrays.stream(_indirectDemand).mapToInt(BufferDemand::getHighWater).toArray();
+    }
+
+    @Override
+    public boolean sweep()
+    {
+        long idleTimeout = getIdleTimeout();
+        if (idleTimeout > 0)
+        {
+            long now = System.nanoTime();
+            long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+            _reclaimedDirectMemory.add(reclaim(_direct, _directDemand, now, idleNanos));
+            _reclaimedHeapMemory.add(reclaim(_indirect, _indirectDemand, now, idleNanos));
+        }
+        // This pool is never removed from the Sweeper.
+        return false;
+    }
+
+    private long reclaim(Bucket[] buckets, BufferDemand[] demands, long now, long idleNanos)
+    {
+        long reclaimed = 0;
+        for (int i = 0; i < buckets.length; ++i)
+        {
+            Bucket bucket = buckets[i];
+            BufferDemand demand = demands[i];
+            int retain = demand.sample();
+            if (bucket.isEmpty())
+                continue;
+
+            int size = bucket.size();
+            int excess;
+            if (now - bucket.getLastUpdate() > idleNanos)
+                excess = size;
+            else
+                excess = size + demand.getInUse() - retain;
+
+            for (; excess > 0; --excess)
+            {
+                ByteBuffer buffer = bucket.acquire();
+                if (buffer == null)
+                    break;
+                reclaimed += buffer.capacity();
+            }
+        }
+        if (LOG.isDebugEnabled() && reclaimed > 0)
+            LOG.debug("Reclaimed {} bytes from {}", reclaimed, this);
+        return reclaimed;
+    }
+
     protected void releaseMemory(boolean direct)
     {
         long oldest = Long.MAX_VALUE;
@@ -225,6 +395,12 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpa
     // 大于等于请求大小，并且最接近请求大小的一个Bucket。如果找到这么一个Bucket，并且Bucket中也确实存在空闲的ByteBuffer，
     // 那么直接返回ByteBuffer。如果找不到合适的Bucket（比如，请求的大小超过maxSize），或者Bucket中已经没有可用的ByteBuffer，
     // 则根据Bucket的大小（优先）或者请求大小创建一个ByteBuffer并返回
+    private BufferDemand demandFor(int capacity, boolean direct)
+    {
+        BufferDemand[] demands = direct ? _directDemand : _indirectDemand;
+        return demands[bucketFor(capacity)];
+    }
+
     private ByteBufferPool.Bucket bucketFor(int capacity, boolean direct)
     {
         if (capacity < _minCapacity)
@@ -285,6 +461,8 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpa
         {
             dump.add(new DumpableCollection("Indirect Buckets", indirect));
             dump.add(new DumpableCollection("Direct Buckets", direct));
+            dump.add(new DumpableCollection("Indirect Demand", demandsDump(_indirect, _indirectDemand)));
+            dump.add(new DumpableCollection("Direct Demand", demandsDump(_direct, _directDemand)));
         }
         else
         {
@@ -294,6 +472,17 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool implements Dumpa
         Dumpable.dumpObjects(out, indent, this, dump);
     }
 
+    private List<String> demandsDump(Bucket[] buckets, BufferDemand[] demands)
+    {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < buckets.length; ++i)
+        {
+            if (demands[i].getHighWater() > 0)
+                result.add(String.format("capacity=%d,%s", capacityFor(i), demands[i]));
+        }
+        return result;
+    }
+
     @Override
     public String toString()
     {
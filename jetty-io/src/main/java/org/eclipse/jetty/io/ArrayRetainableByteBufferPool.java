@@ -15,23 +15,49 @@ package org.eclipse.jetty.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Pool;
+import org.eclipse.jetty.util.ProcessorUtils;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.Sweeper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * <p>A {@link RetainableByteBufferPool} that holds {@link RetainableByteBuffer}s in
+ * buckets of increasing capacity, each bucket being a {@link Pool}.</p>
+ * <p>Optionally, each bucket may be fronted by a small number of <em>magazines</em>:
+ * bounded stacks of buffers selected by the {@link Thread#getId() id} of the calling thread,
+ * that are acquired from and released to without scanning the shared bucket entries.
+ * A magazine is refilled from its bucket in a batch when it is empty and it spills
+ * a batch of buffers back to its bucket when it is full, so that under load most
+ * acquire/release pairs performed by selector and worker threads do not contend
+ * on the shared bucket.</p>
+ * <p>When an {@link #setIdleTimeout(long) idle timeout} is configured, the pool is swept
+ * periodically while it is started: each sweep reclaims the buffers that have not been used
+ * for longer than the idle timeout, retaining only as many buffers as the smoothed demand
+ * of their bucket. Magazines only give back to their bucket the buffers that are idle.</p>
+ */
 @ManagedObject
-public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool, Dumpable
+public class ArrayRetainableByteBufferPool extends AbstractLifeCycle implements RetainableByteBufferPool, Dumpable, Sweeper.Sweepable
 {
     private static final Logger LOG = LoggerFactory.getLogger(ArrayRetainableByteBufferPool.class);
 
@@ -44,6 +70,13 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
     private final AtomicLong _currentHeapMemory = new AtomicLong();
     private final AtomicLong _currentDirectMemory = new AtomicLong();
     private final Function<Integer, Integer> _bucketIndexFor;
+    private final int _magazineSize;
+    private final AtomicLong _reclaimedHeapMemory = new AtomicLong();
+    private final AtomicLong _reclaimedDirectMemory = new AtomicLong();
+    private volatile long _idleTimeout;
+    private Scheduler _scheduler;
+    private Scheduler _ownScheduler;
+    private Sweeper _sweeper;
 
     public ArrayRetainableByteBufferPool()
     {
@@ -57,11 +90,33 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
 
     public ArrayRetainableByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxBucketSize, long maxHeapMemory, long maxDirectMemory)
     {
-        this(minCapacity, factor, maxCapacity, maxBucketSize, maxHeapMemory, maxDirectMemory, null, null);
+        this(minCapacity, factor, maxCapacity, maxBucketSize, maxHeapMemory, maxDirectMemory, 0);
+    }
+
+    /**
+     * Creates a new ArrayRetainableByteBufferPool with the given configuration.
+     *
+     * @param minCapacity the minimum buffer capacity
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum buffer capacity
+     * @param maxBucketSize the maximum number of buffers in each bucket
+     * @param maxHeapMemory the max heap memory in bytes, -1 for unlimited memory
+     * @param maxDirectMemory the max direct memory in bytes, -1 for unlimited memory
+     * @param magazineSize the max number of buffers held by each magazine in front of a bucket, or 0 to disable magazines
+     */
+    public ArrayRetainableByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxBucketSize, long maxHeapMemory, long maxDirectMemory, int magazineSize)
+    {
+        this(minCapacity, factor, maxCapacity, maxBucketSize, maxHeapMemory, maxDirectMemory, magazineSize, null, null);
     }
 
     protected ArrayRetainableByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxBucketSize, long maxHeapMemory, long maxDirectMemory,
                                             Function<Integer, Integer> bucketIndexFor, Function<Integer, Integer> bucketCapacity)
+    {
+        this(minCapacity, factor, maxCapacity, maxBucketSize, maxHeapMemory, maxDirectMemory, 0, bucketIndexFor, bucketCapacity);
+    }
+
+    protected ArrayRetainableByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxBucketSize, long maxHeapMemory, long maxDirectMemory,
+                                            int magazineSize, Function<Integer, Integer> bucketIndexFor, Function<Integer, Integer> bucketCapacity)
     {
         if (minCapacity <= 0)
             minCapacity = 0;
@@ -77,14 +132,17 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
         if (bucketCapacity == null)
             bucketCapacity = i -> (i + 1) * f;
 
+        if (magazineSize < 0)
+            magazineSize = 0;
+
         int length = bucketIndexFor.apply(maxCapacity) + 1;
         Bucket[] directArray = new Bucket[length];
         Bucket[] indirectArray = new Bucket[length];
         for (int i = 0; i < directArray.length; i++)
         {
             int capacity = Math.min(bucketCapacity.apply(i), maxCapacity);
-            directArray[i] = new Bucket(capacity, maxBucketSize);
-            indirectArray[i] = new Bucket(capacity, maxBucketSize);
+            directArray[i] = new Bucket(capacity, maxBucketSize, magazineSize);
+            indirectArray[i] = new Bucket(capacity, maxBucketSize, magazineSize);
         }
 
         _minCapacity = minCapacity;
@@ -94,6 +152,7 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
         _maxHeapMemory = maxHeapMemory;
         _maxDirectMemory = maxDirectMemory;
         _bucketIndexFor = bucketIndexFor;
+        _magazineSize = magazineSize;
     }
 
     @ManagedAttribute("The minimum pooled buffer capacity")
@@ -108,13 +167,218 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
         return _maxCapacity;
     }
 
+    @ManagedAttribute("The maximum number of buffers held by each bucket magazine")
+    public int getMagazineSize()
+    {
+        return _magazineSize;
+    }
+
+    @ManagedAttribute("The number of acquisitions served by bucket magazines")
+    public long getMagazineHits()
+    {
+        return sumMagazineCounter(bucket -> bucket._hits);
+    }
+
+    @ManagedAttribute("The number of acquisitions that missed bucket magazines")
+    public long getMagazineMisses()
+    {
+        return sumMagazineCounter(bucket -> bucket._misses);
+    }
+
+    @ManagedAttribute("The number of buffers spilled from bucket magazines to the shared buckets")
+    public long getMagazineSpills()
+    {
+        return sumMagazineCounter(bucket -> bucket._spills);
+    }
+
+    private long sumMagazineCounter(Function<Bucket, LongAdder> counter)
+    {
+        if (_magazineSize == 0)
+            return 0;
+        long total = 0L;
+        for (Bucket bucket : _direct)
+        {
+            total += counter.apply(bucket).sum();
+        }
+        for (Bucket bucket : _indirect)
+        {
+            total += counter.apply(bucket).sum();
+        }
+        return total;
+    }
+
+    /**
+     * @return the time in milliseconds after which an unused buffer is reclaimed by a sweep
+     */
+    @ManagedAttribute("The time in milliseconds after which an unused buffer is reclaimed")
+    public long getIdleTimeout()
+    {
+        return _idleTimeout;
+    }
+
+    /**
+     * <p>Sets the time after which an unused buffer is reclaimed by a sweep.</p>
+     * <p>The pool is swept with a period equal to the idle timeout, from when it is started.
+     * A non positive value disables reclamation of idle memory.</p>
+     *
+     * @param idleTimeout the idle timeout in milliseconds
+     */
+    public void setIdleTimeout(long idleTimeout)
+    {
+        _idleTimeout = idleTimeout;
+    }
+
+    /**
+     * @return the scheduler of the sweeps, or null if the pool creates its own
+     */
+    public Scheduler getScheduler()
+    {
+        return _scheduler;
+    }
+
+    /**
+     * @param scheduler the scheduler of the sweeps, or null for the pool to create its own
+     * when it is started with an {@link #setIdleTimeout(long) idle timeout}
+     */
+    public void setScheduler(Scheduler scheduler)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _scheduler = scheduler;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        super.doStart();
+        long idleTimeout = getIdleTimeout();
+        if (idleTimeout > 0)
+        {
+            Scheduler scheduler = getScheduler();
+            if (scheduler == null)
+            {
+                scheduler = _ownScheduler = new ScheduledExecutorScheduler(String.format("%s-Sweeper@%x", getClass().getSimpleName(), hashCode()), true);
+                scheduler.start();
+            }
+            _sweeper = new Sweeper(scheduler, idleTimeout);
+            _sweeper.start();
+            _sweeper.offer(this);
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        if (_sweeper != null)
+        {
+            _sweeper.stop();
+            _sweeper = null;
+        }
+        if (_ownScheduler != null)
+        {
+            _ownScheduler.stop();
+            _ownScheduler = null;
+        }
+        super.doStop();
+    }
+
+    @ManagedAttribute("The bytes reclaimed from idle direct ByteBuffers")
+    public long getReclaimedDirectMemory()
+    {
+        return _reclaimedDirectMemory.get();
+    }
+
+    @ManagedAttribute("The bytes reclaimed from idle heap ByteBuffers")
+    public long getReclaimedHeapMemory()
+    {
+        return _reclaimedHeapMemory.get();
+    }
+
+    @ManagedAttribute("The high-water marks of used direct ByteBuffers, per bucket")
+    public int[] getDirectHighWaterMarks()
+    {
+        return Arrays.stream(_direct).mapToInt(bucket -> bucket._demand.getHighWater()).toArray();
+    }
+
+    @ManagedAttribute("The high-water marks of used heap ByteBuffers, per bucket")
+    public int[] getHeapHighWaterMarks()
+    {
+        return Arrays.stream(_indirect).mapToInt(bucket -> bucket._demand.getHighWater()).toArray();
+    }
+
+    @Override
+    public boolean sweep()
+    {
+        long idleTimeout = getIdleTimeout();
+        if (idleTimeout > 0)
+        {
+            long now = System.nanoTime();
+            long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+            reclaim(true, now, idleNanos);
+            reclaim(false, now, idleNanos);
+        }
+        // This pool is never removed from the Sweeper.
+        return false;
+    }
+
+    private void reclaim(boolean direct, long now, long idleNanos)
+    {
+        Bucket[] buckets = direct ? _direct : _indirect;
+        long reclaimed = 0L;
+        for (Bucket bucket : buckets)
+        {
+            // Only the idle buffers held by the magazines are given back to the bucket,
+            // so that the magazines of the buckets in use are not emptied by each sweep.
+            bucket.spillIdleMagazines(now, idleNanos);
+
+            int used = 0;
+            List<Bucket.Entry> idle = new ArrayList<>();
+            for (Bucket.Entry entry : bucket.values())
+            {
+                if (entry.isInUse())
+                    ++used;
+                else if (entry.isIdle() && now - entry.getPooled().getLastUpdate() > idleNanos)
+                    idle.add(entry);
+                else if (entry.isIdle())
+                    ++used;
+            }
+
+            // Retain the most recently used of the idle buffers, up to the smoothed demand.
+            int retain = Math.max(0, bucket._demand.sample(used) - used);
+            if (idle.size() <= retain)
+                continue;
+            idle.sort(Comparator.comparingLong((Bucket.Entry entry) -> entry.getPooled().getLastUpdate()).reversed());
+            for (Bucket.Entry entry : idle.subList(retain, idle.size()))
+            {
+                if (entry.remove())
+                    reclaimed += entry.getPooled().capacity();
+            }
+        }
+
+        if (reclaimed > 0)
+        {
+            if (direct)
+            {
+                _currentDirectMemory.addAndGet(-reclaimed);
+                _reclaimedDirectMemory.addAndGet(reclaimed);
+            }
+            else
+            {
+                _currentHeapMemory.addAndGet(-reclaimed);
+                _reclaimedHeapMemory.addAndGet(reclaimed);
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("Reclaimed {} bytes from {} pools", reclaimed, (direct ? "direct" : "heap"));
+        }
+    }
+
     @Override
     public RetainableByteBuffer acquire(int size, boolean direct)
     {
         Bucket bucket = bucketFor(size, direct);
         if (bucket == null)
             return newRetainableByteBuffer(size, direct, byteBuffer -> {});
-        Bucket.Entry entry = bucket.acquire();
+        Bucket.Entry entry = bucket.acquireEntry();
 
         RetainableByteBuffer buffer;
         if (entry == null)
@@ -125,7 +389,7 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
                 buffer = newRetainableByteBuffer(bucket._capacity, direct, byteBuffer ->
                 {
                     BufferUtil.reset(byteBuffer);
-                    reservedEntry.release();
+                    bucket.releaseEntry(reservedEntry);
                 });
                 reservedEntry.enable(buffer, true);
                 if (direct)
@@ -200,7 +464,7 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
     private long getAvailableByteBufferCount(boolean direct)
     {
         Bucket[] buckets = direct ? _direct : _indirect;
-        return Arrays.stream(buckets).mapToLong(bucket -> bucket.values().stream().filter(Pool.Entry::isIdle).count()).sum();
+        return Arrays.stream(buckets).mapToLong(Bucket::getAvailableCount).sum();
     }
 
     @ManagedAttribute("The bytes retained by direct ByteBuffers")
@@ -242,7 +506,7 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
         for (Bucket bucket : buckets)
         {
             int capacity = bucket._capacity;
-            total += bucket.values().stream().filter(Pool.Entry::isIdle).count() * capacity;
+            total += bucket.getAvailableCount() * capacity;
         }
         return total;
     }
@@ -258,6 +522,7 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
     {
         for (Bucket pool : poolArray)
         {
+            pool.spillMagazines();
             for (Bucket.Entry entry : pool.values())
             {
                 entry.remove();
@@ -290,6 +555,10 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
         long totalClearedCapacity = 0L;
 
         Bucket[] buckets = direct ? _direct : _indirect;
+        for (Bucket bucket : buckets)
+        {
+            bucket.spillMagazines();
+        }
 
         while (totalClearedCapacity < excess)
         {
@@ -319,10 +588,11 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
     @Override
     public String toString()
     {
-        return String.format("%s{min=%d,max=%d,buckets=%d,heap=%d/%d,direct=%d/%d}",
+        return String.format("%s{min=%d,max=%d,buckets=%d,magazine=%d,heap=%d/%d,direct=%d/%d}",
             super.toString(),
             _minCapacity, _maxCapacity,
             _direct.length,
+            _magazineSize,
             _currentHeapMemory.get(), _maxHeapMemory,
             _currentDirectMemory.get(), _maxDirectMemory);
     }
@@ -360,11 +630,123 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
     private static class Bucket extends Pool<RetainableByteBuffer>
     {
         private final int _capacity;
-
-        Bucket(int capacity, int size)
+        private final Magazine[] _magazines;
+        private final int _batchSize;
+        private final LongAdder _hits = new LongAdder();
+        private final LongAdder _misses = new LongAdder();
+        private final LongAdder _spills = new LongAdder();
+        private final BufferDemand _demand = new BufferDemand();
+
+        Bucket(int capacity, int size, int magazineSize)
         {
             super(Pool.StrategyType.THREAD_ID, size, true);
             _capacity = capacity;
+            if (magazineSize > 0)
+            {
+                // Enough magazines so that concurrent threads rarely share one.
+                int count = Integer.highestOneBit(Math.max(1, ProcessorUtils.availableProcessors() * 2 - 1)) << 1;
+                _magazines = new Magazine[count];
+                for (int i = 0; i < count; ++i)
+                {
+                    _magazines[i] = new Magazine(magazineSize);
+                }
+                _batchSize = Math.max(1, magazineSize / 2);
+            }
+            else
+            {
+                _magazines = null;
+                _batchSize = 0;
+            }
+        }
+
+        private Magazine magazine()
+        {
+            return _magazines[(int)(Thread.currentThread().getId() & (_magazines.length - 1))];
+        }
+
+        Entry acquireEntry()
+        {
+            if (_magazines == null)
+                return acquire();
+
+            Magazine magazine = magazine();
+            Entry entry = magazine.poll();
+            if (entry != null)
+            {
+                _hits.increment();
+                return entry;
+            }
+
+            _misses.increment();
+            entry = acquire();
+            if (entry != null)
+            {
+                // Refill the magazine in a batch, so that the
+                // next acquisitions do not hit the shared entries.
+                for (int i = 1; i < _batchSize; ++i)
+                {
+                    Entry refill = acquire();
+                    if (refill == null)
+                        break;
+                    if (!magazine.offer(refill))
+                    {
+                        refill.release();
+                        break;
+                    }
+                }
+            }
+            return entry;
+        }
+
+        void releaseEntry(Entry entry)
+        {
+            if (_magazines == null)
+            {
+                entry.release();
+                return;
+            }
+
+            Magazine magazine = magazine();
+            if (magazine.offer(entry))
+                return;
+
+            // The magazine is full, spill a batch to the shared entries.
+            _spills.add(magazine.spill(_batchSize));
+            if (!magazine.offer(entry))
+                entry.release();
+        }
+
+        void spillMagazines()
+        {
+            if (_magazines == null)
+                return;
+            for (Magazine magazine : _magazines)
+            {
+                _spills.add(magazine.spill(Integer.MAX_VALUE));
+            }
+        }
+
+        void spillIdleMagazines(long now, long idleNanos)
+        {
+            if (_magazines == null)
+                return;
+            for (Magazine magazine : _magazines)
+            {
+                _spills.add(magazine.spillIdle(now, idleNanos));
+            }
+        }
+
+        long getAvailableCount()
+        {
+            long available = values().stream().filter(Entry::isIdle).count();
+            if (_magazines != null)
+            {
+                for (Magazine magazine : _magazines)
+                {
+                    available += magazine.size();
+                }
+            }
+            return available;
         }
 
         @Override
@@ -379,11 +761,147 @@ public class ArrayRetainableByteBufferPool implements RetainableByteBufferPool,
                     inUse++;
             }
 
-            return String.format("%s{capacity=%d,inuse=%d(%d%%)}",
+            if (_magazines == null)
+            {
+                return String.format("%s{capacity=%d,inuse=%d(%d%%),%s}",
+                    super.toString(),
+                    _capacity,
+                    inUse,
+                    entries > 0 ? (inUse * 100) / entries : 0,
+                    _demand);
+            }
+
+            int cached = 0;
+            for (Magazine magazine : _magazines)
+            {
+                cached += magazine.size();
+            }
+            return String.format("%s{capacity=%d,inuse=%d(%d%%),magazines=%d,hits=%d,misses=%d,spills=%d,%s}",
                 super.toString(),
                 _capacity,
-                inUse,
-                entries > 0 ? (inUse * 100) / entries : 0);
+                inUse - cached,
+                entries > 0 ? ((inUse - cached) * 100) / entries : 0,
+                cached,
+                _hits.sum(),
+                _misses.sum(),
+                _spills.sum(),
+                _demand);
+        }
+
+        /**
+         * <p>A bounded stack of entries that are acquired from the bucket
+         * but not in use, so that they can be handed out again without
+         * scanning the bucket entries.</p>
+         */
+        private class Magazine
+        {
+            private final AutoLock _lock = new AutoLock();
+            private final Entry[] _entries;
+            private int _size;
+
+            @SuppressWarnings("unchecked")
+            private Magazine(int capacity)
+            {
+                _entries = (Entry[])new Pool.Entry[capacity];
+            }
+
+            private Entry poll()
+            {
+                List<Entry> closed = null;
+                Entry result = null;
+                try (AutoLock l = _lock.lock())
+                {
+                    while (_size > 0)
+                    {
+                        Entry entry = _entries[--_size];
+                        _entries[_size] = null;
+                        if (!entry.isClosed())
+                        {
+                            result = entry;
+                            break;
+                        }
+                        // The entry has been removed by an eviction, release it outside the lock.
+                        if (closed == null)
+                            closed = new ArrayList<>();
+                        closed.add(entry);
+                    }
+                }
+                if (closed != null)
+                {
+                    for (Entry entry : closed)
+                    {
+                        if (!entry.release())
+                            entry.remove();
+                    }
+                }
+                return result;
+            }
+
+            private boolean offer(Entry entry)
+            {
+                try (AutoLock l = _lock.lock())
+                {
+                    if (_size == _entries.length)
+                        return false;
+                    _entries[_size++] = entry;
+                    return true;
+                }
+            }
+
+            private int spillIdle(long now, long idleNanos)
+            {
+                Entry[] spilled;
+                try (AutoLock l = _lock.lock())
+                {
+                    int count = 0;
+                    while (count < _size && now - _entries[count].getPooled().getLastUpdate() > idleNanos)
+                    {
+                        ++count;
+                    }
+                    spilled = removeBottom(count);
+                }
+                return release(spilled);
+            }
+
+            private int spill(int count)
+            {
+                Entry[] spilled;
+                try (AutoLock l = _lock.lock())
+                {
+                    spilled = removeBottom(count);
+                }
+                return release(spilled);
+            }
+
+            private Entry[] removeBottom(int count)
+            {
+                assert _lock.isHeldByCurrentThread();
+                // The least recently released entries are at the bottom of the stack.
+                int length = Math.min(count, _size);
+                Entry[] removed = Arrays.copyOf(_entries, length);
+                System.arraycopy(_entries, length, _entries, 0, _size - length);
+                Arrays.fill(_entries, _size - length, _size, null);
+                _size -= length;
+                return removed;
+            }
+
+            private int release(Entry[] entries)
+            {
+                for (Entry entry : entries)
+                {
+                    if (!entry.release())
+                        entry.remove();
+                }
+                return entries.length;
+            }
+
+            private int size()
+            {
+                try (AutoLock l = _lock.lock())
+                {
+                    return _size;
+                }
+            }
         }
     }
 }
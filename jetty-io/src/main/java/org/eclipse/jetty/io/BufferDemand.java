@@ -0,0 +1,114 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Tracks the demand of buffers of a pool bucket.</p>
+ * <p>The demand is sampled periodically, typically by a {@link org.eclipse.jetty.util.thread.Sweeper},
+ * and smoothed with an exponentially weighted moving average, so that the number of buffers
+ * retained by a bucket decays over time after a traffic spike rather than staying at its peak.</p>
+ */
+class BufferDemand
+{
+    private static final double ALPHA = 0.25D;
+
+    private final AtomicInteger _inUse = new AtomicInteger();
+    private final AtomicInteger _windowPeak = new AtomicInteger();
+    private final AtomicInteger _highWater = new AtomicInteger();
+    private volatile double _average;
+
+    /**
+     * Records that a buffer of the bucket has been acquired.
+     */
+    void acquired()
+    {
+        int inUse = _inUse.incrementAndGet();
+        if (inUse > _windowPeak.get())
+            _windowPeak.accumulateAndGet(inUse, Math::max);
+        if (inUse > _highWater.get())
+            _highWater.accumulateAndGet(inUse, Math::max);
+    }
+
+    /**
+     * Records that a buffer of the bucket has been released.
+     */
+    void released()
+    {
+        // Buffers that were not acquired from the pool may be released to it.
+        _inUse.updateAndGet(i -> Math.max(0, i - 1));
+    }
+
+    /**
+     * @return the number of buffers currently in use
+     */
+    int getInUse()
+    {
+        return _inUse.get();
+    }
+
+    /**
+     * Samples the peak number of buffers that were in use since the last sample.
+     *
+     * @return the number of buffers that the bucket should retain
+     */
+    int sample()
+    {
+        return sample(_windowPeak.getAndSet(_inUse.get()));
+    }
+
+    /**
+     * Samples the given number of buffers as the demand since the last sample.
+     *
+     * @param demand the number of buffers used since the last sample
+     * @return the number of buffers that the bucket should retain
+     */
+    int sample(int demand)
+    {
+        if (demand > _highWater.get())
+            _highWater.accumulateAndGet(demand, Math::max);
+        double average = ALPHA * demand + (1 - ALPHA) * _average;
+        _average = average;
+        return (int)Math.round(average);
+    }
+
+    /**
+     * @return the smoothed demand of buffers
+     */
+    double getAverage()
+    {
+        return _average;
+    }
+
+    /**
+     * @return the maximum number of buffers used at the same time
+     */
+    int getHighWater()
+    {
+        return _highWater.get();
+    }
+
+    void clear()
+    {
+        _windowPeak.set(_inUse.get());
+        _average = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("demand=%.1f,highWater=%d", getAverage(), getHighWater());
+    }
+}
@@ -38,6 +38,8 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
@@ -45,6 +47,7 @@ import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
+import org.eclipse.jetty.util.statistic.RateStatistic;
 import org.eclipse.jetty.util.statistic.SampleStatistic;
 import org.eclipse.jetty.util.thread.AutoLock;
 import org.eclipse.jetty.util.thread.ExecutionStrategy;
@@ -88,6 +91,11 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     private Deque<SelectorUpdate> _updates = new ArrayDeque<>();
     private Deque<SelectorUpdate> _updateable = new ArrayDeque<>();
     private final SampleStatistic _keyStats = new SampleStatistic();
+    private final SampleStatistic _latencyStats = new SampleStatistic();
+    private final RateStatistic _selectRate = new RateStatistic(1, TimeUnit.SECONDS);
+    private final LongAdder _tasks = new LongAdder();
+    private final AtomicInteger _registrations = new AtomicInteger();
+    private volatile double _recentSelectedKeys;
 
     public ManagedSelector(SelectorManager selectorManager, int id)
     {
@@ -169,10 +177,67 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         return _keyStats.getCount();
     }
 
+    /**
+     * @return the number of select() calls in the last second
+     */
+    @ManagedAttribute(value = "Number of select() calls in the last second", readonly = true)
+    public long getSelectRate()
+    {
+        return _selectRate.getRate();
+    }
+
+    @ManagedAttribute(value = "Total number of tasks produced", readonly = true)
+    public long getTaskCount()
+    {
+        return _tasks.sum();
+    }
+
+    /**
+     * @return the average time, in microseconds, between a select() wakeup and the next
+     * select() call, that is the time spent processing selected keys and updates
+     */
+    @ManagedAttribute(value = "Average select latency (us)", readonly = true)
+    public double getAverageSelectLatency()
+    {
+        return _latencyStats.getMean();
+    }
+
+    @ManagedAttribute(value = "Maximum select latency (us)", readonly = true)
+    public long getMaxSelectLatency()
+    {
+        return _latencyStats.getMax();
+    }
+
+    /**
+     * @return the moving average of the number of keys selected by recent select() calls
+     */
+    @ManagedAttribute(value = "Recent average number of selected keys", readonly = true)
+    public double getRecentSelectedKeys()
+    {
+        return _recentSelectedKeys;
+    }
+
+    /**
+     * <p>Returns the load of this selector, used by {@link SelectorPolicy.LeastLoaded}.</p>
+     * <p>The load is the number of registered keys, including the channels that are being
+     * registered, plus the recent average number of selected keys, so that selectors with
+     * the same number of keys are told apart by how busy their keys are.</p>
+     *
+     * @return the load of this selector
+     */
+    @ManagedAttribute(value = "Load of the selector", readonly = true)
+    public double getLoad()
+    {
+        return size() + _registrations.get() + getRecentSelectedKeys();
+    }
+
     @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
     public void resetStats()
     {
         _keyStats.reset();
+        _latencyStats.reset();
+        _selectRate.reset();
+        _tasks.reset();
     }
 
     protected int nioSelect(Selector selector, boolean now) throws IOException
@@ -525,6 +590,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     {
         private Set<SelectionKey> _keys = Collections.emptySet();
         private Iterator<SelectionKey> _cursor = Collections.emptyIterator();
+        private long _selectedNanoTime;
 
         @Override
         public Runnable produce()
@@ -533,7 +599,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             {
                 Runnable task = processSelected();
                 if (task != null)
+                {
+                    _tasks.increment();
                     return task;
+                }
 
                 processUpdates();
 
@@ -559,7 +628,13 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             for (SelectorUpdate update : _updateable)
             {
                 if (_selector == null)
-                    break;
+                {
+                    // The selector has been stopped, close the accepted
+                    // channels that could not be registered anymore.
+                    if (update instanceof Accept)
+                        ((Accept)update).close();
+                    continue;
+                }
                 try
                 {
                     if (LOG.isDebugEnabled())
@@ -602,7 +677,11 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                 {
                     if (LOG.isDebugEnabled())
                         LOG.debug("Selector {} waiting with {} keys", selector, selector.keys().size());
+                    if (_selectedNanoTime != 0)
+                        _latencyStats.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - _selectedNanoTime));
                     int selected = ManagedSelector.this.select(selector);
+                    _selectedNanoTime = System.nanoTime();
+                    _selectRate.record();
                     // The selector may have been recreated.
                     selector = _selector;
                     if (selector != null)
@@ -622,6 +701,8 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                         int selectedKeys = _keys.size();
                         if (selectedKeys > 0)
                             _keyStats.record(selectedKeys);
+                        // Only the producing thread writes the moving average.
+                        _recentSelectedKeys = 0.25D * selectedKeys + 0.75D * _recentSelectedKeys;
                         _cursor = selectedKeys > 0 ? _keys.iterator() : Collections.emptyIterator();
                         if (LOG.isDebugEnabled())
                             LOG.debug("Selector {} processing {} keys, {} updates", selector, selectedKeys, updates);
@@ -779,11 +860,22 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     class Acceptor implements SelectorUpdate, Selectable, Closeable
     {
         private final SelectableChannel _channel;
+        private final boolean _local;
         private SelectionKey _key;
 
         Acceptor(SelectableChannel channel)
+        {
+            this(channel, false);
+        }
+
+        /**
+         * @param channel the server channel
+         * @param local whether accepted channels should be registered to this selector
+         */
+        Acceptor(SelectableChannel channel, boolean local)
         {
             _channel = channel;
+            _local = local;
         }
 
         @Override
@@ -813,7 +905,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                     channel = _selectorManager.doAccept(_channel);
                     if (channel == null)
                         break;
-                    _selectorManager.accepted(channel);
+                    if (_local)
+                        _selectorManager.accepted(_channel, channel, ManagedSelector.this);
+                    else
+                        _selectorManager.accepted(channel);
                 }
             }
             catch (Throwable x)
@@ -847,6 +942,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     class Accept implements SelectorUpdate, Runnable, Closeable
     {
         private final SelectableChannel channel;
+        private final AtomicBoolean registering = new AtomicBoolean(true);
         private final Object attachment;
         private SelectionKey key;
 
@@ -855,6 +951,15 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             this.channel = channel;
             this.attachment = attachment;
             _selectorManager.onAccepting(channel);
+            _registrations.incrementAndGet();
+        }
+
+        private void registered()
+        {
+            // Accepts may be closed or failed without being
+            // registered, but must be counted only once.
+            if (registering.compareAndSet(true, false))
+                _registrations.decrementAndGet();
         }
 
         @Override
@@ -862,12 +967,14 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         {
             if (LOG.isDebugEnabled())
                 LOG.debug("closed accept of {}", channel);
+            registered();
             IO.close(channel);
         }
 
         @Override
         public void update(Selector selector)
         {
+            registered();
             try
             {
                 key = channel.register(selector, 0, attachment);
@@ -898,6 +1005,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
         protected void failed(Throwable failure)
         {
+            registered();
             IO.close(channel);
             if (LOG.isDebugEnabled())
                 LOG.warn("Could not accept {}", channel, failure);
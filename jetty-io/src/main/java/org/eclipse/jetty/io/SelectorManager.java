@@ -25,10 +25,9 @@ import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.EventListener;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.IntUnaryOperator;
 
 import org.eclipse.jetty.util.ProcessorUtils;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
@@ -58,10 +57,9 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     private final Executor executor;
     private final Scheduler scheduler;
     private final ManagedSelector[] _selectors;
-    private final AtomicInteger _selectorIndex = new AtomicInteger();
-    private final IntUnaryOperator _selectorIndexUpdate;
     private final List<AcceptListener> _acceptListeners = new CopyOnWriteArrayList<>();
     private long _connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private SelectorPolicy _selectorPolicy = new SelectorPolicy.RoundRobin();
     private ThreadPoolBudget.Lease _lease;
 
     private static int defaultSelectors(Executor executor)
@@ -93,7 +91,6 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         this.executor = executor;
         this.scheduler = scheduler;
         _selectors = new ManagedSelector[selectors];
-        _selectorIndexUpdate = index -> (index + 1) % _selectors.length;
     }
 
     @ManagedAttribute("The Executor")
@@ -154,7 +151,35 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     // 因为这里只需要发生变化即可，而不要求计算精度，但是现在使用了原子类
     protected ManagedSelector chooseSelector()
     {
-        return _selectors[_selectorIndex.updateAndGet(_selectorIndexUpdate)];
+        return chooseSelector(null);
+    }
+
+    /**
+     * <p>Chooses the selector for the given channel using the {@link #getSelectorPolicy() selector policy}.</p>
+     *
+     * @param channel the channel to register, or null if the channel is not known
+     * @return the selector to register the channel to
+     */
+    protected ManagedSelector chooseSelector(SelectableChannel channel)
+    {
+        return _selectorPolicy.choose(_selectors, channel);
+    }
+
+    /**
+     * @return the policy used to choose the selector that channels are registered to
+     */
+    @ManagedAttribute("The policy used to choose the NIO Selector of a channel")
+    public SelectorPolicy getSelectorPolicy()
+    {
+        return _selectorPolicy;
+    }
+
+    /**
+     * @param selectorPolicy the policy used to choose the selector that channels are registered to
+     */
+    public void setSelectorPolicy(SelectorPolicy selectorPolicy)
+    {
+        _selectorPolicy = Objects.requireNonNull(selectorPolicy);
     }
 
     /**
@@ -169,7 +194,7 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
      */
     public void connect(SelectableChannel channel, Object attachment)
     {
-        ManagedSelector set = chooseSelector();
+        ManagedSelector set = chooseSelector(channel);
         set.submit(set.new Connect(channel, attachment));
     }
 
@@ -196,7 +221,23 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     public void accept(SelectableChannel channel, Object attachment)
     {
         // 在得到所需的 Selector 线程后，将对应的任务提交到 ManagedSelector
-        ManagedSelector selector = chooseSelector();
+        ManagedSelector selector = chooseSelector(channel);
+        selector.submit(selector.new Accept(channel, attachment));
+    }
+
+    /**
+     * <p>Registers a channel to perform non-blocking read/write operations on the given selector.</p>
+     * <p>This method is typically called from {@link #accepted(SelectableChannel, SelectableChannel, ManagedSelector)}
+     * to register an accepted channel on the selector of the server channel that accepted it,
+     * avoiding the handoff of the channel to another selector.</p>
+     *
+     * @param selector the selector to register the channel to
+     * @param channel the channel to register
+     * @param attachment the attachment object
+     * @see #accept(SelectableChannel, Object)
+     */
+    public void accept(ManagedSelector selector, SelectableChannel channel, Object attachment)
+    {
         selector.submit(selector.new Accept(channel, attachment));
     }
 
@@ -217,6 +258,27 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         return acceptor;
     }
 
+    /**
+     * <p>Registers a server channel for accept operations on the selector with the given index.</p>
+     * <p>When a {@link SocketChannel} is accepted from the given {@link ServerSocketChannel}
+     * then the {@link #accepted(SelectableChannel, SelectableChannel, ManagedSelector)} method
+     * is called with the selector the server channel is registered to.</p>
+     * <p>This is typically used with multiple server channels bound to the same address with
+     * {@code SO_REUSEPORT}, one per selector, so that the kernel balances the connections
+     * across the selectors.</p>
+     *
+     * @param server the server channel to register
+     * @param selector the index of the selector, modulo the number of selectors
+     * @return A Closable that allows the acceptor to be cancelled
+     */
+    public Closeable acceptor(SelectableChannel server, int selector)
+    {
+        ManagedSelector managedSelector = _selectors[Math.floorMod(selector, _selectors.length)];
+        ManagedSelector.Acceptor acceptor = managedSelector.new Acceptor(server, true);
+        managedSelector.submit(acceptor);
+        return acceptor;
+    }
+
     /**
      * Callback method when a channel is accepted from the {@link ServerSocketChannel}
      * passed to {@link #acceptor(SelectableChannel)}.
@@ -231,6 +293,22 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * <p>Callback method when a channel is accepted from the {@link ServerSocketChannel}
+     * passed to {@link #acceptor(SelectableChannel, int)}.</p>
+     * <p>The default implementation calls {@link #accepted(SelectableChannel)}.</p>
+     *
+     * @param server the server channel that accepted the channel
+     * @param channel the accepted channel
+     * @param selector the selector the server channel is registered to
+     * @throws IOException if unable to accept channel
+     * @see #accept(ManagedSelector, SelectableChannel, Object)
+     */
+    protected void accepted(SelectableChannel server, SelectableChannel channel, ManagedSelector selector) throws IOException
+    {
+        accepted(channel);
+    }
+
     @Override
     protected void doStart() throws Exception
     {
@@ -0,0 +1,155 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>The policy used by a {@link SelectorManager} to choose the {@link ManagedSelector}
+ * that a channel is registered to.</p>
+ *
+ * @see SelectorManager#setSelectorPolicy(SelectorPolicy)
+ */
+public interface SelectorPolicy
+{
+    /**
+     * <p>Chooses the selector for the given channel.</p>
+     *
+     * @param selectors the selectors, never empty
+     * @param channel the channel to register, or null if the channel is not known
+     * @return the selector chosen among the given selectors
+     */
+    ManagedSelector choose(ManagedSelector[] selectors, SelectableChannel channel);
+
+    /**
+     * <p>Chooses selectors in turn, regardless of the channel or of the selectors load.</p>
+     * <p>This is the default policy.</p>
+     */
+    class RoundRobin implements SelectorPolicy
+    {
+        private final AtomicInteger _index = new AtomicInteger();
+
+        @Override
+        public ManagedSelector choose(ManagedSelector[] selectors, SelectableChannel channel)
+        {
+            return selectors[_index.updateAndGet(index -> (index + 1) % selectors.length)];
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x", getClass().getSimpleName(), hashCode());
+        }
+    }
+
+    /**
+     * <p>Chooses the selector with the least {@link ManagedSelector#getLoad() load},
+     * that is the least registered keys and the least recent selected-key work.</p>
+     * <p>The scan of the selectors starts from a different selector for each choice,
+     * so that selectors with the same load are chosen in turn.</p>
+     */
+    class LeastLoaded implements SelectorPolicy
+    {
+        private final AtomicInteger _index = new AtomicInteger();
+
+        @Override
+        public ManagedSelector choose(ManagedSelector[] selectors, SelectableChannel channel)
+        {
+            int length = selectors.length;
+            int start = _index.updateAndGet(index -> (index + 1) % length);
+            ManagedSelector result = selectors[start];
+            double load = result.getLoad();
+            for (int i = 1; i < length && load > 0; ++i)
+            {
+                ManagedSelector selector = selectors[(start + i) % length];
+                double l = selector.getLoad();
+                if (l < load)
+                {
+                    result = selector;
+                    load = l;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x", getClass().getSimpleName(), hashCode());
+        }
+    }
+
+    /**
+     * <p>Chooses the selector from the hash of the remote IP address of the channel,
+     * so that all the connections from the same remote host are handled by the same selector.</p>
+     * <p>Channels without a remote IP address are assigned by the fallback policy.</p>
+     */
+    class RemoteAddressHash implements SelectorPolicy
+    {
+        private final SelectorPolicy _fallback;
+
+        public RemoteAddressHash()
+        {
+            this(new RoundRobin());
+        }
+
+        /**
+         * @param fallback the policy to use for channels without a remote IP address
+         */
+        public RemoteAddressHash(SelectorPolicy fallback)
+        {
+            _fallback = fallback;
+        }
+
+        @Override
+        public ManagedSelector choose(ManagedSelector[] selectors, SelectableChannel channel)
+        {
+            SocketAddress address = remoteAddress(channel);
+            if (address instanceof InetSocketAddress)
+            {
+                InetSocketAddress inet = (InetSocketAddress)address;
+                int hash = inet.isUnresolved() ? inet.getHostString().hashCode() : inet.getAddress().hashCode();
+                // Spread the bits, as the hash of IPv4 addresses is the address itself.
+                hash *= 0x9E3779B9;
+                return selectors[Math.floorMod(hash ^ (hash >>> 16), selectors.length)];
+            }
+            return _fallback.choose(selectors, channel);
+        }
+
+        private static SocketAddress remoteAddress(SelectableChannel channel)
+        {
+            try
+            {
+                if (channel instanceof SocketChannel)
+                    return ((SocketChannel)channel).getRemoteAddress();
+                return null;
+            }
+            catch (Throwable x)
+            {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x[fallback=%s]", getClass().getSimpleName(), hashCode(), _fallback);
+        }
+    }
+}
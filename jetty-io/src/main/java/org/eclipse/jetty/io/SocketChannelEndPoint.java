@@ -16,10 +16,13 @@ package org.eclipse.jetty.io;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.WritePendingException;
 
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +34,8 @@ public class SocketChannelEndPoint extends SelectableChannelEndPoint
 {
     private static final Logger LOG = LoggerFactory.getLogger(SocketChannelEndPoint.class);
 
+    private volatile FileRegion _fileRegion;
+
     public SocketChannelEndPoint(SocketChannel channel, ManagedSelector selector, SelectionKey key, Scheduler scheduler)
     {
         super(scheduler, channel, selector, key);
@@ -101,9 +106,68 @@ public class SocketChannelEndPoint extends SelectableChannelEndPoint
         return filled;
     }
 
+    /**
+     * @return whether {@link #transfer(Callback, FileChannel, long, long)} writes
+     * the file bytes directly from the file to the socket
+     */
+    public boolean isFileTransferSupported()
+    {
+        return true;
+    }
+
+    /**
+     * <p>Writes a region of a file to this endpoint, using {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * so that, on most operating systems, the file bytes are sent to the socket by the kernel
+     * (for example with {@code sendfile(2)}) without being copied in user space.</p>
+     * <p>The write is performed by the {@link WriteFlusher} of this endpoint, as for
+     * {@link #write(Callback, ByteBuffer...)}, so that the callback is notified
+     * when the whole region has been written, waiting for the socket to be writable
+     * if necessary.</p>
+     *
+     * @param callback the callback to notify when the region has been written
+     * @param file the file to read the bytes from
+     * @param position the position in the file of the first byte to write
+     * @param length the number of bytes to write
+     * @throws WritePendingException if another write operation is concurrent
+     */
+    public void transfer(Callback callback, FileChannel file, long position, long length) throws WritePendingException
+    {
+        if (_fileRegion != null)
+            throw new WritePendingException();
+        _fileRegion = new FileRegion(file, position, length);
+        try
+        {
+            write(new Callback.Nested(callback)
+            {
+                @Override
+                public void succeeded()
+                {
+                    _fileRegion = null;
+                    super.succeeded();
+                }
+
+                @Override
+                public void failed(Throwable x)
+                {
+                    _fileRegion = null;
+                    super.failed(x);
+                }
+            }, BufferUtil.EMPTY_BUFFER);
+        }
+        catch (WritePendingException x)
+        {
+            _fileRegion = null;
+            throw x;
+        }
+    }
+
     @Override
     public boolean flush(ByteBuffer... buffers) throws IOException
     {
+        FileRegion fileRegion = _fileRegion;
+        if (fileRegion != null && !fileRegion.transfer())
+            return false;
+
         long flushed;
         try
         {
@@ -127,4 +191,64 @@ public class SocketChannelEndPoint extends SelectableChannelEndPoint
 
         return true;
     }
+
+    private class FileRegion
+    {
+        private final FileChannel _file;
+        private long _position;
+        private long _remaining;
+
+        private FileRegion(FileChannel file, long position, long length)
+        {
+            _file = file;
+            _position = position;
+            _remaining = length;
+        }
+
+        private boolean transfer() throws IOException
+        {
+            long transferred = 0;
+            try
+            {
+                while (_remaining > 0)
+                {
+                    long written = _file.transferTo(_position, _remaining, getChannel());
+                    if (written == 0)
+                    {
+                        // The socket is congested, or the file was truncated.
+                        if (_position >= _file.size())
+                            throw new EofException("File truncated at " + _position);
+                        break;
+                    }
+                    _position += written;
+                    _remaining -= written;
+                    transferred += written;
+                }
+            }
+            catch (EofException x)
+            {
+                throw x;
+            }
+            catch (IOException x)
+            {
+                throw new EofException(x);
+            }
+            finally
+            {
+                if (transferred > 0)
+                    onTransferred(transferred);
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("transferred {} remaining {} {}", transferred, _remaining, SocketChannelEndPoint.this);
+            return _remaining == 0;
+        }
+
+        private void onTransferred(long transferred) throws IOException
+        {
+            notIdle();
+            Connection connection = getConnection();
+            if (connection instanceof WriteFlusher.Listener)
+                ((WriteFlusher.Listener)connection).onFlushed(transferred);
+        }
+    }
 }
@@ -0,0 +1,64 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io.ssl;
+
+import java.io.IOException;
+import javax.net.ssl.SSLEngine;
+
+import org.eclipse.jetty.io.EndPoint;
+
+/**
+ * <p>Offloads the encryption of the TLS records written by a connection
+ * to the operating system kernel, for example Linux kernel TLS.</p>
+ * <p>After the TLS handshake, {@link SslConnection} calls
+ * {@link #offload(SSLEngine, EndPoint)} to hand over the negotiated
+ * transmit keys and record sequence number to the kernel; if the offload
+ * succeeds, the application bytes are written as they are to the network
+ * {@link EndPoint}, and the kernel encrypts them.
+ * The received TLS records are still decrypted by the {@link SSLEngine}.</p>
+ * <p>The JDK {@link SSLEngine} does not expose the negotiated keys, so
+ * implementations are typically provided, along with a native helper, by
+ * TLS implementations that do, and are discovered via
+ * {@link java.util.ServiceLoader}.
+ * Jetty does not ship an implementation: without one, connections are
+ * encrypted by the {@link SSLEngine} as usual.</p>
+ * <p>Once the encryption is offloaded, file regions can be sent with
+ * {@link SslConnection.DecryptedEndPoint#transfer(org.eclipse.jetty.util.Callback, java.nio.channels.FileChannel, long, long)},
+ * so that the kernel reads, encrypts and sends the file bytes.</p>
+ */
+public interface KernelTls
+{
+    /**
+     * <p>Offloads the encryption of the TLS records written to the given
+     * network endpoint.</p>
+     * <p>Implementations must return {@code false}, and leave the endpoint
+     * untouched, if the protocol, the cipher suite, the kernel or the endpoint
+     * are not supported, so that the {@link SSLEngine} keeps encrypting.</p>
+     *
+     * @param sslEngine the SSLEngine that completed the TLS handshake
+     * @param endPoint the network endpoint
+     * @return whether the encryption has been offloaded to the kernel
+     * @throws IOException if the offload failed after modifying the endpoint
+     */
+    public boolean offload(SSLEngine sslEngine, EndPoint endPoint) throws IOException;
+
+    /**
+     * <p>Sends the TLS {@code close_notify} alert through the kernel,
+     * before the output of the network endpoint is shut down.</p>
+     *
+     * @param endPoint the network endpoint whose encryption has been offloaded
+     * @throws IOException if the alert cannot be sent
+     */
+    public void closeOutbound(EndPoint endPoint) throws IOException;
+}
@@ -46,6 +46,7 @@ public class SslClientConnectionFactory implements ClientConnectionFactory
     private boolean _directBuffersForEncryption = true;
     private boolean _directBuffersForDecryption = true;
     private boolean _requireCloseMessage;
+    private int _maxRecordsPerFlush = 1;
 
     public SslClientConnectionFactory(SslContextFactory sslContextFactory, ByteBufferPool byteBufferPool, Executor executor, ClientConnectionFactory connectionFactory)
     {
@@ -98,6 +99,24 @@ public class SslClientConnectionFactory implements ClientConnectionFactory
         _requireCloseMessage = requireCloseMessage;
     }
 
+    /**
+     * @return the max number of TLS records that are wrapped before being flushed to the network
+     * @see SslConnection#getMaxRecordsPerFlush()
+     */
+    public int getMaxRecordsPerFlush()
+    {
+        return _maxRecordsPerFlush;
+    }
+
+    /**
+     * @param maxRecordsPerFlush the max number of TLS records that are wrapped before being flushed to the network
+     * @see SslConnection#setMaxRecordsPerFlush(int)
+     */
+    public void setMaxRecordsPerFlush(int maxRecordsPerFlush)
+    {
+        _maxRecordsPerFlush = maxRecordsPerFlush;
+    }
+
     @Override
     public org.eclipse.jetty.io.Connection newConnection(EndPoint endPoint, Map<String, Object> context) throws IOException
     {
@@ -144,6 +163,7 @@ public class SslClientConnectionFactory implements ClientConnectionFactory
             sslConnection.setRenegotiationAllowed(sslContextFactory.isRenegotiationAllowed());
             sslConnection.setRenegotiationLimit(sslContextFactory.getRenegotiationLimit());
             sslConnection.setRequireCloseMessage(isRequireCloseMessage());
+            sslConnection.setMaxRecordsPerFlush(getMaxRecordsPerFlush());
             ContainerLifeCycle client = (ContainerLifeCycle)context.get(ClientConnectionFactory.CLIENT_CONTEXT_KEY);
             if (client != null)
                 client.getBeans(SslHandshakeListener.class).forEach(sslConnection::addHandshakeListener);
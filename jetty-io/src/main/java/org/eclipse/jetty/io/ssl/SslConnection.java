@@ -16,9 +16,12 @@ package org.eclipse.jetty.io.ssl;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritePendingException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.ToIntFunction;
@@ -37,6 +40,7 @@ import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.RetainableByteBuffer;
 import org.eclipse.jetty.io.RetainableByteBufferPool;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
 import org.eclipse.jetty.io.WriteFlusher;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
@@ -108,6 +112,8 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     private final List<SslHandshakeListener> handshakeListeners = new ArrayList<>();
     private final AtomicLong _bytesIn = new AtomicLong();
     private final AtomicLong _bytesOut = new AtomicLong();
+    private final AtomicLong _recordsOut = new AtomicLong();
+    private final AtomicLong _recordBytesOut = new AtomicLong();
     private final ByteBufferPool _bufferPool;
     private final RetainableByteBufferPool _retainableByteBufferPool;
     private final SSLEngine _sslEngine;
@@ -121,6 +127,13 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     private int _renegotiationLimit = -1;
     private boolean _closedOutbound;
     private boolean _requireCloseMessage;
+    private int _maxRecordsPerFlush = 1;
+    private KernelTls _kernelTls;
+    private boolean _outputOffloaded;
+    private boolean _offloadAttempted;
+    private ByteBuffer[] _offloadedOutput;
+    private Executor _delegatedTaskExecutor;
+    private boolean _delegatedTaskPending;
     private FlushState _flushState = FlushState.IDLE;
     private FillState _fillState = FillState.IDLE;
     private boolean _underflown;
@@ -278,6 +291,122 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
         _requireCloseMessage = requireCloseMessage;
     }
 
+    /**
+     * @return the max number of TLS records that are wrapped before being flushed to the network
+     */
+    public int getMaxRecordsPerFlush()
+    {
+        return _maxRecordsPerFlush;
+    }
+
+    /**
+     * <p>Sets the max number of TLS records that are wrapped before being flushed to the network.</p>
+     * <p>The {@link SSLEngine} produces one TLS record per wrap, so writing large application
+     * buffers results in one network write per record when this value is {@code 1} (the default).
+     * Larger values gather several records in a larger encrypted buffer that is flushed with a
+     * single network write, at the cost of a larger buffer per writing connection.</p>
+     *
+     * @param maxRecordsPerFlush the max number of TLS records that are wrapped before being flushed
+     */
+    public void setMaxRecordsPerFlush(int maxRecordsPerFlush)
+    {
+        _maxRecordsPerFlush = Math.max(1, maxRecordsPerFlush);
+    }
+
+    /**
+     * @return the executor that runs the {@link SSLEngine} delegated tasks, or null
+     * if they are run by the thread that fills or flushes this connection
+     */
+    public Executor getDelegatedTaskExecutor()
+    {
+        return _delegatedTaskExecutor;
+    }
+
+    /**
+     * <p>Sets the executor that runs the {@link SSLEngine} delegated tasks, such as
+     * the expensive cryptographic operations of the TLS handshake.</p>
+     * <p>While a delegated task runs, this connection neither fills nor flushes,
+     * and it resumes the pending fill or flush when the task completes, so that
+     * the thread handling the I/O for this connection is not blocked.
+     * A bounded executor limits the number of concurrent handshakes; if it rejects
+     * a task, the task is run by the thread that fills or flushes this connection.</p>
+     *
+     * @param executor the executor that runs the delegated tasks, or null to run
+     * them by the thread that fills or flushes this connection
+     */
+    public void setDelegatedTaskExecutor(Executor executor)
+    {
+        _delegatedTaskExecutor = executor;
+    }
+
+    /**
+     * @return the kernel TLS implementation used to offload the encryption, or null
+     */
+    public KernelTls getKernelTls()
+    {
+        return _kernelTls;
+    }
+
+    /**
+     * <p>Sets the kernel TLS implementation used to offload the encryption of the
+     * TLS records written by this connection, once the TLS handshake is complete.</p>
+     * <p>If the offload is not possible, the {@link SSLEngine} keeps encrypting.
+     * Once the encryption is offloaded, the connection cannot handshake again,
+     * so renegotiations and TLS 1.3 key updates requested by the peer fail.</p>
+     *
+     * @param kernelTls the kernel TLS implementation, or null to not offload the encryption
+     */
+    public void setKernelTls(KernelTls kernelTls)
+    {
+        _kernelTls = kernelTls;
+    }
+
+    /**
+     * @return whether the encryption of the TLS records written by this connection is offloaded to the kernel
+     * @see #setKernelTls(KernelTls)
+     */
+    public boolean isOutputOffloaded()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _outputOffloaded;
+        }
+    }
+
+    /**
+     * @return the number of TLS records carrying application data written by this connection
+     */
+    public long getRecordsOut()
+    {
+        return _recordsOut.get();
+    }
+
+    /**
+     * @return the number of application bytes wrapped in the TLS records written by this connection
+     */
+    public long getRecordBytesOut()
+    {
+        return _recordBytesOut.get();
+    }
+
+    /**
+     * @return the average number of application bytes per TLS record written by this connection
+     */
+    public double getAverageRecordSize()
+    {
+        long records = getRecordsOut();
+        return records == 0 ? 0 : (double)getRecordBytesOut() / records;
+    }
+
+    /**
+     * @return the average number of TLS records written per second since this connection was created
+     */
+    public double getRecordsOutRate()
+    {
+        long elapsed = System.currentTimeMillis() - getCreatedTimeStamp();
+        return elapsed <= 0 ? 0 : getRecordsOut() * 1000.0 / elapsed;
+    }
+
     private boolean isHandshakeInitial()
     {
         return _handshake.get() == HandshakeState.INITIAL;
@@ -324,7 +453,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     private void acquireEncryptedOutput()
     {
         if (_encryptedOutput == null)
-            _encryptedOutput = _bufferPool.acquire(getPacketBufferSize(), _encryptedDirectBuffers);
+            _encryptedOutput = _bufferPool.acquire(getPacketBufferSize() * _maxRecordsPerFlush, _encryptedDirectBuffers);
     }
 
     @Override
@@ -626,8 +755,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                                     break;
 
                                 case NEED_TASK:
-                                    _sslEngine.getDelegatedTask().run();
-                                    continue;
+                                    if (runDelegatedTask())
+                                        continue;
+                                    return filled = 0;
 
                                 case NEED_WRAP:
                                     if (_flushState == FlushState.IDLE && flush(BufferUtil.EMPTY_BUFFER))
@@ -853,8 +983,8 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                     switch (status)
                     {
                         case NEED_TASK:
-                            // Pretend we are fillable
-                            fillable = true;
+                            // Pretend we are fillable, unless the task completion resumes the fill.
+                            fillable = !_delegatedTaskPending;
                             break;
 
                         case NEED_UNWRAP:
@@ -907,6 +1037,76 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             }
         }
 
+        /**
+         * @return whether the delegated task has been run, or false if it is running asynchronously
+         */
+        private boolean runDelegatedTask()
+        {
+            if (_delegatedTaskPending)
+                return false;
+            Runnable task = _sslEngine.getDelegatedTask();
+            Executor executor = _delegatedTaskExecutor;
+            if (executor == null)
+            {
+                task.run();
+                return true;
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("delegating {} {}", task, SslConnection.this);
+            _delegatedTaskPending = true;
+            try
+            {
+                executor.execute(() ->
+                {
+                    try
+                    {
+                        task.run();
+                    }
+                    finally
+                    {
+                        onDelegatedTaskCompleted();
+                    }
+                });
+                return !_delegatedTaskPending;
+            }
+            catch (RejectedExecutionException x)
+            {
+                LOG.trace("IGNORED", x);
+                _delegatedTaskPending = false;
+                task.run();
+                return true;
+            }
+        }
+
+        private void onDelegatedTaskCompleted()
+        {
+            boolean fillPending;
+            boolean flushPending;
+            try (AutoLock l = _lock.lock())
+            {
+                _delegatedTaskPending = false;
+                fillPending = getFillInterest().isInterested();
+                flushPending = _flushState == FlushState.WAIT_FOR_FILL;
+                if (flushPending)
+                    _flushState = FlushState.IDLE;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("delegated task completed fill={} flush={} {}", fillPending, flushPending, SslConnection.this);
+            }
+
+            // Resume the fill and the flush that were waiting for the task.
+            if (fillPending || flushPending)
+            {
+                getExecutor().execute(() ->
+                {
+                    if (fillPending)
+                        getFillInterest().fillable();
+                    if (flushPending)
+                        getWriteFlusher().completeWrite();
+                });
+            }
+        }
+
         private void handshakeSucceeded() throws SSLException
         {
             if (_handshake.compareAndSet(HandshakeState.HANDSHAKE, HandshakeState.SUCCEEDED))
@@ -1011,6 +1211,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                         if (_flushState != FlushState.IDLE)
                             return result = false;
 
+                        if (offloadOutput())
+                            return result = flushOffloaded(appOuts);
+
                         // Keep going while we can make progress or until we are done
                         while (true)
                         {
@@ -1024,8 +1227,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                                     break;
 
                                 case NEED_TASK:
-                                    _sslEngine.getDelegatedTask().run();
-                                    continue;
+                                    if (runDelegatedTask())
+                                        continue;
+                                    return result = false;
 
                                 case NEED_UNWRAP:
                                     // Workaround for Java 11 behavior.
@@ -1074,9 +1278,22 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                                     _sslEngine.isInboundDone(),
                                     _sslEngine.isOutboundDone());
 
+                            if (wrapResult.bytesConsumed() > 0)
+                            {
+                                _recordsOut.incrementAndGet();
+                                _recordBytesOut.addAndGet(wrapResult.bytesConsumed());
+                            }
+
                             // Was all the data consumed?
                             isEmpty = BufferUtil.isEmpty(appOuts);
 
+                            // Wrap more records before flushing, if there is room for them.
+                            if (!isEmpty && _maxRecordsPerFlush > 1 &&
+                                wrapResult.getStatus() == Status.OK &&
+                                wrapResult.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING &&
+                                BufferUtil.space(_encryptedOutput) >= packetBufferSize)
+                                continue;
+
                             // if we have net bytes, let's try to flush them
                             boolean flushed = true;
                             if (_encryptedOutput != null)
@@ -1179,6 +1396,153 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             }
         }
 
+        private boolean offloadOutput() throws IOException
+        {
+            if (_outputOffloaded || _offloadAttempted || _kernelTls == null || !isHandshakeSucceeded())
+                return _outputOffloaded;
+            // Offload only once all the records produced by the SSLEngine have been written,
+            // so that the kernel continues from the SSLEngine record sequence number.
+            if (_closedOutbound || _sslEngine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING)
+                return false;
+            if (BufferUtil.hasContent(_encryptedOutput))
+                return false;
+            _offloadAttempted = true;
+            _outputOffloaded = _kernelTls.offload(_sslEngine, getEndPoint());
+            if (LOG.isDebugEnabled())
+                LOG.debug("offloaded={} {} {}", _outputOffloaded, _kernelTls, SslConnection.this);
+            return _outputOffloaded;
+        }
+
+        private boolean flushOffloaded(ByteBuffer[] appOuts) throws IOException
+        {
+            EndPoint endPoint = getEndPoint();
+            _offloadedOutput = null;
+            if (_closedOutbound)
+            {
+                if (!endPoint.isOutputShutdown())
+                {
+                    _kernelTls.closeOutbound(endPoint);
+                    endPoint.shutdownOutput();
+                }
+                return BufferUtil.isEmpty(appOuts);
+            }
+
+            if (_sslEngine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING)
+                throw new SSLException("Cannot handshake after offloading the TLS encryption");
+
+            // The kernel encrypts the application bytes.
+            long remaining = BufferUtil.remaining(appOuts);
+            boolean flushed = endPoint.flush(appOuts);
+            long written = remaining - BufferUtil.remaining(appOuts);
+            if (written > 0)
+                _bytesOut.addAndGet(written);
+            if (!flushed)
+                _offloadedOutput = appOuts;
+            return flushed;
+        }
+
+        /**
+         * <p>Returns whether {@link #transfer(Callback, FileChannel, long, long)} can be used,
+         * which is the case when a {@link KernelTls} is configured, its offload has not been
+         * refused, and the network endpoint supports file transfers.</p>
+         * <p>This method does not offload the encryption, which is done by the first transfer
+         * or write after the TLS handshake.</p>
+         *
+         * @return whether file regions can be transferred to this endpoint
+         * @see SocketChannelEndPoint#isFileTransferSupported()
+         */
+        public boolean isFileTransferSupported()
+        {
+            try (AutoLock l = _lock.lock())
+            {
+                EndPoint endPoint = getEndPoint();
+                if (!(endPoint instanceof SocketChannelEndPoint) || !((SocketChannelEndPoint)endPoint).isFileTransferSupported())
+                    return false;
+                if (_kernelTls == null || _closedOutbound)
+                    return false;
+                return _outputOffloaded || !_offloadAttempted && isHandshakeSucceeded();
+            }
+        }
+
+        /**
+         * <p>Writes a region of a file to the network endpoint with
+         * {@link SocketChannelEndPoint#transfer(Callback, FileChannel, long, long)}, so that
+         * the file bytes are encrypted and sent by the kernel without being copied in user space.</p>
+         * <p>The encryption is offloaded to the {@link KernelTls} before the first transfer;
+         * if it cannot be offloaded, the callback is failed.</p>
+         * <p>The writes to this endpoint wait for the transfer to complete.</p>
+         *
+         * @param callback the callback to notify when the region has been written
+         * @param file the file to read the bytes from
+         * @param position the position in the file of the first byte to write
+         * @param length the number of bytes to write
+         * @throws WritePendingException if another write operation is concurrent
+         * @see #isFileTransferSupported()
+         */
+        public void transfer(Callback callback, FileChannel file, long position, long length) throws WritePendingException
+        {
+            SocketChannelEndPoint endPoint = null;
+            Throwable failure = null;
+            try (AutoLock l = _lock.lock())
+            {
+                if (_flushState != FlushState.IDLE || getWriteFlusher().isPending())
+                    throw new WritePendingException();
+                if (_closedOutbound || !(getEndPoint() instanceof SocketChannelEndPoint) || !offloadOutput())
+                {
+                    failure = new IllegalStateException("TLS encryption not offloaded " + SslConnection.this);
+                }
+                else
+                {
+                    endPoint = (SocketChannelEndPoint)getEndPoint();
+                    _flushState = FlushState.WRITING;
+                }
+            }
+            catch (IOException x)
+            {
+                failure = x;
+            }
+
+            if (failure != null)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("transfer failed {}", SslConnection.this, failure);
+                callback.failed(failure);
+                return;
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("transfer {} {} {}", position, length, SslConnection.this);
+            try
+            {
+                endPoint.transfer(new Callback.Nested(callback)
+                {
+                    @Override
+                    public void succeeded()
+                    {
+                        _bytesOut.addAndGet(length);
+                        // Resume the fills and the writes waiting for the transfer.
+                        _incompleteWriteCallback.succeeded();
+                        super.succeeded();
+                    }
+
+                    @Override
+                    public void failed(Throwable x)
+                    {
+                        _incompleteWriteCallback.failed(x);
+                        super.failed(x);
+                    }
+                }, file, position, length);
+            }
+            catch (WritePendingException x)
+            {
+                try (AutoLock l = _lock.lock())
+                {
+                    _flushState = FlushState.IDLE;
+                }
+                throw x;
+            }
+        }
+
         @Override
         protected void onIncompleteFlush()
         {
@@ -1186,6 +1550,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             {
                 boolean fillInterest = false;
                 ByteBuffer write = null;
+                ByteBuffer[] offloaded = null;
                 try (AutoLock l = _lock.lock())
                 {
                     if (LOG.isDebugEnabled())
@@ -1194,12 +1559,31 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                     if (_flushState != FlushState.IDLE)
                         return;
 
-                    while (true)
+                    // Write the application bytes that the kernel encrypts.
+                    if (_outputOffloaded)
+                    {
+                        offloaded = _offloadedOutput == null ? new ByteBuffer[]{BufferUtil.EMPTY_BUFFER} : _offloadedOutput;
+                        _offloadedOutput = null;
+                        _flushState = FlushState.WRITING;
+                    }
+
+                    while (offloaded == null)
                     {
                         HandshakeStatus status = _sslEngine.getHandshakeStatus();
                         switch (status)
                         {
                             case NEED_TASK:
+                                if (_delegatedTaskPending)
+                                {
+                                    // The task completion resumes the flush.
+                                    _flushState = FlushState.WAIT_FOR_FILL;
+                                    break;
+                                }
+                                // Run the task from flush.
+                                write = BufferUtil.EMPTY_BUFFER;
+                                _flushState = FlushState.WRITING;
+                                break;
+
                             case NEED_WRAP:
                             case NOT_HANDSHAKING:
                                 // write what we have or an empty buffer to reschedule a call to flush
@@ -1258,7 +1642,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                         LOG.debug("<onIncompleteFlush s={}/{} fi={} w={}", _flushState, _fillState, fillInterest, BufferUtil.toDetailString(write));
                 }
 
-                if (write != null)
+                if (offloaded != null)
+                    getEndPoint().write(_incompleteWriteCallback, offloaded);
+                else if (write != null)
                     getEndPoint().write(_incompleteWriteCallback, write);
                 else if (fillInterest)
                     ensureFillInterested();
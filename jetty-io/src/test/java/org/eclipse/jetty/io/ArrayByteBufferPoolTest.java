@@ -17,6 +17,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.io.ByteBufferPool.Bucket;
 import org.eclipse.jetty.util.StringUtil;
@@ -24,8 +25,10 @@ import org.junit.jupiter.api.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -164,6 +167,89 @@ public class ArrayByteBufferPoolTest
         assertEquals(0, bufferPool.getHeapByteBufferCount());
     }
 
+    @Test
+    public void testSweepReclaimsIdleBuckets() throws Exception
+    {
+        ArrayByteBufferPool bufferPool = new ArrayByteBufferPool(10, 100, 1000);
+        bufferPool.setIdleTimeout(1);
+
+        ByteBuffer[] buffers = new ByteBuffer[10];
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = bufferPool.acquire(100, true);
+        }
+        for (ByteBuffer buffer : buffers)
+        {
+            bufferPool.release(buffer);
+        }
+        assertThat(bufferPool.getDirectMemory(), is(1000L));
+        assertThat(bufferPool.getDirectHighWaterMarks()[1], is(10));
+
+        Thread.sleep(10);
+        bufferPool.sweep();
+
+        assertThat(bufferPool.getDirectMemory(), is(0L));
+        assertThat(bufferPool.getDirectByteBufferCount(), is(0L));
+        assertThat(bufferPool.getReclaimedDirectMemory(), is(1000L));
+    }
+
+    @Test
+    public void testSweepRetainsSmoothedDemand()
+    {
+        ArrayByteBufferPool bufferPool = new ArrayByteBufferPool(10, 100, 1000);
+        bufferPool.setIdleTimeout(TimeUnit.HOURS.toMillis(1));
+
+        ByteBuffer[] buffers = new ByteBuffer[10];
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = bufferPool.acquire(100, false);
+        }
+        for (ByteBuffer buffer : buffers)
+        {
+            bufferPool.release(buffer);
+        }
+        assertThat(bufferPool.getHeapByteBufferCount(), is(10L));
+
+        // The demand decays over successive sweeps, and so do the retained buffers.
+        bufferPool.sweep();
+        long retained = bufferPool.getHeapByteBufferCount();
+        assertThat(retained, lessThan(10L));
+        assertThat(retained, greaterThan(0L));
+        for (int i = 0; i < 20; i++)
+        {
+            bufferPool.sweep();
+        }
+        assertThat(bufferPool.getHeapByteBufferCount(), is(0L));
+        assertThat(bufferPool.getReclaimedHeapMemory(), is(1000L));
+        assertThat(bufferPool.getHeapHighWaterMarks()[1], is(10));
+    }
+
+    @Test
+    public void testStartedPoolSweepsIdleBuckets() throws Exception
+    {
+        ArrayByteBufferPool bufferPool = new ArrayByteBufferPool(10, 100, 1000);
+        bufferPool.setIdleTimeout(10);
+        bufferPool.start();
+        try
+        {
+            ByteBuffer buffer = bufferPool.acquire(100, true);
+            bufferPool.release(buffer);
+            assertThat(bufferPool.getDirectByteBufferCount(), is(1L));
+
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (bufferPool.getDirectByteBufferCount() > 0 && System.nanoTime() < end)
+            {
+                Thread.sleep(10);
+            }
+            assertThat(bufferPool.getDirectByteBufferCount(), is(0L));
+            assertThat(bufferPool.getReclaimedDirectMemory(), is(100L));
+        }
+        finally
+        {
+            bufferPool.stop();
+        }
+    }
+
     @Test
     public void testMaxQueue()
     {
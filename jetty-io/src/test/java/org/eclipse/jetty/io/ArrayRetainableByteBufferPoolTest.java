@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
@@ -351,6 +352,148 @@ public class ArrayRetainableByteBufferPoolTest
         assertThat(pool.dump(), containsString("]{capacity=4,inuse=3(75%)"));
     }
 
+    @Test
+    public void testMagazines()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 20, Integer.MAX_VALUE, -1L, -1L, 4);
+
+        List<RetainableByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            buffers.add(pool.acquire(10, true));
+        }
+        assertThat(pool.getMagazineMisses(), is(10L));
+        assertThat(pool.getDirectByteBufferCount(), is(10L));
+
+        // Releasing more buffers than a magazine can hold spills them back to the bucket.
+        buffers.forEach(RetainableByteBuffer::release);
+        assertThat(pool.getMagazineSpills(), greaterThan(0L));
+        assertThat(pool.getAvailableDirectByteBufferCount(), is(10L));
+        assertThat(pool.getAvailableDirectMemory(), is(100L));
+
+        // Acquire/release pairs are served by the magazine without allocating.
+        for (int i = 0; i < 100; i++)
+        {
+            RetainableByteBuffer buffer = pool.acquire(10, true);
+            assertThat(buffer.capacity(), is(10));
+            assertThat(buffer.release(), is(true));
+        }
+        assertThat(pool.getMagazineHits(), is(100L));
+        assertThat(pool.getDirectByteBufferCount(), is(10L));
+        assertThat(pool.dump(), containsString("magazines="));
+
+        pool.clear();
+        assertThat(pool.getDirectByteBufferCount(), is(0L));
+        assertThat(pool.getAvailableDirectByteBufferCount(), is(0L));
+        assertThat(pool.getDirectMemory(), is(0L));
+    }
+
+    @Test
+    public void testMagazinesEviction()
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 20, Integer.MAX_VALUE, 40, 40, 4);
+
+        List<RetainableByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            buffers.add(pool.acquire(10 + 10 * (i % 2), true));
+            assertThat(pool.getDirectMemory(), lessThanOrEqualTo(40L));
+        }
+        buffers.forEach(RetainableByteBuffer::release);
+
+        assertThat(pool.getDirectMemory(), lessThanOrEqualTo(40L));
+        assertThat(pool.getAvailableDirectByteBufferCount(), greaterThan(0L));
+        RetainableByteBuffer buffer = pool.acquire(20, true);
+        assertThat(buffer.capacity(), is(20));
+        buffer.release();
+    }
+
+    @Test
+    public void testSweepReclaimsIdleBuffers() throws Exception
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 20, Integer.MAX_VALUE);
+        pool.setIdleTimeout(1);
+
+        List<RetainableByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            buffers.add(pool.acquire(10, true));
+        }
+        // Buffers in use are never reclaimed.
+        pool.sweep();
+        assertThat(pool.getDirectByteBufferCount(), is(4L));
+        assertThat(pool.getDirectHighWaterMarks()[0], is(4));
+
+        buffers.forEach(RetainableByteBuffer::release);
+        Thread.sleep(10);
+
+        // The smoothed demand retains one buffer.
+        pool.sweep();
+        assertThat(pool.getDirectByteBufferCount(), is(1L));
+        assertThat(pool.getDirectMemory(), is(10L));
+        assertThat(pool.getReclaimedDirectMemory(), is(30L));
+
+        for (int i = 0; i < 10; i++)
+        {
+            pool.sweep();
+        }
+        assertThat(pool.getDirectByteBufferCount(), is(0L));
+        assertThat(pool.getDirectMemory(), is(0L));
+        assertThat(pool.getReclaimedDirectMemory(), is(40L));
+    }
+
+    @Test
+    public void testSweepKeepsRecentlyUsedMagazineBuffers() throws Exception
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 20, Integer.MAX_VALUE, -1L, -1L, 4);
+        pool.setIdleTimeout(TimeUnit.HOURS.toMillis(1));
+
+        RetainableByteBuffer buffer = pool.acquire(10, true);
+        buffer.release();
+        pool.sweep();
+
+        // The buffer is not idle, so it stays in the magazine.
+        assertThat(pool.getMagazineSpills(), is(0L));
+        pool.acquire(10, true).release();
+        assertThat(pool.getMagazineHits(), is(1L));
+
+        pool.setIdleTimeout(1);
+        Thread.sleep(10);
+        pool.sweep();
+        assertThat(pool.getMagazineSpills(), is(1L));
+        assertThat(pool.getDirectByteBufferCount(), is(0L));
+    }
+
+    @Test
+    public void testStartedPoolSweepsIdleBuffers() throws Exception
+    {
+        ArrayRetainableByteBufferPool pool = new ArrayRetainableByteBufferPool(0, 10, 20, Integer.MAX_VALUE);
+        pool.setIdleTimeout(10);
+        pool.start();
+        try
+        {
+            List<RetainableByteBuffer> buffers = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+            {
+                buffers.add(pool.acquire(10, true));
+            }
+            buffers.forEach(RetainableByteBuffer::release);
+            assertThat(pool.getDirectByteBufferCount(), is(4L));
+
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pool.getDirectByteBufferCount() > 0 && System.nanoTime() < end)
+            {
+                Thread.sleep(10);
+            }
+            assertThat(pool.getDirectByteBufferCount(), is(0L));
+            assertThat(pool.getReclaimedDirectMemory(), is(40L));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+
     /**
      * A variant of the {@link ArrayRetainableByteBufferPool} that
      * uses buckets of buffers that increase in size by a power of
@@ -20,6 +20,8 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -30,6 +32,10 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -152,4 +158,101 @@ public class SelectorManagerTest
             selectorManager.stop();
         }
     }
+
+    @Test
+    public void testLeastLoadedSelectorPolicy()
+    {
+        SelectorManager selectorManager = newSelectorManager();
+        double[] loads = {2, 1, 3};
+        ManagedSelector[] selectors = new ManagedSelector[loads.length];
+        for (int i = 0; i < selectors.length; ++i)
+        {
+            int index = i;
+            selectors[i] = new ManagedSelector(selectorManager, i)
+            {
+                @Override
+                public double getLoad()
+                {
+                    return loads[index];
+                }
+            };
+        }
+
+        SelectorPolicy policy = new SelectorPolicy.LeastLoaded();
+        for (int i = 0; i < 2 * selectors.length; ++i)
+        {
+            assertThat(policy.choose(selectors, null), sameInstance(selectors[1]));
+        }
+
+        // Selectors with the same load are chosen in turn.
+        loads[1] = 2;
+        loads[2] = 2;
+        Set<ManagedSelector> chosen = new HashSet<>();
+        for (int i = 0; i < selectors.length; ++i)
+        {
+            chosen.add(policy.choose(selectors, null));
+        }
+        assertThat(chosen.size(), is(selectors.length));
+    }
+
+    @Test
+    public void testFailedAcceptDoesNotLeakLoad() throws Exception
+    {
+        SelectorManager selectorManager = newSelectorManager();
+        ManagedSelector selector = new ManagedSelector(selectorManager, 0);
+
+        ManagedSelector.Accept accept = selector.new Accept(SocketChannel.open(), null);
+        assertThat(selector.getLoad(), is(1.0));
+
+        // An accept closed before being registered, for example because
+        // the selector has been stopped, must not count as load anymore.
+        accept.close();
+        assertThat(selector.getLoad(), is(0.0));
+        accept.failed(new IOException());
+        assertThat(selector.getLoad(), is(0.0));
+    }
+
+    @Test
+    public void testRemoteAddressHashSelectorPolicy() throws Exception
+    {
+        SelectorManager selectorManager = newSelectorManager();
+        ManagedSelector[] selectors = new ManagedSelector[7];
+        for (int i = 0; i < selectors.length; ++i)
+        {
+            selectors[i] = new ManagedSelector(selectorManager, i);
+        }
+
+        SelectorPolicy policy = new SelectorPolicy.RemoteAddressHash();
+        try (ServerSocketChannel server = ServerSocketChannel.open())
+        {
+            server.bind(new InetSocketAddress("localhost", 0));
+            try (SocketChannel client1 = SocketChannel.open(server.getLocalAddress());
+                 SocketChannel client2 = SocketChannel.open(server.getLocalAddress()))
+            {
+                // Connections from the same remote host stick to the same selector.
+                assertThat(policy.choose(selectors, client1), sameInstance(policy.choose(selectors, client2)));
+            }
+        }
+
+        // Channels without remote address fall back to round-robin.
+        assertThat(policy.choose(selectors, null), not(sameInstance(policy.choose(selectors, null))));
+    }
+
+    private SelectorManager newSelectorManager()
+    {
+        return new SelectorManager(executor, scheduler)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
 }
@@ -22,11 +22,17 @@ import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
@@ -61,6 +67,7 @@ import org.slf4j.LoggerFactory;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -229,6 +236,55 @@ public class SocketChannelEndPointTest
         }
     }
 
+    @Test
+    public void testTransferFile() throws Exception
+    {
+        init(new NormalScenario());
+
+        // Larger than the socket buffers, so that the transfer is incomplete until the client reads.
+        byte[] bytes = new byte[8 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        Path path = Files.createTempFile("transfer", ".bin");
+        try (Socket client = _scenario.newClient(_connector);
+             SocketChannel server = _connector.accept();
+             FileChannel file = FileChannel.open(Files.write(path, bytes), StandardOpenOption.READ))
+        {
+            client.setSoTimeout(10000);
+            server.configureBlocking(false);
+            _manager.accept(server);
+            assertTrue(_lastEndPointLatch.await(5, TimeUnit.SECONDS));
+            SocketChannelEndPoint endPoint = (SocketChannelEndPoint)_lastEndPoint;
+            assertTrue(endPoint.isFileTransferSupported());
+
+            int position = 1024;
+            int length = bytes.length - 2 * position;
+            FutureCallback callback = new FutureCallback();
+            endPoint.transfer(callback, file, position, length);
+
+            byte[] received = new byte[length];
+            InputStream input = client.getInputStream();
+            int read = 0;
+            while (read < length)
+            {
+                int r = input.read(received, read, length - read);
+                assertThat(r, greaterThan(0));
+                read += r;
+            }
+            callback.get(5, TimeUnit.SECONDS);
+            assertArrayEquals(Arrays.copyOfRange(bytes, position, position + length), received);
+            assertTrue(endPoint.getWriteFlusher().isIdle());
+
+            // Regular writes work after the transfer.
+            endPoint.write(Callback.NOOP, BufferUtil.toBuffer("OK"));
+            assertEquals('O', input.read());
+            assertEquals('K', input.read());
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("scenarios")
     public void testReadBlocked(Scenario scenario) throws Exception
@@ -20,12 +20,20 @@ import java.io.InputStreamReader;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -33,6 +41,7 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSocket;
 
+import org.eclipse.jetty.io.ssl.KernelTls;
 import org.eclipse.jetty.io.ssl.SslConnection;
 import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
 import org.eclipse.jetty.util.BufferUtil;
@@ -48,8 +57,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -65,6 +76,10 @@ public class SslConnectionTest
     protected volatile EndPoint _lastEndp;
     private volatile boolean _testFill = true;
     private volatile boolean _onXWriteThenShutdown = false;
+    private volatile int _maxRecordsPerFlush = 1;
+    private volatile KernelTls _kernelTls;
+    private volatile Executor _delegatedTaskExecutor;
+    private volatile SslConnection _lastSslConnection;
 
     private volatile FutureCallback _writeCallback;
     protected ServerSocketChannel _connector;
@@ -89,6 +104,10 @@ public class SslConnectionTest
             SslConnection sslConnection = new SslConnection(__byteBufferPool, getExecutor(), endpoint, engine);
             sslConnection.setRenegotiationAllowed(_sslCtxFactory.isRenegotiationAllowed());
             sslConnection.setRenegotiationLimit(_sslCtxFactory.getRenegotiationLimit());
+            sslConnection.setMaxRecordsPerFlush(_maxRecordsPerFlush);
+            sslConnection.setKernelTls(_kernelTls);
+            sslConnection.setDelegatedTaskExecutor(_delegatedTaskExecutor);
+            _lastSslConnection = sslConnection;
             Connection appConnection = new TestConnection(sslConnection.getDecryptedEndPoint());
             sslConnection.getDecryptedEndPoint().setConnection(appConnection);
             return sslConnection;
@@ -107,6 +126,7 @@ public class SslConnectionTest
     static final AtomicInteger __startBlocking = new AtomicInteger();
     static final AtomicInteger __blockFor = new AtomicInteger();
     static final AtomicBoolean __onIncompleteFlush = new AtomicBoolean();
+    static final AtomicInteger __flushes = new AtomicInteger();
 
     private static class TestEP extends SocketChannelEndPoint
     {
@@ -125,6 +145,7 @@ public class SslConnectionTest
         public boolean flush(ByteBuffer... buffers) throws IOException
         {
             __onIncompleteFlush.set(false);
+            __flushes.incrementAndGet();
             if (__startBlocking.get() == 0 || __startBlocking.decrementAndGet() == 0)
             {
                 if (__blockFor.get() > 0 && __blockFor.getAndDecrement() > 0)
@@ -298,6 +319,406 @@ public class SslConnectionTest
         }
     }
 
+    @Test
+    public void testSmallWritesGatheredInOneRecord() throws Exception
+    {
+        startSSL();
+        try (Socket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[1024];
+                int len = client.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+
+                SslConnection sslConnection = _lastSslConnection;
+                SslConnection.DecryptedEndPoint endPoint = sslConnection.getDecryptedEndPoint();
+                // Wait for the echo write to complete.
+                while (!endPoint.getWriteFlusher().isIdle())
+                {
+                    Thread.sleep(1);
+                }
+
+                // Each small write is wrapped in its own record.
+                int writes = 8;
+                long records = sslConnection.getRecordsOut();
+                for (int i = 0; i < writes; ++i)
+                {
+                    FutureCallback callback = new FutureCallback();
+                    endPoint.write(callback, BufferUtil.toBuffer("chunk" + i));
+                    callback.get(5, TimeUnit.SECONDS);
+                }
+                assertEquals(records + writes, sslConnection.getRecordsOut());
+                readFully(client, buffer, writes * 6);
+
+                // The same small buffers gathered in one write are wrapped in a single record.
+                records = sslConnection.getRecordsOut();
+                ByteBuffer[] buffers = new ByteBuffer[writes];
+                for (int i = 0; i < writes; ++i)
+                {
+                    buffers[i] = BufferUtil.toBuffer("chunk" + i);
+                }
+                FutureCallback callback = new FutureCallback();
+                endPoint.write(callback, buffers);
+                callback.get(5, TimeUnit.SECONDS);
+                assertEquals(records + 1, sslConnection.getRecordsOut());
+                assertEquals("chunk0chunk1chunk2chunk3chunk4chunk5chunk6chunk7", readFully(client, buffer, writes * 6));
+            }
+        }
+    }
+
+    private static String readFully(Socket client, byte[] buffer, int length) throws IOException
+    {
+        int received = 0;
+        while (received < length)
+        {
+            int read = client.getInputStream().read(buffer, received, length - received);
+            if (read < 0)
+                break;
+            received += read;
+        }
+        return new String(buffer, 0, received, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testRecordsBatchedInOneFlush() throws Exception
+    {
+        _maxRecordsPerFlush = 4;
+        startSSL();
+        try (Socket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[64 * 1024];
+                int len = client.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+
+                SslConnection sslConnection = _lastSslConnection;
+                // Wait for the echo write to complete.
+                while (!sslConnection.getDecryptedEndPoint().getWriteFlusher().isIdle())
+                {
+                    Thread.sleep(1);
+                }
+                long records = sslConnection.getRecordsOut();
+                int length = 64 * 1024;
+                __flushes.set(0);
+                FutureCallback callback = new FutureCallback();
+                sslConnection.getDecryptedEndPoint().write(callback, ByteBuffer.allocate(length));
+
+                int received = 0;
+                while (received < length)
+                {
+                    received += client.getInputStream().read(buffer);
+                }
+                callback.get(5, TimeUnit.SECONDS);
+                assertEquals(length, received);
+                long written = sslConnection.getRecordsOut() - records;
+                assertThat(written >= 4, is(true));
+                // Several records are flushed with each network write.
+                assertThat(__flushes.get() < written, is(true));
+            }
+        }
+    }
+
+    @Test
+    public void testDelegatedTasksOnExecutor() throws Exception
+    {
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        _delegatedTaskExecutor = task ->
+        {
+            tasks.incrementAndGet();
+            executor.execute(task);
+        };
+        startSSL();
+        try (Socket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[1024];
+                int len = client.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+                assertTrue(tasks.get() > 0);
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testKernelTlsOffload() throws Exception
+    {
+        AtomicInteger offloads = new AtomicInteger();
+        _kernelTls = new KernelTls()
+        {
+            @Override
+            public boolean offload(SSLEngine sslEngine, EndPoint endPoint)
+            {
+                offloads.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public void closeOutbound(EndPoint endPoint)
+            {
+            }
+        };
+        startSSL();
+        try (Socket socket = new Socket())
+        {
+            socket.connect(_connector.socket().getLocalSocketAddress());
+            socket.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                SSLSocket client = (SSLSocket)_sslCtxFactory.getSslContext().getSocketFactory()
+                    .createSocket(socket, "localhost", socket.getPort(), false);
+                // With TLS 1.2 no TLS records follow the handshake.
+                client.setEnabledProtocols(new String[]{"TLSv1.2"});
+                client.startHandshake();
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+
+                // The kernel would encrypt the echo, here it is received as it is.
+                byte[] buffer = new byte[1024];
+                int len = socket.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+                assertTrue(_lastSslConnection.isOutputOffloaded());
+                assertEquals(1, offloads.get());
+            }
+        }
+    }
+
+    @Test
+    public void testKernelTlsFileTransfer() throws Exception
+    {
+        _kernelTls = new KernelTls()
+        {
+            @Override
+            public boolean offload(SSLEngine sslEngine, EndPoint endPoint)
+            {
+                return true;
+            }
+
+            @Override
+            public void closeOutbound(EndPoint endPoint)
+            {
+            }
+        };
+        Path file = Files.createTempFile("kernel-tls", ".txt");
+        try (Socket socket = new Socket())
+        {
+            Files.writeString(file, "0123456789");
+            startSSL();
+            socket.connect(_connector.socket().getLocalSocketAddress());
+            socket.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                SSLSocket client = (SSLSocket)_sslCtxFactory.getSslContext().getSocketFactory()
+                    .createSocket(socket, "localhost", socket.getPort(), false);
+                client.setEnabledProtocols(new String[]{"TLSv1.2"});
+                client.startHandshake();
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[1024];
+                int len = socket.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+
+                SslConnection.DecryptedEndPoint endPoint = _lastSslConnection.getDecryptedEndPoint();
+                while (!endPoint.getWriteFlusher().isIdle())
+                {
+                    Thread.sleep(1);
+                }
+                assertTrue(endPoint.isFileTransferSupported());
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+                {
+                    FutureCallback callback = new FutureCallback();
+                    endPoint.transfer(callback, channel, 2, 6);
+                    callback.get(5, TimeUnit.SECONDS);
+                }
+
+                // The kernel would encrypt the file bytes, here they are received as they are.
+                len = socket.getInputStream().read(buffer);
+                assertEquals("234567", new String(buffer, 0, len, StandardCharsets.UTF_8));
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testKernelTlsOffloadedByFileTransfer() throws Exception
+    {
+        AtomicInteger offloads = new AtomicInteger();
+        _kernelTls = new KernelTls()
+        {
+            @Override
+            public boolean offload(SSLEngine sslEngine, EndPoint endPoint)
+            {
+                offloads.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public void closeOutbound(EndPoint endPoint)
+            {
+            }
+        };
+        Path file = Files.createTempFile("kernel-tls", ".txt");
+        try (Socket socket = new Socket())
+        {
+            Files.writeString(file, "0123456789");
+            startSSL();
+            socket.connect(_connector.socket().getLocalSocketAddress());
+            socket.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                SSLSocket client = (SSLSocket)_sslCtxFactory.getSslContext().getSocketFactory()
+                    .createSocket(socket, "localhost", socket.getPort(), false);
+                client.setEnabledProtocols(new String[]{"TLSv1.2"});
+                client.startHandshake();
+
+                // Asking whether file transfers are supported does not offload the encryption.
+                SslConnection.DecryptedEndPoint endPoint = _lastSslConnection.getDecryptedEndPoint();
+                while (!endPoint.isFileTransferSupported())
+                {
+                    Thread.sleep(1);
+                }
+                assertTrue(endPoint.isFileTransferSupported());
+                assertEquals(0, offloads.get());
+                assertFalse(_lastSslConnection.isOutputOffloaded());
+
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+                {
+                    FutureCallback callback = new FutureCallback();
+                    endPoint.transfer(callback, channel, 2, 6);
+                    callback.get(5, TimeUnit.SECONDS);
+                }
+                assertEquals(1, offloads.get());
+                assertTrue(_lastSslConnection.isOutputOffloaded());
+
+                // The kernel would encrypt the file bytes, here they are received as they are.
+                byte[] buffer = new byte[1024];
+                int len = socket.getInputStream().read(buffer);
+                assertEquals("234567", new String(buffer, 0, len, StandardCharsets.UTF_8));
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testFileTransferFailsWhenOffloadRefused() throws Exception
+    {
+        AtomicInteger offloads = new AtomicInteger();
+        _kernelTls = new KernelTls()
+        {
+            @Override
+            public boolean offload(SSLEngine sslEngine, EndPoint endPoint)
+            {
+                offloads.incrementAndGet();
+                return false;
+            }
+
+            @Override
+            public void closeOutbound(EndPoint endPoint)
+            {
+            }
+        };
+        Path file = Files.createTempFile("kernel-tls", ".txt");
+        try (Socket socket = new Socket())
+        {
+            Files.writeString(file, "0123456789");
+            startSSL();
+            socket.connect(_connector.socket().getLocalSocketAddress());
+            socket.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                SSLSocket client = (SSLSocket)_sslCtxFactory.getSslContext().getSocketFactory()
+                    .createSocket(socket, "localhost", socket.getPort(), false);
+                client.setEnabledProtocols(new String[]{"TLSv1.2"});
+                client.startHandshake();
+
+                SslConnection.DecryptedEndPoint endPoint = _lastSslConnection.getDecryptedEndPoint();
+                while (!endPoint.isFileTransferSupported())
+                {
+                    Thread.sleep(1);
+                }
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+                {
+                    FutureCallback callback = new FutureCallback();
+                    endPoint.transfer(callback, channel, 2, 6);
+                    ExecutionException x = assertThrows(ExecutionException.class, () -> callback.get(5, TimeUnit.SECONDS));
+                    assertThat(x.getCause(), instanceOf(IllegalStateException.class));
+                }
+                assertEquals(1, offloads.get());
+                assertFalse(endPoint.isFileTransferSupported());
+
+                // The connection is still usable, encrypted by the SSLEngine.
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[1024];
+                int len = client.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+                assertEquals(1, offloads.get());
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testFileTransferNotSupportedWithoutKernelTls() throws Exception
+    {
+        startSSL();
+        try (Socket client = newClient())
+        {
+            client.setSoTimeout(TIMEOUT);
+            try (SocketChannel server = _connector.accept())
+            {
+                server.configureBlocking(false);
+                _manager.accept(server);
+
+                client.getOutputStream().write("Hello".getBytes(StandardCharsets.UTF_8));
+                byte[] buffer = new byte[1024];
+                int len = client.getInputStream().read(buffer);
+                assertEquals("Hello", new String(buffer, 0, len, StandardCharsets.UTF_8));
+                assertFalse(_lastSslConnection.getDecryptedEndPoint().isFileTransferSupported());
+            }
+        }
+    }
+
     @Test
     public void testRenegotiate() throws Exception
     {
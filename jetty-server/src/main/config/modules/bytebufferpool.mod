@@ -29,3 +29,7 @@ etc/jetty-bytebufferpool.xml
 
 ## Maximum direct memory retainable by the pool (0 for heuristic, -1 for unlimited).
 #jetty.byteBufferPool.maxDirectMemory=0
+
+## Time in milliseconds after which idle pooled memory is reclaimed (0 to never reclaim).
+## Also applies to the RetainableByteBufferPool that each connector creates.
+#jetty.byteBufferPool.idleTimeout=0
@@ -43,6 +43,10 @@ etc/jetty-http.xml
 ## Whether to enable the SO_REUSEPORT socket option.
 # jetty.http.reusePort=false
 
+## The number of listening channels bound with SO_REUSEPORT,
+## or -1 for one per acceptor, or one per selector if there are no acceptors.
+# jetty.http.listeningChannelCount=1
+
 ## Whether to enable the TCP_NODELAY socket option on accepted sockets.
 # jetty.http.acceptedTcpNoDelay=true
 
@@ -66,6 +66,12 @@ etc/jetty.xml
 ## Whether to use direct ByteBuffers for reading or writing
 # jetty.httpConfig.useInputDirectByteBuffers=true
 # jetty.httpConfig.useOutputDirectByteBuffers=true
+
+## Whether to coalesce the responses to pipelined requests into fewer writes
+# jetty.httpConfig.coalescePipelinedResponses=false
+
+## Whether to parse the request fields in place, decoding only the fields that are accessed
+# jetty.httpConfig.lazyRequestFields=false
 # end::documentation-http-config[]
 
 # tag::documentation-server-compliance[]
@@ -45,6 +45,10 @@ etc/jetty-ssl-context.xml
 ## Whether to enable the SO_REUSEPORT socket option.
 # jetty.ssl.reusePort=false
 
+## The number of listening channels bound with SO_REUSEPORT,
+## or -1 for one per acceptor, or one per selector if there are no acceptors.
+# jetty.ssl.listeningChannelCount=1
+
 ## Whether to enable the TCP_NODELAY socket option on accepted sockets.
 # jetty.ssl.acceptedTcpNoDelay=true
 
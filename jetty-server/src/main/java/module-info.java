@@ -33,4 +33,6 @@ module org.eclipse.jetty.server
 
     exports org.eclipse.jetty.server.jmx to
          org.eclipse.jetty.jmx;
+
+    uses org.eclipse.jetty.io.ssl.KernelTls;
 }
@@ -192,7 +192,18 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
         _byteBufferPool = pool != null ? pool : new ArrayByteBufferPool();
         addBean(_byteBufferPool);
         RetainableByteBufferPool retainableByteBufferPool = _server.getBean(RetainableByteBufferPool.class);
-        addBean(retainableByteBufferPool == null ? new ArrayRetainableByteBufferPool() : retainableByteBufferPool, retainableByteBufferPool == null);
+        if (retainableByteBufferPool == null)
+        {
+            ArrayRetainableByteBufferPool connectorPool = new ArrayRetainableByteBufferPool();
+            // Reclaim idle memory as configured for the ByteBufferPool.
+            if (_byteBufferPool instanceof ArrayByteBufferPool)
+                connectorPool.setIdleTimeout(((ArrayByteBufferPool)_byteBufferPool).getIdleTimeout());
+            addBean(connectorPool, true);
+        }
+        else
+        {
+            addBean(retainableByteBufferPool, false);
+        }
 
         addEventListener(new Container.Listener()
         {
@@ -14,19 +14,27 @@
 package org.eclipse.jetty.server;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.DateGenerator;
@@ -39,12 +47,45 @@ import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.http.PrecompressedHttpContent;
 import org.eclipse.jetty.http.ResourceHttpContent;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.FrequencySketch;
+import org.eclipse.jetty.util.PathWatcher;
+import org.eclipse.jetty.util.ProcessorUtils;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceFactory;
+import org.eclipse.jetty.util.thread.AutoLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class CachedContentFactory implements HttpContent.ContentFactory
+/**
+ * <p>A {@link HttpContent.ContentFactory} that caches the content of the resources,
+ * up to a maximum number of files and a maximum number of bytes.</p>
+ * <p>The cache is evicted with a W-TinyLFU policy: new entries are added to a small
+ * LRU window, and the entries evicted from the window are admitted in the main
+ * segmented LRU cache only if they have been requested more frequently than the
+ * entry they would evict, as estimated by a {@link FrequencySketch}.
+ * This avoids that the files requested only once evict the frequently requested
+ * ones, and the eviction of an entry is O(1).
+ * Cache hits do not take the lock that guards the eviction policy: they are recorded
+ * in lossy buffers that are applied to the policy when the lock is free.</p>
+ * <p>By default, the last modified time and the length of a cached resource are checked
+ * on every request, to detect that the resource has changed.
+ * If the directories of the resources are {@link #watch(Path) watched}, the entries are
+ * instead invalidated by a {@link PathWatcher} when their files change, and their resources
+ * are only checked every {@link #setRevalidationInterval(long) revalidation interval},
+ * in case the file system does not report all the changes.
+ * The {@link PathWatcher} reports a change only once the file has not changed for its
+ * {@link PathWatcher#getUpdateQuietTimeMillis() quiet time}, about 1 s by default, so
+ * a changed file is served stale for up to the quiet time plus the latency of the
+ * file system notifications, and for up to the revalidation interval if a change
+ * is not reported.
+ * Watching requires this cache to be started.</p>
+ */
+@ManagedObject("Cache of static content")
+public class CachedContentFactory extends ContainerLifeCycle implements HttpContent.ContentFactory
 {
     private static final Logger LOG = LoggerFactory.getLogger(CachedContentFactory.class);
     private static final Map<CompressedContentFormat, CachedPrecompressedHttpContent> NO_PRECOMPRESSED = Collections.unmodifiableMap(Collections.emptyMap());
@@ -58,6 +99,21 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     private final boolean _etags;
     private final CompressedContentFormat[] _precompressedFormats;
     private final boolean _useFileMappedBuffer;
+    private final AutoLock _lock = new AutoLock();
+    private final Segment _window = new Segment();
+    private final Segment _probation = new Segment();
+    private final Segment _protected = new Segment();
+    private final FrequencySketch _sketch;
+    private final AccessBuffer[] _accessBuffers;
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final LongAdder _admissionRejects = new LongAdder();
+    private final LongAdder _watchInvalidations = new LongAdder();
+    private final LongAdder _revalidations = new LongAdder();
+    private final AtomicLong _watchEvents = new AtomicLong();
+    private PathWatcher _pathWatcher;
+    private long _revalidationInterval = 60_000;
 
     private int _maxCachedFileSize = 128 * 1024 * 1024;
     private int _maxCachedFiles = 2048;
@@ -84,18 +140,178 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         _useFileMappedBuffer = useFileMappedBuffer;
         _etags = etags;
         _precompressedFormats = precompressedFormats;
+        _sketch = new FrequencySketch(_maxCachedFiles);
+        int stripes = 1;
+        while (stripes < ProcessorUtils.availableProcessors())
+        {
+            stripes <<= 1;
+        }
+        _accessBuffers = new AccessBuffer[stripes];
+        for (int i = 0; i < stripes; ++i)
+        {
+            _accessBuffers[i] = new AccessBuffer();
+        }
     }
 
+    @ManagedAttribute("The number of cached bytes")
     public int getCachedSize()
     {
         return _cachedSize.get();
     }
 
+    @ManagedAttribute("The number of cached files")
     public int getCachedFiles()
     {
         return _cachedFiles.get();
     }
 
+    @ManagedAttribute("The number of requests for content found in the cache")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of requests for content not found in the cache")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of entries evicted from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    @ManagedAttribute("The number of entries evicted because less frequently requested than the main cache entries")
+    public long getAdmissionRejects()
+    {
+        return _admissionRejects.sum();
+    }
+
+    @ManagedOperation(value = "Resets the cache statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+        _admissionRejects.reset();
+        _watchInvalidations.reset();
+        _revalidations.reset();
+    }
+
+    @ManagedAttribute("The number of entries invalidated because their files changed, as reported by the file system")
+    public long getWatchInvalidations()
+    {
+        return _watchInvalidations.sum();
+    }
+
+    @ManagedAttribute("The number of checks of the resources of entries whose files are watched")
+    public long getRevalidations()
+    {
+        return _revalidations.sum();
+    }
+
+    /**
+     * @return the interval in ms between the checks of the resources of the entries whose files are watched
+     */
+    @ManagedAttribute("The interval in ms between the checks of the resources of the entries whose files are watched")
+    public long getRevalidationInterval()
+    {
+        return _revalidationInterval;
+    }
+
+    /**
+     * <p>Sets the interval between the checks of the last modified time and the length
+     * of the resources of the entries whose files are {@link #watch(Path) watched},
+     * for file systems that do not report all the changes.</p>
+     *
+     * @param revalidationInterval the interval in ms, or a negative value to never check the resources
+     */
+    public void setRevalidationInterval(long revalidationInterval)
+    {
+        _revalidationInterval = revalidationInterval;
+    }
+
+    /**
+     * <p>Watches the given directory and its sub directories, so that the entries whose
+     * files change are invalidated.</p>
+     * <p>A change is reported after the file has been quiet for the
+     * {@link PathWatcher#getUpdateQuietTimeMillis() quiet time} of the {@link PathWatcher},
+     * during which the entry of the file is still served.</p>
+     * <p>Must be called before this cache is started.</p>
+     *
+     * @param directory the directory to watch
+     */
+    public void watch(Path directory)
+    {
+        if (isStarted())
+            throw new IllegalStateException(getState());
+        if (_pathWatcher == null)
+        {
+            _pathWatcher = new PathWatcher();
+            _pathWatcher.setNotifyExistingOnStart(false);
+            _pathWatcher.addListener((PathWatcher.Listener)this::onPathWatchEvent);
+            addBean(_pathWatcher);
+        }
+        PathWatcher.Config config = new PathWatcher.Config(directory.toAbsolutePath().normalize());
+        config.setRecurseDepth(PathWatcher.Config.UNLIMITED_DEPTH);
+        _pathWatcher.watch(config);
+    }
+
+    /**
+     * @return whether the entries are invalidated by a {@link PathWatcher}
+     */
+    @ManagedAttribute("Whether the entries are invalidated when their files change")
+    public boolean isWatching()
+    {
+        PathWatcher pathWatcher = _pathWatcher;
+        return pathWatcher != null && pathWatcher.isRunning();
+    }
+
+    private void onPathWatchEvent(PathWatcher.PathWatchEvent event)
+    {
+        Path path = event.getPath();
+        if (LOG.isDebugEnabled())
+            LOG.debug("Invalidating {} on {}", path, event);
+        // Signal the entries being loaded that they may miss this event.
+        _watchEvents.incrementAndGet();
+
+        // A new file may be a precompressed variant of a cached entry.
+        String name = path.getFileName() == null ? "" : path.getFileName().toString();
+        List<Path> paths = new ArrayList<>(1 + _precompressedFormats.length);
+        paths.add(path);
+        for (CompressedContentFormat format : _precompressedFormats)
+        {
+            String extension = format.getExtension();
+            if (name.length() > extension.length() && name.endsWith(extension))
+                paths.add(path.resolveSibling(name.substring(0, name.length() - extension.length())));
+        }
+
+        // Changes are rare compared to requests, so all the entries are
+        // scanned rather than maintaining an index by path.
+        for (CachedHttpContent content : _cache.values())
+        {
+            Path contentPath = content._path;
+            if (contentPath == null)
+                continue;
+            for (Path changed : paths)
+            {
+                // The path may also be a directory containing the file.
+                if (contentPath.startsWith(changed))
+                {
+                    if (_cache.remove(content.getKey(), content))
+                    {
+                        content.invalidate();
+                        _watchInvalidations.increment();
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    @ManagedAttribute("The maximum size in bytes of a cached file")
     public int getMaxCachedFileSize()
     {
         return _maxCachedFileSize;
@@ -107,6 +323,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         shrinkCache();
     }
 
+    @ManagedAttribute("The maximum number of cached bytes")
     public int getMaxCacheSize()
     {
         return _maxCacheSize;
@@ -121,6 +338,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     /**
      * @return the max number of cached files.
      */
+    @ManagedAttribute("The maximum number of cached files")
     public int getMaxCachedFiles()
     {
         return _maxCachedFiles;
@@ -132,6 +350,10 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     public void setMaxCachedFiles(int maxCachedFiles)
     {
         _maxCachedFiles = maxCachedFiles;
+        try (AutoLock l = _lock.lock())
+        {
+            _sketch.ensureCapacity(maxCachedFiles);
+        }
         shrinkCache();
     }
 
@@ -140,6 +362,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return _useFileMappedBuffer;
     }
 
+    @ManagedOperation(value = "Removes all the entries from the cache", impact = "ACTION")
     public void flushCache()
     {
         while (_cache.size() > 0)
@@ -171,7 +394,12 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         // Is the content in this cache?
         CachedHttpContent content = _cache.get(pathInContext);
         if (content != null && (content).isValid())
+        {
+            _hits.increment();
+            onAccess(content);
             return content;
+        }
+        _misses.increment();
 
         // try loading the content from our factory.
         Resource resource = _factory.getResource(pathInContext);
@@ -216,6 +444,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         // Will it fit in the cache?
         if (isCacheable(resource))
         {
+            long watchEvents = _watchEvents.get();
             CachedHttpContent content;
 
             // Look for precompressed resources
@@ -233,13 +462,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                         if (compressedResource.exists() && compressedResource.lastModified() >= resource.lastModified() &&
                             compressedResource.length() < resource.length())
                         {
-                            compressedContent = new CachedHttpContent(compressedPathInContext, compressedResource, null);
-                            CachedHttpContent added = _cache.putIfAbsent(compressedPathInContext, compressedContent);
-                            if (added != null)
-                            {
-                                compressedContent.invalidate();
-                                compressedContent = added;
-                            }
+                            compressedContent = insert(new CachedHttpContent(compressedPathInContext, compressedResource, null), watchEvents);
                         }
                     }
                     if (compressedContent != null)
@@ -251,14 +474,9 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                 content = new CachedHttpContent(pathInContext, resource, null);
 
             // Add it to the cache.
-            CachedHttpContent added = _cache.putIfAbsent(pathInContext, content);
-            if (added != null)
-            {
-                content.invalidate();
-                content = added;
-            }
-
-            return content;
+            content = insert(content, watchEvents);
+            if (content != null)
+                return content;
         }
 
         // Look for non Cacheable precompressed resource or content
@@ -288,36 +506,201 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return new ResourceHttpContent(resource, mt, maxBufferSize);
     }
 
-    private void shrinkCache()
+    /**
+     * <p>Adds a new cache entry, unless another entry has been added concurrently.</p>
+     *
+     * @param content the new cache entry
+     * @param watchEvents the number of watch events before the resource of the entry was read
+     * @return the cache entry, or null if the new entry is stale
+     */
+    private CachedHttpContent insert(CachedHttpContent content, long watchEvents)
     {
-        // While we need to shrink
-        while (_cache.size() > 0 && (_cachedFiles.get() > _maxCachedFiles || _cachedSize.get() > _maxCacheSize))
+        CachedHttpContent added = _cache.putIfAbsent(content.getKey(), content);
+        if (added != null)
+        {
+            content.invalidate();
+            return added;
+        }
+        admit(content);
+
+        // A watch event received while the entry was loaded may have
+        // missed it, so check whether its resource is still the same.
+        if (_watchEvents.get() != watchEvents && !content.isUnchanged())
         {
-            // Scan the entire cache and generate an ordered list by last accessed time.
-            SortedSet<CachedHttpContent> sorted = new TreeSet<>((c1, c2) ->
+            if (_cache.remove(content.getKey(), content))
             {
-                if (c1._lastAccessed < c2._lastAccessed)
-                    return -1;
+                content.invalidate();
+                _watchInvalidations.increment();
+            }
+            return null;
+        }
+        return content;
+    }
 
-                if (c1._lastAccessed > c2._lastAccessed)
-                    return 1;
+    /**
+     * <p>Adds a new cache entry to the window segment, possibly evicting other entries.</p>
+     */
+    private void admit(CachedHttpContent content)
+    {
+        List<CachedHttpContent> evicted = new ArrayList<>();
+        try (AutoLock l = _lock.lock())
+        {
+            drainAccesses();
+            _sketch.increment(content.getKey());
+            // The entry may have been invalidated concurrently.
+            if (content._invalidated)
+                return;
+            _window.addFirst(content);
+            evict(evicted);
+        }
+        invalidate(evicted);
+    }
 
-                if (c1._contentLengthValue < c2._contentLengthValue)
-                    return -1;
+    /**
+     * <p>Records an access to a cache entry without taking the cache lock.</p>
+     * <p>The accesses are recorded in striped buffers that are drained, when
+     * the cache lock is free, into the eviction policy.
+     * The accesses that do not fit in a full buffer are dropped, which only
+     * makes the frequency and recency of the entries less accurate.</p>
+     */
+    private void onAccess(CachedHttpContent content)
+    {
+        AccessBuffer buffer = _accessBuffers[(int)Thread.currentThread().getId() & (_accessBuffers.length - 1)];
+        if (buffer.offer(content))
+        {
+            try (AutoLock l = _lock.tryLock())
+            {
+                if (l != null)
+                    drainAccesses();
+            }
+        }
+    }
 
-                return c1._key.compareTo(c2._key);
-            });
-            sorted.addAll(_cache.values());
+    private void drainAccesses()
+    {
+        assert _lock.isHeldByCurrentThread();
+        for (AccessBuffer buffer : _accessBuffers)
+        {
+            buffer.drain(this::applyAccess);
+        }
+    }
 
-            // Invalidate least recently used first
-            for (CachedHttpContent content : sorted)
+    /**
+     * <p>Applies an access to a cache entry, promoting it
+     * to the protected segment if it is in the probation segment.</p>
+     */
+    private void applyAccess(CachedHttpContent content)
+    {
+        _sketch.increment(content.getKey());
+        Segment segment = content._segment;
+        if (segment == _probation)
+        {
+            _probation.remove(content);
+            _protected.addFirst(content);
+            int protectedCapacity = getProtectedCapacity();
+            while (_protected._size > protectedCapacity)
             {
-                if (_cachedFiles.get() <= _maxCachedFiles && _cachedSize.get() <= _maxCacheSize)
-                    break;
-                if (content == _cache.remove(content.getKey()))
-                    content.invalidate();
+                CachedHttpContent demoted = _protected._tail;
+                _protected.remove(demoted);
+                _probation.addFirst(demoted);
             }
         }
+        else if (segment != null)
+        {
+            segment.remove(content);
+            segment.addFirst(content);
+        }
+    }
+
+    private void shrinkCache()
+    {
+        List<CachedHttpContent> evicted = new ArrayList<>();
+        try (AutoLock l = _lock.lock())
+        {
+            drainAccesses();
+            evict(evicted);
+        }
+        invalidate(evicted);
+    }
+
+    private void evict(List<CachedHttpContent> evicted)
+    {
+        assert _lock.isHeldByCurrentThread();
+
+        // The entries evicted from the window are admitted in the main segments
+        // only if they are more frequent than the main segments victim.
+        int windowCapacity = getWindowCapacity();
+        int mainCapacity = Math.max(0, _maxCachedFiles - windowCapacity);
+        while (_window._size > windowCapacity)
+        {
+            CachedHttpContent candidate = _window._tail;
+            _window.remove(candidate);
+            if (_probation._size + _protected._size < mainCapacity)
+            {
+                _probation.addFirst(candidate);
+                continue;
+            }
+
+            CachedHttpContent victim = _probation._tail != null ? _probation._tail : _protected._tail;
+            if (victim != null && _sketch.frequency(candidate.getKey()) > _sketch.frequency(victim.getKey()))
+            {
+                victim._segment.remove(victim);
+                evicted.add(victim);
+                _probation.addFirst(candidate);
+            }
+            else
+            {
+                evicted.add(candidate);
+                _admissionRejects.increment();
+            }
+        }
+
+        // Evict least recently used entries until the cache fits.
+        long cachedSize = _cachedSize.get();
+        for (CachedHttpContent content : evicted)
+        {
+            cachedSize -= content.getCachedBytes();
+        }
+        while (getEntries() > _maxCachedFiles || cachedSize > _maxCacheSize)
+        {
+            CachedHttpContent victim = _probation._tail;
+            if (victim == null)
+                victim = _protected._tail;
+            if (victim == null)
+                victim = _window._tail;
+            if (victim == null)
+                break;
+            victim._segment.remove(victim);
+            evicted.add(victim);
+            cachedSize -= victim.getCachedBytes();
+        }
+    }
+
+    private void invalidate(List<CachedHttpContent> evicted)
+    {
+        for (CachedHttpContent content : evicted)
+        {
+            _evictions.increment();
+            if (_cache.remove(content.getKey(), content))
+                content.invalidate();
+        }
+    }
+
+    private int getEntries()
+    {
+        return _window._size + _probation._size + _protected._size;
+    }
+
+    private int getWindowCapacity()
+    {
+        // The window is 1% of the cache, as in W-TinyLFU.
+        return Math.max(1, _maxCachedFiles / 100);
+    }
+
+    private int getProtectedCapacity()
+    {
+        // The protected segment is 80% of the main segments.
+        return Math.max(0, _maxCachedFiles - getWindowCapacity()) * 4 / 5;
     }
 
     protected ByteBuffer getIndirectBuffer(Resource resource)
@@ -365,12 +748,117 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return null;
     }
 
+    private static Path toPath(Resource resource)
+    {
+        try
+        {
+            File file = resource.getFile();
+            return file == null ? null : file.toPath().toAbsolutePath().normalize();
+        }
+        catch (IOException | InvalidPathException x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Unable to get Path for {}", resource, x);
+            return null;
+        }
+    }
+
     @Override
     public String toString()
     {
         return "ResourceCache[" + _parent + "," + _factory + "]@" + hashCode();
     }
 
+    /**
+     * <p>A bounded, lossy ring buffer of accesses to cache entries,
+     * written without locking and drained with the cache lock held.</p>
+     */
+    private static class AccessBuffer
+    {
+        private static final int CAPACITY = 16;
+
+        private final AtomicReferenceArray<CachedHttpContent> _slots = new AtomicReferenceArray<>(CAPACITY);
+        private final AtomicLong _writes = new AtomicLong();
+        // Written with the cache lock held.
+        private volatile long _reads;
+
+        /**
+         * @param content the accessed cache entry
+         * @return whether this buffer should be drained
+         */
+        private boolean offer(CachedHttpContent content)
+        {
+            long reads = _reads;
+            long writes = _writes.get();
+            long size = writes - reads;
+            // Drop the access if the buffer is full.
+            if (size >= CAPACITY)
+                return true;
+            // Drop the access if another thread is writing.
+            if (!_writes.compareAndSet(writes, writes + 1))
+                return false;
+            _slots.lazySet((int)(writes & (CAPACITY - 1)), content);
+            return size + 1 >= CAPACITY / 2;
+        }
+
+        private void drain(Consumer<CachedHttpContent> consumer)
+        {
+            long reads = _reads;
+            long writes = _writes.get();
+            while (reads < writes)
+            {
+                int index = (int)(reads & (CAPACITY - 1));
+                CachedHttpContent content = _slots.get(index);
+                // The slot is reserved but not written yet.
+                if (content == null)
+                    break;
+                _slots.lazySet(index, null);
+                consumer.accept(content);
+                ++reads;
+            }
+            _reads = reads;
+        }
+    }
+
+    /**
+     * <p>A LRU list of cache entries, guarded by the cache lock.</p>
+     */
+    private static class Segment
+    {
+        private CachedHttpContent _head;
+        private CachedHttpContent _tail;
+        private int _size;
+
+        private void addFirst(CachedHttpContent content)
+        {
+            content._segment = this;
+            content._prev = null;
+            content._next = _head;
+            if (_head == null)
+                _tail = content;
+            else
+                _head._prev = content;
+            _head = content;
+            ++_size;
+        }
+
+        private void remove(CachedHttpContent content)
+        {
+            if (content._prev == null)
+                _head = content._next;
+            else
+                content._prev._next = content._next;
+            if (content._next == null)
+                _tail = content._prev;
+            else
+                content._next._prev = content._prev;
+            content._segment = null;
+            content._prev = null;
+            content._next = null;
+            --_size;
+        }
+    }
+
     /**
      * MetaData associated with a context Resource.
      */
@@ -385,12 +873,21 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         private final HttpField _contentLength;
         private final HttpField _lastModified;
         private final long _lastModifiedValue;
+        private final boolean _exists;
+        private final boolean _directory;
         private final HttpField _etag;
         private final Map<CompressedContentFormat, CachedPrecompressedHttpContent> _precompressed;
         private final AtomicReference<ByteBuffer> _indirectBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _directBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _mappedBuffer = new AtomicReference<>();
-        private volatile long _lastAccessed;
+        private final Path _path;
+        private volatile long _lastValidated = System.nanoTime();
+        // The links of the cache segments, guarded by the cache lock.
+        private Segment _segment;
+        private CachedHttpContent _prev;
+        private CachedHttpContent _next;
+        // Written with the cache lock held.
+        private volatile boolean _invalidated;
 
         CachedHttpContent(String pathInContext, Resource resource, Map<CompressedContentFormat, CachedHttpContent> precompressedResources)
         {
@@ -403,6 +900,8 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             _mimeType = _contentType == null ? null : MimeTypes.CACHE.get(MimeTypes.getContentTypeWithoutCharset(contentType));
 
             boolean exists = resource.exists();
+            _exists = exists;
+            _directory = exists && resource.isDirectory();
             _lastModifiedValue = exists ? resource.lastModified() : -1L;
             _lastModified = _lastModifiedValue == -1 ? null
                 : new PreEncodedHttpField(HttpHeader.LAST_MODIFIED, DateGenerator.formatDate(_lastModifiedValue));
@@ -410,10 +909,9 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             _contentLengthValue = exists ? resource.length() : 0;
             _contentLength = new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, Long.toString(_contentLengthValue));
 
-            if (_cachedFiles.incrementAndGet() > _maxCachedFiles)
-                shrinkCache();
+            _cachedFiles.incrementAndGet();
 
-            _lastAccessed = System.currentTimeMillis();
+            _path = toPath(resource);
 
             _etag = CachedContentFactory.this._etags ? new PreEncodedHttpField(HttpHeader.ETAG, resource.getWeakETag()) : null;
 
@@ -461,19 +959,72 @@ public class CachedContentFactory implements HttpContent.ContentFactory
 
         boolean isValid()
         {
-            if (_lastModifiedValue == _resource.lastModified() && _contentLengthValue == _resource.length())
+            if (_invalidated)
+                return false;
+
+            if (isWatching() && _path != null)
             {
-                _lastAccessed = System.currentTimeMillis();
-                return true;
+                long interval = _revalidationInterval;
+                if (interval < 0)
+                    return true;
+                long now = System.nanoTime();
+                if (now - _lastValidated < TimeUnit.MILLISECONDS.toNanos(interval))
+                    return true;
+                _lastValidated = now;
+                _revalidations.increment();
             }
 
-            if (this == _cache.remove(_key))
+            if (isUnchanged())
+                return true;
+
+            if (_cache.remove(_key, this))
                 invalidate();
             return false;
         }
 
+        /**
+         * @return whether the resource exists, as it was when this entry was loaded
+         * if its file is watched, so that a hit does not access the file system
+         */
+        boolean exists()
+        {
+            return isWatched() ? _exists : _resource.exists();
+        }
+
+        /**
+         * @return whether the resource is a directory, as it was when this entry was
+         * loaded if its file is watched, so that a hit does not access the file system
+         */
+        boolean isDirectory()
+        {
+            return isWatched() ? _directory : _resource.isDirectory();
+        }
+
+        private boolean isWatched()
+        {
+            // A watched entry is invalidated when its file changes.
+            return isCached() && !_invalidated && isWatching() && _path != null;
+        }
+
+        private boolean isUnchanged()
+        {
+            return _lastModifiedValue == _resource.lastModified() && _contentLengthValue == _resource.length();
+        }
+
+        private long getCachedBytes()
+        {
+            return BufferUtil.length(_indirectBuffer.get()) + BufferUtil.length(_directBuffer.get());
+        }
+
         protected void invalidate()
         {
+            try (AutoLock l = _lock.lock())
+            {
+                _invalidated = true;
+                if (_segment != null)
+                    _segment.remove(this);
+            }
+
             ByteBuffer indirect = _indirectBuffer.getAndSet(null);
             if (indirect != null)
                 _cachedSize.addAndGet(-BufferUtil.length(indirect));
@@ -544,7 +1095,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         @Override
         public ByteBuffer getIndirectBuffer()
         {
-            if (_resource.length() > _maxCachedFileSize)
+            if (_contentLengthValue > _maxCachedFileSize)
             {
                 return null;
             }
@@ -591,7 +1142,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                         buffer = _mappedBuffer.get();
                 }
                 // Since MappedBuffers don't use heap, we don't care about the resource.length
-                else if (_resource.length() < _maxCachedFileSize)
+                else if (_contentLengthValue < _maxCachedFileSize)
                 {
                     ByteBuffer direct = CachedContentFactory.this.getDirectBuffer(_resource);
                     if (direct != null)
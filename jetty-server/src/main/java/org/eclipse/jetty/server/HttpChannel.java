@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.EventListener;
 import java.util.List;
@@ -1131,6 +1132,40 @@ public abstract class HttpChannel implements Runnable, HttpOutput.Interceptor
         sendResponse(null, content, complete, callback);
     }
 
+    /**
+     * @return whether response content can be sent from a file region with
+     * {@link #transfer(FileChannel, long, long, Callback)}
+     * @see HttpTransport#isFileTransferSupported()
+     */
+    public boolean isFileTransferSupported()
+    {
+        return _transport.isFileTransferSupported();
+    }
+
+    /**
+     * <p>Non-Blocking write of a region of a file as response content, without
+     * copying it in user space.</p>
+     * <p>The response must have been committed with a content length, and the
+     * content is not passed to the HttpOutput.Interceptor chain.</p>
+     *
+     * @param file the file to send the content from
+     * @param position the position in the file of the first content byte
+     * @param length the number of content bytes
+     * @param callback Callback when complete or failed
+     */
+    public void transfer(FileChannel file, long position, long length, Callback callback)
+    {
+        _transport.transfer(file, position, length, new Callback.Nested(callback)
+        {
+            @Override
+            public void succeeded()
+            {
+                _written += length;
+                super.succeeded();
+            }
+        });
+    }
+
     @Override
     public void resetBuffer()
     {
@@ -32,6 +32,7 @@ import org.eclipse.jetty.http.HttpParser;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpURI;
 import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.LazyHttpFields;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
@@ -367,7 +368,7 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
                         if (_connection.contains(HttpHeaderValue.KEEP_ALIVE.asString()))
                             persistent = true;
                         else
-                            persistent = _requestBuilder.getFields().contains(HttpHeader.CONNECTION, HttpHeaderValue.KEEP_ALIVE.asString());
+                            persistent = _metadata.getFields().contains(HttpHeader.CONNECTION, HttpHeaderValue.KEEP_ALIVE.asString());
                     }
                     else
                         persistent = false;
@@ -398,7 +399,7 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
                         if (_connection.contains(HttpHeaderValue.CLOSE.asString()))
                             persistent = false;
                         else
-                            persistent = !_requestBuilder.getFields().contains(HttpHeader.CONNECTION, HttpHeaderValue.CLOSE.asString()); // handle multiple connection fields
+                            persistent = !_metadata.getFields().contains(HttpHeader.CONNECTION, HttpHeaderValue.CLOSE.asString()); // handle multiple connection fields
                     }
                     else
                         persistent = true;
@@ -424,7 +425,7 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
 
                 if (HttpMethod.PRI.is(_metadata.getMethod()) &&
                     "*".equals(_metadata.getURI().getPath()) &&
-                    _requestBuilder.getFields().size() == 0 &&
+                    _metadata.getFields().size() == 0 &&
                     upgrade())
                     return true;
 
@@ -504,6 +505,25 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
 
     @Override
     public void parsedHeader(HttpField field)
+    {
+        _requestBuilder.getFields().add(parsedField(field));
+    }
+
+    @Override
+    public void parsedHeaders(LazyHttpFields fields)
+    {
+        // The fields reference the request buffer until this channel is recycled.
+        _httpConnection.retainFieldsBuffer();
+        _requestBuilder.fields(fields);
+        for (int i = 0; i < fields.size(); ++i)
+        {
+            HttpHeader header = fields.getHeader(i);
+            if (header == HttpHeader.CONNECTION || header == HttpHeader.HOST || header == HttpHeader.EXPECT || header == HttpHeader.UPGRADE)
+                parsedField(fields.getField(i));
+        }
+    }
+
+    private HttpField parsedField(HttpField field)
     {
         HttpHeader header = field.getHeader();
         String value = field.getValue();
@@ -552,7 +572,7 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
                     break;
             }
         }
-        _requestBuilder.getFields().add(field);
+        return field;
     }
 
     @Override
@@ -574,6 +594,8 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
         _upgrade = null;
         _trailers = null;
         _metadata = null;
+        _requestBuilder.fields(null);
+        _httpConnection.releaseFieldsBuffer();
         if (_content != null && !_content.isSpecial())
             throw new AssertionError("unconsumed content: " + _content);
         _content = null;
@@ -648,9 +670,15 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
             return false;
         }
 
+        // The upgraded connection may use the request after this channel is recycled,
+        // when the request fields parsed in place no longer reference the request buffer.
+        MetaData.Request request = _metadata;
+        if (request.getFields() instanceof LazyHttpFields)
+            request = new MetaData.Request(request.getMethod(), request.getURI(), request.getHttpVersion(), HttpFields.build(request.getFields()), request.getContentLength());
+
         // Create new connection
         HttpFields.Mutable response101 = HttpFields.build();
-        Connection upgradeConnection = factory.upgradeConnection(getConnector(), getEndPoint(), _metadata, response101);
+        Connection upgradeConnection = factory.upgradeConnection(getConnector(), getEndPoint(), request, response101);
         if (upgradeConnection == null)
         {
             if (LOG.isDebugEnabled())
@@ -703,6 +731,7 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
     {
         private final HttpFields.Mutable _fieldsBuilder = HttpFields.build();
         private final HttpURI.Mutable _uriBuilder = HttpURI.build();
+        private LazyHttpFields _lazyFields;
         private String _method;
         private HttpVersion _version;
 
@@ -724,9 +753,16 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
             return _fieldsBuilder;
         }
 
+        public void fields(LazyHttpFields fields)
+        {
+            if (_lazyFields != null)
+                _lazyFields.release();
+            _lazyFields = fields;
+        }
+
         public MetaData.Request build()
         {
-            return new MetaData.Request(_method, _uriBuilder, _version, _fieldsBuilder);
+            return new MetaData.Request(_method, _uriBuilder, _version, _lazyFields == null ? _fieldsBuilder : _lazyFields);
         }
 
         public HttpVersion version()
@@ -69,6 +69,8 @@ public class HttpConfiguration implements Dumpable
     private int _maxErrorDispatches = 10;
     private boolean _useInputDirectByteBuffers = true;
     private boolean _useOutputDirectByteBuffers = true;
+    private boolean _coalescePipelinedResponses;
+    private boolean _lazyRequestFields;
     private long _minRequestDataRate;
     private long _minResponseDataRate;
     private HttpCompliance _httpCompliance = HttpCompliance.RFC7230;
@@ -141,6 +143,8 @@ public class HttpConfiguration implements Dumpable
         _maxErrorDispatches = config._maxErrorDispatches;
         _useInputDirectByteBuffers = config._useInputDirectByteBuffers;
         _useOutputDirectByteBuffers = config._useOutputDirectByteBuffers;
+        _coalescePipelinedResponses = config._coalescePipelinedResponses;
+        _lazyRequestFields = config._lazyRequestFields;
         _minRequestDataRate = config._minRequestDataRate;
         _minResponseDataRate = config._minResponseDataRate;
         _httpCompliance = config._httpCompliance;
@@ -364,6 +368,50 @@ public class HttpConfiguration implements Dumpable
         return _useOutputDirectByteBuffers;
     }
 
+    /**
+     * <p>Sets whether the responses to pipelined HTTP/1.1 requests are coalesced.</p>
+     * <p>When enabled, a response that completes while further pipelined requests are
+     * already buffered is not written immediately, but aggregated with the responses
+     * to the following requests, so that a batch of pipelined requests is answered
+     * with a single gathered write rather than with one write per response.</p>
+     * <p>The coalesced responses are written before waiting for more requests, and before
+     * handling a request whose content is not entirely buffered. They are still held while
+     * the following buffered requests are handled, so this should only be enabled when the
+     * handling of pipelined requests does not block.</p>
+     *
+     * @param coalescePipelinedResponses whether to coalesce the responses to pipelined requests (defaults to false)
+     */
+    public void setCoalescePipelinedResponses(boolean coalescePipelinedResponses)
+    {
+        _coalescePipelinedResponses = coalescePipelinedResponses;
+    }
+
+    @ManagedAttribute("Whether to coalesce the responses to pipelined requests")
+    public boolean isCoalescePipelinedResponses()
+    {
+        return _coalescePipelinedResponses;
+    }
+
+    /**
+     * <p>Sets whether the fields of HTTP/1 requests are parsed in place.</p>
+     * <p>When enabled, the request fields are a view of the request buffer, that is
+     * retained until the request completes, and each field is only decoded if it is
+     * accessed, rather than all the fields being copied into strings when parsed.</p>
+     *
+     * @param lazyRequestFields whether to parse the request fields in place (defaults to false)
+     * @see org.eclipse.jetty.http.HttpParser#setLazyFields(boolean)
+     */
+    public void setLazyRequestFields(boolean lazyRequestFields)
+    {
+        _lazyRequestFields = lazyRequestFields;
+    }
+
+    @ManagedAttribute("Whether to parse the request fields in place")
+    public boolean isLazyRequestFields()
+    {
+        return _lazyRequestFields;
+    }
+
     /**
      * <p>Sets the {@link Customizer}s that are invoked for every
      * request received.</p>
@@ -431,6 +479,11 @@ public class HttpConfiguration implements Dumpable
     }
 
     /**
+     * <p>Sets the size of the per connection header field cache, that holds the fields parsed
+     * from previous requests on the same connection, including the fields that are learnt
+     * because they repeat, so that their {@link org.eclipse.jetty.http.HttpField} instances
+     * are reused for the subsequent requests.</p>
+     *
      * @param headerCacheSize The size of the header field cache, in terms of unique characters branches
      * in the lookup {@link Index.Mutable} and associated data structures.
      */
@@ -746,6 +799,8 @@ public class HttpConfiguration implements Dumpable
             "sendServerVersion=" + _sendServerVersion,
             "sendXPoweredBy=" + _sendXPoweredBy,
             "delayDispatchUntilContent=" + _delayDispatchUntilContent,
+            "coalescePipelinedResponses=" + _coalescePipelinedResponses,
+            "lazyRequestFields=" + _lazyRequestFields,
             "persistentConnectionsEnabled=" + _persistentConnectionsEnabled,
             "maxErrorDispatches=" + _maxErrorDispatches,
             "minRequestDataRate=" + _minRequestDataRate,
@@ -15,8 +15,12 @@ package org.eclipse.jetty.server;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritePendingException;
+import java.util.Arrays;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.http.BadMessageException;
@@ -36,7 +40,9 @@ import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.io.RetainableByteBuffer;
 import org.eclipse.jetty.io.RetainableByteBufferPool;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
 import org.eclipse.jetty.io.WriteFlusher;
+import org.eclipse.jetty.io.ssl.SslConnection;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingCallback;
@@ -63,6 +69,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     private final HttpChannelOverHttp _channel;
     private final HttpParser _parser;
     private volatile RetainableByteBuffer _retainableByteBuffer;
+    private volatile RetainableByteBuffer _fieldsBuffer;
     private final AsyncReadCallback _asyncReadCallback = new AsyncReadCallback();
     private final SendCallback _sendCallback = new SendCallback();
     private final boolean _recordHttpComplianceViolations;
@@ -70,6 +77,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     private final LongAdder bytesOut = new LongAdder();
     private boolean _useInputDirectByteBuffers;
     private boolean _useOutputDirectByteBuffers;
+    private final AtomicReference<ByteBuffer> _coalesced = new AtomicReference<>();
 
     /**
      * Get the current connection that this thread is dispatched to.
@@ -132,6 +140,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         HttpParser parser = new HttpParser(newRequestHandler(), getHttpConfiguration().getRequestHeaderSize(), compliance);
         parser.setHeaderCacheSize(getHttpConfiguration().getHeaderCacheSize());
         parser.setHeaderCacheCaseSensitive(getHttpConfiguration().isHeaderCacheCaseSensitive());
+        parser.setLazyFields(getHttpConfiguration().isLazyRequestFields());
         return parser;
     }
 
@@ -231,13 +240,39 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         {
             if (LOG.isDebugEnabled())
                 LOG.debug("releaseRequestBuffer {}", this);
-            if (_retainableByteBuffer.release())
+            // The buffer retained by the request fields is released when the request is recycled.
+            RetainableByteBuffer fieldsBuffer = _fieldsBuffer;
+            if (_retainableByteBuffer.release() || _retainableByteBuffer == fieldsBuffer)
                 _retainableByteBuffer = null;
             else
                 throw new IllegalStateException("unreleased buffer " + _retainableByteBuffer);
         }
     }
 
+    /**
+     * <p>Retains the request buffer, as the request fields have been parsed in place.</p>
+     *
+     * @see #releaseFieldsBuffer()
+     */
+    void retainFieldsBuffer()
+    {
+        _retainableByteBuffer.retain();
+        _fieldsBuffer = _retainableByteBuffer;
+    }
+
+    /**
+     * <p>Releases the request buffer retained by the request fields, if any.</p>
+     */
+    void releaseFieldsBuffer()
+    {
+        RetainableByteBuffer buffer = _fieldsBuffer;
+        if (buffer != null)
+        {
+            _fieldsBuffer = null;
+            buffer.release();
+        }
+    }
+
     private ByteBuffer getRequestBuffer()
     {
         if (_retainableByteBuffer == null)
@@ -252,6 +287,14 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
     @Override
     public void onFillable()
+    {
+        process(false);
+    }
+
+    /**
+     * @param parsed whether a request has already been parsed and must be handled before filling
+     */
+    private void process(boolean parsed)
     {
         if (LOG.isDebugEnabled())
             LOG.debug("{} onFillable enter {} {}", this, _channel.getState(), _retainableByteBuffer);
@@ -261,24 +304,43 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         {
             while (getEndPoint().isOpen())
             {
-                // Fill the request buffer (if needed).
-                int filled = fillRequestBuffer();
-                if (filled < 0 && getEndPoint().isOutputShutdown())
-                    close();
-
-                // Parse the request buffer.
-                boolean handle = parseRequestBuffer();
-
-                // There could be a connection upgrade before handling
-                // the HTTP/1.1 request, for example PRI * HTTP/2.
-                // If there was a connection upgrade, the other
-                // connection took over, nothing more to do here.
-                if (getEndPoint().getConnection() != this)
-                    break;
+                int filled = 0;
+                boolean handle = parsed;
+                if (parsed)
+                {
+                    parsed = false;
+                }
+                else
+                {
+                    // Fill the request buffer (if needed).
+                    filled = fillRequestBuffer();
+                    if (filled < 0 && getEndPoint().isOutputShutdown())
+                        close();
+
+                    // Parse the request buffer.
+                    handle = parseRequestBuffer();
+
+                    // There could be a connection upgrade before handling
+                    // the HTTP/1.1 request, for example PRI * HTTP/2.
+                    // If there was a connection upgrade, the other
+                    // connection took over, nothing more to do here.
+                    if (getEndPoint().getConnection() != this)
+                        break;
+                }
 
                 // Handle channel event
                 if (handle)
                 {
+                    // Do not hold the coalesced responses while this request may block waiting for its content.
+                    if (_coalesced.get() != null && !isRequestContentBuffered())
+                    {
+                        // If the write does not succeed immediately, the
+                        // request is handled when the write succeeds.
+                        FlushCoalescedCallback flushed = new FlushCoalescedCallback();
+                        if (flushCoalesced(flushed) && !flushed.isSucceeded())
+                            break;
+                    }
+
                     boolean suspended = !_channel.handle();
 
                     // We should break iteration if we have suspended or upgraded the connection.
@@ -287,13 +349,18 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
                 }
                 else if (filled == 0)
                 {
-                    fillInterested();
+                    // Write the coalesced responses before waiting for more requests.
+                    if (!flushCoalesced(Callback.from(this::fillInterested, getEndPoint()::close)))
+                        fillInterested();
                     break;
                 }
                 else if (filled < 0)
                 {
                     if (_channel.getState().isIdle())
-                        getEndPoint().shutdownOutput();
+                    {
+                        if (!flushCoalesced(Callback.from(getEndPoint()::shutdownOutput, getEndPoint()::close)))
+                            getEndPoint().shutdownOutput();
+                    }
                     break;
                 }
             }
@@ -352,7 +419,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
     private int fillRequestBuffer()
     {
-        if (_retainableByteBuffer != null && _retainableByteBuffer.isRetained())
+        if (_retainableByteBuffer != null && _retainableByteBuffer.isRetained() && _retainableByteBuffer != _fieldsBuffer)
             throw new IllegalStateException("fill with unconsumed content on " + this);
 
         if (isRequestBufferEmpty())
@@ -401,12 +468,42 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             LOG.debug("{} parsed {} {}", this, handle, _parser);
 
         // recycle buffer ?
-        if (_retainableByteBuffer != null && !_retainableByteBuffer.isRetained())
+        if (_retainableByteBuffer != null && (!_retainableByteBuffer.isRetained() || _retainableByteBuffer == _fieldsBuffer))
             releaseRequestBuffer();
 
         return handle;
     }
 
+    /**
+     * @return whether the request being parsed has no content, or all of its content is in the request buffer
+     */
+    private boolean isRequestContentBuffered()
+    {
+        if (_parser.isChunking())
+            return false;
+        long remaining = _parser.getContentLength() - _parser.getContentRead();
+        return remaining <= 0 || remaining <= BufferUtil.length(_retainableByteBuffer == null ? null : _retainableByteBuffer.getBuffer());
+    }
+
+    /**
+     * <p>Writes the responses to pipelined requests that have been coalesced, if any.</p>
+     * <p>This method must only be called when no response is being written.</p>
+     *
+     * @param callback the callback to complete when the coalesced responses have been written
+     * @return true if there were coalesced responses to write, in which case the callback
+     * is completed when they have been written, false otherwise
+     */
+    private boolean flushCoalesced(Callback callback)
+    {
+        ByteBuffer coalesced = _coalesced.getAndSet(null);
+        if (coalesced == null)
+            return false;
+        if (LOG.isDebugEnabled())
+            LOG.debug("{} flush coalesced {}", this, BufferUtil.toSummaryString(coalesced));
+        getEndPoint().write(Callback.from(() -> _bufferPool.release(coalesced), callback), coalesced);
+        return true;
+    }
+
     private boolean upgrade()
     {
         Connection connection = (Connection)_channel.getRequest().getAttribute(UPGRADE_CONNECTION_ATTRIBUTE);
@@ -551,6 +648,9 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             _sendCallback.close();
         else
             _sendCallback.failed(cause);
+        ByteBuffer coalesced = _coalesced.getAndSet(null);
+        if (coalesced != null)
+            _bufferPool.release(coalesced);
         super.onClose(cause);
     }
 
@@ -585,6 +685,52 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         }
     }
 
+    @Override
+    public boolean isFileTransferSupported()
+    {
+        // Not supported if the bytes must be encrypted by SslConnection, unless the kernel encrypts them.
+        EndPoint endPoint = getEndPoint();
+        if (endPoint instanceof SslConnection.DecryptedEndPoint)
+            return ((SslConnection.DecryptedEndPoint)endPoint).isFileTransferSupported();
+        return endPoint instanceof SocketChannelEndPoint && ((SocketChannelEndPoint)endPoint).isFileTransferSupported();
+    }
+
+    @Override
+    public void transfer(FileChannel file, long position, long length, Callback callback)
+    {
+        if (!isFileTransferSupported())
+        {
+            callback.failed(new UnsupportedOperationException());
+            return;
+        }
+        // The file bytes are sent as they are, so they cannot be chunked.
+        if (!_generator.isCommitted() || _generator.isChunking())
+        {
+            callback.failed(new IllegalStateException("Not committed with a content length"));
+            return;
+        }
+        // Don't write the content if this is a HEAD response, or any other type of response that should have no content.
+        if (length == 0 || HttpMethod.HEAD.is(_channel.getRequest().getMethod()) || _generator.isNoContent())
+        {
+            callback.succeeded();
+            return;
+        }
+
+        bytesOut.add(length);
+        try
+        {
+            EndPoint endPoint = getEndPoint();
+            if (endPoint instanceof SslConnection.DecryptedEndPoint)
+                ((SslConnection.DecryptedEndPoint)endPoint).transfer(callback, file, position, length);
+            else
+                ((SocketChannelEndPoint)endPoint).transfer(callback, file, position, length);
+        }
+        catch (WritePendingException x)
+        {
+            callback.failed(x);
+        }
+    }
+
     HttpInput.Content newContent(ByteBuffer c)
     {
         return new Content(c);
@@ -661,6 +807,46 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         }
     }
 
+    /**
+     * <p>Handles the request waiting for the coalesced responses to be written,
+     * when the write completes after {@link #process(boolean)} has returned.</p>
+     */
+    private class FlushCoalescedCallback implements Callback
+    {
+        private static final int WRITING = 0;
+        private static final int SUCCEEDED = 1;
+        private static final int FAILED = 2;
+        private static final int PENDING = 3;
+
+        private final AtomicInteger _state = new AtomicInteger(WRITING);
+
+        /**
+         * @return whether the write has already succeeded, so that the request can be
+         * handled by the caller, otherwise the request is handled when the write succeeds
+         */
+        private boolean isSucceeded()
+        {
+            if (_state.compareAndSet(WRITING, PENDING))
+                return false;
+            return _state.get() == SUCCEEDED;
+        }
+
+        @Override
+        public void succeeded()
+        {
+            // The thread completing the write may not block handling the request.
+            if (!_state.compareAndSet(WRITING, SUCCEEDED))
+                getExecutor().execute(() -> process(true));
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+            _state.compareAndSet(WRITING, FAILED);
+            getEndPoint().close(x);
+        }
+    }
+
     private class AsyncReadCallback implements Callback
     {
         @Override
@@ -696,6 +882,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         private Callback _callback;
         private ByteBuffer _header;
         private ByteBuffer _chunk;
+        private ByteBuffer _coalesced;
         private boolean _shutdownOut;
 
         private SendCallback()
@@ -809,6 +996,22 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
                             bytes += _content.remaining();
                         }
                         HttpConnection.this.bytesOut.add(bytes);
+
+                        // The previous write, if any, has completed.
+                        releaseCoalesced();
+                        if (coalesce(bytes))
+                        {
+                            succeeded();
+                            return Action.SCHEDULED;
+                        }
+                        _coalesced = HttpConnection.this._coalesced.getAndSet(null);
+                        if (_coalesced != null)
+                        {
+                            // Write the responses previously coalesced along with this one.
+                            getEndPoint().write(this, gather(_coalesced, _header, _chunk, _content));
+                            return Action.SCHEDULED;
+                        }
+
                         switch (gatherWrite)
                         {
                             case 7:
@@ -865,6 +1068,62 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             }
         }
 
+        /**
+         * <p>Appends the bytes to flush to the coalesced responses, if the response
+         * is being completed by the thread handling the connection and the following
+         * pipelined requests are already buffered, so that the response is written
+         * along with the responses to those requests.</p>
+         *
+         * @param bytes the number of bytes to flush
+         * @return whether the bytes to flush have been coalesced
+         */
+        private boolean coalesce(long bytes)
+        {
+            if (!_config.isCoalescePipelinedResponses() || bytes == 0)
+                return false;
+            if (!_lastContent || _shutdownOut || !_generator.isPersistent())
+                return false;
+            if (getCurrentConnection() != HttpConnection.this || isRequestBufferEmpty())
+                return false;
+            if (_channel.getRequest().getAttribute(UPGRADE_CONNECTION_ATTRIBUTE) != null)
+                return false;
+
+            // Take the coalesced responses, so that they are not written or released while being appended to.
+            ByteBuffer coalesced = HttpConnection.this._coalesced.getAndSet(null);
+            if (coalesced == null)
+            {
+                if (bytes > _config.getOutputBufferSize())
+                    return false;
+                coalesced = _bufferPool.acquire(_config.getOutputBufferSize(), isUseOutputDirectByteBuffers());
+            }
+            if (BufferUtil.space(coalesced) < bytes)
+            {
+                HttpConnection.this._coalesced.set(coalesced);
+                return false;
+            }
+
+            for (ByteBuffer buffer : new ByteBuffer[]{_header, _chunk, _content})
+            {
+                if (BufferUtil.hasContent(buffer))
+                    BufferUtil.append(coalesced, buffer);
+            }
+            HttpConnection.this._coalesced.set(coalesced);
+            if (LOG.isDebugEnabled())
+                LOG.debug("{} coalesced {}", this, BufferUtil.toSummaryString(coalesced));
+            return true;
+        }
+
+        private ByteBuffer[] gather(ByteBuffer... buffers)
+        {
+            int length = 0;
+            for (ByteBuffer buffer : buffers)
+            {
+                if (BufferUtil.hasContent(buffer))
+                    buffers[length++] = buffer;
+            }
+            return length == buffers.length ? buffers : Arrays.copyOf(buffers, length);
+        }
+
         private Callback release()
         {
             Callback complete = _callback;
@@ -873,9 +1132,17 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             _content = null;
             releaseHeader();
             releaseChunk();
+            releaseCoalesced();
             return complete;
         }
 
+        private void releaseCoalesced()
+        {
+            if (_coalesced != null)
+                _bufferPool.release(_coalesced);
+            _coalesced = null;
+        }
+
         private void releaseHeader()
         {
             if (_header != null)
@@ -14,10 +14,15 @@
 package org.eclipse.jetty.server;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.eclipse.jetty.http.HttpParser;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.annotation.Name;
 
 /**
@@ -26,12 +31,25 @@ import org.eclipse.jetty.util.annotation.Name;
  * {@link HttpConnection}s are configured by a {@link HttpConfiguration} instance that is either created by
  * default or passed in to the constructor.
  */
+@ManagedObject
 public class HttpConnectionFactory extends AbstractConnectionFactory implements HttpConfiguration.ConnectionFactory
 {
     private final HttpConfiguration _config;
     private boolean _recordHttpComplianceViolations;
     private boolean _useInputDirectByteBuffers;
     private boolean _useOutputDirectByteBuffers;
+    private final LongAdder _headerCacheHits = new LongAdder();
+    private final LongAdder _headerCacheMisses = new LongAdder();
+    private final Connection.Listener _headerCacheListener = new Connection.Listener.Adapter()
+    {
+        @Override
+        public void onClosed(Connection connection)
+        {
+            HttpParser parser = ((HttpConnection)connection).getParser();
+            _headerCacheHits.add(parser.getHeaderCacheHits());
+            _headerCacheMisses.add(parser.getHeaderCacheMisses());
+        }
+    };
 
     public HttpConnectionFactory()
     {
@@ -83,12 +101,38 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
         _useOutputDirectByteBuffers = useOutputDirectByteBuffers;
     }
 
+    /**
+     * @return the number of request header lookups resolved by the header field cache of the closed connections
+     */
+    @ManagedAttribute(value = "The number of header field cache hits of the closed connections", readonly = true)
+    public long getHeaderCacheHits()
+    {
+        return _headerCacheHits.sum();
+    }
+
+    /**
+     * @return the number of request header lookups not resolved by the header field cache of the closed connections
+     */
+    @ManagedAttribute(value = "The number of header field cache misses of the closed connections", readonly = true)
+    public long getHeaderCacheMisses()
+    {
+        return _headerCacheMisses.sum();
+    }
+
+    @ManagedOperation(value = "Resets the header field cache statistics", impact = "ACTION")
+    public void resetHeaderCacheStatistics()
+    {
+        _headerCacheHits.reset();
+        _headerCacheMisses.reset();
+    }
+
     @Override
     public Connection newConnection(Connector connector, EndPoint endPoint)
     {
         HttpConnection connection = new HttpConnection(_config, connector, endPoint, isRecordHttpComplianceViolations());
         connection.setUseInputDirectByteBuffers(isUseInputDirectByteBuffers());
         connection.setUseOutputDirectByteBuffers(isUseOutputDirectByteBuffers());
+        connection.addEventListener(_headerCacheListener);
         return configure(connection, connector, endPoint);
     }
 }
@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritePendingException;
 import java.nio.charset.Charset;
@@ -1171,6 +1172,24 @@ public class HttpOutput extends ServletOutputStream implements Runnable
         }
     }
 
+    /**
+     * Blocking send of a region of a file.
+     *
+     * @param file The file to send the content from, closed once the content has been sent
+     * @param position The position in the file of the first byte to send
+     * @param length The number of bytes to send
+     * @throws IOException if the send fails
+     * @see #sendContent(FileChannel, long, long, Callback)
+     */
+    public void sendContent(FileChannel file, long position, long length) throws IOException
+    {
+        try (Blocker blocker = _writeBlocker.acquire())
+        {
+            sendContent(file, position, length, blocker);
+            blocker.block();
+        }
+    }
+
     /**
      * Blocking send of HTTP content.
      *
@@ -1249,6 +1268,54 @@ public class HttpOutput extends ServletOutputStream implements Runnable
             new ReadableByteChannelWritingCB(in, callback).iterate();
     }
 
+    /**
+     * <p>Asynchronous send of a region of a file.</p>
+     * <p>If no {@link Interceptor} is installed, the transport supports it (for example
+     * cleartext HTTP/1.1) and the response content length is {@code length}, the bytes
+     * are sent from the file to the network without being copied in user space.
+     * Otherwise they are read from the file and written as with {@link #sendContent(ReadableByteChannel, Callback)}.</p>
+     *
+     * @param file The file to send the content from, closed once the content has been sent
+     * @param position The position in the file of the first byte to send
+     * @param length The number of bytes to send
+     * @param callback The callback to use to notify success or failure
+     */
+    public void sendContent(FileChannel file, long position, long length, Callback callback)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("sendContent(file={},{},{},{})", file, position, length, callback);
+
+        if (isFileTransferSupported(length))
+        {
+            if (prepareSendContent(0, callback))
+                new FileTransferCB(file, position, length, callback).iterate();
+            return;
+        }
+
+        try
+        {
+            file.position(position);
+        }
+        catch (Throwable x)
+        {
+            IO.close(file);
+            _channel.abort(x);
+            callback.failed(x);
+            return;
+        }
+        if (prepareSendContent(0, callback))
+            new ReadableByteChannelWritingCB(file, length, callback).iterate();
+    }
+
+    private boolean isFileTransferSupported(long length)
+    {
+        // The file bytes are sent as they are, so they must not be modified by an
+        // interceptor, and the response must not be chunked.
+        return _interceptor == _channel &&
+            _channel.isFileTransferSupported() &&
+            _channel.getResponse().getLongContentLength() == length;
+    }
+
     private boolean prepareSendContent(int len, Callback callback)
     {
         try (AutoLock l = _channelState.lock())
@@ -1322,6 +1389,12 @@ public class HttpOutput extends ServletOutputStream implements Runnable
             if (LOG.isDebugEnabled())
                 LOG.debug("Unable to access ReadableByteChannel for content {}", httpContent, x);
         }
+        if (rbc instanceof FileChannel && isFileTransferSupported(httpContent.getContentLengthValue()))
+        {
+            // Close of the file is done by the async sendContent
+            sendContent((FileChannel)rbc, 0, httpContent.getContentLengthValue(), callback);
+            return;
+        }
         if (rbc != null)
         {
             // Close of the rbc is done by the async sendContent
@@ -1815,13 +1888,20 @@ public class HttpOutput extends ServletOutputStream implements Runnable
     {
         private final ReadableByteChannel _in;
         private final ByteBuffer _buffer;
+        private long _remaining;
         private boolean _eof;
         private boolean _closed;
 
         private ReadableByteChannelWritingCB(ReadableByteChannel in, Callback callback)
+        {
+            this(in, -1, callback);
+        }
+
+        private ReadableByteChannelWritingCB(ReadableByteChannel in, long length, Callback callback)
         {
             super(callback, true);
             _in = in;
+            _remaining = length;
             _buffer = _channel.getByteBufferPool().acquire(getBufferSize(), _channel.isUseOutputDirectByteBuffers());
         }
 
@@ -1843,8 +1923,10 @@ public class HttpOutput extends ServletOutputStream implements Runnable
                 return Action.SUCCEEDED;
             }
 
-            // Read from stream until buffer full or EOF
+            // Read from stream until buffer full, EOF or length read
             BufferUtil.clearToFill(_buffer);
+            if (_remaining >= 0 && _remaining < _buffer.remaining())
+                _buffer.limit((int)(_buffer.position() + _remaining));
             while (_buffer.hasRemaining() && !_eof)
             {
                 _eof = (_in.read(_buffer)) < 0;
@@ -1852,6 +1934,12 @@ public class HttpOutput extends ServletOutputStream implements Runnable
 
             // write what we have
             BufferUtil.flipToFlush(_buffer, 0);
+            if (_remaining >= 0)
+            {
+                _remaining -= _buffer.remaining();
+                if (_remaining == 0)
+                    _eof = true;
+            }
             _written += _buffer.remaining();
             channelWrite(_buffer, _eof, this);
 
@@ -1867,6 +1955,69 @@ public class HttpOutput extends ServletOutputStream implements Runnable
         }
     }
 
+    /**
+     * An iterating callback that commits the response, sends a region of a file
+     * with {@link HttpChannel#transfer(FileChannel, long, long, Callback)},
+     * so that the file bytes are not copied in user space, and then completes the response.
+     */
+    private class FileTransferCB extends NestedChannelWriteCB
+    {
+        private final FileChannel _file;
+        private final long _position;
+        private final long _length;
+        private boolean _committed;
+        private boolean _transferred;
+        private boolean _completed;
+
+        private FileTransferCB(FileChannel file, long position, long length, Callback callback)
+        {
+            super(callback, true);
+            _file = file;
+            _position = position;
+            _length = length;
+        }
+
+        @Override
+        protected Action process() throws Exception
+        {
+            // Write the response headers
+            if (!_committed)
+            {
+                _committed = true;
+                channelWrite(BufferUtil.EMPTY_BUFFER, false, this);
+                return Action.SCHEDULED;
+            }
+
+            // Send the file region directly to the network
+            if (!_transferred)
+            {
+                _transferred = true;
+                _written += _length;
+                _channel.transfer(_file, _position, _length, this);
+                return Action.SCHEDULED;
+            }
+
+            if (!_completed)
+            {
+                _completed = true;
+                IO.close(_file);
+                channelWrite(BufferUtil.EMPTY_BUFFER, true, this);
+                return Action.SCHEDULED;
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("EOF of {}", this);
+            return Action.SUCCEEDED;
+        }
+
+        @Override
+        public void onCompleteFailure(Throwable x)
+        {
+            IO.close(_file);
+            super.onCompleteFailure(x);
+        }
+    }
+
     private static class WriteBlocker extends SharedBlockingCallback
     {
         private final HttpChannel _channel;
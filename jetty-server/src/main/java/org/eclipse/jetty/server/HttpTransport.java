@@ -14,6 +14,7 @@
 package org.eclipse.jetty.server;
 
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.util.Callback;
@@ -37,6 +38,29 @@ public interface HttpTransport
      */
     void send(MetaData.Request request, MetaData.Response response, ByteBuffer content, boolean lastContent, Callback callback);
 
+    /**
+     * @return true if response content can be sent from a file region, without being copied in user space,
+     * with {@link #transfer(FileChannel, long, long, Callback)}
+     */
+    default boolean isFileTransferSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Asynchronous call to send a region of a file as response content, after the response
+     * has been committed with a known content length.
+     *
+     * @param file the file to send the content from
+     * @param position the position in the file of the first content byte
+     * @param length the number of content bytes
+     * @param callback The Callback instance that success or failure of the transfer is notified on
+     */
+    default void transfer(FileChannel file, long position, long length, Callback callback)
+    {
+        callback.failed(new UnsupportedOperationException());
+    }
+
     /**
      * @return true if responses can be pushed over this transport
      */
@@ -0,0 +1,155 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.IOException;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLEngine;
+
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ssl.KernelTls;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.util.TypeUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A {@link SslConnectionFactory} that offloads the encryption of the TLS records
+ * written by its connections to the operating system kernel, once the TLS handshake
+ * is complete, so that the bytes written by the application, for example large static
+ * downloads, are not encrypted and copied in user space.</p>
+ * <p>The offload is performed by a {@link KernelTls} implementation, that is
+ * {@link #setKernelTls(KernelTls) explicitly configured} or otherwise discovered via
+ * {@link ServiceLoader}.
+ * Connections whose cipher suite, kernel or endpoint are not supported, as well as
+ * all the connections if no implementation is available, fall back to the encryption
+ * performed by the {@link SSLEngine}, as with {@link SslConnectionFactory}.</p>
+ */
+@ManagedObject
+public class KernelTlsConnectionFactory extends SslConnectionFactory
+{
+    private static final Logger LOG = LoggerFactory.getLogger(KernelTlsConnectionFactory.class);
+
+    private final AtomicLong offloadedConnections = new AtomicLong();
+    private final AtomicLong notOffloadedConnections = new AtomicLong();
+    private KernelTls kernelTls;
+
+    public KernelTlsConnectionFactory()
+    {
+        this(null, HttpVersion.HTTP_1_1.asString());
+    }
+
+    public KernelTlsConnectionFactory(@Name("sslContextFactory") SslContextFactory.Server factory, @Name("next") String nextProtocol)
+    {
+        super(factory, nextProtocol);
+    }
+
+    public KernelTls getKernelTls()
+    {
+        return kernelTls;
+    }
+
+    /**
+     * @param kernelTls the kernel TLS implementation, or null to discover it via {@link ServiceLoader}
+     */
+    public void setKernelTls(KernelTls kernelTls)
+    {
+        this.kernelTls = kernelTls;
+    }
+
+    @ManagedAttribute("The number of connections whose TLS encryption has been offloaded to the kernel")
+    public long getOffloadedConnections()
+    {
+        return offloadedConnections.get();
+    }
+
+    @ManagedAttribute("The number of connections whose TLS encryption could not be offloaded to the kernel")
+    public long getNotOffloadedConnections()
+    {
+        return notOffloadedConnections.get();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        if (kernelTls == null)
+        {
+            kernelTls = TypeUtil.serviceStream(ServiceLoader.load(KernelTls.class)).findFirst().orElse(null);
+            if (kernelTls == null)
+                LOG.warn("No kernel TLS implementation available, encrypting TLS records in user space");
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected SslConnection newSslConnection(Connector connector, EndPoint endPoint, SSLEngine engine)
+    {
+        SslConnection sslConnection = super.newSslConnection(connector, endPoint, engine);
+        if (kernelTls != null)
+            sslConnection.setKernelTls(new CountingKernelTls(kernelTls));
+        return sslConnection;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[kernelTls=%s]", super.toString(), kernelTls);
+    }
+
+    private class CountingKernelTls implements KernelTls
+    {
+        private final KernelTls delegate;
+
+        private CountingKernelTls(KernelTls delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean offload(SSLEngine sslEngine, EndPoint endPoint) throws IOException
+        {
+            boolean offloaded = false;
+            try
+            {
+                offloaded = delegate.offload(sslEngine, endPoint);
+                return offloaded;
+            }
+            finally
+            {
+                if (offloaded)
+                    offloadedConnections.incrementAndGet();
+                else
+                    notOffloadedConnections.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void closeOutbound(EndPoint endPoint) throws IOException
+        {
+            delegate.closeOutbound(endPoint);
+        }
+
+        @Override
+        public String toString()
+        {
+            return delegate.toString();
+        }
+    }
+}
@@ -18,6 +18,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.InvalidPathException;
 import java.util.Collection;
@@ -242,7 +244,7 @@ public class ResourceService
                 LOG.debug("content={}", content);
 
             // Not found?
-            if (content == null || !content.getResource().exists())
+            if (content == null || !exists(content))
             {
                 if (included)
                     throw new FileNotFoundException("!" + pathInContext);
@@ -251,7 +253,7 @@ public class ResourceService
             }
 
             // Directory?
-            if (content.getResource().isDirectory())
+            if (isDirectory(content))
             {
                 sendWelcome(content, pathInContext, endsWithSlash, included, request, response);
                 return true;
@@ -383,6 +385,21 @@ public class ResourceService
         return null;
     }
 
+    private static boolean exists(HttpContent content)
+    {
+        // A cached content whose file is watched answers without accessing the file system.
+        if (content instanceof CachedContentFactory.CachedHttpContent)
+            return ((CachedContentFactory.CachedHttpContent)content).exists();
+        return content.getResource().exists();
+    }
+
+    private static boolean isDirectory(HttpContent content)
+    {
+        if (content instanceof CachedContentFactory.CachedHttpContent)
+            return ((CachedContentFactory.CachedHttpContent)content).isDirectory();
+        return content.getResource().isDirectory();
+    }
+
     protected void sendWelcome(HttpContent content, String pathInContext, boolean endsWithSlash, boolean included, HttpServletRequest request, HttpServletResponse response)
         throws ServletException, IOException
     {
@@ -770,6 +787,8 @@ public class ResourceService
                     response.addDateHeader(HttpHeader.DATE.asString(), System.currentTimeMillis());
                 response.setHeader(HttpHeader.CONTENT_RANGE.asString(),
                     singleSatisfiableRange.toHeaderRangeString(content_length));
+                if (!written && sendFileContent(content, (HttpOutput)out, singleSatisfiableRange.getFirst(), singleLength))
+                    return true;
                 writeContent(content, out, singleSatisfiableRange.getFirst(), singleLength);
                 return true;
             }
@@ -837,6 +856,19 @@ public class ResourceService
         return true;
     }
 
+    private static boolean sendFileContent(HttpContent content, HttpOutput out, long start, long contentLength) throws IOException
+    {
+        // Send the range from the file, without copying it in user space if the connection supports it
+        ReadableByteChannel channel = content.getReadableByteChannel();
+        if (channel instanceof FileChannel)
+        {
+            out.sendContent((FileChannel)channel, start, contentLength);
+            return true;
+        }
+        IO.close(channel);
+        return false;
+    }
+
     private static void writeContent(HttpContent content, OutputStream out, long start, long contentLength) throws IOException
     {
         // Is the write for the whole content?
@@ -25,9 +25,12 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.EventListener;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.Connection;
@@ -38,8 +41,10 @@ import org.eclipse.jetty.io.SocketChannelEndPoint;
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.statistic.RateCounter;
 import org.eclipse.jetty.util.thread.Scheduler;
 
 /**
@@ -67,6 +72,15 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * which should allow optimal performance even if all the connections used are performing
  * significant non-blocking work in the callback tasks.
  * </p>
+ * <h2>Listening Channels</h2>
+ * <p>
+ * By default the connector opens a single listening channel, on which all the acceptor threads
+ * or a single selector accept connections. If {@link #setListeningChannelCount(int) multiple listening
+ * channels} are configured, they are all bound to the same address with {@code SO_REUSEPORT} so
+ * that the kernel balances the incoming connections across them; each channel is then used either
+ * by its own acceptor thread, or by its own selector, which registers the accepted connections
+ * to itself rather than handing them off to another selector.
+ * </p>
  */
 @ManagedObject("HTTP connector using NIO ByteChannels and Selectors")
 public class ServerConnector extends AbstractNetworkConnector
@@ -74,6 +88,8 @@ public class ServerConnector extends AbstractNetworkConnector
     private final SelectorManager _manager;
     private final AtomicReference<Closeable> _acceptor = new AtomicReference<>();
     private volatile ServerSocketChannel _acceptChannel;
+    private volatile List<ListeningChannel> _listeningChannels = List.of();
+    private volatile int _listeningChannelCount = 1;
     private volatile boolean _inheritChannel = false;
     private volatile int _localPort = -1;
     private volatile int _acceptQueueSize = 0;
@@ -230,10 +246,29 @@ public class ServerConnector extends AbstractNetworkConnector
         if (getAcceptors() == 0)
         {
             _acceptChannel.configureBlocking(false);
-            _acceptor.set(_manager.acceptor(_acceptChannel));
+            for (ListeningChannel listening : _listeningChannels)
+            {
+                listening.getChannel().configureBlocking(false);
+            }
+            _acceptor.set(newAcceptor());
         }
     }
 
+    private Closeable newAcceptor()
+    {
+        List<ListeningChannel> listeningChannels = _listeningChannels;
+        if (listeningChannels.isEmpty())
+            return _manager.acceptor(_acceptChannel);
+
+        // Each listening channel is registered to its own selector.
+        List<Closeable> acceptors = new ArrayList<>(listeningChannels.size());
+        for (ListeningChannel listening : listeningChannels)
+        {
+            acceptors.add(_manager.acceptor(listening.getChannel(), listening.getIndex()));
+        }
+        return () -> acceptors.forEach(IO::close);
+    }
+
     @Override
     protected void doStop() throws Exception
     {
@@ -307,7 +342,72 @@ public class ServerConnector extends AbstractNetworkConnector
             if (_localPort <= 0)
                 throw new IOException("Server channel not bound");
             addBean(_acceptChannel);
+            openListeningChannels();
+        }
+    }
+
+    private void openListeningChannels() throws IOException
+    {
+        int count = getEffectiveListeningChannelCount();
+        if (count <= 1)
+            return;
+        if (!_acceptChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT))
+        {
+            LOG.warn("SO_REUSEPORT not supported, using a single listening channel for {}", this);
+            return;
+        }
+        if (!Boolean.TRUE.equals(_acceptChannel.getOption(StandardSocketOptions.SO_REUSEPORT)))
+        {
+            LOG.warn("SO_REUSEPORT not enabled on {}, using a single listening channel for {}", _acceptChannel, this);
+            return;
+        }
+
+        List<ListeningChannel> listeningChannels = new ArrayList<>(count);
+        listeningChannels.add(new ListeningChannel(0, _acceptChannel));
+        try
+        {
+            for (int i = 1; i < count; ++i)
+            {
+                ServerSocketChannel channel = openListeningChannel(_localPort);
+                channel.configureBlocking(true);
+                listeningChannels.add(new ListeningChannel(i, channel));
+            }
+        }
+        catch (Throwable x)
+        {
+            listeningChannels.stream().skip(1).map(ListeningChannel::getChannel).forEach(IO::close);
+            throw x;
         }
+
+        _listeningChannels = List.copyOf(listeningChannels);
+        _listeningChannels.forEach(this::addBean);
+    }
+
+    /**
+     * <p>Called by {@link #open()} to obtain the additional listening channels,
+     * bound with {@code SO_REUSEPORT} to the same address as the accepting channel.</p>
+     *
+     * @param port the port the accepting channel is bound to
+     * @return ServerSocketChannel used to accept connections.
+     * @throws IOException if unable to obtain or configure the server channel
+     * @see #setListeningChannelCount(int)
+     */
+    protected ServerSocketChannel openListeningChannel(int port) throws IOException
+    {
+        InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(port) : new InetSocketAddress(getHost(), port);
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        setSocketOption(serverChannel, StandardSocketOptions.SO_REUSEADDR, getReuseAddress());
+        setSocketOption(serverChannel, StandardSocketOptions.SO_REUSEPORT, true);
+        try
+        {
+            serverChannel.bind(bindAddress, getAcceptQueueSize());
+        }
+        catch (Throwable e)
+        {
+            IO.close(serverChannel);
+            throw new IOException("Failed to bind to " + bindAddress, e);
+        }
+        return serverChannel;
     }
 
     /**
@@ -333,7 +433,7 @@ public class ServerConnector extends AbstractNetworkConnector
             InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(getPort()) : new InetSocketAddress(getHost(), getPort());
             serverChannel = ServerSocketChannel.open();
             setSocketOption(serverChannel, StandardSocketOptions.SO_REUSEADDR, getReuseAddress());
-            setSocketOption(serverChannel, StandardSocketOptions.SO_REUSEPORT, isReusePort());
+            setSocketOption(serverChannel, StandardSocketOptions.SO_REUSEPORT, isReusePort() || getEffectiveListeningChannelCount() > 1);
             try
             {
                 serverChannel.bind(bindAddress, getAcceptQueueSize());
@@ -379,6 +479,16 @@ public class ServerConnector extends AbstractNetworkConnector
     {
         super.close();
 
+        List<ListeningChannel> listeningChannels = _listeningChannels;
+        _listeningChannels = List.of();
+        for (ListeningChannel listening : listeningChannels)
+        {
+            removeBean(listening);
+            // The first listening channel is the accepting channel.
+            if (listening.getIndex() > 0)
+                IO.close(listening.getChannel());
+        }
+
         ServerSocketChannel serverChannel = _acceptChannel;
         _acceptChannel = null;
         if (serverChannel != null)
@@ -403,16 +513,27 @@ public class ServerConnector extends AbstractNetworkConnector
     @Override
     public void accept(int acceptorID) throws IOException
     {
-        ServerSocketChannel serverChannel = _acceptChannel;
+        List<ListeningChannel> listeningChannels = _listeningChannels;
+        ListeningChannel listening = listeningChannels.isEmpty() ? null : listeningChannels.get(acceptorID % listeningChannels.size());
+        ServerSocketChannel serverChannel = listening == null ? _acceptChannel : listening.getChannel();
         if (serverChannel != null && serverChannel.isOpen())
         {
             SocketChannel channel = serverChannel.accept();
+            if (listening != null)
+                listening.onAccepted();
             accepted(channel);
         }
     }
 
     // 在ServerConnector中，当Accept成功后，便会着手处理这个客户端连接。
     private void accepted(SocketChannel channel) throws IOException
+    {
+        configure(channel);
+        // 使用 SelectorManager 进行处理
+        _manager.accept(channel);
+    }
+
+    private void configure(SocketChannel channel) throws IOException
     {
         // 将对应的 channel 设置为非阻塞模式
         channel.configureBlocking(false);
@@ -422,8 +543,6 @@ public class ServerConnector extends AbstractNetworkConnector
             setSocketOption(channel, StandardSocketOptions.SO_RCVBUF, _acceptedReceiveBufferSize);
         if (_acceptedSendBufferSize > -1)
             setSocketOption(channel, StandardSocketOptions.SO_SNDBUF, _acceptedSendBufferSize);
-        // 使用 SelectorManager 进行处理
-        _manager.accept(channel);
     }
 
     @ManagedAttribute("The Selector Manager")
@@ -505,6 +624,55 @@ public class ServerConnector extends AbstractNetworkConnector
         _reusePort = reusePort;
     }
 
+    /**
+     * @return the number of listening channels, or -1 for one per acceptor, or one per selector if there are no acceptors
+     * @see #setListeningChannelCount(int)
+     */
+    @ManagedAttribute("The number of listening channels bound with SO_REUSEPORT")
+    public int getListeningChannelCount()
+    {
+        return _listeningChannelCount;
+    }
+
+    /**
+     * <p>Sets the number of listening channels that this connector opens.</p>
+     * <p>When more than one, the listening channels are bound to the same address with
+     * {@code SO_REUSEPORT} (regardless of {@link #isReusePort()}), and the kernel balances
+     * the incoming connections across them; each listening channel is then used by its
+     * own acceptor thread, or if there are no acceptors, by its own selector; there cannot
+     * be more listening channels than acceptor threads.</p>
+     * <p>If {@code SO_REUSEPORT} is not supported, or the connector uses an
+     * {@link #setInheritChannel(boolean) inherited} or {@link #open(ServerSocketChannel)
+     * provided} channel, a single listening channel is used.</p>
+     *
+     * @param listeningChannelCount the number of listening channels, or -1 for one per acceptor,
+     * or one per selector if there are no acceptors
+     */
+    public void setListeningChannelCount(int listeningChannelCount)
+    {
+        if (isStarted())
+            throw new IllegalStateException(getState());
+        _listeningChannelCount = listeningChannelCount;
+    }
+
+    private int getEffectiveListeningChannelCount()
+    {
+        int count = getListeningChannelCount();
+        int acceptors = getAcceptors();
+        if (count < 0)
+            count = acceptors > 0 ? acceptors : _manager.getSelectorCount();
+        // Each acceptor thread accepts from a single listening channel.
+        return acceptors > 0 ? Math.min(count, acceptors) : count;
+    }
+
+    /**
+     * @return the listening channels bound with {@code SO_REUSEPORT}, empty if a single listening channel is used
+     */
+    public List<ListeningChannel> getListeningChannels()
+    {
+        return _listeningChannels;
+    }
+
     /**
      * @return whether the accepted socket gets {@link java.net.SocketOptions#TCP_NODELAY TCP_NODELAY} enabled.
      * @see Socket#getTcpNoDelay()
@@ -579,7 +747,7 @@ public class ServerConnector extends AbstractNetworkConnector
             {
                 if (_acceptor.get() == null)
                 {
-                    Closeable acceptor = _manager.acceptor(_acceptChannel);
+                    Closeable acceptor = newAcceptor();
                     if (!_acceptor.compareAndSet(null, acceptor))
                         acceptor.close();
                 }
@@ -610,6 +778,22 @@ public class ServerConnector extends AbstractNetworkConnector
             ServerConnector.this.accepted((SocketChannel)channel);
         }
 
+        @Override
+        protected void accepted(SelectableChannel server, SelectableChannel channel, ManagedSelector selector) throws IOException
+        {
+            for (ListeningChannel listening : _listeningChannels)
+            {
+                if (listening.getChannel() == server)
+                {
+                    listening.onAccepted();
+                    break;
+                }
+            }
+            configure((SocketChannel)channel);
+            // Register the channel to the selector that accepted it.
+            accept(selector, channel, null);
+        }
+
         @Override
         protected SocketChannelEndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey selectionKey) throws IOException
         {
@@ -642,4 +826,64 @@ public class ServerConnector extends AbstractNetworkConnector
             return String.format("SelectorManager@%s", ServerConnector.this);
         }
     }
+
+    /**
+     * <p>A listening channel of a connector with {@link #setListeningChannelCount(int) multiple listening channels}.</p>
+     */
+    @ManagedObject("A listening channel bound with SO_REUSEPORT")
+    public static class ListeningChannel
+    {
+        private final LongAdder _accepted = new LongAdder();
+        private final RateCounter _acceptRate = new RateCounter();
+        private final int _index;
+        private final ServerSocketChannel _channel;
+
+        private ListeningChannel(int index, ServerSocketChannel channel)
+        {
+            _index = index;
+            _channel = channel;
+        }
+
+        @ManagedAttribute("The index of the listening channel")
+        public int getIndex()
+        {
+            return _index;
+        }
+
+        public ServerSocketChannel getChannel()
+        {
+            return _channel;
+        }
+
+        private void onAccepted()
+        {
+            _accepted.increment();
+            _acceptRate.add(1);
+        }
+
+        @ManagedAttribute("The number of accepted connections")
+        public long getAcceptedCount()
+        {
+            return _accepted.sum();
+        }
+
+        @ManagedAttribute("The number of accepted connections per second")
+        public long getAcceptRate()
+        {
+            return _acceptRate.getRate();
+        }
+
+        @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+        public void resetStats()
+        {
+            _accepted.reset();
+            _acceptRate.reset();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x[#%d,accepted=%d,%s]", getClass().getSimpleName(), hashCode(), _index, getAcceptedCount(), _channel);
+        }
+    }
 }
@@ -0,0 +1,679 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.DateGenerator;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http.MimeTypes.Type;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.ResourceHttpContent;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.resource.PathResource;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.resource.ResourceFactory;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A server wide cache of the bodies of static files, shared by all the contexts
+ * that serve them, so that the same file deployed in several contexts is held only once.</p>
+ * <p>Bodies are keyed by the path of the file, as already resolved by the resource to
+ * detect aliases, and stored off-heap, either in direct buffers or, if
+ * {@link #setUseFileMappedBuffer(boolean) configured}, in buffers mapped from the files themselves.
+ * An entry is replaced when the modification time or the length of its file changes,
+ * which is checked at most once every {@link #setRevalidationInterval(long) revalidation interval},
+ * and the least recently used entries are evicted to keep the total size of the cached
+ * bodies within the {@link #setMaxCacheSize(long) global budget}.</p>
+ * <p>Each context also maps its paths to the cached contents, so that a cache hit does not
+ * create a resource, nor look for its real path or its precompressed variants, until the
+ * entry is revalidated.
+ * Cache hits do not take any lock: they only mark the entry as used, and the eviction moves
+ * the marked entries to the most recently used end of the eviction order.</p>
+ * <p>The cache is added as a bean of the {@link Server}; {@link org.eclipse.jetty.server.handler.ResourceHandler}
+ * and {@code DefaultServlet} find it there and attach to it with the
+ * {@link HttpContent.ContentFactory} returned by {@link #newContentFactory(ResourceFactory, MimeTypes, CompressedContentFormat[])}
+ * in place of a per context cache.</p>
+ */
+@ManagedObject("Server wide cache of static content")
+public class SharedContentCache extends AbstractLifeCycle
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SharedContentCache.class);
+
+    private final AutoLock _lock = new AutoLock();
+    private final ConcurrentMap<Path, Entry> _entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ContentKey, SharedHttpContent> _contents = new ConcurrentHashMap<>();
+    // The entries in eviction order, guarded by the lock.
+    private final Map<Path, Entry> _evictionOrder = new LinkedHashMap<>(16, 0.75F, true);
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    // Written with the lock held.
+    private volatile long _cachedBytes;
+    private long _maxCacheSize = 256 * 1024 * 1024;
+    private long _maxCachedFileSize = 128 * 1024 * 1024;
+    private boolean _useFileMappedBuffer;
+    private long _revalidationInterval = 1000;
+
+    @ManagedAttribute("The maximum total size in bytes of the cached content")
+    public long getMaxCacheSize()
+    {
+        return _maxCacheSize;
+    }
+
+    /**
+     * @param maxCacheSize the maximum total size in bytes of the cached content, across all the contexts
+     */
+    public void setMaxCacheSize(long maxCacheSize)
+    {
+        _maxCacheSize = maxCacheSize;
+        try (AutoLock l = _lock.lock())
+        {
+            evict();
+        }
+    }
+
+    @ManagedAttribute("The maximum size in bytes of a cached file")
+    public long getMaxCachedFileSize()
+    {
+        return _maxCachedFileSize;
+    }
+
+    public void setMaxCachedFileSize(long maxCachedFileSize)
+    {
+        _maxCachedFileSize = maxCachedFileSize;
+    }
+
+    @ManagedAttribute("Whether the content is cached in buffers mapped from the files")
+    public boolean isUseFileMappedBuffer()
+    {
+        return _useFileMappedBuffer;
+    }
+
+    /**
+     * @param useFileMappedBuffer true to cache the content in buffers mapped from the files,
+     * false to copy the content into direct buffers
+     */
+    public void setUseFileMappedBuffer(boolean useFileMappedBuffer)
+    {
+        _useFileMappedBuffer = useFileMappedBuffer;
+    }
+
+    /**
+     * @return the interval in ms between the checks of the file of a cache entry
+     */
+    @ManagedAttribute("The interval in ms between the checks of the cached files")
+    public long getRevalidationInterval()
+    {
+        return _revalidationInterval;
+    }
+
+    /**
+     * <p>Sets the interval between the checks of the modification time and the length
+     * of the file of a cache entry.
+     * A file changed within this interval is served stale until it is checked.</p>
+     *
+     * @param revalidationInterval the interval in ms between the checks of the file
+     * of a cache entry, 0 to check it on every request, or -1 to never check it
+     */
+    public void setRevalidationInterval(long revalidationInterval)
+    {
+        _revalidationInterval = revalidationInterval;
+    }
+
+    @ManagedAttribute("The total size in bytes of the cached content")
+    public long getCachedSize()
+    {
+        return _cachedBytes;
+    }
+
+    @ManagedAttribute("The number of cached files")
+    public int getCachedFiles()
+    {
+        return _entries.size();
+    }
+
+    @ManagedAttribute("The number of requests served from the cache")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of requests that loaded the content in the cache")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of entries evicted from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+    }
+
+    @ManagedOperation(value = "Removes all the entries from the cache", impact = "ACTION")
+    public void flushCache()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            _entries.clear();
+            _evictionOrder.clear();
+            _contents.clear();
+            _cachedBytes = 0;
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        flushCache();
+        super.doStop();
+    }
+
+    /**
+     * <p>Creates the content factory of a context, that serves the files of the context
+     * from this cache.</p>
+     * <p>Directories, files that are too large and resources that are not files are
+     * served as non cached {@link ResourceHttpContent}.</p>
+     *
+     * @param factory the factory of the resources of the context
+     * @param mimeTypes the mime types of the context
+     * @param precompressedFormats the precompressed formats to look for, that are not cached
+     * @return a content factory for the context
+     */
+    public HttpContent.ContentFactory newContentFactory(ResourceFactory factory, MimeTypes mimeTypes, CompressedContentFormat[] precompressedFormats)
+    {
+        return new ContextContentFactory(factory, mimeTypes, precompressedFormats);
+    }
+
+    /**
+     * @param resource the resource
+     * @return a read-only view of the cached content of the resource, loading it if necessary,
+     * or null if the resource cannot be cached
+     */
+    protected ByteBuffer getBuffer(Resource resource)
+    {
+        Entry entry = getEntry(resource);
+        return entry == null ? null : entry._buffer.asReadOnlyBuffer();
+    }
+
+    private Entry getEntry(Resource resource)
+    {
+        Path path = getPath(resource);
+        if (path == null)
+            return null;
+
+        long now = System.nanoTime();
+        Entry entry = _entries.get(path);
+        if (entry != null && !entry.needsRevalidation(now))
+            return entry.hit();
+
+        BasicFileAttributes attributes;
+        try
+        {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        }
+        catch (IOException x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Not caching {}", resource, x);
+            remove(path, entry);
+            return null;
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (!attributes.isRegularFile() || length <= 0 || length > _maxCachedFileSize || length > _maxCacheSize || length > Integer.MAX_VALUE)
+        {
+            remove(path, entry);
+            return null;
+        }
+
+        if (entry != null && entry.isValid(lastModified, length))
+        {
+            entry._lastValidated = now;
+            return entry.hit();
+        }
+
+        _misses.increment();
+        ByteBuffer buffer;
+        try
+        {
+            buffer = load(path, length);
+        }
+        catch (IOException x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Could not load {}", path, x);
+            return null;
+        }
+        String etag = resource.getWeakETag();
+
+        try (AutoLock l = _lock.lock())
+        {
+            Entry current = _entries.get(path);
+            // Another request may have loaded the same file concurrently.
+            if (current != null && current.isValid(lastModified, length))
+                return current;
+            if (current != null)
+                discard(current);
+            Entry loaded = new Entry(path, buffer, lastModified, length, etag, now);
+            _entries.put(path, loaded);
+            _evictionOrder.put(path, loaded);
+            _cachedBytes += length;
+            evict();
+            return loaded;
+        }
+    }
+
+    private void remove(Path path, Entry entry)
+    {
+        if (entry == null)
+            return;
+        try (AutoLock l = _lock.lock())
+        {
+            if (_entries.get(path) == entry)
+                discard(entry);
+        }
+    }
+
+    private void discard(Entry entry)
+    {
+        assert _lock.isHeldByCurrentThread();
+        _entries.remove(entry._path, entry);
+        _evictionOrder.remove(entry._path, entry);
+        _cachedBytes -= entry._length;
+        for (ContentKey key : entry._contentKeys)
+        {
+            _contents.computeIfPresent(key, (k, content) -> content._entry == entry ? null : content);
+        }
+    }
+
+    private void map(ContentKey key, SharedHttpContent content)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            // Do not map an entry that has been replaced or evicted meanwhile.
+            Entry entry = content._entry;
+            if (_entries.get(entry._path) != entry)
+                return;
+            entry._contentKeys.add(key);
+            _contents.put(key, content);
+        }
+    }
+
+    private Path getPath(Resource resource)
+    {
+        // A PathResource has already resolved its real path, to detect aliases.
+        if (resource instanceof PathResource)
+        {
+            PathResource pathResource = (PathResource)resource;
+            Path alias = pathResource.getAliasPath();
+            return alias != null ? alias : pathResource.getPath();
+        }
+        try
+        {
+            File file = resource.getFile();
+            return file == null ? null : file.toPath().toAbsolutePath();
+        }
+        catch (IOException | InvalidPathException x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Not caching {}", resource, x);
+            return null;
+        }
+    }
+
+    private ByteBuffer load(Path path, long length) throws IOException
+    {
+        if (_useFileMappedBuffer)
+            return BufferUtil.toMappedBuffer(path, 0, length);
+
+        ByteBuffer buffer = BufferUtil.allocateDirect((int)length);
+        int pos = BufferUtil.flipToFill(buffer);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer) < 0)
+                    break;
+            }
+        }
+        BufferUtil.flipToFlush(buffer, pos);
+        return buffer;
+    }
+
+    private void evict()
+    {
+        assert _lock.isHeldByCurrentThread();
+        while (_cachedBytes > _maxCacheSize && !_evictionOrder.isEmpty())
+        {
+            Entry eldest = _evictionOrder.values().iterator().next();
+            if (eldest._used)
+            {
+                // The entry has been used since it was last moved, so move
+                // it to the most recently used end of the eviction order.
+                eldest._used = false;
+                _evictionOrder.get(eldest._path);
+                continue;
+            }
+            discard(eldest);
+            _evictions.increment();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{files=%d,size=%d/%d}", getClass().getSimpleName(), hashCode(), getCachedFiles(), getCachedSize(), _maxCacheSize);
+    }
+
+    private class Entry
+    {
+        private final Path _path;
+        private final ByteBuffer _buffer;
+        private final long _lastModified;
+        private final long _length;
+        private final HttpField _lastModifiedField;
+        private final HttpField _etag;
+        // The context paths mapped to this entry, guarded by the lock.
+        private final Set<ContentKey> _contentKeys = new HashSet<>();
+        private volatile long _lastValidated;
+        private volatile boolean _used;
+
+        private Entry(Path path, ByteBuffer buffer, long lastModified, long length, String etag, long now)
+        {
+            _path = path;
+            _buffer = buffer;
+            _lastModified = lastModified;
+            _length = length;
+            _lastModifiedField = new PreEncodedHttpField(HttpHeader.LAST_MODIFIED, DateGenerator.formatDate(lastModified));
+            _etag = new PreEncodedHttpField(HttpHeader.ETAG, etag);
+            _lastValidated = now;
+        }
+
+        private boolean needsRevalidation(long now)
+        {
+            long interval = _revalidationInterval;
+            if (interval < 0)
+                return false;
+            return now - _lastValidated >= TimeUnit.MILLISECONDS.toNanos(interval);
+        }
+
+        private boolean isValid(long lastModified, long length)
+        {
+            return _lastModified == lastModified && _length == length;
+        }
+
+        private Entry hit()
+        {
+            _hits.increment();
+            _used = true;
+            return this;
+        }
+    }
+
+    /**
+     * <p>The key of the content mapped to a path of a context, made of the
+     * {@link ResourceFactory} that resolves the paths of the context against
+     * its base resource, and of the path in context.</p>
+     */
+    private static class ContentKey
+    {
+        private final ResourceFactory _factory;
+        private final String _pathInContext;
+
+        private ContentKey(ResourceFactory factory, String pathInContext)
+        {
+            _factory = factory;
+            _pathInContext = pathInContext;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof ContentKey))
+                return false;
+            ContentKey that = (ContentKey)obj;
+            return _factory == that._factory && _pathInContext.equals(that._pathInContext);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode(_factory) + _pathInContext.hashCode();
+        }
+    }
+
+    private class ContextContentFactory extends ResourceContentFactory
+    {
+        private final ResourceFactory _factory;
+
+        private ContextContentFactory(ResourceFactory factory, MimeTypes mimeTypes, CompressedContentFormat[] precompressedFormats)
+        {
+            super(factory, mimeTypes, precompressedFormats);
+            _factory = factory;
+        }
+
+        @Override
+        public HttpContent getContent(String pathInContext, int maxBufferSize) throws IOException
+        {
+            // Look up the content of the path before creating its resource.
+            ContentKey key = new ContentKey(_factory, pathInContext);
+            SharedHttpContent cached = _contents.get(key);
+            if (cached != null && !cached._entry.needsRevalidation(System.nanoTime()))
+            {
+                cached._entry.hit();
+                return cached;
+            }
+
+            HttpContent content = super.getContent(pathInContext, maxBufferSize);
+            Entry entry = content == null ? null : getEntry(content.getResource());
+            if (entry == null)
+            {
+                if (cached != null)
+                    _contents.remove(key, cached);
+                return content;
+            }
+            SharedHttpContent shared = new SharedHttpContent(content, entry);
+            map(key, shared);
+            return shared;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), SharedContentCache.this);
+        }
+    }
+
+    /**
+     * <p>The content of a cached file, whose buffers are views of the off-heap cached buffer,
+     * whatever the kind of buffer requested, and whose last modified time and etag are
+     * those of the cached buffer, even if the file has changed since it was last checked.</p>
+     * <p>The content is reused by the requests for the same path of the same context,
+     * until its entry is revalidated.</p>
+     */
+    private static class SharedHttpContent implements HttpContent
+    {
+        private final HttpContent _content;
+        private final Entry _entry;
+        private final ByteBuffer _buffer;
+
+        private SharedHttpContent(HttpContent content, Entry entry)
+        {
+            _content = content;
+            _entry = entry;
+            _buffer = entry._buffer.asReadOnlyBuffer();
+        }
+
+        @Override
+        public HttpField getContentType()
+        {
+            return _content.getContentType();
+        }
+
+        @Override
+        public String getContentTypeValue()
+        {
+            return _content.getContentTypeValue();
+        }
+
+        @Override
+        public String getCharacterEncoding()
+        {
+            return _content.getCharacterEncoding();
+        }
+
+        @Override
+        public Type getMimeType()
+        {
+            return _content.getMimeType();
+        }
+
+        @Override
+        public HttpField getContentEncoding()
+        {
+            return _content.getContentEncoding();
+        }
+
+        @Override
+        public String getContentEncodingValue()
+        {
+            return _content.getContentEncodingValue();
+        }
+
+        @Override
+        public HttpField getContentLength()
+        {
+            return new HttpField.LongValueHttpField(HttpHeader.CONTENT_LENGTH, _buffer.remaining());
+        }
+
+        @Override
+        public long getContentLengthValue()
+        {
+            return _buffer.remaining();
+        }
+
+        @Override
+        public HttpField getLastModified()
+        {
+            return _entry._lastModifiedField;
+        }
+
+        @Override
+        public String getLastModifiedValue()
+        {
+            return _entry._lastModifiedField.getValue();
+        }
+
+        @Override
+        public HttpField getETag()
+        {
+            return _entry._etag;
+        }
+
+        @Override
+        public String getETagValue()
+        {
+            return _entry._etag.getValue();
+        }
+
+        @Override
+        public ByteBuffer getIndirectBuffer()
+        {
+            return _buffer.slice();
+        }
+
+        @Override
+        public ByteBuffer getDirectBuffer()
+        {
+            return _buffer.slice();
+        }
+
+        @Override
+        public Resource getResource()
+        {
+            return _content.getResource();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException
+        {
+            return _content.getInputStream();
+        }
+
+        @Override
+        public ReadableByteChannel getReadableByteChannel() throws IOException
+        {
+            return _content.getReadableByteChannel();
+        }
+
+        @Override
+        public void release()
+        {
+            // The content is shared by the requests for the same path.
+        }
+
+        @Override
+        public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents()
+        {
+            return _content.getPrecompressedContents();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s,%s}", getClass().getSimpleName(), hashCode(), _content, BufferUtil.toDetailString(_buffer));
+        }
+    }
+}
@@ -16,6 +16,12 @@ package org.eclipse.jetty.server;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSession;
 
@@ -27,10 +33,18 @@ import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.RetainableByteBufferPool;
 import org.eclipse.jetty.io.ssl.SslConnection;
 import org.eclipse.jetty.io.ssl.SslHandshakeListener;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.statistic.CounterStatistic;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
+@ManagedObject
 public class SslConnectionFactory extends AbstractConnectionFactory implements ConnectionFactory.Detecting, ConnectionFactory.Configuring
 {
     private static final int TLS_ALERT_FRAME_TYPE = 0x15;
@@ -39,9 +53,20 @@ public class SslConnectionFactory extends AbstractConnectionFactory implements C
 
     private final SslContextFactory.Server _sslContextFactory;
     private final String _nextProtocol;
+    private final AtomicLong _fullHandshakes = new AtomicLong();
+    private final AtomicLong _resumedHandshakes = new AtomicLong();
+    private final AtomicLong _failedHandshakes = new AtomicLong();
+    private final CounterStatistic _queuedHandshakeTasks = new CounterStatistic();
+    private final SampleStatistic _handshakeTaskQueueTime = new SampleStatistic();
+    private final Executor _handshakeTaskExecutor = new HandshakeTaskExecutor();
+    private final HandshakeStatistics _handshakeStatistics = new HandshakeStatistics();
+    private Executor _handshakeExecutor;
+    private boolean _handshakeExecutorCreated;
+    private int _maxHandshakeThreads;
     private boolean _directBuffersForEncryption = false;
     private boolean _directBuffersForDecryption = false;
     private boolean _ensureSecureRequestCustomizer = true;
+    private int _maxRecordsPerFlush = 1;
 
     public SslConnectionFactory()
     {
@@ -86,6 +111,157 @@ public class SslConnectionFactory extends AbstractConnectionFactory implements C
         return _directBuffersForEncryption;
     }
 
+    /**
+     * @return the max number of TLS records that are wrapped before being flushed to the network
+     * @see SslConnection#getMaxRecordsPerFlush()
+     */
+    public int getMaxRecordsPerFlush()
+    {
+        return _maxRecordsPerFlush;
+    }
+
+    /**
+     * @param maxRecordsPerFlush the max number of TLS records that are wrapped before being flushed to the network
+     * @see SslConnection#setMaxRecordsPerFlush(int)
+     */
+    public void setMaxRecordsPerFlush(int maxRecordsPerFlush)
+    {
+        _maxRecordsPerFlush = maxRecordsPerFlush;
+    }
+
+    /**
+     * @return the executor that runs the TLS handshake delegated tasks, or null
+     * if they are run by the threads that handle the I/O of the connections
+     * @see SslConnection#getDelegatedTaskExecutor()
+     */
+    public Executor getHandshakeExecutor()
+    {
+        return _handshakeExecutor;
+    }
+
+    /**
+     * <p>Sets the executor that runs the TLS handshake delegated tasks, such as the
+     * expensive cryptographic operations, so that new connections handshaking do
+     * not delay the I/O of the established connections.</p>
+     * <p>The number of threads of a bounded executor limits the number of concurrent
+     * handshakes, and the tasks exceeding the limit are queued.</p>
+     *
+     * @param executor the executor that runs the TLS handshake delegated tasks, or null
+     * to run them by the threads that handle the I/O of the connections
+     * @see SslConnection#setDelegatedTaskExecutor(Executor)
+     */
+    public void setHandshakeExecutor(Executor executor)
+    {
+        updateBean(_handshakeExecutor, executor);
+        _handshakeExecutor = executor;
+    }
+
+    /**
+     * @return the max number of threads of the executor created to run the TLS handshake delegated tasks
+     */
+    @ManagedAttribute("The max number of threads running TLS handshake tasks")
+    public int getMaxHandshakeThreads()
+    {
+        return _maxHandshakeThreads;
+    }
+
+    /**
+     * <p>Sets the max number of threads of the executor created at start, if no
+     * {@link #setHandshakeExecutor(Executor) handshake executor} is configured,
+     * to run the TLS handshake delegated tasks.</p>
+     *
+     * @param maxHandshakeThreads the max number of threads running TLS handshake
+     * delegated tasks, or 0 to run them by the threads that handle the I/O of the connections
+     */
+    public void setMaxHandshakeThreads(int maxHandshakeThreads)
+    {
+        _maxHandshakeThreads = maxHandshakeThreads;
+    }
+
+    /**
+     * @return the number of TLS handshake delegated tasks waiting to be run by the handshake executor
+     */
+    @ManagedAttribute("The number of queued TLS handshake tasks")
+    public long getQueuedHandshakeTasks()
+    {
+        return _queuedHandshakeTasks.getCurrent();
+    }
+
+    /**
+     * @return the max number of TLS handshake delegated tasks waiting to be run by the handshake executor
+     */
+    @ManagedAttribute("The max number of queued TLS handshake tasks")
+    public long getMaxQueuedHandshakeTasks()
+    {
+        return _queuedHandshakeTasks.getMax();
+    }
+
+    /**
+     * @return the number of TLS handshake delegated tasks run by the handshake executor
+     */
+    @ManagedAttribute("The number of TLS handshake tasks run by the handshake executor")
+    public long getHandshakeTasks()
+    {
+        return _handshakeTaskQueueTime.getCount();
+    }
+
+    /**
+     * @return the mean time, in milliseconds, that TLS handshake delegated tasks are queued
+     */
+    @ManagedAttribute("The mean time in ms that TLS handshake tasks are queued")
+    public double getMeanHandshakeTaskQueueTime()
+    {
+        return _handshakeTaskQueueTime.getMean();
+    }
+
+    /**
+     * @return the max time, in milliseconds, that TLS handshake delegated tasks are queued
+     */
+    @ManagedAttribute("The max time in ms that TLS handshake tasks are queued")
+    public long getMaxHandshakeTaskQueueTime()
+    {
+        return _handshakeTaskQueueTime.getMax();
+    }
+
+    /**
+     * @return the number of TLS handshakes that created a new TLS session
+     */
+    @ManagedAttribute("The number of full TLS handshakes")
+    public long getFullHandshakes()
+    {
+        return _fullHandshakes.get();
+    }
+
+    /**
+     * @return the number of TLS handshakes that resumed a TLS session,
+     * either from the session cache or from a session ticket
+     */
+    @ManagedAttribute("The number of TLS handshakes that resumed a TLS session")
+    public long getResumedHandshakes()
+    {
+        return _resumedHandshakes.get();
+    }
+
+    /**
+     * @return the number of failed TLS handshakes
+     */
+    @ManagedAttribute("The number of failed TLS handshakes")
+    public long getFailedHandshakes()
+    {
+        return _failedHandshakes.get();
+    }
+
+    @ManagedOperation(value = "Resets the TLS handshake statistics", impact = "ACTION")
+    public void resetHandshakeStatistics()
+    {
+        _fullHandshakes.set(0);
+        _resumedHandshakes.set(0);
+        _failedHandshakes.set(0);
+        _handshakeStatistics.clear();
+        _queuedHandshakeTasks.reset();
+        _handshakeTaskQueueTime.reset();
+    }
+
     public String getNextProtocol()
     {
         return _nextProtocol;
@@ -109,6 +285,15 @@ public class SslConnectionFactory extends AbstractConnectionFactory implements C
     @Override
     protected void doStart() throws Exception
     {
+        if (_handshakeExecutor == null && _maxHandshakeThreads > 0)
+        {
+            QueuedThreadPool handshakeExecutor = new QueuedThreadPool(_maxHandshakeThreads, 1);
+            handshakeExecutor.setName(String.format("ssl-handshake-%x", hashCode()));
+            handshakeExecutor.setReservedThreads(0);
+            setHandshakeExecutor(handshakeExecutor);
+            _handshakeExecutorCreated = true;
+        }
+
         super.doStart();
 
         SSLEngine engine = _sslContextFactory.newSSLEngine();
@@ -119,6 +304,17 @@ public class SslConnectionFactory extends AbstractConnectionFactory implements C
             setInputBufferSize(session.getPacketBufferSize());
     }
 
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        if (_handshakeExecutorCreated)
+        {
+            setHandshakeExecutor(null);
+            _handshakeExecutorCreated = false;
+        }
+    }
+
     @Override
     public void configure(Connector connector)
     {
@@ -155,6 +351,9 @@ public class SslConnectionFactory extends AbstractConnectionFactory implements C
         SslConnection sslConnection = newSslConnection(connector, endPoint, engine);
         sslConnection.setRenegotiationAllowed(_sslContextFactory.isRenegotiationAllowed());
         sslConnection.setRenegotiationLimit(_sslContextFactory.getRenegotiationLimit());
+        sslConnection.setMaxRecordsPerFlush(getMaxRecordsPerFlush());
+        if (_handshakeExecutor != null)
+            sslConnection.setDelegatedTaskExecutor(_handshakeTaskExecutor);
         configure(sslConnection, connector, endPoint);
 
         ConnectionFactory next = connector.getConnectionFactory(_nextProtocol);
@@ -184,6 +383,7 @@ public class SslConnectionFactory extends AbstractConnectionFactory implements C
                 container.getBeans(SslHandshakeListener.class).forEach(sslConnection::addHandshakeListener);
             }
             getBeans(SslHandshakeListener.class).forEach(sslConnection::addHandshakeListener);
+            sslConnection.addHandshakeListener(_handshakeStatistics);
         }
         return super.configure(connection, connector, endPoint);
     }
@@ -193,4 +393,94 @@ public class SslConnectionFactory extends AbstractConnectionFactory implements C
     {
         return String.format("%s@%x{%s->%s}", this.getClass().getSimpleName(), hashCode(), getProtocol(), _nextProtocol);
     }
+
+    private class HandshakeTaskExecutor implements Executor
+    {
+        @Override
+        public void execute(Runnable task)
+        {
+            Executor executor = _handshakeExecutor;
+            if (executor == null)
+                throw new RejectedExecutionException();
+            long queued = System.nanoTime();
+            _queuedHandshakeTasks.increment();
+            try
+            {
+                executor.execute(() ->
+                {
+                    _queuedHandshakeTasks.decrement();
+                    _handshakeTaskQueueTime.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queued));
+                    task.run();
+                });
+            }
+            catch (RejectedExecutionException x)
+            {
+                _queuedHandshakeTasks.decrement();
+                throw x;
+            }
+        }
+    }
+
+    /**
+     * <p>Counts the TLS handshakes, telling a resumed session from a new one by its identity:
+     * a session seen at the completion of a previous handshake is resumed.</p>
+     * <p>TLS 1.2 resumes a session with its id. TLS 1.3 gives a new id to a resumed session,
+     * which keeps the creation time and the peer address of the session it resumes, so that
+     * pair identifies it as well.</p>
+     * <p>Only the last {@value #MAX_SESSIONS} sessions are remembered, so older sessions,
+     * and sessions resumed with tickets issued before a restart or by another server, are
+     * counted as full handshakes. Sharing and rotating the session ticket keys across servers
+     * is not implemented.</p>
+     */
+    private class HandshakeStatistics implements SslHandshakeListener
+    {
+        private static final int MAX_SESSIONS = 1024;
+
+        private final AutoLock _lock = new AutoLock();
+        private final Map<Object, Boolean> _sessions = new LinkedHashMap<>(16, 0.75F, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest)
+            {
+                return size() > 2 * MAX_SESSIONS;
+            }
+        };
+
+        @Override
+        public void handshakeSucceeded(Event event)
+        {
+            if (isResumed(event.getSSLEngine().getSession()))
+                _resumedHandshakes.incrementAndGet();
+            else
+                _fullHandshakes.incrementAndGet();
+        }
+
+        @Override
+        public void handshakeFailed(Event event, Throwable failure)
+        {
+            _failedHandshakes.incrementAndGet();
+        }
+
+        private boolean isResumed(SSLSession session)
+        {
+            ByteBuffer sessionId = ByteBuffer.wrap(session.getId());
+            String origin = session.getPeerPort() < 0 ? null
+                : session.getCreationTime() + "|" + session.getPeerHost() + ":" + session.getPeerPort();
+            try (AutoLock l = _lock.lock())
+            {
+                boolean resumed = sessionId.hasRemaining() && _sessions.put(sessionId, Boolean.TRUE) != null;
+                if (origin != null && _sessions.put(origin, Boolean.TRUE) != null)
+                    resumed = true;
+                return resumed;
+            }
+        }
+
+        private void clear()
+        {
+            try (AutoLock l = _lock.lock())
+            {
+                _sessions.clear();
+            }
+        }
+    }
 }
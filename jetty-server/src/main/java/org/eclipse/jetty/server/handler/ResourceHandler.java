@@ -31,6 +31,7 @@ import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.ResourceContentFactory;
 import org.eclipse.jetty.server.ResourceService;
 import org.eclipse.jetty.server.ResourceService.WelcomeFactory;
+import org.eclipse.jetty.server.SharedContentCache;
 import org.eclipse.jetty.server.handler.ContextHandler.Context;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.URIUtil;
@@ -42,8 +43,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Resource Handler.
  *
- * This handle will serve static content and handle If-Modified-Since headers. No caching is done. Requests for resources that do not exist are let pass (Eg no
- * 404's).
+ * This handle will serve static content and handle If-Modified-Since headers. No caching is done, unless a {@link SharedContentCache} is a bean of
+ * the server. Requests for resources that do not exist are let pass (Eg no 404's).
  */
 public class ResourceHandler extends HandlerWrapper implements ResourceFactory, WelcomeFactory
 {
@@ -99,7 +100,11 @@ public class ResourceHandler extends HandlerWrapper implements ResourceFactory,
         if (_mimeTypes == null)
             _mimeTypes = _context == null ? new MimeTypes() : _context.getMimeTypes();
 
-        _resourceService.setContentFactory(new ResourceContentFactory(this, _mimeTypes, _resourceService.getPrecompressedFormats()));
+        SharedContentCache sharedCache = getServer() == null ? null : getServer().getBean(SharedContentCache.class);
+        if (sharedCache != null)
+            _resourceService.setContentFactory(sharedCache.newContentFactory(this, _mimeTypes, _resourceService.getPrecompressedFormats()));
+        else
+            _resourceService.setContentFactory(new ResourceContentFactory(this, _mimeTypes, _resourceService.getPrecompressedFormats()));
         _resourceService.setWelcomeFactory(this);
 
         super.doStart();
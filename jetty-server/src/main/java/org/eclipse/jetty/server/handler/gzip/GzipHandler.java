@@ -35,6 +35,7 @@ import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.http.pathmap.PathSpecSet;
+import org.eclipse.jetty.server.HttpChannel;
 import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
@@ -122,6 +123,11 @@ import org.slf4j.LoggerFactory;
  * Note that the suffix used is determined by {@link CompressedContentFormat#ETAG_SEPARATOR}
  * </p>
  * <p>
+ * If a {@link GzipResponseCache} is {@link #setResponseCache(GzipResponseCache) set}, the compressed
+ * bodies of the responses with a strong ETag are cached, and written again in place of compressing
+ * the responses that have the same ETag again.
+ * </p>
+ * <p>
  * This implementation relies on an Jetty internal {@link org.eclipse.jetty.server.HttpOutput.Interceptor}
  * mechanism to allow for effective and efficient compression of the response on all Output API usages:
  * </p>
@@ -170,6 +176,7 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
     private final IncludeExclude<String> _paths = new IncludeExclude<>(PathSpecSet.class);
     private final IncludeExclude<String> _mimeTypes = new IncludeExclude<>(AsciiLowerCaseSet.class);
     private HttpField _vary = GzipHttpOutputInterceptor.VARY_ACCEPT_ENCODING;
+    private GzipResponseCache _responseCache;
 
     /**
      * Instantiates a new GzipHandler.
@@ -711,7 +718,8 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
         try
         {
             // install interceptor and handle
-            out.setInterceptor(new GzipHttpOutputInterceptor(this, getVaryField(), baseRequest.getHttpChannel(), origInterceptor, isSyncFlush()));
+            HttpChannel channel = baseRequest.getHttpChannel();
+            out.setInterceptor(new GzipHttpOutputInterceptor(this, getVaryField(), channel.getHttpConfiguration().getOutputBufferSize(), channel, origInterceptor, isSyncFlush(), _responseCache));
 
             if (_handler != null)
                 _handler.handle(target, baseRequest, request, response);
@@ -969,6 +977,26 @@ public class GzipHandler extends HandlerWrapper implements GzipFactory
         _inflaterPool = inflaterPool;
     }
 
+    /**
+     * @return the cache of compressed responses, or null if compressed responses are not cached
+     */
+    public GzipResponseCache getResponseCache()
+    {
+        return _responseCache;
+    }
+
+    /**
+     * Set the cache of compressed responses, so that the responses with a strong ETag
+     * are not compressed again when they are produced again with the same ETag.
+     * @param responseCache the cache of compressed responses, or null to not cache compressed responses
+     * @see GzipResponseCache
+     */
+    public void setResponseCache(GzipResponseCache responseCache)
+    {
+        updateBean(_responseCache, responseCache);
+        _responseCache = responseCache;
+    }
+
     /**
      * Gets the maximum number of Deflaters that the DeflaterPool can hold.
      *
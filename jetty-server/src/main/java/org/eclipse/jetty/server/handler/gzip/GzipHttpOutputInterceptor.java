@@ -22,10 +22,12 @@ import java.util.zip.Deflater;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.server.HttpChannel;
 import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Response;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
@@ -45,7 +47,7 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
 
     private enum GZState
     {
-        MIGHT_COMPRESS, NOT_COMPRESSING, COMMITTING, COMPRESSING, FINISHED
+        MIGHT_COMPRESS, NOT_COMPRESSING, COMMITTING, COMPRESSING, CACHED, FINISHED
     }
 
     private final AtomicReference<GZState> _state = new AtomicReference<>(GZState.MIGHT_COMPRESS);
@@ -57,9 +59,13 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
     private final HttpField _vary;
     private final int _bufferSize;
     private final boolean _syncFlush;
+    private final GzipResponseCache _cache;
 
     private DeflaterPool.Entry _deflaterEntry;
     private ByteBuffer _buffer;
+    private String _cacheKey;
+    private ByteBuffer _cacheBuffer;
+    private long _compressionNanos;
 
     public GzipHttpOutputInterceptor(GzipFactory factory, HttpChannel channel, HttpOutput.Interceptor next, boolean syncFlush)
     {
@@ -72,6 +78,11 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
     }
 
     public GzipHttpOutputInterceptor(GzipFactory factory, HttpField vary, int bufferSize, HttpChannel channel, HttpOutput.Interceptor next, boolean syncFlush)
+    {
+        this(factory, vary, bufferSize, channel, next, syncFlush, null);
+    }
+
+    public GzipHttpOutputInterceptor(GzipFactory factory, HttpField vary, int bufferSize, HttpChannel channel, HttpOutput.Interceptor next, boolean syncFlush, GzipResponseCache cache)
     {
         _factory = factory;
         _channel = channel;
@@ -79,6 +90,7 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
         _vary = vary;
         _bufferSize = bufferSize;
         _syncFlush = syncFlush;
+        _cache = cache;
     }
 
     @Override
@@ -108,6 +120,14 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                 gzip(content, complete, callback);
                 break;
 
+            case CACHED:
+                // The cached body has already been written, discard the content.
+                if (complete)
+                    _interceptor.write(BufferUtil.EMPTY_BUFFER, true, callback);
+                else
+                    callback.succeeded();
+                break;
+
             default:
                 callback.failed(new IllegalStateException("state=" + _state.get()));
                 break;
@@ -182,6 +202,9 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
         // Are we the thread that commits?
         if (_state.compareAndSet(GZState.MIGHT_COMPRESS, GZState.COMMITTING))
         {
+            // Must be computed before adding the Vary header.
+            String cacheKey = getCacheKey(response);
+
             // We are varying the response due to accept encoding header.
             if (_vary != null)
                 fields.ensureField(_vary);
@@ -208,6 +231,22 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             if (etag != null)
                 fields.put(HttpHeader.ETAG, etagGzip(etag));
 
+            ByteBuffer cached = cacheKey == null ? null : _cache.get(cacheKey);
+            if (cached != null)
+            {
+                LOG.debug("{} cached {}", this, cacheKey);
+                _deflaterEntry.release();
+                _deflaterEntry = null;
+                _state.set(GZState.CACHED);
+                _interceptor.write(cached, complete, callback);
+                return;
+            }
+            if (cacheKey != null)
+            {
+                _cacheKey = cacheKey;
+                _cacheBuffer = BufferUtil.allocate(Math.min(_bufferSize, _cache.getMaxEntrySize()));
+            }
+
             LOG.debug("{} compressing {}", this, _deflaterEntry);
             _state.set(GZState.COMPRESSING);
 
@@ -225,6 +264,41 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             callback.failed(new WritePendingException());
     }
 
+    /**
+     * @param response the response being committed
+     * @return the key of the response in the cache, or null if the response cannot be cached
+     */
+    private String getCacheKey(Response response)
+    {
+        if (_cache == null || response.getStatus() != HttpStatus.OK_200)
+            return null;
+        Request request = _channel.getRequest();
+        if (!HttpMethod.GET.is(request.getMethod()))
+            return null;
+
+        HttpFields fields = response.getHttpFields();
+        if (fields.contains(HttpHeader.SET_COOKIE))
+            return null;
+        for (String vary : fields.getCSV(HttpHeader.VARY, false))
+        {
+            if (!HttpHeader.ACCEPT_ENCODING.is(vary))
+                return null;
+        }
+
+        for (String directive : fields.getCSV(HttpHeader.CACHE_CONTROL, false))
+        {
+            if ("no-store".equalsIgnoreCase(directive) || "private".equalsIgnoreCase(directive))
+                return null;
+        }
+
+        // Only a strong ETag identifies the bytes of the response that is being
+        // committed, so that a cached body is never served for other content.
+        String etag = fields.get(HttpHeader.ETAG);
+        if (etag == null || etag.startsWith("W/"))
+            return null;
+        return request.getServerName() + ":" + request.getServerPort() + request.getHttpURI().getPathQuery() + "\n" + etag;
+    }
+
     private String etagGzip(String etag)
     {
         return GZIP.etag(etag);
@@ -267,7 +341,10 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
             _content = content;
             _last = complete;
 
+            long begin = _cacheBuffer == null ? 0 : System.nanoTime();
             _crc.update(_content.slice());
+            if (_cacheBuffer != null)
+                _compressionNanos += System.nanoTime() - begin;
 
             Deflater deflater = _deflaterEntry.get();
             deflater.setInput(_content);
@@ -323,9 +400,12 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                 if (deflater.needsInput() && !_last)
                     return Action.SUCCEEDED;
 
+                long begin = _cacheBuffer == null ? 0 : System.nanoTime();
                 int pos = BufferUtil.flipToFill(_buffer);
                 deflater.deflate(_buffer, _syncFlush ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH);
                 BufferUtil.flipToFlush(_buffer, pos);
+                if (_cacheBuffer != null)
+                    _compressionNanos += System.nanoTime() - begin;
             }
 
             // If we have finished deflation and there is room for the trailer.
@@ -338,11 +418,41 @@ public class GzipHttpOutputInterceptor implements HttpOutput.Interceptor
                 _deflaterEntry = null;
             }
 
+            if (_cacheBuffer != null)
+                cache(_deflaterEntry == null);
+
             // write the compressed buffer.
             _interceptor.write(_buffer, _deflaterEntry == null, this);
             return Action.SCHEDULED;
         }
 
+        private void cache(boolean finished)
+        {
+            int length = _buffer.remaining();
+            int size = _cacheBuffer.remaining() + length;
+            if (size > _cache.getMaxEntrySize())
+            {
+                // Too large to be cached.
+                _cacheBuffer = null;
+                return;
+            }
+            if (BufferUtil.space(_cacheBuffer) < length)
+                _cacheBuffer = BufferUtil.ensureCapacity(_cacheBuffer, Math.min(_cache.getMaxEntrySize(), Math.max(size, 2 * _cacheBuffer.capacity())));
+            BufferUtil.append(_cacheBuffer, _buffer.slice());
+
+            if (finished)
+            {
+                ByteBuffer body = _cacheBuffer;
+                if (body.capacity() > body.remaining())
+                {
+                    body = BufferUtil.allocate(_cacheBuffer.remaining());
+                    BufferUtil.append(body, _cacheBuffer);
+                }
+                _cache.put(_cacheKey, body, _compressionNanos);
+                _cacheBuffer = null;
+            }
+        }
+
         @Override
         public String toString()
         {
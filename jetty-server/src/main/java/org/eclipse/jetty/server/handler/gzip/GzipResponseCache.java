@@ -0,0 +1,215 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.handler.gzip;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>A bounded cache of the gzip compressed bodies of responses, so that the
+ * responses produced again by the handlers are not compressed again.</p>
+ * <p>The {@link GzipHttpOutputInterceptor} only caches the responses to {@code GET}
+ * requests that have a strong {@code ETag}, keyed by the request URI and the ETag.
+ * The handlers still produce every response, and a cached body is written in place
+ * of their compressed content only if the ETag of the response matches, so that a
+ * cached body is never served for a response whose content has changed.</p>
+ * <p>The least recently used entries are evicted to keep the total size of the
+ * cached bodies within the {@link #setMaxCacheSize(long) maximum cache size}.</p>
+ *
+ * @see GzipHandler#setResponseCache(GzipResponseCache)
+ */
+@ManagedObject("Cache of compressed responses")
+public class GzipResponseCache
+{
+    private final AutoLock _lock = new AutoLock();
+    private final Map<String, Entry> _entries = new LinkedHashMap<>(64, 0.75F, true);
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final LongAdder _compressionTimeSaved = new LongAdder();
+    private long _cachedSize;
+    private long _maxCacheSize = 32 * 1024 * 1024;
+    private int _maxEntrySize = 1024 * 1024;
+
+    @ManagedAttribute("The maximum total size in bytes of the cached compressed bodies")
+    public long getMaxCacheSize()
+    {
+        return _maxCacheSize;
+    }
+
+    public void setMaxCacheSize(long maxCacheSize)
+    {
+        _maxCacheSize = maxCacheSize;
+        try (AutoLock l = _lock.lock())
+        {
+            evict();
+        }
+    }
+
+    @ManagedAttribute("The maximum size in bytes of a cached compressed body")
+    public int getMaxEntrySize()
+    {
+        return _maxEntrySize;
+    }
+
+    public void setMaxEntrySize(int maxEntrySize)
+    {
+        _maxEntrySize = maxEntrySize;
+    }
+
+    @ManagedAttribute("The total size in bytes of the cached compressed bodies")
+    public long getCachedSize()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _cachedSize;
+        }
+    }
+
+    @ManagedAttribute("The number of cached compressed bodies")
+    public int getCachedEntries()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _entries.size();
+        }
+    }
+
+    @ManagedAttribute("The number of cacheable responses served from the cache")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of cacheable responses not found in the cache")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of entries evicted from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    /**
+     * @return the time in ms that would have been spent compressing the responses served from the cache
+     */
+    @ManagedAttribute("The time in ms that would have been spent compressing the responses served from the cache")
+    public long getCompressionTimeSaved()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_compressionTimeSaved.sum());
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+        _compressionTimeSaved.reset();
+    }
+
+    @ManagedOperation(value = "Removes all the entries from the cache", impact = "ACTION")
+    public void flushCache()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            _entries.clear();
+            _cachedSize = 0;
+        }
+    }
+
+    /**
+     * @param key the key of the response
+     * @return a read-only view of the cached compressed body, or null if there is no entry for the key
+     */
+    ByteBuffer get(String key)
+    {
+        Entry entry;
+        try (AutoLock l = _lock.lock())
+        {
+            entry = _entries.get(key);
+        }
+        if (entry == null)
+        {
+            _misses.increment();
+            return null;
+        }
+        _hits.increment();
+        _compressionTimeSaved.add(entry._compressionNanos);
+        return entry._buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @param key the key of the response
+     * @param buffer the compressed body
+     * @param compressionNanos the time spent compressing the body
+     */
+    void put(String key, ByteBuffer buffer, long compressionNanos)
+    {
+        int size = buffer.remaining();
+        if (size > _maxEntrySize || size > _maxCacheSize)
+            return;
+        try (AutoLock l = _lock.lock())
+        {
+            Entry old = _entries.put(key, new Entry(buffer, compressionNanos));
+            if (old != null)
+                _cachedSize -= old._buffer.remaining();
+            _cachedSize += size;
+            evict();
+        }
+    }
+
+    private void evict()
+    {
+        assert _lock.isHeldByCurrentThread();
+        Iterator<Entry> iterator = _entries.values().iterator();
+        while (_cachedSize > _maxCacheSize && iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            iterator.remove();
+            _cachedSize -= entry._buffer.remaining();
+            _evictions.increment();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{entries=%d,size=%d/%d}", getClass().getSimpleName(), hashCode(), getCachedEntries(), getCachedSize(), _maxCacheSize);
+    }
+
+    private static class Entry
+    {
+        private final ByteBuffer _buffer;
+        private final long _compressionNanos;
+
+        private Entry(ByteBuffer buffer, long compressionNanos)
+        {
+            _buffer = buffer;
+            _compressionNanos = compressionNanos;
+        }
+    }
+}
@@ -31,7 +31,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -984,6 +986,227 @@ public class HttpConnectionTest
         checkContains(response, offset, "abcdefghij");
     }
 
+    @Test
+    public void testHeaderCacheStatistics() throws Exception
+    {
+        HttpConnectionFactory factory = connector.getConnectionFactory(HttpConnectionFactory.class);
+        String request =
+            "GET /R%d HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Custom: repeated\r\n" +
+            "%s" +
+            "\r\n";
+        LocalEndPoint endp = connector.executeRequest(String.format(request, 1, "") +
+            String.format(request, 2, "") +
+            String.format(request, 3, "Connection: close\r\n"));
+        for (int i = 1; i <= 3; ++i)
+        {
+            assertThat(endp.getResponse(), containsString("pathInfo=/R" + i));
+        }
+        endp.waitUntilClosed();
+
+        // The statistics of the connection are collected when it closes.
+        assertThat(factory.getHeaderCacheHits(), greaterThan(0L));
+        assertThat(factory.getHeaderCacheMisses(), greaterThan(0L));
+
+        factory.resetHeaderCacheStatistics();
+        assertThat(factory.getHeaderCacheHits(), is(0L));
+    }
+
+    @Test
+    public void testCoalescePipelinedResponses() throws Exception
+    {
+        connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration().setCoalescePipelinedResponses(true);
+
+        String request =
+            "GET /R%d HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "\r\n";
+        // Two complete pipelined requests, and the beginning of a third.
+        LocalEndPoint endp = connector.executeRequest(String.format(request, 1) + String.format(request, 2) + "GET /R3 HTTP/1.1\r\n");
+
+        // The coalesced responses are written before waiting for the rest of the third request.
+        int offset = 0;
+        String response = endp.getResponse() + endp.getResponse();
+        offset = checkContains(response, offset, "HTTP/1.1 200");
+        offset = checkContains(response, offset, "pathInfo=/R1");
+        offset = checkContains(response, offset, "HTTP/1.1 200");
+        checkContains(response, offset, "pathInfo=/R2");
+
+        endp.addInputAndExecute(BufferUtil.toBuffer("Host: localhost\r\n" +
+            "\r\n" +
+            String.format(request, 4) +
+            "GET /R5 HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Connection: close\r\n" +
+            "\r\n"));
+
+        offset = 0;
+        response = endp.getResponse() + endp.getResponse() + endp.getResponse();
+        offset = checkContains(response, offset, "HTTP/1.1 200");
+        offset = checkContains(response, offset, "pathInfo=/R3");
+        offset = checkContains(response, offset, "HTTP/1.1 200");
+        offset = checkContains(response, offset, "pathInfo=/R4");
+        offset = checkContains(response, offset, "HTTP/1.1 200");
+        checkContains(response, offset, "pathInfo=/R5");
+        endp.waitUntilClosed();
+    }
+
+    @Test
+    public void testCoalescedResponseNotHeldByBlockedRequest() throws Exception
+    {
+        connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration().setCoalescePipelinedResponses(true);
+
+        // The second request blocks reading content that has not arrived yet.
+        LocalEndPoint endp = connector.executeRequest(
+            "GET /R1 HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "\r\n" +
+            "POST /R2?read=10 HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Content-Length: 10\r\n" +
+            "Connection: close\r\n" +
+            "\r\n" +
+            "12345");
+
+        // The first response arrives while the second request is still blocked.
+        String response = endp.getResponse(false, 5, TimeUnit.SECONDS);
+        assertThat(response, containsString("pathInfo=/R1"));
+        assertThat(response, not(containsString("pathInfo=/R2")));
+
+        endp.addInputAndExecute(BufferUtil.toBuffer("67890"));
+        response = endp.getResponse();
+        assertThat(response, containsString("pathInfo=/R2"));
+        assertThat(response, containsString("1234567890"));
+        endp.waitUntilClosed();
+    }
+
+    @Test
+    public void testCoalescedResponseWriteDoesNotBlockThread() throws Exception
+    {
+        Server server = new Server();
+        // Count the tasks of the connector that are running.
+        AtomicInteger running = new AtomicInteger();
+        Executor executor = task -> server.getThreadPool().execute(() ->
+        {
+            running.incrementAndGet();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                running.decrementAndGet();
+            }
+        });
+        HttpConfiguration config = new HttpConfiguration();
+        config.setCoalescePipelinedResponses(true);
+        LocalConnector connector = new LocalConnector(server, executor, null, null, 1, new HttpConnectionFactory(config));
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.getWriter().write("target=" + target + " content=" + IO.toString(request.getInputStream()));
+            }
+        });
+        server.start();
+
+        try
+        {
+            // Only the acceptor is running.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (running.get() != 1 && System.nanoTime() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            assertThat(running.get(), is(1));
+
+            LocalEndPoint endp = connector.connect();
+            // The output does not grow, so the coalesced response is not written at once.
+            endp.setGrowOutput(false);
+            endp.setOutput(BufferUtil.allocate(16));
+            endp.addInputAndExecute(BufferUtil.toBuffer(
+                "GET /R1 HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "\r\n" +
+                "POST /R2 HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Length: 10\r\n" +
+                "Connection: close\r\n" +
+                "\r\n" +
+                "12345"));
+
+            // Wait for the coalesced response to be partially written.
+            while (BufferUtil.isEmpty(endp.getOutput()) && System.nanoTime() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            // No thread waits for the rest of the coalesced response to be written.
+            while (running.get() != 1 && System.nanoTime() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            assertThat(running.get(), is(1));
+
+            StringBuilder response = new StringBuilder();
+            while (!response.toString().contains("target=/R1") && System.nanoTime() < deadline)
+            {
+                response.append(endp.takeOutputString());
+                Thread.sleep(10);
+            }
+            assertThat(response.toString(), containsString("target=/R1"));
+            assertThat(response.toString(), not(containsString("target=/R2")));
+
+            // The second request is handled once the coalesced response has been written.
+            endp.addInputAndExecute(BufferUtil.toBuffer("67890"));
+            while (!response.toString().contains("content=1234567890") && System.nanoTime() < deadline)
+            {
+                response.append(endp.takeOutputString());
+                Thread.sleep(10);
+            }
+            assertThat(response.toString(), containsString("target=/R2 content=1234567890"));
+            endp.waitUntilClosed();
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testLazyRequestFields() throws Exception
+    {
+        connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration().setLazyRequestFields(true);
+
+        String requests =
+            "POST /R1?read=5 HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Custom: one\r\n" +
+            "Content-Type: text/plain; charset=utf-8\r\n" +
+            "Content-Length: 5\r\n" +
+            "\r\n" +
+            "12345" +
+            "GET /R2 HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "x-custom:  two  \r\n" +
+            "Connection: close\r\n" +
+            "\r\n";
+
+        LocalEndPoint endp = connector.executeRequest(requests);
+        String response = endp.getResponse() + endp.getResponse();
+        int offset = 0;
+        offset = checkContains(response, offset, "HTTP/1.1 200");
+        offset = checkContains(response, offset, "pathInfo=/R1");
+        offset = checkContains(response, offset, "X-Custom: one");
+        offset = checkContains(response, offset, "12345");
+        offset = checkContains(response, offset, "HTTP/1.1 200");
+        offset = checkContains(response, offset, "pathInfo=/R2");
+        checkContains(response, offset, "x-custom: two");
+    }
+
     @Test
     public void testUnconsumedTimeout() throws Exception
     {
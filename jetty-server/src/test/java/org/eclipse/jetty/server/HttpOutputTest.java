@@ -18,9 +18,12 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +34,7 @@ import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.http.HttpTester;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.server.HttpOutput.Interceptor;
 import org.eclipse.jetty.server.LocalConnector.LocalEndPoint;
@@ -50,6 +54,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -216,6 +221,52 @@ public class HttpOutputTest
         assertThat(response, endsWith(toUTF8String(big)));
     }
 
+    @Test
+    public void testSendFileRange() throws Exception
+    {
+        Resource big = Resource.newClassPathResource("simple/big.txt");
+        FileChannel file = FileChannel.open(big.getFile().toPath(), StandardOpenOption.READ);
+        _handler._contentFile = file;
+        _handler._contentFilePosition = 100;
+        _handler._contentFileLength = 5000;
+        String response = _connector.getResponse("GET / HTTP/1.0\nHost: localhost:80\n\n");
+        assertThat(response, containsString("HTTP/1.1 200 OK"));
+        assertThat(response, containsString("Content-Length: 5000"));
+        assertThat(response, endsWith(toUTF8String(big).substring(100, 5100)));
+        // The file is closed once the write completes, which may be after the response is received.
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (file.isOpen() && System.nanoTime() < end)
+        {
+            Thread.sleep(10);
+        }
+        assertFalse(file.isOpen());
+    }
+
+    @Test
+    public void testSendFileRangeTransferred() throws Exception
+    {
+        ServerConnector connector = new ServerConnector(_server, new HttpConnectionFactory());
+        _server.addConnector(connector);
+        connector.start();
+
+        Resource big = Resource.newClassPathResource("simple/big.txt");
+        String content = toUTF8String(big);
+        try (Socket client = new Socket("localhost", connector.getLocalPort()))
+        {
+            // Two requests on the same connection, to verify that it is persistent after the transfer.
+            for (int position = 0; position < 2000; position += 1000)
+            {
+                _handler._contentFile = FileChannel.open(big.getFile().toPath(), StandardOpenOption.READ);
+                _handler._contentFilePosition = position;
+                _handler._contentFileLength = 8000;
+                client.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                HttpTester.Response response = HttpTester.parseResponse(client.getInputStream());
+                assertEquals(200, response.getStatus());
+                assertEquals(content.substring(position, position + 8000), response.getContent());
+            }
+        }
+    }
+
     @Test
     public void testSendBigDirect() throws Exception
     {
@@ -1201,6 +1252,9 @@ public class HttpOutputTest
         byte[] _arrayBuffer;
         InputStream _contentInputStream;
         ReadableByteChannel _contentChannel;
+        FileChannel _contentFile;
+        long _contentFilePosition;
+        long _contentFileLength;
         ByteBuffer _content;
         ChainedInterceptor _interceptor;
         final FuturePromise<Boolean> _closedAfterWrite = new FuturePromise<>();
@@ -1236,6 +1290,15 @@ public class HttpOutputTest
                 return;
             }
 
+            if (_contentFile != null)
+            {
+                response.setContentLengthLong(_contentFileLength);
+                out.sendContent(_contentFile, _contentFilePosition, _contentFileLength);
+                _contentFile = null;
+                _closedAfterWrite.succeeded(out.isClosed());
+                return;
+            }
+
             if (_content != null && _writeLengthIfKnown)
                 response.setContentLength(_content.remaining());
 
@@ -21,7 +21,13 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.HttpContent;
@@ -34,15 +40,19 @@ import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.resource.PathResource;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceCollection;
+import org.eclipse.jetty.util.resource.ResourceFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(WorkDirExtension.class)
@@ -328,10 +338,13 @@ public class ResourceCacheTest
 
         Thread.sleep(200);
 
+        // names[2] is evicted from the window rather than names[6],
+        // which has been requested more frequently.
         content = cache.getContent(names[3], 4096);
         content.getIndirectBuffer();
-        assertEquals(61, cache.getCachedSize());
+        assertEquals(42, cache.getCachedSize());
         assertEquals(4, cache.getCachedFiles());
+        assertEquals(1, cache.getAdmissionRejects());
 
         Thread.sleep(200);
 
@@ -342,6 +355,106 @@ public class ResourceCacheTest
         cache.flushCache();
     }
 
+    @Test
+    public void testFrequentlyRequestedContentNotEvicted() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        for (int i = 0; i < 100; i++)
+        {
+            Files.write(basePath.resolve("file-" + i + ".txt"), ("content " + i).getBytes(UTF_8));
+        }
+        CachedContentFactory cache = new CachedContentFactory(null, new PathResource(basePath), new MimeTypes(), false, false, CompressedContentFormat.NONE);
+        cache.setMaxCachedFiles(10);
+
+        // Request a few hot files several times.
+        for (int r = 0; r < 3; r++)
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                assertThat(cache.getContent("file-" + i + ".txt", 4096), instanceOf(CachedContentFactory.CachedHttpContent.class));
+            }
+        }
+        assertEquals(5, cache.getMisses());
+        assertEquals(10, cache.getHits());
+
+        // Scan many files requested only once.
+        for (int i = 5; i < 100; i++)
+        {
+            cache.getContent("file-" + i + ".txt", 4096);
+        }
+        assertEquals(10, cache.getCachedFiles());
+        assertThat(cache.getAdmissionRejects(), greaterThan(0L));
+        assertEquals(100 - 10, cache.getEvictions());
+
+        // The hot files are still cached.
+        cache.resetStatistics();
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals("content " + i, BufferUtil.toString(cache.getContent("file-" + i + ".txt", 4096).getIndirectBuffer()));
+        }
+        assertEquals(5, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testConcurrentHits() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        for (int i = 0; i < 100; i++)
+        {
+            Files.write(basePath.resolve("file-" + i + ".txt"), ("content " + i).getBytes(UTF_8));
+        }
+        CachedContentFactory cache = new CachedContentFactory(null, new PathResource(basePath), new MimeTypes(), false, false, CompressedContentFormat.NONE);
+        cache.setMaxCachedFiles(10);
+
+        // Request a few hot files from several threads.
+        int threads = 4;
+        int requests = 1000;
+        List<Thread> clients = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threads; t++)
+        {
+            Thread client = new Thread(() ->
+            {
+                try
+                {
+                    for (int r = 0; r < requests; r++)
+                    {
+                        String path = "file-" + (r % 5) + ".txt";
+                        assertEquals("content " + (r % 5), BufferUtil.toString(cache.getContent(path, 4096).getIndirectBuffer()));
+                    }
+                }
+                catch (Throwable x)
+                {
+                    failure.set(x);
+                }
+            });
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients)
+        {
+            client.join();
+        }
+        assertThat(failure.get(), nullValue());
+        assertEquals(threads * requests, cache.getHits() + cache.getMisses());
+
+        // Scan many files requested only once.
+        for (int i = 5; i < 100; i++)
+        {
+            cache.getContent("file-" + i + ".txt", 4096);
+        }
+        assertEquals(10, cache.getCachedFiles());
+
+        // The hot files are still cached, although some hits may have been dropped.
+        cache.resetStatistics();
+        for (int i = 0; i < 5; i++)
+        {
+            cache.getContent("file-" + i + ".txt", 4096);
+        }
+        assertEquals(5, cache.getHits());
+    }
+
     @Test
     public void testNoextension() throws Exception
     {
@@ -356,6 +469,207 @@ public class ResourceCacheTest
         assertEquals(getContent(cache, "four"), "4 - four (no extension)");
     }
 
+    @Test
+    public void testWatchInvalidation() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        Path file = basePath.resolve("index.html");
+        Files.write(file, "version 1".getBytes(UTF_8));
+
+        CachedContentFactory cache = new CachedContentFactory(null, new PathResource(basePath), new MimeTypes(), false, false, CompressedContentFormat.NONE);
+        cache.setRevalidationInterval(-1);
+        cache.watch(basePath);
+        cache.start();
+        try
+        {
+            assertTrue(cache.isWatching());
+            assertEquals("version 1", getContent(cache, "index.html"));
+            assertEquals("version 1", getContent(cache, "index.html"));
+            assertEquals(1, cache.getHits());
+
+            // Change the file without changing its length nor its last modified
+            // time, so that only the watcher can detect the change.
+            FileTime lastModified = Files.getLastModifiedTime(file);
+            Files.write(file, "version 2".getBytes(UTF_8));
+            Files.setLastModifiedTime(file, lastModified);
+
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+            while (cache.getWatchInvalidations() == 0 && System.nanoTime() < end)
+            {
+                Thread.sleep(100);
+            }
+            assertEquals(1, cache.getWatchInvalidations());
+            assertEquals("version 2", getContent(cache, "index.html"));
+            assertEquals(0, cache.getRevalidations());
+        }
+        finally
+        {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testWatchedHitDoesNotAccessFileSystem() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        Files.write(basePath.resolve("index.html"), "version 1".getBytes(UTF_8));
+
+        AtomicInteger fileSystemCalls = new AtomicInteger();
+        ResourceFactory factory = path -> new PathResource(basePath.resolve(path))
+        {
+            @Override
+            public boolean exists()
+            {
+                fileSystemCalls.incrementAndGet();
+                return super.exists();
+            }
+
+            @Override
+            public boolean isDirectory()
+            {
+                fileSystemCalls.incrementAndGet();
+                return super.isDirectory();
+            }
+
+            @Override
+            public long lastModified()
+            {
+                fileSystemCalls.incrementAndGet();
+                return super.lastModified();
+            }
+
+            @Override
+            public long length()
+            {
+                fileSystemCalls.incrementAndGet();
+                return super.length();
+            }
+        };
+        CachedContentFactory cache = new CachedContentFactory(null, factory, new MimeTypes(), false, false, CompressedContentFormat.NONE);
+        cache.setRevalidationInterval(-1);
+        cache.watch(basePath);
+        cache.start();
+        try
+        {
+            HttpContent content = cache.getContent("index.html", cache.getMaxCachedFileSize());
+            content.getIndirectBuffer();
+            content.getDirectBuffer();
+            fileSystemCalls.set(0);
+
+            content = cache.getContent("index.html", cache.getMaxCachedFileSize());
+            assertThat(content, instanceOf(CachedContentFactory.CachedHttpContent.class));
+            CachedContentFactory.CachedHttpContent cached = (CachedContentFactory.CachedHttpContent)content;
+            // What ResourceService asks on a hit.
+            assertTrue(cached.exists());
+            assertFalse(cached.isDirectory());
+            assertEquals("version 1", BufferUtil.toString(cached.getIndirectBuffer()));
+            assertEquals("version 1", BufferUtil.toString(cached.getDirectBuffer()));
+            assertEquals(0, fileSystemCalls.get());
+            assertEquals(1, cache.getHits());
+        }
+        finally
+        {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testWatchEventWhileLoading() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        Path file = basePath.resolve("index.html");
+        Files.write(file, "version 1".getBytes(UTF_8));
+        Path other = basePath.resolve("other.html");
+        Files.write(other, "other".getBytes(UTF_8));
+
+        AtomicReference<CachedContentFactory> cacheRef = new AtomicReference<>();
+        AtomicBoolean change = new AtomicBoolean();
+        ResourceFactory factory = path -> new PathResource(basePath.resolve(path))
+        {
+            @Override
+            public String getWeakETag()
+            {
+                // Change the file after the cache has read its last modified
+                // time and length, and wait for a watch event before the
+                // cache entry is added.
+                if (change.compareAndSet(true, false))
+                {
+                    try
+                    {
+                        Files.write(file, "version 22".getBytes(UTF_8));
+                        Files.write(other, "changed".getBytes(UTF_8));
+                        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+                        while (cacheRef.get().getWatchInvalidations() == 0 && System.nanoTime() < end)
+                        {
+                            Thread.sleep(100);
+                        }
+                    }
+                    catch (Exception x)
+                    {
+                        throw new RuntimeException(x);
+                    }
+                }
+                return super.getWeakETag();
+            }
+        };
+        CachedContentFactory cache = new CachedContentFactory(null, factory, new MimeTypes(), false, true, CompressedContentFormat.NONE);
+        cacheRef.set(cache);
+        cache.setRevalidationInterval(-1);
+        cache.watch(basePath);
+        cache.start();
+        try
+        {
+            assertEquals("other", getContent(cache, "other.html"));
+
+            change.set(true);
+            HttpContent content = cache.getContent("index.html", cache.getMaxCachedFileSize());
+            // The stale entry is invalidated when it is added.
+            assertEquals(2, cache.getWatchInvalidations());
+            assertEquals(10, content.getContentLengthValue());
+            content = cache.getContent("index.html", cache.getMaxCachedFileSize());
+            assertThat(content, instanceOf(CachedContentFactory.CachedHttpContent.class));
+            assertEquals(10, content.getContentLengthValue());
+            assertEquals("version 22", BufferUtil.toString(content.getIndirectBuffer()));
+        }
+        finally
+        {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testWatchRevalidationInterval() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        Path file = basePath.resolve("index.html");
+        Files.write(file, "version 1".getBytes(UTF_8));
+
+        CachedContentFactory cache = new CachedContentFactory(null, new PathResource(basePath), new MimeTypes(), false, false, CompressedContentFormat.NONE);
+        cache.setRevalidationInterval(0);
+        // Watch another directory, so that the watcher misses the changes of the file.
+        cache.watch(Files.createDirectories(basePath.resolve("other")));
+        cache.start();
+        try
+        {
+            assertEquals("version 1", getContent(cache, "index.html"));
+            // Every hit checks the resource.
+            assertEquals("version 1", getContent(cache, "index.html"));
+            assertEquals("version 1", getContent(cache, "index.html"));
+            assertEquals(2, cache.getRevalidations());
+
+            // The change is only detected by the revalidation.
+            cache.setRevalidationInterval(Long.MAX_VALUE);
+            Files.write(file, "version 22".getBytes(UTF_8));
+            assertEquals("version 1", getContent(cache, "index.html"));
+            cache.setRevalidationInterval(0);
+            assertEquals("version 22", getContent(cache, "index.html"));
+        }
+        finally
+        {
+            cache.stop();
+        }
+    }
+
     static String getContent(CachedContentFactory rc, String path) throws Exception
     {
         HttpContent content = rc.getContent(path, rc.getMaxCachedFileSize());
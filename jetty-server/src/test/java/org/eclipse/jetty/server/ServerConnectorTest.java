@@ -28,6 +28,7 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -36,6 +37,8 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ArrayRetainableByteBufferPool;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.SocketChannelEndPoint;
 import org.eclipse.jetty.logging.StacklessLogging;
@@ -47,6 +50,8 @@ import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
@@ -57,6 +62,7 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -120,6 +126,27 @@ public class ServerConnectorTest
         }
     }
 
+    @Test
+    public void testRetainableByteBufferPoolIdleTimeout()
+    {
+        Server server = new Server();
+        ArrayByteBufferPool byteBufferPool = new ArrayByteBufferPool();
+        byteBufferPool.setIdleTimeout(5000);
+        server.addBean(byteBufferPool);
+
+        ServerConnector connector1 = new ServerConnector(server);
+        ServerConnector connector2 = new ServerConnector(server);
+
+        // Each connector has its own retainable pool, reclaiming idle memory as the ByteBufferPool does.
+        ArrayRetainableByteBufferPool pool1 = connector1.getBean(ArrayRetainableByteBufferPool.class);
+        ArrayRetainableByteBufferPool pool2 = connector2.getBean(ArrayRetainableByteBufferPool.class);
+        assertNotNull(pool1);
+        assertNotNull(pool2);
+        assertNotSame(pool1, pool2);
+        assertEquals(5000, pool1.getIdleTimeout());
+        assertEquals(5000, pool2.getIdleTimeout());
+    }
+
     @Test
     public void testReuseAddressDefault() throws Exception
     {
@@ -269,6 +296,59 @@ public class ServerConnectorTest
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {0, 2})
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "SO_REUSEPORT not available on windows")
+    public void testReusePortListeningChannels(int acceptors) throws Exception
+    {
+        Server server = new Server();
+        try
+        {
+            ServerConnector connector = new ServerConnector(server, acceptors, 2);
+            connector.setListeningChannelCount(-1);
+            server.addConnector(connector);
+
+            server.setHandler(new AbstractHandler()
+            {
+                @Override
+                public void handle(String target, Request jettyRequest, HttpServletRequest request, HttpServletResponse response)
+                {
+                    jettyRequest.setHandled(true);
+                }
+            });
+
+            server.start();
+
+            List<ServerConnector.ListeningChannel> listeningChannels = connector.getListeningChannels();
+            assertThat(listeningChannels.size(), is(2));
+            for (ServerConnector.ListeningChannel listening : listeningChannels)
+            {
+                assertThat(listening.getChannel().socket().getLocalPort(), is(connector.getLocalPort()));
+            }
+
+            int connections = 32;
+            for (int i = 0; i < connections; ++i)
+            {
+                try (SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", connector.getLocalPort())))
+                {
+                    HttpTester.Request request = HttpTester.newRequest();
+                    request.put(HttpHeader.HOST, "localhost");
+                    client.write(request.generate());
+                    HttpTester.Response response = HttpTester.parseResponse(HttpTester.from(client));
+                    assertNotNull(response);
+                    assertEquals(HttpStatus.OK_200, response.getStatus());
+                }
+            }
+
+            long accepted = listeningChannels.stream().mapToLong(ServerConnector.ListeningChannel::getAcceptedCount).sum();
+            assertEquals(connections, accepted);
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
     @Test
     public void testAddFirstConnectionFactory()
     {
@@ -0,0 +1,217 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.resource.PathResource;
+import org.eclipse.jetty.util.resource.ResourceFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(WorkDirExtension.class)
+public class SharedContentCacheTest
+{
+    public WorkDir workDir;
+
+    @Test
+    public void testContentSharedAcrossContexts() throws Exception
+    {
+        Path root = workDir.getEmptyPathDir();
+        Path shared = Files.createDirectories(root.resolve("shared"));
+        Files.write(shared.resolve("jquery.js"), "var jQuery;".getBytes(UTF_8));
+        // Two contexts serving the same file, one of them through a symbolic link.
+        Path linked = Files.createSymbolicLink(root.resolve("linked"), shared);
+
+        SharedContentCache cache = new SharedContentCache();
+        HttpContent.ContentFactory context1 = cache.newContentFactory(new PathResource(shared), new MimeTypes(), CompressedContentFormat.NONE);
+        HttpContent.ContentFactory context2 = cache.newContentFactory(new PathResource(linked), new MimeTypes(), CompressedContentFormat.NONE);
+
+        HttpContent content1 = context1.getContent("/jquery.js", 4096);
+        HttpContent content2 = context2.getContent("/jquery.js", 4096);
+
+        ByteBuffer buffer1 = content1.getDirectBuffer();
+        ByteBuffer buffer2 = content2.getIndirectBuffer();
+        assertTrue(buffer1.isDirect());
+        assertTrue(buffer2.isDirect());
+        assertEquals("var jQuery;", BufferUtil.toString(buffer1));
+        assertEquals("var jQuery;", BufferUtil.toString(buffer2));
+        // Reading one view does not consume the others.
+        assertEquals("var jQuery;", BufferUtil.toString(content1.getDirectBuffer()));
+        assertEquals(11, content2.getContentLengthValue());
+
+        assertEquals(1, cache.getCachedFiles());
+        assertEquals(11, cache.getCachedSize());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testModifiedFileReplacesEntry() throws Exception
+    {
+        Path root = workDir.getEmptyPathDir();
+        Path file = root.resolve("index.html");
+        Files.write(file, "<h1>old</h1>".getBytes(UTF_8));
+
+        SharedContentCache cache = new SharedContentCache();
+        cache.setRevalidationInterval(0);
+        HttpContent.ContentFactory factory = cache.newContentFactory(new PathResource(root), new MimeTypes(), CompressedContentFormat.NONE);
+        assertEquals("<h1>old</h1>", BufferUtil.toString(factory.getContent("/index.html", 4096).getDirectBuffer()));
+
+        Files.write(file, "<h1>newer</h1>".getBytes(UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertEquals("<h1>newer</h1>", BufferUtil.toString(factory.getContent("/index.html", 4096).getDirectBuffer()));
+
+        assertEquals(1, cache.getCachedFiles());
+        assertEquals(14, cache.getCachedSize());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testModifiedFileServedUntilRevalidation() throws Exception
+    {
+        Path root = workDir.getEmptyPathDir();
+        Path file = root.resolve("index.html");
+        Files.write(file, "<h1>old</h1>".getBytes(UTF_8));
+
+        SharedContentCache cache = new SharedContentCache();
+        cache.setRevalidationInterval(-1);
+        HttpContent.ContentFactory factory = cache.newContentFactory(new PathResource(root), new MimeTypes(), CompressedContentFormat.NONE);
+        assertEquals("<h1>old</h1>", BufferUtil.toString(factory.getContent("/index.html", 4096).getDirectBuffer()));
+
+        // The file is not checked, so the cached content is served.
+        Files.write(file, "<h1>newer</h1>".getBytes(UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertEquals("<h1>old</h1>", BufferUtil.toString(factory.getContent("/index.html", 4096).getDirectBuffer()));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        // Once checked, the file is reloaded.
+        cache.setRevalidationInterval(0);
+        assertEquals("<h1>newer</h1>", BufferUtil.toString(factory.getContent("/index.html", 4096).getDirectBuffer()));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testHitDoesNotCreateResource() throws Exception
+    {
+        Path root = workDir.getEmptyPathDir();
+        Files.write(root.resolve("index.html"), "<h1>index</h1>".getBytes(UTF_8));
+
+        SharedContentCache cache = new SharedContentCache();
+        cache.setRevalidationInterval(-1);
+        PathResource base = new PathResource(root);
+        AtomicInteger resources = new AtomicInteger();
+        ResourceFactory resourceFactory = path ->
+        {
+            resources.incrementAndGet();
+            return base.addPath(path);
+        };
+        HttpContent.ContentFactory factory = cache.newContentFactory(resourceFactory, new MimeTypes(), new CompressedContentFormat[]{CompressedContentFormat.GZIP});
+
+        HttpContent content = factory.getContent("/index.html", 4096);
+        assertEquals("<h1>index</h1>", BufferUtil.toString(content.getDirectBuffer()));
+        // The resource and its precompressed variant.
+        assertEquals(2, resources.get());
+
+        // A hit does not create a resource, nor look for the precompressed variant.
+        content = factory.getContent("/index.html", 4096);
+        assertEquals("<h1>index</h1>", BufferUtil.toString(content.getDirectBuffer()));
+        assertEquals(2, resources.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception
+    {
+        Path root = workDir.getEmptyPathDir();
+        for (int i = 0; i < 4; ++i)
+        {
+            Files.write(root.resolve("file" + i + ".txt"), "0123456789".getBytes(UTF_8));
+        }
+
+        SharedContentCache cache = new SharedContentCache();
+        cache.setMaxCacheSize(35);
+        cache.setRevalidationInterval(-1);
+        HttpContent.ContentFactory factory = cache.newContentFactory(new PathResource(root), new MimeTypes(), CompressedContentFormat.NONE);
+
+        for (int i = 0; i < 3; ++i)
+        {
+            factory.getContent("/file" + i + ".txt", 4096);
+        }
+        // Use the eldest entry, then load another file.
+        factory.getContent("/file0.txt", 4096);
+        factory.getContent("/file3.txt", 4096);
+        assertEquals(3, cache.getCachedFiles());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(4, cache.getMisses());
+
+        // The least recently used entry has been evicted.
+        factory.getContent("/file0.txt", 4096);
+        assertEquals(4, cache.getMisses());
+        factory.getContent("/file1.txt", 4096);
+        assertEquals(5, cache.getMisses());
+    }
+
+    @Test
+    public void testGlobalBudget() throws Exception
+    {
+        Path root = workDir.getEmptyPathDir();
+        for (int i = 0; i < 10; ++i)
+        {
+            Files.write(root.resolve("file" + i + ".txt"), "0123456789".getBytes(UTF_8));
+        }
+        Files.write(root.resolve("large.txt"), new byte[100]);
+
+        SharedContentCache cache = new SharedContentCache();
+        cache.setMaxCacheSize(35);
+        cache.setMaxCachedFileSize(50);
+        HttpContent.ContentFactory factory = cache.newContentFactory(new PathResource(root), new MimeTypes(), CompressedContentFormat.NONE);
+
+        for (int i = 0; i < 10; ++i)
+        {
+            HttpContent content = factory.getContent("/file" + i + ".txt", 4096);
+            assertEquals("0123456789", BufferUtil.toString(content.getDirectBuffer()));
+            assertThat(cache.getCachedSize(), lessThanOrEqualTo(35L));
+        }
+        assertEquals(3, cache.getCachedFiles());
+        assertEquals(7, cache.getEvictions());
+
+        // Files larger than the maximum are not cached.
+        HttpContent large = factory.getContent("/large.txt", 4096);
+        assertEquals(100, large.getDirectBuffer().remaining());
+        assertEquals(3, cache.getCachedFiles());
+
+        cache.flushCache();
+        assertEquals(0, cache.getCachedFiles());
+        assertEquals(0, cache.getCachedSize());
+    }
+}
@@ -0,0 +1,71 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.handler.gzip;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GzipResponseCacheTest
+{
+    @Test
+    public void testGetPut()
+    {
+        GzipResponseCache cache = new GzipResponseCache();
+        assertNull(cache.get("localhost:80/index.html\n\"1\""));
+
+        cache.put("localhost:80/index.html\n\"1\"", BufferUtil.toBuffer("compressed"), TimeUnit.MILLISECONDS.toNanos(5));
+        ByteBuffer buffer = cache.get("localhost:80/index.html\n\"1\"");
+        assertEquals("compressed", BufferUtil.toString(buffer));
+        // Reading a view does not consume the cached body.
+        assertEquals("compressed", BufferUtil.toString(cache.get("localhost:80/index.html\n\"1\"")));
+        assertNull(cache.get("localhost:80/index.html\n\"2\""));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(10, cache.getCompressionTimeSaved());
+        assertEquals(10, cache.getCachedSize());
+    }
+
+    @Test
+    public void testMemoryBudget()
+    {
+        GzipResponseCache cache = new GzipResponseCache();
+        cache.setMaxCacheSize(25);
+        cache.setMaxEntrySize(15);
+
+        cache.put("/large", BufferUtil.toBuffer("01234567890123456789"), 0);
+        assertEquals(0, cache.getCachedEntries());
+
+        cache.put("/a", BufferUtil.toBuffer("0123456789"), 0);
+        cache.put("/b", BufferUtil.toBuffer("0123456789"), 0);
+        // Access the first entry, so that the second is the least recently used.
+        cache.get("/a");
+        cache.put("/c", BufferUtil.toBuffer("0123456789"), 0);
+
+        assertEquals(2, cache.getCachedEntries());
+        assertEquals(20, cache.getCachedSize());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("/b"));
+
+        cache.setMaxCacheSize(10);
+        assertEquals(1, cache.getCachedEntries());
+        assertEquals(2, cache.getEvictions());
+    }
+}
@@ -49,6 +49,8 @@ import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -141,6 +143,73 @@ public class SslConnectionFactoryTest
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"TLSv1.2", "TLSv1.3"})
+    public void testHandshakeStatistics(String protocol) throws Exception
+    {
+        SslContextFactory clientContextFactory = new SslContextFactory.Client(true);
+        clientContextFactory.start();
+        SSLSocketFactory factory = clientContextFactory.getSslContext().getSocketFactory();
+        for (int i = 0; i < 3; ++i)
+        {
+            try (SSLSocket sslSocket = (SSLSocket)factory.createSocket("127.0.0.1", _port))
+            {
+                sslSocket.setEnabledProtocols(new String[]{protocol});
+                sslSocket.getOutputStream().write(("GET /ctx/path HTTP/1.0\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                String response = IO.toString(sslSocket.getInputStream());
+                assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+                assertEquals(protocol, sslSocket.getSession().getProtocol());
+            }
+        }
+        clientContextFactory.stop();
+
+        // The following connections resume the session of the first.
+        SslConnectionFactory sslConnectionFactory = _connector.getConnectionFactory(SslConnectionFactory.class);
+        assertEquals(1, sslConnectionFactory.getFullHandshakes());
+        assertEquals(2, sslConnectionFactory.getResumedHandshakes());
+        assertEquals(0, sslConnectionFactory.getFailedHandshakes());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"TLSv1.2", "TLSv1.3"})
+    public void testHandshakeStatisticsWithoutResumption(String protocol) throws Exception
+    {
+        for (int i = 0; i < 3; ++i)
+        {
+            // A new client context has no session to resume.
+            SslContextFactory clientContextFactory = new SslContextFactory.Client(true);
+            clientContextFactory.start();
+            SSLSocketFactory factory = clientContextFactory.getSslContext().getSocketFactory();
+            try (SSLSocket sslSocket = (SSLSocket)factory.createSocket("127.0.0.1", _port))
+            {
+                sslSocket.setEnabledProtocols(new String[]{protocol});
+                sslSocket.getOutputStream().write(("GET /ctx/path HTTP/1.0\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                String response = IO.toString(sslSocket.getInputStream());
+                assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+            }
+            clientContextFactory.stop();
+        }
+
+        SslConnectionFactory sslConnectionFactory = _connector.getConnectionFactory(SslConnectionFactory.class);
+        assertEquals(3, sslConnectionFactory.getFullHandshakes());
+        assertEquals(0, sslConnectionFactory.getResumedHandshakes());
+    }
+
+    @Test
+    public void testHandshakeExecutor() throws Exception
+    {
+        _server.stop();
+        SslConnectionFactory sslConnectionFactory = _connector.getConnectionFactory(SslConnectionFactory.class);
+        sslConnectionFactory.setMaxHandshakeThreads(2);
+        _server.start();
+        _port = _connector.getLocalPort();
+
+        String response = getResponse("127.0.0.1", null);
+        assertThat(response, Matchers.containsString("host=127.0.0.1"));
+        assertThat(sslConnectionFactory.getHandshakeTasks(), Matchers.greaterThan(0L));
+        assertEquals(0, sslConnectionFactory.getQueuedHandshakeTasks());
+    }
+
     @Test
     public void testSocketCustomization() throws Exception
     {
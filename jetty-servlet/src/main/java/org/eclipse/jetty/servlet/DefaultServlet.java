@@ -13,6 +13,7 @@
 
 package org.eclipse.jetty.servlet;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -33,6 +34,7 @@ import org.eclipse.jetty.server.CachedContentFactory;
 import org.eclipse.jetty.server.ResourceContentFactory;
 import org.eclipse.jetty.server.ResourceService;
 import org.eclipse.jetty.server.ResourceService.WelcomeFactory;
+import org.eclipse.jetty.server.SharedContentCache;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.ResourceHandler;
 import org.eclipse.jetty.util.URIUtil;
@@ -101,6 +103,19 @@ import org.slf4j.LoggerFactory;
  *  maxCacheSize      The maximum total size of the cache or 0 for no cache.
  *  maxCachedFileSize The maximum size of a file to cache
  *  maxCachedFiles    The maximum number of files to cache
+ *                    These are ignored if a SharedContentCache is a bean of the
+ *                    server and no resourceCache is set, the content being then
+ *                    cached by the shared cache, unless maxCacheSize or
+ *                    maxCachedFiles is 0 to not cache the content of this context.
+ *
+ *  cacheWatch        If true, the cache entries are invalidated when the files of the
+ *                    resource base change, as reported by the file system, rather than
+ *                    checking the files on every request. A change is reported once the
+ *                    file has not changed for about 1 s, and until then the cached
+ *                    content is served.
+ *  cacheRevalidationInterval
+ *                    The interval in ms between the checks of the files of the cache
+ *                    entries when cacheWatch is true, or -1 to never check them (default 60000).
  *
  *  useFileMappedBuffer
  *                    If set to true, it will use mapped file buffer to serve static content
@@ -248,9 +263,18 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
             _cache = (CachedContentFactory)_servletContext.getAttribute(resourceCache);
         }
 
+        HttpContent.ContentFactory contentFactory = null;
+        SharedContentCache sharedCache = _contextHandler.getServer() == null ? null : _contextHandler.getServer().getBean(SharedContentCache.class);
+        if (_cache == null && resourceCache == null && sharedCache != null && maxCacheSize != 0 && maxCachedFiles != 0)
+        {
+            if (maxCacheSize != -2 || maxCachedFileSize != -2 || maxCachedFiles != -2)
+                LOG.info("Ignoring resource cache configuration of {}, using {}", _servletContext.getContextPath(), sharedCache);
+            contentFactory = sharedCache.newContentFactory(this, _mimeTypes, _resourceService.getPrecompressedFormats());
+        }
+
         try
         {
-            if (_cache == null && (maxCachedFiles != -2 || maxCacheSize != -2 || maxCachedFileSize != -2))
+            if (contentFactory == null && _cache == null && (maxCachedFiles != -2 || maxCacheSize != -2 || maxCachedFileSize != -2))
             {
                 _cache = new CachedContentFactory(null, this, _mimeTypes, _useFileMappedBuffer, _resourceService.isEtags(), _resourceService.getPrecompressedFormats());
                 if (maxCacheSize >= 0)
@@ -259,7 +283,20 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
                     _cache.setMaxCachedFileSize(maxCachedFileSize);
                 if (maxCachedFiles >= -1)
                     _cache.setMaxCachedFiles(maxCachedFiles);
+                if (getInitBoolean("cacheWatch", false))
+                {
+                    Resource base = getResource("/");
+                    File directory = base == null ? null : base.getFile();
+                    if (directory != null && directory.isDirectory())
+                        _cache.watch(directory.toPath());
+                    else
+                        LOG.warn("Unable to watch resource base {}", base);
+                    int revalidationInterval = getInitInt("cacheRevalidationInterval", -2);
+                    if (revalidationInterval != -2)
+                        _cache.setRevalidationInterval(revalidationInterval);
+                }
                 _servletContext.setAttribute(resourceCache == null ? "resourceCache" : resourceCache, _cache);
+                _contextHandler.addManaged(_cache);
             }
         }
         catch (Exception e)
@@ -268,7 +305,8 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
             throw new UnavailableException(e.toString());
         }
 
-        HttpContent.ContentFactory contentFactory = _cache;
+        if (contentFactory == null)
+            contentFactory = _cache;
         if (contentFactory == null)
         {
             contentFactory = new ResourceContentFactory(this, _mimeTypes, _resourceService.getPrecompressedFormats());
@@ -476,7 +514,10 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
     public void destroy()
     {
         if (_cache != null)
+        {
+            _contextHandler.removeBean(_cache);
             _cache.flushCache();
+        }
         super.destroy();
     }
 
@@ -53,6 +53,7 @@ import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.ResourceContentFactory;
 import org.eclipse.jetty.server.ResourceService;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.SharedContentCache;
 import org.eclipse.jetty.server.SymlinkAllowedResourceAliasChecker;
 import org.eclipse.jetty.toolchain.test.FS;
 import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
@@ -1974,6 +1975,31 @@ public class DefaultServletTest
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testSharedContentCache(boolean cached) throws Exception
+    {
+        SharedContentCache cache = new SharedContentCache();
+        server.addBean(cache);
+        createFile(docRoot.resolve("file.txt"), "Hello World");
+
+        ServletHolder defholder = context.addServlet(DefaultServlet.class, "/");
+        // An explicit cache size of 0 disables the shared cache for the context.
+        if (!cached)
+            defholder.setInitParameter("maxCacheSize", "0");
+
+        for (int i = 0; i < 2; ++i)
+        {
+            String rawResponse = connector.getResponse("GET /context/file.txt HTTP/1.0\r\n\r\n");
+            HttpTester.Response response = HttpTester.parseResponse(rawResponse);
+            assertThat(response.toString(), response.getStatus(), is(HttpStatus.OK_200));
+            assertThat(response.getContent(), is("Hello World"));
+        }
+
+        assertThat(cache.getCachedFiles(), is(cached ? 1 : 0));
+        assertThat(cache.getHits(), is(cached ? 1L : 0L));
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {
         "Hello World",
@@ -45,6 +45,7 @@ import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipResponseCache;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.IO;
 import org.hamcrest.Matchers;
@@ -57,6 +58,7 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalToIgnoringCase;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -115,6 +117,7 @@ public class GzipHandlerTest
         context.addServlet(DumpServlet.class, "/dump/*");
         context.addServlet(AsyncServlet.class, "/async/*");
         context.addServlet(BufferServlet.class, "/buffer/*");
+        context.addServlet(CacheableServlet.class, "/cacheable");
         context.addFilter(CheckFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST));
 
         _server.start();
@@ -205,6 +208,29 @@ public class GzipHandlerTest
         }
     }
 
+    public static class CacheableServlet extends HttpServlet
+    {
+        private static volatile int version;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse response) throws ServletException, IOException
+        {
+            String content = __content;
+            String etag = req.getParameter("etag");
+            if (etag != null)
+                response.setHeader("ETag", etag);
+            else if (req.getParameter("versioned") != null)
+            {
+                content = "v" + version + " " + __content;
+                response.setHeader("ETag", "\"v" + version + "\"");
+            }
+            String cacheControl = req.getParameter("cc");
+            if (cacheControl != null)
+                response.setHeader("Cache-Control", cacheControl);
+            response.getWriter().write(content);
+        }
+    }
+
     public static class AsyncServlet extends HttpServlet
     {
         @Override
@@ -369,6 +395,63 @@ public class GzipHandlerTest
         assertEquals(__content, testOut.toString("UTF8"));
     }
 
+    @Test
+    public void testResponseCache() throws Exception
+    {
+        GzipResponseCache cache = new GzipResponseCache();
+        gzipHandler.setResponseCache(cache);
+
+        // Only the response with a strong ETag and without a private Cache-Control is cached.
+        String[] uris = {
+            "/ctx/cacheable?etag=%22strong%22",
+            "/ctx/cacheable?cc=max-age%3D60",
+            "/ctx/cacheable?etag=W/%22weak%22",
+            "/ctx/cacheable?etag=%22private%22&cc=private"
+        };
+        for (int i = 0; i < 2; ++i)
+        {
+            for (String uri : uris)
+            {
+                assertEquals(__content, getGzipResponseCacheContent(uri));
+            }
+        }
+
+        assertThat(cache.getCachedEntries(), is(1));
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getCachedSize(), lessThan((long)__bytes.length));
+
+        // A changed ETag for the same URI is not served from the cache.
+        CacheableServlet.version = 1;
+        assertEquals("v1 " + __content, getGzipResponseCacheContent("/ctx/cacheable?versioned=true"));
+        assertEquals("v1 " + __content, getGzipResponseCacheContent("/ctx/cacheable?versioned=true"));
+        CacheableServlet.version = 2;
+        assertEquals("v2 " + __content, getGzipResponseCacheContent("/ctx/cacheable?versioned=true"));
+
+        assertThat(cache.getCachedEntries(), is(3));
+        assertThat(cache.getMisses(), is(3L));
+        assertThat(cache.getHits(), is(2L));
+    }
+
+    private String getGzipResponseCacheContent(String uri) throws Exception
+    {
+        HttpTester.Request request = HttpTester.newRequest();
+        request.setMethod("GET");
+        request.setURI(uri);
+        request.setVersion("HTTP/1.0");
+        request.setHeader("Host", "tester");
+        request.setHeader("accept-encoding", "gzip");
+
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse(request.generate()));
+
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.get("Content-Encoding"), Matchers.equalToIgnoringCase("gzip"));
+        InputStream testIn = new GZIPInputStream(new ByteArrayInputStream(response.getContentBytes()));
+        ByteArrayOutputStream testOut = new ByteArrayOutputStream();
+        IO.copy(testIn, testOut);
+        return testOut.toString("UTF8");
+    }
+
     @Test
     public void testAsyncResponse() throws Exception
     {
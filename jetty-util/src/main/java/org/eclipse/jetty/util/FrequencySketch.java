@@ -0,0 +1,148 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+/**
+ * <p>A probabilistic estimate of the access frequency of items, as used by
+ * TinyLFU cache admission policies to decide whether a new item is accessed
+ * more often than the item it would evict.</p>
+ * <p>The sketch is a Count-Min sketch of 4-bit counters: each item increments
+ * one counter in each of 4 rows, and its estimated frequency is the minimum
+ * of the 4 counters, so that the estimate is never lower than the actual
+ * frequency, up to the maximum of 15.
+ * When the number of increments reaches 10 times the capacity, all the counters
+ * are halved, so that the estimates reflect the recent accesses.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+public class FrequencySketch
+{
+    private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private long[] _table;
+    private int _sampleSize;
+    private int _size;
+
+    /**
+     * @param capacity the expected number of distinct items
+     */
+    public FrequencySketch(int capacity)
+    {
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * <p>Resizes the sketch, if necessary, for the given number of distinct items.</p>
+     * <p>If the sketch is resized, the previous frequencies are lost.</p>
+     *
+     * @param capacity the expected number of distinct items
+     */
+    public void ensureCapacity(int capacity)
+    {
+        int length = 8;
+        while (length < capacity && length < 1 << 30)
+        {
+            length <<= 1;
+        }
+        if (_table != null && _table.length >= length)
+            return;
+        _table = new long[length];
+        _sampleSize = 10 * length;
+        _size = 0;
+    }
+
+    /**
+     * @param item the item
+     * @return the estimated number of recent accesses of the item, between 0 and 15
+     */
+    public int frequency(Object item)
+    {
+        int hash = spread(item.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; ++i)
+        {
+            int index = indexOf(hash, i);
+            int count = (int)((_table[index] >>> ((start + i) << 2)) & 0xFL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * <p>Records an access of the given item.</p>
+     *
+     * @param item the item
+     */
+    public void increment(Object item)
+    {
+        int hash = spread(item.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; ++i)
+        {
+            int index = indexOf(hash, i);
+            added |= incrementAt(index, start + i);
+        }
+        if (added && ++_size == _sampleSize)
+            reset();
+    }
+
+    /**
+     * @return the number of increments since the last halving of the counters
+     */
+    public int getSize()
+    {
+        return _size;
+    }
+
+    private boolean incrementAt(int index, int counter)
+    {
+        int offset = counter << 2;
+        long mask = 0xFL << offset;
+        if ((_table[index] & mask) == mask)
+            return false;
+        _table[index] += 1L << offset;
+        return true;
+    }
+
+    private void reset()
+    {
+        for (int i = 0; i < _table.length; ++i)
+        {
+            _table[i] = (_table[i] >>> 1) & RESET_MASK;
+        }
+        _size /= 2;
+    }
+
+    private int indexOf(int hash, int row)
+    {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int)h & (_table.length - 1);
+    }
+
+    private static int spread(int x)
+    {
+        x = ((x >>> 16) ^ x) * 0x45D9F3B;
+        x = ((x >>> 16) ^ x) * 0x45D9F3B;
+        return (x >>> 16) ^ x;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d/%d}", getClass().getSimpleName(), hashCode(), _size, _sampleSize);
+    }
+}
@@ -0,0 +1,437 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A bounded, lock-free, multi-producer multi-consumer {@link BlockingQueue} backed by a circular array.</p>
+ * <p>Unlike {@link BlockingArrayQueue}, this queue does not use locks to offer or poll elements:
+ * each slot of the array has a sequence number that producers and consumers use to claim the slot
+ * with a single compare-and-set of the tail or head index respectively.</p>
+ * <p>Consumers that find the queue empty in the blocking methods park themselves, most recently parked
+ * first. The parked consumers and the consumers that have been unparked but have not polled again are
+ * counted in a single {@link AtomicBiInteger}, so that a producer reads one atomic value to decide whether
+ * to unpark a consumer, and does so only when there are fewer unparked consumers than queued elements.
+ * The queue can therefore be used as the job queue of a {@link org.eclipse.jetty.util.thread.QueuedThreadPool},
+ * whose thread and idle counts remain tracked by the thread pool itself.</p>
+ * <p>The capacity of the queue is fixed and rounded up to a power of 2.
+ * Removing an arbitrary element replaces it with a tombstone that consumers skip.</p>
+ *
+ * @param <E> The element type
+ */
+public class LockFreeBlockingArrayQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    /**
+     * The head offset in the {@link #_indexes} array, displaced by a cache line to avoid false sharing with the array length.
+     */
+    private static final int HEAD_OFFSET = MemoryUtils.getLongsPerCacheLine() - 1;
+    /**
+     * The tail offset in the {@link #_indexes} array, displaced by a cache line from the head to avoid false sharing with it.
+     */
+    private static final int TAIL_OFFSET = HEAD_OFFSET + MemoryUtils.getLongsPerCacheLine();
+
+    /**
+     * Array that holds the head and tail indexes, separated by a cache line to avoid false sharing
+     */
+    private final AtomicLongArray _indexes = new AtomicLongArray(TAIL_OFFSET + 1);
+    private final ConcurrentLinkedDeque<Thread> _waiters = new ConcurrentLinkedDeque<>();
+    /**
+     * The number of parked consumers (hi) and the number of unparked consumers that have not polled again (lo).
+     */
+    private final AtomicBiInteger _parking = new AtomicBiInteger();
+    private final AtomicInteger _tombstones = new AtomicInteger();
+    private final AtomicLongArray _sequences;
+    private final AtomicReferenceArray<E> _elements;
+    private final int _mask;
+
+    /**
+     * Creates a bounded {@link LockFreeBlockingArrayQueue}.
+     *
+     * @param maxCapacity the maximum capacity, rounded up to a power of 2
+     */
+    public LockFreeBlockingArrayQueue(int maxCapacity)
+    {
+        if (maxCapacity <= 0 || maxCapacity > 1 << 30)
+            throw new IllegalArgumentException("Invalid capacity " + maxCapacity);
+        int capacity = Integer.highestOneBit(maxCapacity);
+        if (capacity < maxCapacity)
+            capacity <<= 1;
+        _mask = capacity - 1;
+        _elements = new AtomicReferenceArray<>(capacity);
+        _sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; ++i)
+        {
+            _sequences.lazySet(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+        while (true)
+        {
+            long tail = _indexes.get(TAIL_OFFSET);
+            int index = (int)tail & _mask;
+            long delta = _sequences.get(index) - tail;
+            if (delta == 0)
+            {
+                // The slot is free, try to claim it.
+                if (_indexes.compareAndSet(TAIL_OFFSET, tail, tail + 1))
+                {
+                    _elements.lazySet(index, e);
+                    // Publish the element to consumers.
+                    _sequences.set(index, tail + 1);
+                    signal();
+                    return true;
+                }
+            }
+            else if (delta < 0)
+            {
+                // The slot has not been consumed yet, the queue is full.
+                return false;
+            }
+            // Otherwise another producer claimed the slot, retry.
+        }
+    }
+
+    @Override
+    public E poll()
+    {
+        while (true)
+        {
+            long head = _indexes.get(HEAD_OFFSET);
+            int index = (int)head & _mask;
+            long delta = _sequences.get(index) - (head + 1);
+            if (delta == 0)
+            {
+                // The slot has been published, try to claim it.
+                if (_indexes.compareAndSet(HEAD_OFFSET, head, head + 1))
+                {
+                    E e = _elements.getAndSet(index, null);
+                    // Release the slot to producers.
+                    _sequences.set(index, head + _mask + 1);
+                    if (e != null)
+                        return e;
+                    // The element has been removed, skip its tombstone.
+                    _tombstones.decrementAndGet();
+                    continue;
+                }
+            }
+            else if (delta < 0)
+            {
+                // The slot has not been published yet, the queue is empty.
+                return null;
+            }
+            // Otherwise another consumer claimed the slot, retry.
+        }
+    }
+
+    @Override
+    public E peek()
+    {
+        while (true)
+        {
+            long head = _indexes.get(HEAD_OFFSET);
+            int index = (int)head & _mask;
+            if (_sequences.get(index) != head + 1)
+                return null;
+            E e = _elements.get(index);
+            if (e != null)
+                return e;
+            // The element has been removed, consume its tombstone.
+            if (_indexes.compareAndSet(HEAD_OFFSET, head, head + 1))
+            {
+                _sequences.set(index, head + _mask + 1);
+                _tombstones.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException
+    {
+        while (!offer(e))
+        {
+            // Producers do not park, as the queue is normally never full.
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (deadline - System.nanoTime() <= 0)
+                return false;
+            Thread.yield();
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException
+    {
+        return awaitPoll(false, 0);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return awaitPoll(true, unit.toNanos(timeout));
+    }
+
+    private E awaitPoll(boolean timed, long nanos) throws InterruptedException
+    {
+        long deadline = timed ? System.nanoTime() + nanos : 0;
+        Thread thread = Thread.currentThread();
+        boolean unparked = false;
+        while (true)
+        {
+            E e = poll();
+            if (e != null)
+            {
+                // Elements may have been published out of order with the signals.
+                signal();
+                return e;
+            }
+
+            if (Thread.interrupted() || timed && (nanos = deadline - System.nanoTime()) <= 0)
+            {
+                // Do not swallow a signal meant to consume an element.
+                if (unparked)
+                    signal();
+                if (timed && nanos <= 0)
+                    return null;
+                throw new InterruptedException();
+            }
+
+            _waiters.push(thread);
+            _parking.add(1, 0);
+            // Check again after becoming visible to producers, to not miss their signal.
+            e = poll();
+            if (e == null)
+            {
+                if (timed)
+                    LockSupport.parkNanos(this, nanos);
+                else
+                    LockSupport.park(this);
+            }
+
+            if (_waiters.removeFirstOccurrence(thread))
+            {
+                // Not signalled, this thread stops waiting on its own.
+                _parking.add(-1, 0);
+                unparked = false;
+            }
+            else
+            {
+                // A producer took this thread from the waiters to unpark it,
+                // and has counted it, or will imminently, as an unparked consumer.
+                _parking.add(0, -1);
+                unparked = true;
+            }
+            if (e != null)
+            {
+                if (unparked)
+                    signal();
+                return e;
+            }
+        }
+    }
+
+    private void signal()
+    {
+        long encoded = _parking.get();
+        // Do not unpark more consumers than there are elements to consume.
+        if (AtomicBiInteger.getHi(encoded) <= 0 || AtomicBiInteger.getLo(encoded) >= size())
+            return;
+        Thread waiter = _waiters.pollFirst();
+        if (waiter == null)
+            return;
+        _parking.add(-1, 1);
+        LockSupport.unpark(waiter);
+    }
+
+    @Override
+    public int size()
+    {
+        while (true)
+        {
+            long head = _indexes.get(HEAD_OFFSET);
+            long tail = _indexes.get(TAIL_OFFSET);
+            if (head == _indexes.get(HEAD_OFFSET))
+                return (int)Math.max(0, Math.min(tail - head - _tombstones.get(), capacity()));
+        }
+    }
+
+    /**
+     * @return the maximum capacity of this queue
+     */
+    public int capacity()
+    {
+        return _mask + 1;
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        // Tombstones occupy their slot until a consumer skips them.
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = _indexes.get(TAIL_OFFSET);
+        return (int)Math.max(0, capacity() - Math.max(0, tail - head));
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * <p>Removes an occurrence of the given element from this queue.</p>
+     * <p>The slot of the element is not reused until a consumer reaches it and
+     * skips the tombstone left in place of the element.</p>
+     *
+     * @param o the element to remove
+     * @return whether an occurrence of the element was removed
+     */
+    @Override
+    public boolean remove(Object o)
+    {
+        if (o == null)
+            return false;
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = Math.min(_indexes.get(TAIL_OFFSET), head + capacity());
+        for (long cursor = head; cursor < tail; ++cursor)
+        {
+            int index = (int)cursor & _mask;
+            // Only consider the slots that hold the element published for this position.
+            if (_sequences.get(index) != cursor + 1)
+                continue;
+            E e = _elements.get(index);
+            if (e != null && o.equals(e) && tombstone(index, e))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean tombstone(int index, E e)
+    {
+        // Races with the consumer that claims the slot, only one of them gets the element.
+        if (!_elements.compareAndSet(index, e, null))
+            return false;
+        _tombstones.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        Objects.requireNonNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        int count = 0;
+        while (count < maxElements)
+        {
+            E e = poll();
+            if (e == null)
+                break;
+            c.add(e);
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * <p>Returns a weakly consistent iterator over the elements of this queue,
+     * that may or may not reflect concurrent modifications of the queue.</p>
+     *
+     * @return an iterator over the elements of this queue
+     */
+    @Override
+    public Iterator<E> iterator()
+    {
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = Math.min(_indexes.get(TAIL_OFFSET), head + capacity());
+        return new Iterator<>()
+        {
+            private long _cursor = head;
+            private E _next;
+            private E _last;
+            private int _lastIndex;
+
+            @Override
+            public boolean hasNext()
+            {
+                while (_next == null && _cursor < tail)
+                {
+                    int index = (int)_cursor & _mask;
+                    E e = _elements.get(index);
+                    // Skip slots that have been consumed and possibly reused.
+                    if (_sequences.get(index) == _cursor + 1)
+                        _next = e;
+                    ++_cursor;
+                }
+                return _next != null;
+            }
+
+            @Override
+            public E next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                E e = _next;
+                _next = null;
+                _last = e;
+                _lastIndex = (int)(_cursor - 1) & _mask;
+                return e;
+            }
+
+            @Override
+            public void remove()
+            {
+                if (_last == null)
+                    throw new IllegalStateException();
+                // The element may have been consumed meanwhile.
+                tombstone(_lastIndex, _last);
+                _last = null;
+            }
+        };
+    }
+}
@@ -0,0 +1,361 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A thread pool that executes blocking tasks on virtual threads.</p>
+ * <p>This pool wraps a {@link QueuedThreadPool} of platform threads, to which tasks submitted
+ * via {@link #execute(Runnable)} and {@link #tryExecute(Runnable)} are delegated, so that
+ * selectors, acceptors, task producers and the {@link ReservedThreadExecutor} keep running
+ * on platform threads.</p>
+ * <p>Components that are aware of the {@link Invocable.InvocationType} of the tasks they produce,
+ * such as {@link org.eclipse.jetty.util.thread.strategy.AdaptiveExecutionStrategy}, obtain the
+ * {@link #getVirtualThreadsExecutor(Executor) virtual threads executor} of this pool and use it
+ * to execute {@link Invocable.InvocationType#BLOCKING blocking} tasks only, so that non-blocking
+ * tasks never pay the cost of mounting a virtual thread.</p>
+ * <p>The {@link ThreadPoolBudget} of this pool is the one of the platform thread pool, as the
+ * threads leased by connectors are platform threads; the platform thread pool therefore only
+ * needs to be sized for those, and not for the blocking tasks that run on virtual threads.</p>
+ * <p>Virtual threads require Java 19 or later (with preview features enabled for Java 19 and 20);
+ * if they are not supported, this pool behaves like its platform thread pool.</p>
+ */
+@ManagedObject("A thread pool that executes blocking tasks on virtual threads")
+public class VirtualThreadPool extends ContainerLifeCycle implements ThreadPool.SizedThreadPool, TryExecutor, Dumpable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadPool.class);
+    private static final Method IS_VIRTUAL = probeIsVirtual();
+    private static final boolean SUPPORTED = IS_VIRTUAL != null && newVirtualThreadFactory("probe") != null;
+
+    private final AtomicInteger _virtualThreads = new AtomicInteger();
+    private final LongAdder _virtualTasks = new LongAdder();
+    private final LongAdder _virtualRejections = new LongAdder();
+    private final QueuedThreadPool _platformThreadPool;
+    private final Executor _virtualThreadsExecutor;
+    private String _name = "vtp" + hashCode();
+    private volatile ThreadFactory _virtualThreadFactory;
+    private volatile int _maxVirtualThreads = -1;
+
+    public VirtualThreadPool()
+    {
+        this(new QueuedThreadPool());
+    }
+
+    public VirtualThreadPool(@Name("maxPlatformThreads") int maxPlatformThreads)
+    {
+        this(new QueuedThreadPool(maxPlatformThreads));
+    }
+
+    /**
+     * @param platformThreadPool the pool of platform threads to use for non-blocking
+     * and internal tasks, such as selectors and acceptors
+     */
+    public VirtualThreadPool(@Name("platformThreadPool") QueuedThreadPool platformThreadPool)
+    {
+        _platformThreadPool = platformThreadPool;
+        _virtualThreadsExecutor = this::executeOnVirtualThread;
+        addBean(_platformThreadPool);
+    }
+
+    /**
+     * @return whether virtual threads are supported by the running JVM
+     */
+    public static boolean areSupported()
+    {
+        return SUPPORTED;
+    }
+
+    /**
+     * @return whether the current thread is a virtual thread
+     */
+    public static boolean isVirtualThread()
+    {
+        if (!SUPPORTED)
+            return false;
+        try
+        {
+            return (Boolean)IS_VIRTUAL.invoke(Thread.currentThread());
+        }
+        catch (Throwable x)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @param executor the executor to inspect
+     * @return the executor that runs tasks on virtual threads if the given executor
+     * is a {@link VirtualThreadPool} and virtual threads are supported, or null otherwise
+     */
+    public static Executor getVirtualThreadsExecutor(Executor executor)
+    {
+        if (executor instanceof VirtualThreadPool && areSupported())
+            return ((VirtualThreadPool)executor)._virtualThreadsExecutor;
+        return null;
+    }
+
+    private static Method probeIsVirtual()
+    {
+        try
+        {
+            return Thread.class.getMethod("isVirtual");
+        }
+        catch (Throwable x)
+        {
+            return null;
+        }
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(String name)
+    {
+        try
+        {
+            // Use reflection so that this class compiles and runs with Java 11.
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+        }
+        catch (Throwable x)
+        {
+            // Not Java 19+, or preview features not enabled.
+            if (LOG.isDebugEnabled())
+                LOG.debug("Virtual threads not supported", x);
+            return null;
+        }
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        _virtualThreadFactory = SUPPORTED ? newVirtualThreadFactory(getName()) : null;
+        if (_virtualThreadFactory == null)
+            LOG.warn("Virtual threads are not supported, executing blocking tasks on platform threads: {}", this);
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        _virtualThreadFactory = null;
+    }
+
+    /**
+     * @return the pool of platform threads
+     */
+    public QueuedThreadPool getPlatformThreadPool()
+    {
+        return _platformThreadPool;
+    }
+
+    @ManagedAttribute("name of the thread pool")
+    public String getName()
+    {
+        return _name;
+    }
+
+    public void setName(String name)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _name = name;
+        _platformThreadPool.setName(name);
+    }
+
+    /**
+     * @return the maximum number of concurrent virtual threads, or a negative value for no limit
+     */
+    @ManagedAttribute("maximum number of concurrent virtual threads")
+    public int getMaxVirtualThreads()
+    {
+        return _maxVirtualThreads;
+    }
+
+    /**
+     * <p>Sets the maximum number of concurrent virtual threads.</p>
+     * <p>When the maximum is reached, blocking tasks are executed by the platform thread pool.</p>
+     *
+     * @param maxVirtualThreads the maximum number of concurrent virtual threads, or a negative value for no limit
+     */
+    public void setMaxVirtualThreads(int maxVirtualThreads)
+    {
+        _maxVirtualThreads = maxVirtualThreads;
+    }
+
+    @ManagedAttribute("number of running virtual threads")
+    public int getVirtualThreads()
+    {
+        return _virtualThreads.get();
+    }
+
+    @ManagedAttribute("number of tasks executed on virtual threads")
+    public long getVirtualTasks()
+    {
+        return _virtualTasks.sum();
+    }
+
+    @ManagedAttribute("number of blocking tasks executed on platform threads because of the virtual threads limit")
+    public long getVirtualRejections()
+    {
+        return _virtualRejections.sum();
+    }
+
+    @Override
+    @ManagedAttribute("minimum number of platform threads in the pool")
+    public int getMinThreads()
+    {
+        return _platformThreadPool.getMinThreads();
+    }
+
+    @Override
+    public void setMinThreads(int threads)
+    {
+        _platformThreadPool.setMinThreads(threads);
+    }
+
+    @Override
+    @ManagedAttribute("maximum number of platform threads in the pool")
+    public int getMaxThreads()
+    {
+        return _platformThreadPool.getMaxThreads();
+    }
+
+    @Override
+    public void setMaxThreads(int threads)
+    {
+        _platformThreadPool.setMaxThreads(threads);
+    }
+
+    @Override
+    public ThreadPoolBudget getThreadPoolBudget()
+    {
+        return _platformThreadPool.getThreadPoolBudget();
+    }
+
+    @Override
+    public int getThreads()
+    {
+        return _platformThreadPool.getThreads();
+    }
+
+    @Override
+    public int getIdleThreads()
+    {
+        return _platformThreadPool.getIdleThreads();
+    }
+
+    @Override
+    public boolean isLowOnThreads()
+    {
+        return _platformThreadPool.isLowOnThreads();
+    }
+
+    @Override
+    public void join() throws InterruptedException
+    {
+        _platformThreadPool.join();
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        _platformThreadPool.execute(task);
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task)
+    {
+        return _platformThreadPool.tryExecute(task);
+    }
+
+    private void executeOnVirtualThread(Runnable task)
+    {
+        ThreadFactory factory = _virtualThreadFactory;
+        if (factory == null)
+        {
+            _platformThreadPool.execute(task);
+            return;
+        }
+
+        int max = getMaxVirtualThreads();
+        int threads = _virtualThreads.incrementAndGet();
+        if (max >= 0 && threads > max)
+        {
+            _virtualThreads.decrementAndGet();
+            _virtualRejections.increment();
+            _platformThreadPool.execute(task);
+            return;
+        }
+
+        try
+        {
+            factory.newThread(() ->
+            {
+                try
+                {
+                    task.run();
+                }
+                catch (Throwable x)
+                {
+                    LOG.warn("Task run failed", x);
+                }
+                finally
+                {
+                    _virtualThreads.decrementAndGet();
+                }
+            }).start();
+            _virtualTasks.increment();
+        }
+        catch (Throwable x)
+        {
+            _virtualThreads.decrementAndGet();
+            throw x;
+        }
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        dumpObjects(out, indent,
+            String.format("virtualThreads=%d/%d", getVirtualThreads(), getMaxVirtualThreads()));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[%s]@%x{%s,virtual=%d/%d,%s}",
+            getClass().getSimpleName(),
+            getName(),
+            hashCode(),
+            getState(),
+            getVirtualThreads(),
+            getMaxVirtualThreads(),
+            _platformThreadPool);
+    }
+}
@@ -29,6 +29,7 @@ import org.eclipse.jetty.util.thread.AutoLock;
 import org.eclipse.jetty.util.thread.ExecutionStrategy;
 import org.eclipse.jetty.util.thread.Invocable;
 import org.eclipse.jetty.util.thread.TryExecutor;
+import org.eclipse.jetty.util.thread.VirtualThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +60,9 @@ import org.slf4j.LoggerFactory;
  * <dl>
  *     <dt>PC</dt>
  *     <dd>If the produced task is {@link Invocable.InvocationType#NON_BLOCKING}.</dd>
+ *     <dt>PEC on a virtual thread</dt>
+ *     <dd>If the produced task is {@link Invocable.InvocationType#BLOCKING} and the executor is a
+ *     {@link VirtualThreadPool} that supports virtual threads.</dd>
  *     <dt>EPC</dt>
  *     <dd>If the producing thread is not {@link Invocable.InvocationType#NON_BLOCKING}
  *     and a pending producer thread is available, either because there is already a pending producer
@@ -134,6 +138,7 @@ public class AdaptiveExecutionStrategy extends ContainerLifeCycle implements Exe
     private final LongAdder _epcMode = new LongAdder();
     private final Producer _producer;
     private final Executor _executor;
+    private final Executor _virtualThreadsExecutor;
     private final TryExecutor _tryExecutor;
     private final Runnable _runPendingProducer = () -> tryProduce(true);
     private State _state = State.IDLE;
@@ -147,6 +152,7 @@ public class AdaptiveExecutionStrategy extends ContainerLifeCycle implements Exe
     {
         _producer = producer;
         _executor = executor;
+        _virtualThreadsExecutor = VirtualThreadPool.getVirtualThreadsExecutor(executor);
         _tryExecutor = TryExecutor.asTryExecutor(executor);
         addBean(_producer);
         addBean(_tryExecutor);
@@ -321,6 +327,11 @@ public class AdaptiveExecutionStrategy extends ContainerLifeCycle implements Exe
             case BLOCKING:
                 // The produced task may block.
 
+                // If virtual threads are available, use PEC: the task is executed
+                // on a virtual thread, and this platform thread continues to produce.
+                if (_virtualThreadsExecutor != null)
+                    return SubStrategy.PRODUCE_EXECUTE_CONSUME;
+
                 // If the calling producing thread may also block
                 if (!nonBlocking)
                 {
@@ -453,7 +464,8 @@ public class AdaptiveExecutionStrategy extends ContainerLifeCycle implements Exe
     }
 
     /**
-     * Executes a task via the {@link Executor} used to construct this strategy.
+     * Executes a task via the {@link Executor} used to construct this strategy,
+     * or on a virtual thread if the executor supports them.
      * If the execution is rejected and the task is a Closeable, then it is closed.
      *
      * @param task The task to execute.
@@ -462,7 +474,10 @@ public class AdaptiveExecutionStrategy extends ContainerLifeCycle implements Exe
     {
         try
         {
-            _executor.execute(task);
+            if (_virtualThreadsExecutor != null)
+                _virtualThreadsExecutor.execute(task);
+            else
+                _executor.execute(task);
         }
         catch (RejectedExecutionException e)
         {
@@ -0,0 +1,75 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FrequencySketchTest
+{
+    @Test
+    public void testFrequency()
+    {
+        FrequencySketch sketch = new FrequencySketch(64);
+        assertEquals(0, sketch.frequency("/index.html"));
+
+        for (int i = 0; i < 5; ++i)
+        {
+            sketch.increment("/index.html");
+        }
+        sketch.increment("/favicon.ico");
+
+        assertEquals(5, sketch.frequency("/index.html"));
+        assertEquals(1, sketch.frequency("/favicon.ico"));
+    }
+
+    @Test
+    public void testFrequencySaturates()
+    {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 100; ++i)
+        {
+            sketch.increment("/index.html");
+        }
+        assertEquals(15, sketch.frequency("/index.html"));
+        // Saturated counters do not count as increments.
+        assertEquals(15, sketch.getSize());
+    }
+
+    @Test
+    public void testCountersHalvedAfterSampleSize()
+    {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; ++i)
+        {
+            sketch.increment("/hot.css");
+        }
+        // Touch many distinct items until the counters are halved.
+        int items = 0;
+        int size;
+        do
+        {
+            size = sketch.getSize();
+            sketch.increment("/cold-" + items++);
+        }
+        while (sketch.getSize() >= size);
+        assertThat(items, greaterThan(100));
+        assertThat(sketch.frequency("/hot.css"), lessThan(8));
+        assertThat(sketch.frequency("/hot.css"), greaterThan(3));
+    }
+}
@@ -0,0 +1,308 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LockFreeBlockingArrayQueueTest
+{
+    @Test
+    public void testWrap()
+    {
+        LockFreeBlockingArrayQueue<String> queue = new LockFreeBlockingArrayQueue<>(3);
+
+        // Capacity is rounded up to a power of 2.
+        assertEquals(4, queue.capacity());
+        assertEquals(0, queue.size());
+
+        for (int i = 0; i < 3 * queue.capacity(); i++)
+        {
+            assertTrue(queue.offer("one"));
+            assertTrue(queue.offer("two"));
+            assertTrue(queue.offer("three"));
+            assertEquals(3, queue.size());
+            assertEquals("[one, two, three]", queue.toString());
+
+            assertEquals("one", queue.peek());
+            assertEquals("one", queue.poll());
+            assertEquals("two", queue.poll());
+            assertEquals("three", queue.poll());
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testLimit()
+    {
+        LockFreeBlockingArrayQueue<String> queue = new LockFreeBlockingArrayQueue<>(2);
+
+        assertTrue(queue.offer("one"));
+        assertTrue(queue.offer("two"));
+        assertFalse(queue.offer("three"));
+        assertEquals(0, queue.remainingCapacity());
+
+        assertEquals("one", queue.poll());
+        assertEquals(1, queue.remainingCapacity());
+        assertTrue(queue.offer("three"));
+        assertEquals("two", queue.poll());
+        assertEquals("three", queue.poll());
+    }
+
+    @Test
+    public void testPollTimeout() throws Exception
+    {
+        LockFreeBlockingArrayQueue<String> queue = new LockFreeBlockingArrayQueue<>(4);
+
+        long start = System.nanoTime();
+        assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testTake() throws Exception
+    {
+        LockFreeBlockingArrayQueue<String> queue = new LockFreeBlockingArrayQueue<>(4);
+        AtomicReference<String> taken = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                taken.set(queue.take());
+                latch.countDown();
+            }
+            catch (InterruptedException x)
+            {
+                x.printStackTrace();
+            }
+        });
+        thread.start();
+
+        // Wait for the consumer to park.
+        Thread.sleep(100);
+        queue.offer("one");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("one", taken.get());
+    }
+
+    @Test
+    public void testTakeWithManyConsumers() throws Exception
+    {
+        LockFreeBlockingArrayQueue<Integer> queue = new LockFreeBlockingArrayQueue<>(4);
+        int consumers = 3;
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(consumers);
+
+        for (int c = 0; c < consumers; ++c)
+        {
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    taken.add(queue.take());
+                    latch.countDown();
+                }
+                catch (InterruptedException x)
+                {
+                    x.printStackTrace();
+                }
+            });
+            thread.start();
+        }
+
+        // Wait for the consumers to park.
+        Thread.sleep(100);
+        // Every element must wake up a parked consumer.
+        for (int i = 0; i < consumers; ++i)
+        {
+            queue.offer(i);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Set.of(0, 1, 2), taken);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testRemove()
+    {
+        LockFreeBlockingArrayQueue<String> queue = new LockFreeBlockingArrayQueue<>(4);
+
+        for (int i = 0; i < 3 * queue.capacity(); i++)
+        {
+            assertTrue(queue.offer("one"));
+            assertTrue(queue.offer("two"));
+            assertTrue(queue.offer("three"));
+
+            assertTrue(queue.remove("two"));
+            assertFalse(queue.remove("two"));
+            assertEquals(2, queue.size());
+            assertEquals("[one, three]", queue.toString());
+            // The removed element still occupies its slot.
+            assertEquals(1, queue.remainingCapacity());
+
+            assertTrue(queue.remove("one"));
+            // The tombstone at the head is skipped.
+            assertEquals("three", queue.peek());
+            assertEquals("three", queue.poll());
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+            assertEquals(queue.capacity(), queue.remainingCapacity());
+        }
+    }
+
+    @Test
+    public void testIteratorRemove()
+    {
+        LockFreeBlockingArrayQueue<String> queue = new LockFreeBlockingArrayQueue<>(8);
+        queue.offer("one");
+        queue.offer("two");
+        queue.offer("three");
+
+        assertTrue(queue.removeIf("two"::equals));
+        assertEquals("[one, three]", queue.toString());
+        assertTrue(queue.retainAll(List.of("three")));
+        assertEquals(1, queue.size());
+        assertEquals("three", queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        int producers = 8;
+        int consumers = 8;
+        int count = 100_000;
+        LockFreeBlockingArrayQueue<Integer> queue = new LockFreeBlockingArrayQueue<>(64);
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(producers * count);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < consumers; ++c)
+        {
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    while (true)
+                    {
+                        Integer i = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (i != null)
+                        {
+                            assertTrue(consumed.add(i));
+                            latch.countDown();
+                        }
+                    }
+                }
+                catch (InterruptedException x)
+                {
+                    // Test finished.
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (int p = 0; p < producers; ++p)
+        {
+            int producer = p;
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    for (int i = 0; i < count; ++i)
+                    {
+                        queue.put(producer * count + i);
+                    }
+                }
+                catch (InterruptedException x)
+                {
+                    x.printStackTrace();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(producers * count, consumed.size());
+        assertTrue(queue.isEmpty());
+
+        for (Thread thread : threads)
+        {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testDrainTo()
+    {
+        LockFreeBlockingArrayQueue<String> queue = new LockFreeBlockingArrayQueue<>(8);
+        queue.offer("one");
+        queue.offer("two");
+        queue.offer("three");
+
+        List<String> list = new ArrayList<>();
+        assertEquals(2, queue.drainTo(list, 2));
+        assertEquals(List.of("one", "two"), list);
+        assertEquals(1, queue.drainTo(list));
+        assertEquals(List.of("one", "two", "three"), list);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testQueuedThreadPool() throws Exception
+    {
+        QueuedThreadPool pool = new QueuedThreadPool(16, 2, new LockFreeBlockingArrayQueue<>(16384));
+        pool.setIdleTimeout(100);
+        pool.start();
+        try
+        {
+            int jobs = 10_000;
+            CountDownLatch latch = new CountDownLatch(jobs);
+            for (int i = 0; i < jobs; ++i)
+            {
+                pool.execute(latch::countDown);
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+            // Idle threads parked in the queue are woken up by new jobs.
+            Thread.sleep(200);
+            CountDownLatch again = new CountDownLatch(1);
+            pool.execute(again::countDown);
+            assertTrue(again.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+}
@@ -19,6 +19,8 @@ import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AutoLockTest
@@ -120,4 +122,45 @@ public class AutoLockTest
 
         assertFalse(lock.isLocked());
     }
+
+    @Test
+    public void testTryLock() throws Exception
+    {
+        AutoLock lock = new AutoLock();
+
+        try (AutoLock l = lock.tryLock())
+        {
+            assertNotNull(l);
+            assertTrue(lock.isLocked());
+        }
+        assertFalse(lock.isLocked());
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch hold = new CountDownLatch(1);
+        Thread thread = new Thread(() ->
+        {
+            try (AutoLock l = lock.lock())
+            {
+                held.countDown();
+                hold.await();
+            }
+            catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        });
+        thread.start();
+        held.await();
+
+        // The lock is held by the other thread.
+        try (AutoLock l = lock.tryLock())
+        {
+            assertNull(l);
+        }
+        assertTrue(lock.isLocked());
+
+        hold.countDown();
+        thread.join();
+        assertFalse(lock.isLocked());
+    }
 }
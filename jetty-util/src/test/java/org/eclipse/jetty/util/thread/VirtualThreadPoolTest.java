@@ -0,0 +1,172 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jetty.util.thread.ThreadPool.SizedThreadPool;
+import org.eclipse.jetty.util.thread.strategy.AdaptiveExecutionStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadPoolTest extends AbstractThreadPoolTest
+{
+    @Override
+    protected SizedThreadPool newPool(int max)
+    {
+        return new VirtualThreadPool(max);
+    }
+
+    @Test
+    public void testExecuteRunsOnPlatformThreads() throws Exception
+    {
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.start();
+        try
+        {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicBoolean virtual = new AtomicBoolean(true);
+            pool.execute(() ->
+            {
+                virtual.set(VirtualThreadPool.isVirtualThread());
+                latch.countDown();
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertFalse(virtual.get());
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsExecutor() throws Exception
+    {
+        assumeTrue(VirtualThreadPool.areSupported());
+
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.start();
+        try
+        {
+            assertThat(VirtualThreadPool.getVirtualThreadsExecutor(new QueuedThreadPool()), nullValue());
+            assertThat(VirtualThreadPool.getVirtualThreadsExecutor(pool), notNullValue());
+
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicBoolean virtual = new AtomicBoolean();
+            VirtualThreadPool.getVirtualThreadsExecutor(pool).execute(() ->
+            {
+                virtual.set(VirtualThreadPool.isVirtualThread());
+                latch.countDown();
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(virtual.get());
+            assertThat(pool.getVirtualTasks(), is(1L));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testMaxVirtualThreads() throws Exception
+    {
+        assumeTrue(VirtualThreadPool.areSupported());
+
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.setMaxVirtualThreads(1);
+        pool.start();
+        try
+        {
+            CountDownLatch blocker = new CountDownLatch(1);
+            CountDownLatch latch = new CountDownLatch(2);
+            BlockingQueue<Boolean> virtuals = new ArrayBlockingQueue<>(2);
+            Runnable task = () ->
+            {
+                virtuals.offer(VirtualThreadPool.isVirtualThread());
+                latch.countDown();
+                try
+                {
+                    blocker.await();
+                }
+                catch (InterruptedException x)
+                {
+                    throw new RuntimeException(x);
+                }
+            };
+            VirtualThreadPool.getVirtualThreadsExecutor(pool).execute(task);
+            VirtualThreadPool.getVirtualThreadsExecutor(pool).execute(task);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            blocker.countDown();
+
+            // Only one task ran on a virtual thread, the other on a platform thread.
+            assertTrue(virtuals.poll(5, TimeUnit.SECONDS) ^ virtuals.poll(5, TimeUnit.SECONDS));
+            assertThat(pool.getVirtualRejections(), is(1L));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testAdaptiveExecutionStrategyRunsOnlyBlockingTasksOnVirtualThreads() throws Exception
+    {
+        assumeTrue(VirtualThreadPool.areSupported());
+
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.start();
+        BlockingQueue<Runnable> tasks = new ArrayBlockingQueue<>(2);
+        AdaptiveExecutionStrategy strategy = new AdaptiveExecutionStrategy(tasks::poll, pool);
+        strategy.start();
+        try
+        {
+            CountDownLatch latch = new CountDownLatch(2);
+            AtomicBoolean nonBlockingVirtual = new AtomicBoolean(true);
+            AtomicBoolean blockingVirtual = new AtomicBoolean();
+            tasks.offer(new Invocable.ReadyTask(Invocable.InvocationType.NON_BLOCKING, () ->
+            {
+                nonBlockingVirtual.set(VirtualThreadPool.isVirtualThread());
+                latch.countDown();
+            }));
+            tasks.offer(new Invocable.ReadyTask(Invocable.InvocationType.BLOCKING, () ->
+            {
+                blockingVirtual.set(VirtualThreadPool.isVirtualThread());
+                latch.countDown();
+            }));
+            strategy.dispatch();
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertFalse(nonBlockingVirtual.get());
+            assertTrue(blockingVirtual.get());
+        }
+        finally
+        {
+            strategy.stop();
+            pool.stop();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http2.hpack.HpackEncoder;
+import org.eclipse.jetty.http2.hpack.HpackFieldCache;
+import org.eclipse.jetty.http3.qpack.QpackEncoder;
+import org.eclipse.jetty.http3.qpack.QpackFieldCache;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the CPU time to encode the headers of a response, with and without
+ * a field cache shared by the encoders of all the connections.</p>
+ * <p>A new encoder, with an empty dynamic table, is used every
+ * {@code responses} responses, to model short lived connections.</p>
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class EncodedFieldCacheBenchmark
+{
+    @Param({"h2", "h3"})
+    public String protocol;
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    @Param({"1", "16"})
+    public int responses;
+
+    private HpackFieldCache hpackFieldCache;
+    private QpackFieldCache qpackFieldCache;
+    private MetaData.Response response;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        hpackFieldCache = cache ? new HpackFieldCache() : null;
+        qpackFieldCache = cache ? new QpackFieldCache() : null;
+        response = newResponse();
+    }
+
+    @State(Scope.Thread)
+    public static class Connection
+    {
+        private HpackEncoder hpackEncoder;
+        private QpackEncoder qpackEncoder;
+        private ByteBuffer buffer;
+        private int count;
+
+        @Setup(Level.Trial)
+        public void setupTrial()
+        {
+            buffer = BufferUtil.allocateDirect(16 * 1024);
+        }
+
+        private void encode(EncodedFieldCacheBenchmark benchmark) throws Exception
+        {
+            boolean newConnection = count++ % benchmark.responses == 0;
+            BufferUtil.clearToFill(buffer);
+            if ("h2".equals(benchmark.protocol))
+            {
+                if (newConnection)
+                {
+                    hpackEncoder = new HpackEncoder();
+                    hpackEncoder.setFieldCache(benchmark.hpackFieldCache);
+                }
+                hpackEncoder.encode(buffer, benchmark.response);
+            }
+            else
+            {
+                if (newConnection)
+                {
+                    qpackEncoder = new QpackEncoder(instructions -> {}, 16);
+                    qpackEncoder.setFieldCache(benchmark.qpackFieldCache);
+                }
+                // Encode on a new stream, to not accumulate stream state.
+                qpackEncoder.encode(buffer, 4L * count, benchmark.response);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime})
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int testEncodeResponse(Connection connection) throws Exception
+    {
+        connection.encode(this);
+        return connection.buffer.position();
+    }
+
+    private static MetaData.Response newResponse()
+    {
+        // The typical headers of a response from a web application.
+        return new MetaData.Response(HttpVersion.HTTP_2, 200, HttpFields.build()
+            .add(new PreEncodedHttpField(HttpHeader.SERVER, "Jetty(10.0.x)"))
+            .add(HttpHeader.DATE, "Mon, 17 Oct 2022 10:00:00 GMT")
+            .add(HttpHeader.CONTENT_TYPE, "text/html;charset=utf-8")
+            .add(HttpHeader.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
+            .add(HttpHeader.VARY, "Accept-Encoding")
+            .add(HttpHeader.STRICT_TRANSPORT_SECURITY, "max-age=31536000; includeSubDomains")
+            .add("Content-Security-Policy", "default-src 'self'; img-src 'self' data:; frame-ancestors 'none'")
+            .add("X-Frame-Options", "DENY")
+            .add("Referrer-Policy", "strict-origin-when-cross-origin"));
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Options opt = new OptionsBuilder()
+            .include(EncodedFieldCacheBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,179 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.compression.Huffman;
+import org.eclipse.jetty.util.Utf8StringBuilder;
+
+/**
+ * <p>The Huffman decoder that walked a tree one octet at a time,
+ * and the encoder that looked up the codes in a two-dimensional array,
+ * as they were before the table-driven implementations.</p>
+ * <p>Kept as a baseline for the Huffman benchmarks.</p>
+ */
+public class LegacyHuffman
+{
+    private static final char[] tree;
+    private static final char[] rowsym;
+    private static final byte[] rowbits;
+
+    static
+    {
+        int[][] codes = Huffman.CODES;
+        int r = 0;
+        for (int[] code : codes)
+        {
+            r += (code[1] + 7) / 8;
+        }
+        tree = new char[r * 256];
+        rowsym = new char[r];
+        rowbits = new byte[r];
+
+        r = 0;
+        for (int sym = 0; sym < codes.length; sym++)
+        {
+            int code = codes[sym][0];
+            int len = codes[sym][1];
+            int current = 0;
+            while (len > 8)
+            {
+                len -= 8;
+                int i = ((code >>> len) & 0xFF);
+                int t = current * 256 + i;
+                current = tree[t];
+                if (current == 0)
+                {
+                    tree[t] = (char)++r;
+                    current = r;
+                }
+            }
+
+            int terminal = ++r;
+            rowsym[r] = (char)sym;
+            int b = len & 0x07;
+            rowbits[r] = (byte)(b == 0 ? 8 : b);
+            int shift = 8 - len;
+            int start = current * 256 + ((code << shift) & 0xFF);
+            int end = start + (1 << shift);
+            for (int i = start; i < end; i++)
+            {
+                tree[i] = (char)terminal;
+            }
+        }
+    }
+
+    private LegacyHuffman()
+    {
+    }
+
+    public static String decode(ByteBuffer buffer, int length)
+    {
+        Utf8StringBuilder utf8 = new Utf8StringBuilder(length * 2);
+        int node = 0;
+        int current = 0;
+        int bits = 0;
+
+        for (int i = 0; i < length; i++)
+        {
+            int b = buffer.get() & 0xFF;
+            current = (current << 8) | b;
+            bits += 8;
+            while (bits >= 8)
+            {
+                int c = (current >>> (bits - 8)) & 0xFF;
+                node = tree[node * 256 + c];
+                if (rowbits[node] != 0)
+                {
+                    if (rowsym[node] == Huffman.EOS)
+                        throw new IllegalArgumentException("EOS in content");
+                    utf8.append((byte)(0xFF & rowsym[node]));
+                    bits -= rowbits[node];
+                    node = 0;
+                }
+                else
+                {
+                    bits -= 8;
+                }
+            }
+        }
+
+        while (bits > 0)
+        {
+            int c = (current << (8 - bits)) & 0xFF;
+            int lastNode = node;
+            node = tree[node * 256 + c];
+            if (rowbits[node] == 0 || rowbits[node] > bits)
+            {
+                if ((c >> (8 - bits)) != (1 << bits) - 1)
+                    throw new IllegalArgumentException("Incorrect padding");
+                node = lastNode;
+                break;
+            }
+            utf8.append((byte)(0xFF & rowsym[node]));
+            bits -= rowbits[node];
+            node = 0;
+        }
+
+        if (node != 0)
+            throw new IllegalArgumentException("Bad termination");
+
+        return utf8.toString();
+    }
+
+    public static int octetsNeeded(String s)
+    {
+        int needed = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            if (c >= 128 || c < ' ')
+                return -1;
+            needed += Huffman.CODES[c][1];
+        }
+        return (needed + 7) / 8;
+    }
+
+    public static void encode(ByteBuffer buffer, String s)
+    {
+        long current = 0;
+        int n = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            if (c >= 128 || c < ' ')
+                throw new IllegalArgumentException();
+            int code = Huffman.CODES[c][0];
+            int bits = Huffman.CODES[c][1];
+            current <<= bits;
+            current |= code;
+            n += bits;
+            while (n >= 8)
+            {
+                n -= 8;
+                buffer.put((byte)(current >> n));
+            }
+        }
+
+        if (n > 0)
+        {
+            current <<= (8 - n);
+            current |= (0xFF >>> n);
+            buffer.put((byte)(current));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.hpack.AdaptiveHpackIndexingPolicy;
+import org.eclipse.jetty.http2.hpack.FixedHpackIndexingPolicy;
+import org.eclipse.jetty.http2.hpack.HpackEncoder;
+import org.eclipse.jetty.http2.hpack.HpackException;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@Threads(4)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class HpackEncoderBenchmark
+{
+    private static final int MESSAGES = 1024;
+
+    @Param({"FIXED", "ADAPTIVE"})
+    public String policy;
+
+    @Param({"BROWSER", "MESH", "RESPONSE"})
+    public String corpus;
+
+    private List<MetaData> messages;
+    private HpackEncoder encoder;
+    private ByteBuffer buffer;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        messages = newCorpus(corpus);
+        encoder = newEncoder(policy);
+        buffer = BufferUtil.allocateDirect(16 * 1024);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public int testEncode() throws HpackException
+    {
+        MetaData metaData = messages.get(index++ % messages.size());
+        BufferUtil.clearToFill(buffer);
+        encoder.encode(buffer, metaData);
+        return buffer.position();
+    }
+
+    private static HpackEncoder newEncoder(String policy)
+    {
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.setIndexingPolicy("FIXED".equals(policy) ? new FixedHpackIndexingPolicy() : new AdaptiveHpackIndexingPolicy());
+        return encoder;
+    }
+
+    private static List<MetaData> newCorpus(String corpus)
+    {
+        // Synthetic corpora, modeled after the headers of typical
+        // browser traffic, service to service calls and responses.
+        Random random = new Random(corpus.hashCode());
+        List<MetaData> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; ++i)
+        {
+            switch (corpus)
+            {
+                case "BROWSER":
+                    messages.add(new MetaData.Request("GET", HttpURI.build("https://example.com/catalog/item/" + random.nextInt(5000)), HttpVersion.HTTP_2, HttpFields.build()
+                        .add(HttpHeader.USER_AGENT, "Mozilla/5.0 (X11; Linux x86_64; rv:105.0) Gecko/20100101 Firefox/105.0")
+                        .add(HttpHeader.ACCEPT, "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+                        .add(HttpHeader.ACCEPT_LANGUAGE, "en-US,en;q=0.5")
+                        .add(HttpHeader.ACCEPT_ENCODING, "gzip, deflate, br")
+                        .add(HttpHeader.REFERER, "https://example.com/catalog?page=" + random.nextInt(50))
+                        .add(HttpHeader.COOKIE, "JSESSIONID=node0" + Long.toHexString(random.nextLong() & 0xFFFFFFFFL) + "; theme=dark")
+                        .add("sec-fetch-mode", "navigate")));
+                    break;
+                case "MESH":
+                    messages.add(new MetaData.Request("POST", HttpURI.build("http://orders.svc:8080/api/v1/orders"), HttpVersion.HTTP_2, HttpFields.build()
+                        .add(HttpHeader.CONTENT_TYPE, "application/json")
+                        .add(HttpHeader.CONTENT_LENGTH, String.valueOf(100 + random.nextInt(900)))
+                        .add("x-request-id", UUID.randomUUID().toString())
+                        .add("traceparent", String.format("00-%016x%016x-%016x-01", random.nextLong(), random.nextLong(), random.nextLong()))
+                        .add("x-tenant-id", "tenant-" + random.nextInt(8))
+                        .add("x-forwarded-client-cert", "By=spiffe://cluster.local/ns/default/sa/orders")));
+                    break;
+                case "RESPONSE":
+                    messages.add(new MetaData.Response(HttpVersion.HTTP_2, 200, HttpFields.build()
+                        .add(HttpHeader.SERVER, "Jetty(10.0.x)")
+                        .add(HttpHeader.DATE, "Mon, 17 Oct 2022 10:00:" + (10 + i / 64) + " GMT")
+                        .add(HttpHeader.CONTENT_TYPE, "text/html;charset=utf-8")
+                        .add(HttpHeader.CACHE_CONTROL, "max-age=3600")
+                        .add(HttpHeader.ETAG, "W/\"" + Long.toHexString(random.nextLong()) + "\"")
+                        .add(HttpHeader.LAST_MODIFIED, "Sun, 16 Oct 2022 0" + random.nextInt(10) + ":00:00 GMT")
+                        .add("x-correlation-id", Long.toHexString(random.nextLong()))));
+                    break;
+                default:
+                    throw new IllegalArgumentException(corpus);
+            }
+        }
+        return messages;
+    }
+
+    private static long rawSize(MetaData metaData)
+    {
+        long size = 0;
+        for (HttpField field : metaData.getFields())
+        {
+            size += field.getName().length() + field.getValue().length() + 4;
+        }
+        return size;
+    }
+
+    private static void printCompressionReport() throws HpackException
+    {
+        ByteBuffer buffer = BufferUtil.allocate(16 * 1024);
+        for (String corpus : new String[]{"BROWSER", "MESH", "RESPONSE"})
+        {
+            List<MetaData> messages = newCorpus(corpus);
+            long raw = messages.stream().mapToLong(HpackEncoderBenchmark::rawSize).sum();
+            for (String policy : new String[]{"FIXED", "ADAPTIVE"})
+            {
+                HpackEncoder encoder = newEncoder(policy);
+                long encoded = 0;
+                for (MetaData metaData : messages)
+                {
+                    BufferUtil.clearToFill(buffer);
+                    encoder.encode(buffer, metaData);
+                    encoded += buffer.position();
+                }
+                System.err.printf("%-8s %-8s raw=%d encoded=%d ratio=%.3f%n", corpus, policy, raw, encoded, (double)encoded / raw);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        printCompressionReport();
+
+        Options opt = new OptionsBuilder()
+            .include(HpackEncoderBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
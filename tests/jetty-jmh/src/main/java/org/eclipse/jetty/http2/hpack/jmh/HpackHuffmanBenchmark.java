@@ -0,0 +1,126 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.compression.HuffmanDecoder;
+import org.eclipse.jetty.http.compression.HuffmanEncoder;
+import org.eclipse.jetty.http.jmh.LegacyHuffman;
+import org.eclipse.jetty.http2.hpack.HpackException;
+import org.eclipse.jetty.http2.hpack.Huffman;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@Threads(4)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class HpackHuffmanBenchmark
+{
+    @Param({
+        "no-cache",
+        "Mon, 21 Oct 2013 20:13:21 GMT",
+        "Mozilla/5.0 (X11; Linux x86_64; rv:105.0) Gecko/20100101 Firefox/105.0",
+        "JSESSIONID=node01q2w3e4r5t6y7u8i9o0p1a2s3d4f5g6h7; theme=dark; lang=en-US"
+    })
+    public String value;
+
+    private final HuffmanDecoder decoder = new HuffmanDecoder();
+    private ByteBuffer encoded;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        encoded = BufferUtil.allocate(HuffmanEncoder.octetsNeeded(value));
+        BufferUtil.clearToFill(encoded);
+        HuffmanEncoder.encode(encoded, value);
+        BufferUtil.flipToFlush(encoded, 0);
+        buffer = BufferUtil.allocate(2 * encoded.remaining());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testDecodeLegacy()
+    {
+        ByteBuffer slice = encoded.slice();
+        return LegacyHuffman.decode(slice, slice.remaining());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testDecode() throws HpackException.CompressionException
+    {
+        ByteBuffer slice = encoded.slice();
+        return Huffman.decode(slice, slice.remaining());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testDecodeReused() throws Exception
+    {
+        ByteBuffer slice = encoded.slice();
+        decoder.setLength(slice.remaining());
+        return decoder.decode(slice);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public int testEncodeLegacy()
+    {
+        BufferUtil.clearToFill(buffer);
+        int needed = LegacyHuffman.octetsNeeded(value);
+        LegacyHuffman.encode(buffer, value);
+        return needed + buffer.position();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public int testEncode()
+    {
+        BufferUtil.clearToFill(buffer);
+        int needed = Huffman.octetsNeeded(value);
+        Huffman.encode(buffer, value);
+        return needed + buffer.position();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HpackHuffmanBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
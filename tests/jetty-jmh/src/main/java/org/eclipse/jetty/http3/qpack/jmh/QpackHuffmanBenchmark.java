@@ -0,0 +1,120 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http3.qpack.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.compression.HuffmanEncoder;
+import org.eclipse.jetty.http.jmh.LegacyHuffman;
+import org.eclipse.jetty.http3.qpack.internal.util.EncodingException;
+import org.eclipse.jetty.http3.qpack.internal.util.NBitIntegerEncoder;
+import org.eclipse.jetty.http3.qpack.internal.util.NBitIntegerParser;
+import org.eclipse.jetty.http3.qpack.internal.util.NBitStringParser;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@Threads(4)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class QpackHuffmanBenchmark
+{
+    @Param({
+        "no-cache",
+        "Mon, 21 Oct 2013 20:13:21 GMT",
+        "Mozilla/5.0 (X11; Linux x86_64; rv:105.0) Gecko/20100101 Firefox/105.0",
+        "JSESSIONID=node01q2w3e4r5t6y7u8i9o0p1a2s3d4f5g6h7; theme=dark; lang=en-US"
+    })
+    public String value;
+
+    private final NBitIntegerParser integerParser = new NBitIntegerParser();
+    private final NBitStringParser stringParser = new NBitStringParser();
+    private ByteBuffer literal;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        // A Huffman encoded string literal with a 7 bit length prefix.
+        literal = BufferUtil.allocate(16 + HuffmanEncoder.octetsNeeded(value));
+        BufferUtil.clearToFill(literal);
+        literal.put((byte)0x80);
+        NBitIntegerEncoder.encode(literal, 7, HuffmanEncoder.octetsNeeded(value));
+        HuffmanEncoder.encode(literal, value);
+        BufferUtil.flipToFlush(literal, 0);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testDecodeLegacy()
+    {
+        ByteBuffer buffer = literal.slice();
+        integerParser.setPrefix(7);
+        int length = integerParser.decodeInt(buffer);
+        integerParser.reset();
+        return LegacyHuffman.decode(buffer, length);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testDecode() throws EncodingException
+    {
+        stringParser.setPrefix(8);
+        return stringParser.decode(literal.slice());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String testDecodeFragmented() throws EncodingException
+    {
+        // Feed the literal in small chunks, as when it spans QUIC frames.
+        ByteBuffer buffer = literal.slice();
+        int limit = buffer.limit();
+        stringParser.setPrefix(8);
+        String result = null;
+        while (result == null)
+        {
+            buffer.limit(Math.min(limit, buffer.position() + 8));
+            result = stringParser.decode(buffer);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(QpackHuffmanBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .threads(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
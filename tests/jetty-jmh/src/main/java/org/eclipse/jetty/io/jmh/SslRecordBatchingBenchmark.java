@@ -0,0 +1,182 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the CPU time to write a response of {@code writes} application
+ * buffers of {@code length} bytes through a {@link SslConnection}, with the
+ * default behavior of one network write per TLS record, and with several
+ * records per network write.</p>
+ * <p>The network is a {@link ByteArrayEndPoint}, so that the cost of the
+ * network writes is not measured, only their number.</p>
+ */
+@State(Scope.Thread)
+@Threads(1)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class SslRecordBatchingBenchmark
+{
+    @Param({"false", "true"})
+    public boolean batching;
+
+    @Param({"64", "1024", "65536"})
+    public int length;
+
+    @Param({"16"})
+    public int writes;
+
+    private final ByteBufferPool byteBufferPool = new MappedByteBufferPool();
+    private ScheduledExecutorScheduler scheduler;
+    private SslContextFactory.Server serverTLS;
+    private ByteArrayEndPoint network;
+    private SslConnection sslConnection;
+    private ByteBuffer content;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        scheduler = new ScheduledExecutorScheduler();
+        scheduler.start();
+        serverTLS = new SslContextFactory.Server();
+        serverTLS.setKeyStoreResource(Resource.newClassPathResource("keystore.p12"));
+        serverTLS.setKeyStorePassword("storepwd");
+        serverTLS.start();
+        SslContextFactory.Client clientTLS = new SslContextFactory.Client(true);
+        clientTLS.start();
+
+        network = new ByteArrayEndPoint(scheduler, 30000);
+        network.setGrowOutput(true);
+        SSLEngine serverEngine = serverTLS.newSSLEngine();
+        serverEngine.setUseClientMode(false);
+        sslConnection = new SslConnection(byteBufferPool, Runnable::run, network, serverEngine);
+        if (batching)
+            sslConnection.setMaxRecordsPerFlush(4);
+        SSLEngine clientEngine = clientTLS.newSSLEngine();
+        clientEngine.setUseClientMode(true);
+        handshake(clientEngine);
+        clientTLS.stop();
+
+        content = BufferUtil.toBuffer(new byte[length]);
+    }
+
+    private void handshake(SSLEngine clientEngine) throws Exception
+    {
+        SslConnection.DecryptedEndPoint endPoint = sslConnection.getDecryptedEndPoint();
+        ByteBuffer clientInput = BufferUtil.allocate(64 * 1024);
+        ByteBuffer clientOutput = ByteBuffer.allocate(clientEngine.getSession().getPacketBufferSize());
+        ByteBuffer clientApplication = ByteBuffer.allocate(clientEngine.getSession().getApplicationBufferSize());
+        clientEngine.beginHandshake();
+        for (int i = 0; i < 64; ++i)
+        {
+            HandshakeStatus status = clientEngine.getHandshakeStatus();
+            if (status == HandshakeStatus.NEED_TASK)
+            {
+                clientEngine.getDelegatedTask().run();
+                continue;
+            }
+            if (status == HandshakeStatus.NEED_WRAP)
+            {
+                clientOutput.clear();
+                clientEngine.wrap(BufferUtil.EMPTY_BUFFER, clientOutput);
+                clientOutput.flip();
+                network.addInput(clientOutput);
+            }
+            else if (status == HandshakeStatus.NEED_UNWRAP)
+            {
+                BufferUtil.append(clientInput, network.takeOutput());
+                clientApplication.clear();
+                SSLEngineResult result = clientEngine.unwrap(clientInput, clientApplication);
+                if (result.getStatus() == SSLEngineResult.Status.OK)
+                    continue;
+            }
+            // Let the server make progress.
+            endPoint.fill(BufferUtil.EMPTY_BUFFER);
+            if (status == HandshakeStatus.NOT_HANDSHAKING && serverEngine().getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING)
+                break;
+        }
+        if (serverEngine().getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING)
+            throw new IllegalStateException("TLS handshake not completed " + sslConnection);
+        network.takeOutput();
+    }
+
+    private SSLEngine serverEngine()
+    {
+        return sslConnection.getSSLEngine();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        System.err.printf("records=%d avgRecordSize=%.1f%n", sslConnection.getRecordsOut(), sslConnection.getAverageRecordSize());
+        network.close();
+        serverTLS.stop();
+        scheduler.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testWrite(Blackhole blackhole) throws Exception
+    {
+        SslConnection.DecryptedEndPoint endPoint = sslConnection.getDecryptedEndPoint();
+        for (int i = 0; i < writes; ++i)
+        {
+            if (!endPoint.flush(content.slice()))
+                throw new IllegalStateException();
+        }
+        blackhole.consume(network.takeOutput());
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Options opt = new OptionsBuilder()
+            .include(SslRecordBatchingBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
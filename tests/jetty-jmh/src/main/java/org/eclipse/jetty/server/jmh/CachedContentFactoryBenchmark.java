@@ -0,0 +1,153 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2022 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under the
+// terms of the Eclipse Public License v. 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+// which is available at https://www.apache.org/licenses/LICENSE-2.0.
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.jmh;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.CachedContentFactory;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.resource.PathResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the time to get the content of files from a {@link CachedContentFactory}
+ * that can cache 10% of a tree of {@code files} files, requested with a Zipfian
+ * distribution of exponent {@code skew}, as typical of static content.</p>
+ * <p>The cache hit ratio is printed at the end of each trial.</p>
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class CachedContentFactoryBenchmark
+{
+    private static final int SAMPLES = 1 << 20;
+
+    @Param({"10000", "100000"})
+    public int files;
+
+    @Param({"0.8", "1.0"})
+    public double skew;
+
+    private Path root;
+    private String[] paths;
+    private int[] samples;
+    private CachedContentFactory cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        // A tree of 100 files per directory.
+        root = Files.createTempDirectory(CachedContentFactoryBenchmark.class.getSimpleName());
+        paths = new String[files];
+        byte[] content = new byte[1024];
+        Arrays.fill(content, (byte)'x');
+        for (int i = 0; i < files; ++i)
+        {
+            String path = "/dir-" + (i / 100) + "/file-" + i + ".txt";
+            Path file = root.resolve(path.substring(1));
+            if (i % 100 == 0)
+                Files.createDirectories(file.getParent());
+            Files.write(file, content);
+            paths[i] = path;
+        }
+
+        // Precompute the Zipfian ranks, the most popular files being spread in the tree.
+        double[] cumulative = new double[files];
+        double sum = 0;
+        for (int i = 0; i < files; ++i)
+        {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        int[] ranks = new int[files];
+        for (int i = 0; i < files; ++i)
+        {
+            ranks[i] = i;
+        }
+        Random random = new Random(1234);
+        for (int i = files - 1; i > 0; --i)
+        {
+            int j = random.nextInt(i + 1);
+            int rank = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = rank;
+        }
+        samples = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; ++i)
+        {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            if (index < 0)
+                index = -index - 1;
+            samples[i] = ranks[Math.min(index, files - 1)];
+        }
+
+        cache = new CachedContentFactory(null, new PathResource(root), new MimeTypes(), false, true, CompressedContentFormat.NONE);
+        cache.setMaxCachedFiles(files / 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        System.err.printf("%nhits=%d misses=%d hitRatio=%.3f evictions=%d admissionRejects=%d%n",
+            hits, misses, hits / (double)(hits + misses), cache.getEvictions(), cache.getAdmissionRejects());
+        cache.flushCache();
+        IO.delete(root.toFile());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object testGetContent() throws Exception
+    {
+        String path = paths[samples[ThreadLocalRandom.current().nextInt(SAMPLES)]];
+        HttpContent content = cache.getContent(path, 4096);
+        return content.getIndirectBuffer();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Options opt = new OptionsBuilder()
+            .include(CachedContentFactoryBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
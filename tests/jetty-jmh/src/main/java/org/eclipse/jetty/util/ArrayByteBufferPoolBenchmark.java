@@ -16,8 +16,11 @@ package org.eclipse.jetty.util;
 import java.nio.ByteBuffer;
 
 import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ArrayRetainableByteBufferPool;
 import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.RetainableByteBuffer;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -30,25 +33,102 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 @State(Scope.Benchmark)
 public class ArrayByteBufferPoolBenchmark
 {
+    private static final int[] SIZES = {1024, 2048, 4096, 16384};
+
+    @Param({"ARRAY", "RETAINABLE", "RETAINABLE_MAGAZINE"})
+    public static String poolType;
+
     private ByteBufferPool pool;
+    private ArrayRetainableByteBufferPool retainablePool;
 
     @Setup
     public void setUp() throws Exception
     {
-        pool = new ArrayByteBufferPool();
+        switch (poolType)
+        {
+            case "ARRAY":
+                pool = new ArrayByteBufferPool();
+                break;
+
+            case "RETAINABLE":
+                retainablePool = new ArrayRetainableByteBufferPool();
+                break;
+
+            case "RETAINABLE_MAGAZINE":
+                retainablePool = new ArrayRetainableByteBufferPool(0, -1, -1, Integer.MAX_VALUE, -1L, -1L, 16);
+                break;
+
+            default:
+                throw new IllegalStateException("Unknown poolType Parameter");
+        }
     }
 
     @TearDown
     public void tearDown()
     {
         pool = null;
+        retainablePool = null;
     }
 
     @Benchmark
     public void testAcquireRelease()
     {
-        ByteBuffer buffer = pool.acquire(2048, true);
-        pool.release(buffer);
+        if (pool != null)
+        {
+            ByteBuffer buffer = pool.acquire(2048, true);
+            pool.release(buffer);
+        }
+        else
+        {
+            RetainableByteBuffer buffer = retainablePool.acquire(2048, true);
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    public void testAcquireReleaseMany(Buffers buffers)
+    {
+        // Hold several buffers of different sizes at once, as a connection
+        // does with its input, output and aggregation buffers, so that the
+        // acquisitions cannot all be satisfied by the same bucket entry.
+        int count = buffers.buffers.length;
+        if (pool != null)
+        {
+            for (int i = 0; i < count; ++i)
+            {
+                buffers.buffers[i] = pool.acquire(SIZES[i % SIZES.length], true);
+            }
+            for (int i = 0; i < count; ++i)
+            {
+                pool.release((ByteBuffer)buffers.buffers[i]);
+            }
+        }
+        else
+        {
+            for (int i = 0; i < count; ++i)
+            {
+                buffers.buffers[i] = retainablePool.acquire(SIZES[i % SIZES.length], true);
+            }
+            for (int i = 0; i < count; ++i)
+            {
+                ((RetainableByteBuffer)buffers.buffers[i]).release();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buffers
+    {
+        @Param({"8"})
+        public int count;
+
+        private Object[] buffers;
+
+        @Setup
+        public void setUp()
+        {
+            buffers = new Object[count];
+        }
     }
 
     public static void main(String[] args) throws RunnerException
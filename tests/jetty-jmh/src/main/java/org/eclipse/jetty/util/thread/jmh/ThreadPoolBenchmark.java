@@ -15,14 +15,17 @@ package org.eclipse.jetty.util.thread.jmh;
 
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.LockFreeBlockingArrayQueue;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.thread.ExecutorThreadPool;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.VirtualThreadPool;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Measurement;
@@ -46,16 +49,17 @@ public class ThreadPoolBenchmark
 {
     public enum Type
     {
-        QTP, ETP, LQTP, LETP, AQTP, AETP;
+        QTP, ETP, LQTP, LETP, AQTP, AETP, VTP, LFQTP;
     }
 
-    @Param({"QTP", "ETP" /*, "LQTP", "LETP", "AQTP", "AETP" */})
+    @Param({"QTP", "ETP", "LFQTP" /*, "LQTP", "LETP", "AQTP", "AETP", "VTP" */})
     Type type;
 
     @Param({"200"})
     int size;
 
     ThreadPool pool;
+    Executor executor;
 
     @Setup // (Level.Iteration)
     public void buildPool()
@@ -98,10 +102,29 @@ public class ThreadPoolBenchmark
                 pool = new ExecutorThreadPool(size, size, new ArrayBlockingQueue<>(32768));
                 break;
 
+            case LFQTP:
+            {
+                QueuedThreadPool qtp = new QueuedThreadPool(size, size, new LockFreeBlockingArrayQueue<>(32768));
+                qtp.setReservedThreads(0);
+                pool = qtp;
+                break;
+            }
+
+            case VTP:
+            {
+                VirtualThreadPool vtp = new VirtualThreadPool(size);
+                vtp.getPlatformThreadPool().setReservedThreads(0);
+                pool = vtp;
+                break;
+            }
+
             default:
                 throw new IllegalStateException();
         }
         LifeCycle.start(pool);
+        // Jobs are submitted as blocking tasks would be, on virtual threads if available.
+        Executor virtual = VirtualThreadPool.getVirtualThreadsExecutor(pool);
+        executor = virtual == null ? pool : virtual;
     }
 
     @Benchmark
@@ -120,6 +143,22 @@ public class ThreadPoolBenchmark
         doJob();
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(16)
+    public void testSeveral() throws Exception
+    {
+        doJob();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(64)
+    public void testLots() throws Exception
+    {
+        doJob();
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.Throughput)
     @Threads(200)
@@ -133,12 +172,13 @@ public class ThreadPoolBenchmark
     {
         LifeCycle.stop(pool);
         pool = null;
+        executor = null;
     }
 
     void doJob() throws Exception
     {
         CountDownLatch latch = new CountDownLatch(1);
-        pool.execute(latch::countDown);
+        executor.execute(latch::countDown);
         latch.await();
     }
 